@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.execapp.jmx.JmxJobMBeanManager;
+import azkaban.executor.AlerterHolder;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.Status;
+import azkaban.flow.Flow;
+import azkaban.jobtype.JobTypeManager;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.project.Project;
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectLoader;
+import azkaban.test.Utils;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs whole flows of noop jobs on a FlowRunner with its polling loop, which walks the graph with
+ * progressGraph() every time a job finishes, on DAGs of up to 10k nodes. The runner is wired the
+ * way the exec-server tests wire it, without a database.
+ *
+ * <p>The layered shape makes every job fan out and fan in, like SyntheticFlows#createFlow. The
+ * dag engine is compared with the polling loop by FlowRunnerEngineBenchmark.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlowRunnerBenchmark {
+
+  private static final String END_JOB = "end";
+
+  @Param({"chain", "layered"})
+  public String shape;
+
+  @Param({"100", "1000", "10000"})
+  public int numJobs;
+
+  private File dir;
+  private File workingDir;
+  private Project project;
+  private Flow flow;
+  private int execId = 1;
+
+  @Setup(Level.Trial)
+  public void prepareProject() throws Exception {
+    Utils.initServiceProvider();
+    JmxJobMBeanManager.getInstance().initialize(new Props());
+
+    this.dir = Files.createTempDirectory("flow-runner-benchmark").toFile();
+    final File projectDir = new File(this.dir, "project");
+    writeJobFiles(projectDir);
+    this.workingDir = new File(this.dir, "work");
+    this.project = new Project(1, "benchmark");
+    this.flow = FlowRunnerTestUtil.prepareProject(this.project, projectDir, this.workingDir)
+        .get(END_JOB);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteProject() throws Exception {
+    FileUtils.deleteDirectory(this.dir);
+  }
+
+  @Benchmark
+  public Status runFlow() throws Exception {
+    final ExecutableFlow exFlow = new ExecutableFlow(this.project, this.flow);
+    exFlow.setExecutionPath(this.workingDir.getPath());
+    exFlow.setExecutionId(this.execId++);
+
+    final ExecutorLoader executorLoader = mock(ExecutorLoader.class);
+    when(executorLoader.updateExecutableReference(anyInt(), anyLong())).thenReturn(true);
+    final ProjectLoader projectLoader = mock(ProjectLoader.class);
+    when(projectLoader.fetchProjectMetaData(anyInt(), anyInt())).thenReturn(
+        new ProjectFileHandler(1, 1, 1, "testUser", "zip", "test.zip", 1, null, null, null,
+            "111.111.111.111"));
+    final MetricsManager metricsManager = new MetricsManager(new MetricRegistry());
+    final FlowRunner runner = new FlowRunner(exFlow, executorLoader, projectLoader,
+        new JobTypeManager(null, null, getClass().getClassLoader()), new Props(), null,
+        mock(AlerterHolder.class), new CommonMetrics(metricsManager),
+        new ExecMetrics(metricsManager));
+    runner.run();
+    return exFlow.getStatus();
+  }
+
+  /**
+   * Write the job files of the flow: numJobs noop jobs followed by an end job depending on the
+   * jobs nothing else depends on, so that they form a single flow.
+   */
+  private void writeJobFiles(final File projectDir) throws IOException {
+    projectDir.mkdirs();
+    final boolean[] hasDependents = new boolean[this.numJobs];
+    final int width = "chain".equals(this.shape) ? 1
+        : Math.max(2, (int) Math.sqrt(this.numJobs));
+    for (int i = 0; i < this.numJobs; i++) {
+      final List<String> dependencies = new ArrayList<>();
+      if (i >= width) {
+        // Each job depends on two jobs of the previous layer, on one job in a chain.
+        final int layerStart = (i / width - 1) * width;
+        final int first = layerStart + i % width;
+        final int second = layerStart + (i + 1) % width;
+        dependencies.add("job" + first);
+        hasDependents[first] = true;
+        if (second != first) {
+          dependencies.add("job" + second);
+          hasDependents[second] = true;
+        }
+      }
+      writeJobFile(projectDir, "job" + i, dependencies);
+    }
+
+    final List<String> leaves = new ArrayList<>();
+    for (int i = 0; i < this.numJobs; i++) {
+      if (!hasDependents[i]) {
+        leaves.add("job" + i);
+      }
+    }
+    writeJobFile(projectDir, END_JOB, leaves);
+  }
+
+  private static void writeJobFile(final File projectDir, final String name,
+      final List<String> dependencies) throws IOException {
+    final String job = "type=noop\n"
+        + (dependencies.isEmpty() ? "" : "dependencies=" + String.join(",", dependencies) + "\n");
+    Files.write(new File(projectDir, name + ".job").toPath(), job.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.EncodingType;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of an executable flow as it's stored in the database, and application of the
+ * updates the web server fetches from the executors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutableFlowBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int numJobs;
+
+  private ExecutableFlow flow;
+  private byte[] gzippedJson;
+  private Map<String, Object> updateObject;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.flow = SyntheticFlows.createFlow(this.numJobs);
+    this.gzippedJson = GZIPUtils.gzipString(JSONUtils.toJSON(this.flow.toObject()), "UTF-8");
+
+    // Half of the jobs succeeded since the last update
+    final long now = System.currentTimeMillis();
+    int i = 0;
+    for (final ExecutableNode node : this.flow.getExecutableNodes()) {
+      if (i++ % 2 == 0) {
+        node.setStatus(Status.SUCCEEDED);
+        node.setStartTime(now - 1000);
+        node.setEndTime(now);
+        node.setUpdateTime(now);
+      }
+    }
+    this.updateObject = this.flow.toUpdateObject(now - 1);
+  }
+
+  @Benchmark
+  public Map<String, Object> toObject() {
+    return this.flow.toObject();
+  }
+
+  @Benchmark
+  public String toJson() {
+    return JSONUtils.toJSON(this.flow.toObject());
+  }
+
+  @Benchmark
+  public byte[] toGzippedJson() throws IOException {
+    return GZIPUtils.gzipString(JSONUtils.toJSON(this.flow.toObject()), "UTF-8");
+  }
+
+  @Benchmark
+  public Object fromGzippedJson() throws IOException {
+    return GZIPUtils.transformBytesToObject(this.gzippedJson, EncodingType.GZIP);
+  }
+
+  @Benchmark
+  public Map<String, Object> toUpdateObject() {
+    return this.flow.toUpdateObject(0);
+  }
+
+  @Benchmark
+  public ExecutableFlow applyUpdateObject() {
+    this.flow.applyUpdateObject(this.updateObject);
+    return this.flow;
+  }
+}
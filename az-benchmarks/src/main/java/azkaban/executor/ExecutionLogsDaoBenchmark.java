@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.db.AzDBTestUtility.EmbeddedH2BasicDataSource;
+import azkaban.db.AzkabanDataSource;
+import azkaban.db.DatabaseOperator;
+import azkaban.db.DatabaseSetup;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.LogSegmentOutputStream;
+import azkaban.utils.LogSegmentUtils;
+import azkaban.utils.Props;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Chunking of job logs into the execution_logs table of an embedded H2 database, from plain log
+ * files or compressed log segments, and reading them back the way the web server pages through
+ * them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutionLogsDaoBenchmark {
+
+  private static final int LOG_SIZE = 5 * 1024 * 1024;
+  private static final int PAGE_SIZE = 50 * 1024;
+  private static final int FETCH_EXEC_ID = 1;
+
+  // Whether the chunks read from the database are cached
+  @Param({"true", "false"})
+  public boolean chunkCacheEnabled;
+
+  private File logFile;
+  // The same log, written as a compressed log segment
+  private File segmentFile;
+  private ExecutionLogsDao executionLogsDao;
+  private final AtomicInteger uploadExecId = new AtomicInteger(FETCH_EXEC_ID);
+  private final Random random = new Random(0);
+
+  @Setup
+  public void setUp() throws Exception {
+    final AzkabanDataSource dataSource = new EmbeddedH2BasicDataSource();
+    new DatabaseSetup(dataSource, new File("../azkaban-db/src/main/sql/").getCanonicalPath())
+        .updateDatabase();
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_LOG_CHUNK_CACHE_MAX_BYTES,
+        this.chunkCacheEnabled ? 64 * 1024 * 1024 : 0);
+    this.executionLogsDao = new ExecutionLogsDao(new DatabaseOperator(new QueryRunner(dataSource)),
+        new ExecutionLogChunkCache(props));
+
+    this.logFile = File.createTempFile("benchmark", ".log");
+    final StringBuilder log = new StringBuilder(LOG_SIZE);
+    int line = 0;
+    while (log.length() < LOG_SIZE) {
+      log.append("2020/01/01 00:00:00.000 +0000 INFO [job] [Azkaban] Log line ").append(line++)
+          .append('\n');
+    }
+    Files.write(this.logFile.toPath(), log.toString().getBytes(StandardCharsets.UTF_8));
+    this.segmentFile = LogSegmentUtils.getSegmentFile(this.logFile);
+    try (final OutputStream segment = new LogSegmentOutputStream(this.segmentFile)) {
+      segment.write(log.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    this.executionLogsDao.uploadLogFile(FETCH_EXEC_ID, "job", 0, this.logFile);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.forceDelete(this.logFile);
+    FileUtils.forceDelete(this.segmentFile);
+    FileUtils.forceDelete(LogSegmentUtils.getIndexFile(this.segmentFile));
+  }
+
+  @Benchmark
+  public void uploadLogFile() throws ExecutorManagerException {
+    this.executionLogsDao
+        .uploadLogFile(this.uploadExecId.incrementAndGet(), "job", 0, this.logFile);
+  }
+
+  @Benchmark
+  public void uploadLogSegment() throws ExecutorManagerException {
+    this.executionLogsDao
+        .uploadLogSegment(this.uploadExecId.incrementAndGet(), "job", 0, this.segmentFile);
+  }
+
+  @Benchmark
+  public LogData fetchLogPage() throws ExecutorManagerException {
+    return this.executionLogsDao.fetchLogs(FETCH_EXEC_ID, "job", 0,
+        this.random.nextInt(LOG_SIZE - PAGE_SIZE), PAGE_SIZE);
+  }
+
+  @Benchmark
+  public LogData fetchLogTail() throws ExecutorManagerException {
+    return this.executionLogsDao.fetchLogTail(FETCH_EXEC_ID, "job", 0, PAGE_SIZE);
+  }
+}
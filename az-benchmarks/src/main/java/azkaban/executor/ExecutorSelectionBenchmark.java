@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.executor.selector.ExecutorComparator;
+import azkaban.executor.selector.ExecutorFilter;
+import azkaban.executor.selector.ExecutorRanking;
+import azkaban.executor.selector.ExecutorSelector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Selection of the executor to dispatch a flow to among thousands of simulated executors, with
+ * the selector which sorts the executors for every dispatch and with the incrementally maintained
+ * ranking, and cost of re-ranking an executor when its statistics are refreshed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutorSelectionBenchmark {
+
+  @Param({"100", "1000", "5000"})
+  public int numExecutors;
+
+  private final Random random = new Random(0);
+  private final ExecutableFlow flow = new ExecutableFlow();
+  private List<Executor> executors;
+  private Set<Executor> candidates;
+  private ExecutorSelector selector;
+  private ExecutorRanking ranking;
+
+  @Setup
+  public void setUp() {
+    final List<String> filterList = new ArrayList<>(ExecutorFilter.getAvailableFilterNames());
+    final Map<String, Integer> comparatorMap = new HashMap<>();
+    for (final String name : ExecutorComparator.getAvailableComparatorNames()) {
+      comparatorMap.put(name, 1);
+    }
+    this.selector = new ExecutorSelector(filterList, comparatorMap);
+    this.ranking = new ExecutorRanking(filterList, comparatorMap);
+
+    this.executors = new ArrayList<>();
+    for (int i = 0; i < this.numExecutors; i++) {
+      final Executor executor = new Executor(i, "host" + i, 12321, true);
+      executor.setExecutorInfo(randomExecutorInfo());
+      this.executors.add(executor);
+      this.ranking.update(executor);
+    }
+    this.candidates = new HashSet<>(this.executors);
+  }
+
+  private ExecutorInfo randomExecutorInfo() {
+    return new ExecutorInfo(this.random.nextDouble() * 100, 4096 + this.random.nextInt(60000),
+        this.random.nextInt(30), System.currentTimeMillis() - this.random.nextInt(3600000),
+        this.random.nextDouble() * 100, this.random.nextInt(30));
+  }
+
+  @Benchmark
+  public Executor selectWithSelector() {
+    return this.selector.getBest(this.candidates, this.flow);
+  }
+
+  @Benchmark
+  public Executor selectWithRanking() {
+    return this.ranking.getBest(this.candidates);
+  }
+
+  @Benchmark
+  public Executor refreshAndSelectWithRanking() {
+    // One executor reports new statistics between two dispatches
+    final Executor executor = this.executors.get(this.random.nextInt(this.numExecutors));
+    executor.setExecutorInfo(randomExecutorInfo());
+    this.ranking.update(executor);
+    return this.ranking.getBest(this.candidates);
+  }
+}
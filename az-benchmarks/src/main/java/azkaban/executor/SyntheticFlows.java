@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.flow.Edge;
+import azkaban.flow.Flow;
+import azkaban.flow.Node;
+import azkaban.project.Project;
+
+/**
+ * Builds executable flows of arbitrary size for the benchmarks.
+ */
+public class SyntheticFlows {
+
+  public static final String JOB_PREFIX = "job";
+
+  private SyntheticFlows() {
+  }
+
+  /**
+   * Create a flow whose jobs form a DAG of the given size, made of about sqrt(numJobs) layers of
+   * sqrt(numJobs) jobs. Each job depends on two jobs of the previous layer, so the DAG both fans
+   * out and fans in. Every job is in state READY.
+   */
+  public static ExecutableFlow createFlow(final int numJobs) {
+    final Project project = new Project(1, "benchmark");
+    project.setVersion(1);
+    final Flow flow = new Flow("flow");
+    for (int i = 0; i < numJobs; i++) {
+      final Node node = new Node(JOB_PREFIX + i);
+      node.setType("command");
+      flow.addNode(node);
+    }
+    final int width = Math.max(2, (int) Math.sqrt(numJobs));
+    for (int i = width; i < numJobs; i++) {
+      final int layerStart = (i / width - 1) * width;
+      flow.addEdge(new Edge(JOB_PREFIX + (layerStart + i % width), JOB_PREFIX + i));
+      flow.addEdge(new Edge(JOB_PREFIX + (layerStart + (i + 1) % width), JOB_PREFIX + i));
+    }
+    flow.initialize();
+
+    final ExecutableFlow executableFlow = new ExecutableFlow(project, flow);
+    executableFlow.setExecutionId(1);
+    executableFlow.setStatus(Status.RUNNING);
+    for (final ExecutableNode node : executableFlow.getExecutableNodes()) {
+      node.setStatus(Status.READY);
+    }
+    return executableFlow;
+  }
+}
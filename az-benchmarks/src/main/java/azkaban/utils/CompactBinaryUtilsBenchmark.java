@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import azkaban.db.EncodingType;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.Status;
+import azkaban.executor.SyntheticFlows;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of the flow data written to execution_flows, in the GZIP and BINARY
+ * encodings. The encoded size of each flow is reported with the encoding time, as the
+ * encodedBytes secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompactBinaryUtilsBenchmark {
+
+  @Param({"100", "1000"})
+  public int numJobs;
+
+  @Param({"GZIP", "BINARY"})
+  public EncodingType encodingType;
+
+  private Map<String, Object> flowObject;
+  private byte[] data;
+
+  @Setup
+  public void setUp() throws IOException {
+    final ExecutableFlow flow = SyntheticFlows.createFlow(this.numJobs);
+    long time = 1577836800000L;
+    for (final ExecutableNode node : flow.getExecutableNodes()) {
+      node.setStatus(Status.SUCCEEDED);
+      node.setStartTime(time);
+      node.setEndTime(time += 60000);
+      node.setUpdateTime(time);
+    }
+    this.flowObject = flow.toObject();
+    this.data = encodeFlow();
+  }
+
+  @Benchmark
+  public byte[] encode(final EncodedSize size) throws IOException {
+    final byte[] encoded = encodeFlow();
+    size.encodedBytes = encoded.length;
+    return encoded;
+  }
+
+  @Benchmark
+  public Object decode() throws IOException {
+    return GZIPUtils.transformBytesToObject(this.data, this.encodingType);
+  }
+
+  private byte[] encodeFlow() throws IOException {
+    if (this.encodingType == EncodingType.BINARY) {
+      return CompactBinaryUtils.encode(this.flowObject);
+    }
+    return GZIPUtils
+        .gzipBytes(JSONUtils.toJSON(this.flowObject).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Size of the encoded flow, a secondary result of {@link #encode(EncodedSize)}.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedSize {
+
+    public long encodedBytes;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import azkaban.utils.FileIOUtils.LogData;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hard-linking of a project dir into an execution dir, and reading of pages of a job log file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileIOUtilsBenchmark {
+
+  private static final int FILES_PER_DIR = 100;
+  private static final int LOG_SIZE = 10 * 1024 * 1024;
+  private static final int PAGE_SIZE = 50 * 1024;
+
+  // Number of files of the project dir
+  @Param({"1000", "10000"})
+  public int numFiles;
+
+  private File baseDir;
+  private File projectDir;
+  private File execDir;
+  private File logFile;
+  private ExecutorService linkService;
+  private final Random random = new Random(0);
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.baseDir = Files.createTempDirectory("benchmark").toFile();
+    this.projectDir = new File(this.baseDir, "project");
+    for (int i = 0; i < this.numFiles; i++) {
+      final File dir = new File(this.projectDir, "lib" + (i / FILES_PER_DIR));
+      dir.mkdirs();
+      Files.write(new File(dir, "file" + i + ".jar").toPath(),
+          ("content" + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    this.logFile = new File(this.baseDir, "job.log");
+    final StringBuilder log = new StringBuilder(LOG_SIZE);
+    int line = 0;
+    while (log.length() < LOG_SIZE) {
+      log.append("2020/01/01 00:00:00.000 +0000 INFO [job] [Azkaban] Log line ").append(line++)
+          .append('\n');
+    }
+    Files.write(this.logFile.toPath(), log.toString().getBytes(StandardCharsets.UTF_8));
+
+    this.linkService = Executors.newFixedThreadPool(4);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.linkService.shutdownNow();
+    FileUtils.deleteDirectory(this.baseDir);
+  }
+
+  @Setup(Level.Invocation)
+  public void createExecDir() {
+    this.execDir = new File(this.baseDir, "exec");
+    this.execDir.mkdirs();
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteExecDir() throws IOException {
+    FileUtils.deleteDirectory(this.execDir);
+  }
+
+  @Benchmark
+  public int createDeepHardlink() throws IOException {
+    return FileIOUtils.createDeepHardlink(this.projectDir, this.execDir);
+  }
+
+  @Benchmark
+  public int createDeepHardlinkInParallel() throws IOException {
+    return FileIOUtils.createDeepHardlink(this.projectDir, this.execDir, this.linkService);
+  }
+
+  @Benchmark
+  public LogData readUtf8File() throws IOException {
+    return FileIOUtils.readUtf8File(this.logFile, this.random.nextInt(LOG_SIZE - PAGE_SIZE),
+        PAGE_SIZE);
+  }
+}
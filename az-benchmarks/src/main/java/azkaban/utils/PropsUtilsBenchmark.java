@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolution of the job props, as done for every job run: the job props inherit the flow props,
+ * which inherit the executor-wide props, and reference each other's keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PropsUtilsBenchmark {
+
+  // Number of executor-wide props. The flow and job props are a fraction of it.
+  @Param({"100", "1000"})
+  public int numGlobalProps;
+
+  private Props jobProps;
+
+  @Setup
+  public void setUp() {
+    final Props globalProps = new Props();
+    for (int i = 0; i < this.numGlobalProps; i++) {
+      globalProps.put("global.key" + i, "/path/to/global/value" + i);
+    }
+
+    final Props flowProps = new Props(globalProps);
+    for (int i = 0; i < this.numGlobalProps / 4; i++) {
+      flowProps.put("flow.key" + i, "${global.key" + i + "}/flow" + i);
+    }
+
+    this.jobProps = new Props(flowProps);
+    for (int i = 0; i < this.numGlobalProps / 10; i++) {
+      this.jobProps.put("job.key" + i, "${flow.key" + i + "}:${global.key" + (i * 3) + "}");
+      this.jobProps.put("job.expression" + i, "$(" + i + " * 1024)");
+    }
+  }
+
+  @Benchmark
+  public Props resolveProps() {
+    return PropsUtils.resolveProps(this.jobProps);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package trigger.kafka;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trigger.kafka.Constants.DependencyInstanceConfigKey;
+
+/**
+ * Matching of a consumed Kafka record against the dependencies waiting on its topic, as done by
+ * the Kafka event monitor for every record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KafkaDepInstanceCollectionBenchmark {
+
+  private static final int NUM_TOPICS = 10;
+  private static final String TOPIC = "topic0";
+
+  // Number of distinct event regexes per topic
+  @Param({"10", "100", "1000"})
+  public int numRegexesPerTopic;
+
+  private KafkaDepInstanceCollection depInstances;
+  private String payload;
+  private String matchedRegex;
+
+  @Setup
+  public void setUp() {
+    this.depInstances = new KafkaDepInstanceCollection();
+    for (int topic = 0; topic < NUM_TOPICS; topic++) {
+      for (int regex = 0; regex < this.numRegexesPerTopic; regex++) {
+        // Two dependencies share each regex, like two flows waiting on the same event
+        for (int dep = 0; dep < 2; dep++) {
+          this.depInstances.add(createDep("topic" + topic, ".*\"event\":\"event" + regex + "\".*",
+              "dep" + topic + "_" + regex + "_" + dep));
+        }
+      }
+    }
+
+    final int matchingEvent = this.numRegexesPerTopic / 2;
+    this.payload = "{\"timestamp\":1577836800000,\"event\":\"event" + matchingEvent
+        + "\",\"cluster\":\"cluster0\",\"dataset\":\"/data/tracking/PageViewEvent\"}";
+    this.matchedRegex = ".*\"event\":\"event" + matchingEvent + "\".*";
+  }
+
+  @Benchmark
+  public Set<String> regexInTopic() {
+    return this.depInstances.regexInTopic(TOPIC, this.payload);
+  }
+
+  @Benchmark
+  public List<KafkaDependencyInstanceContext> matchRecord() {
+    final List<KafkaDependencyInstanceContext> matched = new ArrayList<>();
+    for (final String regex : this.depInstances.regexInTopic(TOPIC, this.payload)) {
+      matched.addAll(this.depInstances.getDepsByTopicAndEvent(TOPIC, regex));
+    }
+    return matched;
+  }
+
+  @Benchmark
+  public List<KafkaDependencyInstanceContext> getDepsByTopicAndEvent() {
+    return this.depInstances.getDepsByTopicAndEvent(TOPIC, this.matchedRegex);
+  }
+
+  private static KafkaDependencyInstanceContext createDep(final String topic, final String regex,
+      final String name) {
+    final Map<String, String> config = new HashMap<>();
+    config.put(DependencyInstanceConfigKey.TOPIC, topic);
+    config.put(DependencyInstanceConfigKey.MATCH, regex);
+    config.put(DependencyInstanceConfigKey.NAME, name);
+    return new KafkaDependencyInstanceContext(config::get, null, null);
+  }
+}
@@ -73,6 +73,7 @@ public class Constants {
   public static final int DEFAULT_PORT_NUMBER = 8081;
   public static final int DEFAULT_SSL_PORT_NUMBER = 8443;
   public static final int DEFAULT_JETTY_MAX_THREAD_COUNT = 20;
+  public static final int DEFAULT_EXECUTOR_MAX_THREADS = 50;
 
 
   // One Schedule's default End Time: 01/01/2050, 00:00:00, UTC
@@ -100,9 +101,80 @@ public class Constants {
   // How often executors will poll new executions in Poll Dispatch model
   public static final int DEFAULT_AZKABAN_POLLING_INTERVAL_MS = 1000;
 
+  // How often executors poll new executions when the web server wakes them up on submission
+  public static final int DEFAULT_AZKABAN_POLLING_FALLBACK_INTERVAL_MS = 10000;
+
+  // Max number of executions an executor claims in one poll. 1 claims them one by one.
+  public static final int DEFAULT_AZKABAN_POLLING_BATCH_MAX_EXECUTIONS = 1;
+
   // Executors can use cpu load calculated from this period to take/skip polling turns
   public static final int DEFAULT_AZKABAN_POLLING_CRITERIA_CPU_LOAD_PERIOD_SEC = 60;
 
+  // Number of flow deltas an executor writes before rewriting the full flow data
+  public static final int DEFAULT_AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL = 100;
+
+  // How often executors flush the coalesced flow updates of the write-behind writer
+  public static final long DEFAULT_AZKABAN_FLOW_WRITE_BEHIND_FLUSH_INTERVAL_MS = 1000;
+
+  // How often executors ship the completed chunks of running job logs to the DB, and how many
+  // chunks can wait in memory to be uploaded
+  public static final long DEFAULT_AZKABAN_JOB_LOG_STREAMING_INTERVAL_MS = 5000;
+  public static final int DEFAULT_AZKABAN_JOB_LOG_STREAMING_QUEUE_SIZE = 200;
+
+  // Number of log lines executors can queue for the async log writer
+  public static final int DEFAULT_AZKABAN_JOB_LOG_ASYNC_BUFFER_SIZE = 16384;
+
+  // Log files of the running jobs executors keep open for the reads of the web server, and the
+  // limits of the log streams to the web server. Log streams may use a fifth of the HTTP threads
+  // of the executor by default, and never more than half of them.
+  public static final int DEFAULT_AZKABAN_JOB_LOG_READER_MAX_OPEN_FILES = 64;
+  public static final int DEFAULT_AZKABAN_JOB_LOG_STREAM_THREADS_PERCENT = 20;
+  public static final int MAX_AZKABAN_JOB_LOG_STREAM_THREADS_PERCENT = 50;
+  public static final long DEFAULT_AZKABAN_JOB_LOG_STREAM_MAX_DURATION_MS = 10 * 60 * 1000;
+  public static final long DEFAULT_AZKABAN_JOB_LOG_STREAM_POLL_INTERVAL_MS = 500;
+
+  // Memory the web server may use for decompressed chunks of the logs read from the DB
+  public static final long DEFAULT_AZKABAN_LOG_CHUNK_CACHE_MAX_BYTES = 64 * 1024 * 1024;
+
+  // Pooled connections of the web server to the executors, in total and to each executor, and
+  // the timeouts of its calls
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS = 200;
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_EXECUTOR = 20;
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS = 10000;
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS = 60000;
+  // Log streams of the web server to each executor, on connections of their own. Below the
+  // pooled connections per executor, and below the streams an executor accepts.
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CLIENT_MAX_LOG_STREAMS_PER_EXECUTOR = 10;
+
+  // Number of threads making the asynchronous calls of the web server to the executors
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CLIENT_ASYNC_THREADS = 20;
+
+  // Number of executions whose last change an executor remembers for its change feed
+  public static final int DEFAULT_AZKABAN_EXECUTOR_CHANGE_FEED_MAX_EXECUTIONS = 10000;
+
+  // How long the web server waits for changes from an executor, and how often it still polls
+  // all the running executions of the executor
+  public static final long DEFAULT_AZKABAN_EXECUTOR_CHANGE_FEED_TIMEOUT_MS = 500;
+  public static final long DEFAULT_AZKABAN_EXECUTOR_CHANGE_FEED_FULL_UPDATE_INTERVAL_MS = 60000;
+
+  // Size of the executor-wide store of thin archive dependencies, and number of threads
+  // downloading into it
+  public static final long DEFAULT_AZKABAN_DEPENDENCY_CACHE_MAX_SIZE_BYTES = 10L * 1024 * 1024 * 1024;
+  public static final int DEFAULT_AZKABAN_DEPENDENCY_CACHE_DOWNLOAD_THREADS = 8;
+
+  // Number of threads unzipping the project files and hard-linking the project dirs into the
+  // execution dirs
+  public static final int DEFAULT_AZKABAN_FLOW_PREPARATION_THREADS = 4;
+
+  // The web server asks the executors every minute to prefetch the projects scheduled in the
+  // next 30 minutes. The executors keep up to 10GB of prefetched projects not used yet, and
+  // download them at 20MB/s at most.
+  public static final long DEFAULT_AZKABAN_PROJECT_PREFETCH_INTERVAL_MS = 60 * 1000L;
+  public static final long DEFAULT_AZKABAN_PROJECT_PREFETCH_LOOKAHEAD_MS = 30 * 60 * 1000L;
+  public static final long DEFAULT_AZKABAN_PROJECT_PREFETCH_DISK_BUDGET_BYTES =
+      10L * 1024 * 1024 * 1024;
+  public static final long DEFAULT_AZKABAN_PROJECT_PREFETCH_MAX_BYTES_PER_SEC = 20L * 1024 * 1024;
+
   // Default value to feature enable setting. To be backward compatible, this value === FALSE
   public static final boolean DEFAULT_AZKABAN_RAMP_ENABLED = false;
   // Due to multiple AzkabanExec Server instance scenario, it will be required to persistent the ramp result into the DB.
@@ -135,6 +207,110 @@ public class Constants {
     public static final String AZKABAN_POLLING_CRITERIA_CPU_LOAD_PERIOD_SEC =
         "azkaban.polling_criteria.cpu_load_period_sec";
 
+    // Configures the web server to wake up the executors when a flow is submitted, and the
+    // executors to poll right away. The periodic poll then only runs at the fallback interval.
+    public static final String AZKABAN_POLLING_WAKEUP_ENABLED = "azkaban.polling.wakeup.enabled";
+    public static final String AZKABAN_POLLING_FALLBACK_INTERVAL_MS =
+        "azkaban.polling.fallback_interval.ms";
+
+    // Configures executors to claim up to this many executions in one poll, bounded by their free
+    // flow threads and their memory and cpu headroom, and to set them up concurrently
+    public static final String AZKABAN_POLLING_BATCH_MAX_EXECUTIONS =
+        "azkaban.polling.batch.max_executions";
+
+    // Configures executors to persist running flows as node-level deltas instead of rewriting
+    // the full flow data on every update, and how many deltas are kept before compacting them
+    public static final String AZKABAN_FLOW_DELTA_UPDATES_ENABLED =
+        "azkaban.flow.delta_updates.enabled";
+    public static final String AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL =
+        "azkaban.flow.delta_updates.compaction_interval";
+
+    // Encoding of the flow data written to execution_flows: PLAIN, GZIP (default) or BINARY.
+    // Rows are decoded according to their own enc_type, so mixed encodings can be read.
+    public static final String AZKABAN_FLOW_DATA_ENCODING_TYPE =
+        "azkaban.flow_data.encoding_type";
+
+    // Configures executors to coalesce the flow updates of running executions and write them
+    // in batches at a bounded interval. Terminal states are still written immediately.
+    public static final String AZKABAN_FLOW_WRITE_BEHIND_ENABLED =
+        "azkaban.flow.write_behind.enabled";
+    public static final String AZKABAN_FLOW_WRITE_BEHIND_FLUSH_INTERVAL_MS =
+        "azkaban.flow.write_behind.flush_interval_ms";
+
+    // Configures executors to run flows on the event driven azkaban.dag engine. Flows with
+    // embedded flows or conditions still run on the default engine.
+    public static final String AZKABAN_FLOW_DAG_ENGINE_ENABLED =
+        "azkaban.flow.dag_engine.enabled";
+
+    // Configures executors to upload job logs to the DB while the jobs are running, instead of
+    // uploading the whole log when the job finishes
+    public static final String AZKABAN_JOB_LOG_STREAMING_ENABLED =
+        "azkaban.job.log.streaming.enabled";
+    public static final String AZKABAN_JOB_LOG_STREAMING_INTERVAL_MS =
+        "azkaban.job.log.streaming.interval_ms";
+    public static final String AZKABAN_JOB_LOG_STREAMING_QUEUE_SIZE =
+        "azkaban.job.log.streaming.queue_size";
+
+    // Configures executors to write the job and flow logs on a background thread. When its buffer
+    // is full, the overflow policy drop_newest drops the new lines and drop_oldest the oldest
+    // queued ones; logging never waits.
+    public static final String AZKABAN_JOB_LOG_ASYNC_ENABLED = "azkaban.job.log.async.enabled";
+    public static final String AZKABAN_JOB_LOG_ASYNC_BUFFER_SIZE =
+        "azkaban.job.log.async.buffer_size";
+    public static final String AZKABAN_JOB_LOG_ASYNC_OVERFLOW_POLICY =
+        "azkaban.job.log.async.overflow_policy";
+
+    // Max number of log files executors keep open to serve the logs of running jobs. 0 opens the
+    // file for every read.
+    public static final String AZKABAN_JOB_LOG_READER_MAX_OPEN_FILES =
+        "azkaban.job.log.reader.max_open_files";
+    // Max number of concurrent log streams of an executor, each holding one of its server threads,
+    // how long a stream stays open, and how often it checks for new lines
+    public static final String AZKABAN_JOB_LOG_STREAM_MAX_STREAMS =
+        "azkaban.job.log.stream.max_streams";
+    public static final String AZKABAN_JOB_LOG_STREAM_MAX_DURATION_MS =
+        "azkaban.job.log.stream.max_duration_ms";
+    public static final String AZKABAN_JOB_LOG_STREAM_POLL_INTERVAL_MS =
+        "azkaban.job.log.stream.poll_interval_ms";
+
+    // Configures executors to write job logs as compressed log segments, uploaded to the DB
+    // without compressing them again. The logs aren't rolled over, and aren't uploaded while the
+    // jobs run.
+    public static final String AZKABAN_JOB_LOG_COMPRESSED_ENABLED =
+        "azkaban.job.log.compressed.enabled";
+
+    // Max bytes of decompressed log chunks cached by the web server. 0 disables the cache.
+    public static final String AZKABAN_LOG_CHUNK_CACHE_MAX_BYTES =
+        "azkaban.log.chunk_cache.max_bytes";
+
+    // Configures the connection pool of the web server to the executors, and the timeouts and
+    // the number of threads of the calls to the executors
+    public static final String AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS =
+        "azkaban.executor.client.max_connections";
+    public static final String AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_EXECUTOR =
+        "azkaban.executor.client.max_connections_per_executor";
+    public static final String AZKABAN_EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS =
+        "azkaban.executor.client.connect_timeout_ms";
+    public static final String AZKABAN_EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS =
+        "azkaban.executor.client.socket_timeout_ms";
+    public static final String AZKABAN_EXECUTOR_CLIENT_ASYNC_THREADS =
+        "azkaban.executor.client.async_threads";
+    // Max number of concurrent log streams of the web server to one executor. The streams use
+    // their own connections, so that they never hold the connections of the other calls.
+    public static final String AZKABAN_EXECUTOR_CLIENT_MAX_LOG_STREAMS_PER_EXECUTOR =
+        "azkaban.executor.client.max_log_streams_per_executor";
+
+    // Configures the web server to fetch from the change feed of the executors only the running
+    // executions which changed, instead of polling all of them
+    public static final String AZKABAN_EXECUTOR_CHANGE_FEED_ENABLED =
+        "azkaban.executor.change_feed.enabled";
+    public static final String AZKABAN_EXECUTOR_CHANGE_FEED_TIMEOUT_MS =
+        "azkaban.executor.change_feed.timeout_ms";
+    public static final String AZKABAN_EXECUTOR_CHANGE_FEED_FULL_UPDATE_INTERVAL_MS =
+        "azkaban.executor.change_feed.full_update_interval_ms";
+    public static final String AZKABAN_EXECUTOR_CHANGE_FEED_MAX_EXECUTIONS =
+        "azkaban.executor.change_feed.max_executions";
+
     // Configures properties for Azkaban executor health check
     public static final String AZKABAN_EXECUTOR_HEALTHCHECK_INTERVAL_MIN = "azkaban.executor.healthcheck.interval.min";
     public static final String AZKABAN_EXECUTOR_MAX_FAILURE_COUNT = "azkaban.executor.max.failurecount";
@@ -208,6 +384,8 @@ public class Constants {
     public static final String EXECUTOR_PORT_FILE = "executor.portfile";
     // To set a fixed port for executor-server. Otherwise some available port is used.
     public static final String EXECUTOR_PORT = "executor.port";
+    // Max number of threads of the executor server, serving the requests of the web server
+    public static final String EXECUTOR_MAX_THREADS = "executor.maxThreads";
 
     // Max flow running time in mins, server will kill flows running longer than this setting.
     // if not set or <= 0, then there's no restriction on running time.
@@ -216,6 +394,34 @@ public class Constants {
     // Maximum number of tries to download a dependency (no more retry attempts will be made after this many download failures)
     public static final String AZKABAN_DEPENDENCY_MAX_DOWNLOAD_TRIES = "azkaban.dependency.max.download.tries";
 
+    // Configures the executor to keep the startup dependencies of thin archives in a local store
+    // keyed by their SHA1, and to hard-link them into the project directories
+    public static final String AZKABAN_DEPENDENCY_CACHE_ENABLED = "azkaban.dependency.cache.enabled";
+    public static final String AZKABAN_DEPENDENCY_CACHE_DIR = "azkaban.dependency.cache.dir";
+    public static final String AZKABAN_DEPENDENCY_CACHE_MAX_SIZE_BYTES =
+        "azkaban.dependency.cache.max_size_bytes";
+    public static final String AZKABAN_DEPENDENCY_CACHE_DOWNLOAD_THREADS =
+        "azkaban.dependency.cache.download_threads";
+
+    // Number of threads unzipping the project files and hard-linking the project dirs into the
+    // execution dirs
+    public static final String AZKABAN_FLOW_PREPARATION_THREADS =
+        "azkaban.flow.preparation.threads";
+
+    // Configures the web server to ask the executors to download the projects of the upcoming
+    // scheduled executions into their project cache ahead of time
+    public static final String AZKABAN_PROJECT_PREFETCH_ENABLED = "azkaban.project.prefetch.enabled";
+    public static final String AZKABAN_PROJECT_PREFETCH_INTERVAL_MS =
+        "azkaban.project.prefetch.interval_ms";
+    public static final String AZKABAN_PROJECT_PREFETCH_LOOKAHEAD_MS =
+        "azkaban.project.prefetch.lookahead_ms";
+    // Max size of the prefetched projects not used by an execution yet, and max download rate of
+    // the prefetched projects, on each executor
+    public static final String AZKABAN_PROJECT_PREFETCH_DISK_BUDGET_BYTES =
+        "azkaban.project.prefetch.disk_budget_bytes";
+    public static final String AZKABAN_PROJECT_PREFETCH_MAX_BYTES_PER_SEC =
+        "azkaban.project.prefetch.max_bytes_per_sec";
+
     public static final String AZKABAN_STORAGE_TYPE = "azkaban.storage.type";
     public static final String AZKABAN_STORAGE_LOCAL_BASEDIR = "azkaban.storage.local.basedir";
     public static final String HADOOP_CONF_DIR_PATH = "hadoop.conf.dir.path";
@@ -224,6 +430,13 @@ public class Constants {
     public static final String AZKABAN_STORAGE_CACHE_DEPENDENCY_ENABLED = "azkaban.storage.cache.dependency.enabled";
     public static final String AZKABAN_STORAGE_CACHE_DEPENDENCY_ROOT_URI = "azkaban.storage.cache.dependency_root.uri";
     public static final String AZKABAN_STORAGE_ORIGIN_DEPENDENCY_ROOT_URI = "azkaban.storage.origin.dependency_root.uri";
+    // Storage of the execution logs: LOCAL, HDFS or the class of a custom LogStorage. The logs are
+    // stored in the execution_logs table of the DB when it isn't set.
+    public static final String AZKABAN_LOG_STORAGE_TYPE = "azkaban.log.storage.type";
+    public static final String AZKABAN_LOG_STORAGE_LOCAL_BASEDIR =
+        "azkaban.log.storage.local.basedir";
+    public static final String AZKABAN_LOG_STORAGE_HDFS_ROOT_URI =
+        "azkaban.log.storage.hdfs.root.uri";
     public static final String AZKABAN_KERBEROS_PRINCIPAL = "azkaban.kerberos.principal";
     public static final String AZKABAN_KEYTAB_PATH = "azkaban.keytab.path";
     public static final String PROJECT_TEMP_DIR = "project.temp.dir";
@@ -289,6 +502,9 @@ public class Constants {
     public static final String EXECUTOR_SELECTOR_FILTERS = "azkaban.executorselector.filters";
     public static final String EXECUTOR_SELECTOR_COMPARATOR_PREFIX =
         "azkaban.executorselector.comparator.";
+    // Keep the executors ranked as their stats are refreshed instead of sorting them per dispatch
+    public static final String EXECUTOR_SELECTOR_RANKING_ENABLED =
+        "azkaban.executorselector.ranking.enabled";
     public static final String QUEUEPROCESSING_ENABLED = "azkaban.queueprocessing.enabled";
 
     public static final String SESSION_TIME_TO_LIVE = "session.time.to.live";
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable string map backing the flattened snapshots of {@link Props}.
+ *
+ * <p>Entries are stored with open addressing in flat arrays of keys, values and precomputed
+ * hashes, so a lookup is a few array probes instead of a walk of hash map nodes, and the map
+ * takes a fraction of the memory of a HashMap. Null keys are not supported; null values are.</p>
+ */
+final class FrozenStringMap extends AbstractMap<String, String> {
+
+  private final String[] keys;
+  private final String[] values;
+  private final int[] hashes;
+  private final int mask;
+  private final int size;
+  private Set<Map.Entry<String, String>> entrySet;
+
+  FrozenStringMap(final Map<String, String> map) {
+    // Keep the table at most half full so that the probe sequences stay short
+    int capacity = 2;
+    while (capacity < map.size() * 2) {
+      capacity <<= 1;
+    }
+    this.keys = new String[capacity];
+    this.values = new String[capacity];
+    this.hashes = new int[capacity];
+    this.mask = capacity - 1;
+    this.size = map.size();
+
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      final String key = entry.getKey();
+      if (key == null) {
+        throw new NullPointerException("Null keys are not supported.");
+      }
+      final int hash = hash(key);
+      int i = hash & this.mask;
+      while (this.keys[i] != null) {
+        i = (i + 1) & this.mask;
+      }
+      this.keys[i] = key;
+      this.values[i] = entry.getValue();
+      this.hashes[i] = hash;
+    }
+  }
+
+  private static int hash(final Object key) {
+    final int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private int indexOf(final Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    final int hash = hash(key);
+    for (int i = hash & this.mask; this.keys[i] != null; i = (i + 1) & this.mask) {
+      if (this.hashes[i] == hash && this.keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public String get(final Object key) {
+    final int i = indexOf(key);
+    return i < 0 ? null : this.values[i];
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    if (this.entrySet == null) {
+      this.entrySet = new EntrySet();
+    }
+    return this.entrySet;
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public int size() {
+      return FrozenStringMap.this.size;
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new Iterator<Map.Entry<String, String>>() {
+        private int next = advance(0);
+
+        private int advance(int i) {
+          while (i < FrozenStringMap.this.keys.length && FrozenStringMap.this.keys[i] == null) {
+            i++;
+          }
+          return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return this.next < FrozenStringMap.this.keys.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final int i = this.next;
+          this.next = advance(i + 1);
+          return new SimpleImmutableEntry<>(FrozenStringMap.this.keys[i],
+              FrozenStringMap.this.values[i]);
+        }
+      };
+    }
+  }
+}
@@ -54,7 +54,10 @@ public enum HashUtils {
     return type;
   }
 
-  private MessageDigest getDigest() {
+  /**
+   * @return a new digest computing this hash, e.g. to validate a stream while it's read.
+   */
+  public MessageDigest getDigest() {
     MessageDigest digest;
     try {
       digest = MessageDigest.getInstance(getName());
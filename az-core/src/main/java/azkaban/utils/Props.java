@@ -41,10 +41,14 @@ import org.apache.log4j.Logger;
 /**
  * Hashmap implementation of a hierarchical properties with helpful converter functions and
  * Exception throwing. This class is not threadsafe.
+ *
+ * <p>Props which are read much more than they are written can be turned into a flattened
+ * {@link #snapshot()}, which is backed by an immutable map until it's first written to.</p>
  */
 public class Props {
 
-  private final Map<String, String> _current;
+  // Either a HashMap, or the FrozenStringMap of a snapshot which is replaced on the first write
+  private Map<String, String> _current;
   private Props _parent;
   private String source = null;
 
@@ -193,6 +197,42 @@ public class Props {
     return props;
   }
 
+  /**
+   * Returns a flattened snapshot of these props and all of their parents, for props which are
+   * read many more times than they are written, like the resolved props of a job.
+   *
+   * <p>The snapshot has no parent, so a lookup is a single probe of a compact immutable map
+   * instead of a walk of the parent chain. The first write to the snapshot copies it into a
+   * regular map, so it can still be modified like any other props.</p>
+   */
+  public Props snapshot() {
+    final Map<String, String> flattened = new HashMap<>();
+    for (Props curr = this; curr != null; curr = curr._parent) {
+      for (final Map.Entry<String, String> entry : curr._current.entrySet()) {
+        // The value from the child takes the priority, even when it's null
+        if (!flattened.containsKey(entry.getKey())) {
+          flattened.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+
+    final Props snapshot = new Props();
+    snapshot._current =
+        flattened.containsKey(null) ? flattened : new FrozenStringMap(flattened);
+    snapshot.setSource(this.source);
+    return snapshot;
+  }
+
+  /**
+   * Returns the local map for modification, copying the immutable map of a snapshot first.
+   */
+  private Map<String, String> writableCurrent() {
+    if (this._current instanceof FrozenStringMap) {
+      this._current = new HashMap<>(this._current);
+    }
+    return this._current;
+  }
+
   /**
    * load this Prop Object from a @Properties formatted InputStream
    *
@@ -232,7 +272,7 @@ public class Props {
    * Clear the current Props, but leaves the parent untouched.
    */
   public void clearLocal() {
-    this._current.clear();
+    writableCurrent().clear();
   }
 
   /**
@@ -255,8 +295,9 @@ public class Props {
    * Return value if available in current Props otherwise return from parent
    */
   public String get(final Object key) {
-    if (this._current.containsKey(key)) {
-      return this._current.get(key);
+    final String value = this._current.get(key);
+    if (value != null || this._current.containsKey(key)) {
+      return value;
     } else if (this._parent != null) {
       return this._parent.get(key);
     } else {
@@ -292,7 +333,7 @@ public class Props {
    * this Props.
    */
   public String put(final String key, final String value) {
-    return this._current.put(key, value);
+    return writableCurrent().put(key, value);
   }
 
   /**
@@ -306,7 +347,7 @@ public class Props {
    */
   public void put(final Properties properties) {
     for (final String propName : properties.stringPropertyNames()) {
-      this._current.put(propName, properties.getProperty(propName));
+      writableCurrent().put(propName, properties.getProperty(propName));
     }
   }
 
@@ -314,21 +355,21 @@ public class Props {
    * Put integer
    */
   public String put(final String key, final Integer value) {
-    return this._current.put(key, value.toString());
+    return writableCurrent().put(key, value.toString());
   }
 
   /**
    * Put Long. Stores as String.
    */
   public String put(final String key, final Long value) {
-    return this._current.put(key, value.toString());
+    return writableCurrent().put(key, value.toString());
   }
 
   /**
    * Put Double. Stores as String.
    */
   public String put(final String key, final Double value) {
-    return this._current.put(key, value.toString());
+    return writableCurrent().put(key, value.toString());
   }
 
   /**
@@ -370,7 +411,7 @@ public class Props {
    * Remove only the local value of key s, and not the parents.
    */
   public String removeLocal(final Object s) {
-    return this._current.remove(s);
+    return writableCurrent().remove(s);
   }
 
   /**
@@ -44,6 +44,9 @@ public class PropsUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(PropsUtils.class);
   private static final Pattern VARIABLE_REPLACEMENT_PATTERN = Pattern
       .compile("\\$\\{([a-zA-Z_.0-9]+)\\}");
+  // Number of parsed expressions cached by the shared JEXL engine
+  private static final int JEXL_CACHE_SIZE = 1024;
+  private static final JexlEngine JEXL_ENGINE = createJexlEngine();
 
   /**
    * Private constructor.
@@ -51,6 +54,16 @@ public class PropsUtils {
   private PropsUtils() {
   }
 
+  /**
+   * The engine is thread safe once configured, and shared by all the resolutions so that the
+   * expressions which show up in every job's props are parsed only once.
+   */
+  private static JexlEngine createJexlEngine() {
+    final JexlEngine jexl = new JexlEngine();
+    jexl.setCache(JEXL_CACHE_SIZE);
+    return jexl;
+  }
+
 
   /**
    * Load job schedules from the given directories
@@ -211,28 +224,38 @@ public class PropsUtils {
    * Resolve Props
    *
    * @param props props
-   * @return resolved props
+   * @return resolved props, as a flattened {@link Props#snapshot()}
    */
   public static Props resolveProps(final Props props) {
     if (props == null) {
       return null;
     }
 
+    // Every key is looked up at least once, so flatten deep parent chains first
+    final Props flatProps = props.getParent() == null ? props : props.snapshot();
+
     final Props resolvedProps = new Props();
 
+    // Variables are resolved depth first and memoized, so that each of them is resolved once
+    // however many values reference it.
+    final Map<String, String> resolvedVariables = new HashMap<>();
     final LinkedHashSet<String> visitedVariables = new LinkedHashSet<>();
-    for (final String key : props.getKeySet()) {
-      String value = props.get(key);
-      if (value == null) {
-        LOGGER.warn("Null value in props for key '" + key + "'. Replacing with empty string.");
-        value = "";
+    for (final String key : flatProps.getKeySet()) {
+      String replacedValue = resolvedVariables.get(key);
+      if (replacedValue == null) {
+        final String value = flatProps.get(key);
+        visitedVariables.add(key);
+        if (value == null) {
+          LOGGER.warn("Null value in props for key '" + key + "'. Replacing with empty string.");
+          replacedValue = "";
+        } else {
+          replacedValue = resolveVariableReplacement(value, flatProps, visitedVariables,
+              resolvedVariables);
+          resolvedVariables.put(key, replacedValue);
+        }
+        visitedVariables.clear();
       }
 
-      visitedVariables.add(key);
-      final String replacedValue =
-          resolveVariableReplacement(value, props, visitedVariables);
-      visitedVariables.clear();
-
       resolvedProps.put(key, replacedValue);
     }
 
@@ -242,7 +265,7 @@ public class PropsUtils {
       resolvedProps.put(key, expressedValue);
     }
 
-    return resolvedProps;
+    return resolvedProps.snapshot();
   }
 
   /**
@@ -278,15 +301,19 @@ public class PropsUtils {
   }
 
   private static String resolveVariableReplacement(final String value, final Props props,
-      final LinkedHashSet<String> visitedVariables) {
-    final StringBuffer buffer = new StringBuffer();
+      final LinkedHashSet<String> visitedVariables, final Map<String, String> resolvedVariables) {
+    if (!value.contains("${")) {
+      return value;
+    }
+
+    final StringBuilder buffer = new StringBuilder();
     int startIndex = 0;
 
     final Matcher matcher = VARIABLE_REPLACEMENT_PATTERN.matcher(value);
     while (matcher.find(startIndex)) {
       if (startIndex < matcher.start()) {
         // Copy everything up front to the buffer
-        buffer.append(value.substring(startIndex, matcher.start()));
+        buffer.append(value, startIndex, matcher.start());
       }
 
       final String subVariable = matcher.group(1);
@@ -295,7 +322,10 @@ public class PropsUtils {
         throw new IllegalArgumentException(String.format(
             "Circular variable substitution found: [%s] -> [%s]",
             StringUtils.join(visitedVariables, "->"), subVariable));
-      } else {
+      }
+
+      String resolvedValue = resolvedVariables.get(subVariable);
+      if (resolvedValue == null) {
         // Add substitute variable and recurse.
         final String replacement = props.get(subVariable);
         visitedVariables.add(subVariable);
@@ -306,24 +336,27 @@ public class PropsUtils {
               StringUtils.join(visitedVariables, "->")));
         }
 
-        buffer.append(resolveVariableReplacement(replacement, props,
-            visitedVariables));
+        resolvedValue = resolveVariableReplacement(replacement, props, visitedVariables,
+            resolvedVariables);
         visitedVariables.remove(subVariable);
+        // A variable which resolved once can't be part of a cycle, so its value can be reused
+        // from any other path.
+        resolvedVariables.put(subVariable, resolvedValue);
       }
+      buffer.append(resolvedValue);
 
       startIndex = matcher.end();
     }
 
     if (startIndex < value.length()) {
-      buffer.append(value.substring(startIndex));
+      buffer.append(value, startIndex, value.length());
     }
 
     return buffer.toString();
   }
 
   private static String resolveVariableExpression(final String value) {
-    final JexlEngine jexl = new JexlEngine();
-    return resolveVariableExpression(value, value.length(), jexl);
+    return resolveVariableExpression(value, value.length(), JEXL_ENGINE);
   }
 
   /**
@@ -28,6 +28,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -36,8 +37,14 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
@@ -53,6 +60,13 @@ public class Utils {
   private static final Random RANDOM = new Random();
   private static final Logger logger = Logger.getLogger(Utils.class);
 
+  // Entries up to this size are buffered and written in parallel when unzipping a stream
+  private static final int MAX_BUFFERED_UNZIP_ENTRY_SIZE = 1024 * 1024;
+  // Maximum size of the buffered entries waiting to be written, across all the streams being
+  // unzipped
+  private static final int MAX_PENDING_UNZIP_BYTES = 64 * 1024 * 1024;
+  private static final Semaphore PENDING_UNZIP_BYTES = new Semaphore(MAX_PENDING_UNZIP_BYTES);
+
   /**
    * Private constructor.
    */
@@ -231,6 +245,87 @@ public class Utils {
     }
   }
 
+  /**
+   * Unzip a zip archive while it's read from a stream, e.g. while it's downloaded. The entries
+   * are written in parallel on the given executor service. The source is read to its end, but
+   * not closed.
+   *
+   * @return the total size in bytes of the files extracted
+   */
+  public static long unzip(final InputStream source, final File dest,
+      final ExecutorService writeService) throws IOException {
+    final String destPath = dest.getCanonicalPath();
+    final List<Future<?>> writes = new ArrayList<>();
+    // Set when unzipping fails: the pending writes are skipped, but still release their bytes.
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+    long totalSize = 0;
+    try {
+      final ZipInputStream zip = new ZipInputStream(source);
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        final File newFile = new File(dest, entry.getName());
+        if (!newFile.getCanonicalPath().startsWith(destPath)) {
+          throw new IOException(
+              "Extracting zip entry would have resulted in a file outside the specified destination"
+                  + " directory.");
+        }
+
+        if (entry.isDirectory()) {
+          newFile.mkdirs();
+        } else if (entry.getSize() < 0 || entry.getSize() > MAX_BUFFERED_UNZIP_ENTRY_SIZE) {
+          // Big entries, or entries of unknown size, are written by the reading thread.
+          newFile.getParentFile().mkdirs();
+          try (final OutputStream output =
+              new BufferedOutputStream(new FileOutputStream(newFile))) {
+            totalSize += IOUtils.copyLarge(zip, output);
+          }
+        } else {
+          final int size = (int) entry.getSize();
+          // Bounds the memory used by the entries waiting to be written.
+          PENDING_UNZIP_BYTES.acquire(size);
+          try {
+            final byte[] content = IOUtils.toByteArray(zip, size);
+            totalSize += content.length;
+            writes.add(writeService.submit(() -> {
+              try {
+                if (!aborted.get()) {
+                  newFile.getParentFile().mkdirs();
+                  Files.write(newFile.toPath(), content);
+                }
+                return null;
+              } finally {
+                PENDING_UNZIP_BYTES.release(size);
+              }
+            }));
+          } catch (final IOException | RuntimeException e) {
+            PENDING_UNZIP_BYTES.release(size);
+            throw e;
+          }
+        }
+      }
+      // Read the central directory too, so that the whole source is consumed.
+      IOUtils.skip(source, Long.MAX_VALUE);
+
+      for (final Future<?> write : writes) {
+        write.get();
+      }
+    } catch (final InterruptedException e) {
+      aborted.set(true);
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while unzipping into " + dest, e);
+    } catch (final ExecutionException e) {
+      aborted.set(true);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error while unzipping into " + dest, e.getCause());
+    } catch (final IOException | RuntimeException e) {
+      aborted.set(true);
+      throw e;
+    }
+    return totalSize;
+  }
+
   public static String flattenToString(final Collection<?> collection,
       final String delimiter) {
     final StringBuffer buffer = new StringBuffer();
@@ -58,4 +58,44 @@ public class PropsTest {
     Props props = new Props(parent, file);
     Assert.assertNull(props.getSource());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSnapshotIsFlattened() {
+    final Props grandParent = Props.of("a", "grandparent", "b", "grandparent", "c", "grandparent");
+    final Props parent = Props.of(grandParent, "b", "parent", "c", "parent");
+    final Props props = Props.of(parent, "c", "child", "d", "child");
+    props.put("e", (String) null);
+    props.setSource("source");
+
+    final Props snapshot = props.snapshot();
+    Assert.assertNull(snapshot.getParent());
+    Assert.assertEquals("source", snapshot.getSource());
+    Assert.assertEquals(props.getFlattened(), snapshot.getFlattened());
+    Assert.assertEquals("grandparent", snapshot.get("a"));
+    Assert.assertEquals("parent", snapshot.get("b"));
+    Assert.assertEquals("child", snapshot.get("c"));
+    Assert.assertTrue(snapshot.containsKey("e"));
+    Assert.assertNull(snapshot.get("e"));
+    Assert.assertFalse(snapshot.containsKey("f"));
+    Assert.assertEquals(props.getKeySet(), snapshot.localKeySet());
+    Assert.assertEquals(snapshot, Props.clone(snapshot));
+  }
+
+  @Test
+  public void testSnapshotIsCopiedOnWrite() {
+    final Props props = Props.of("a", "1", "b", "2");
+    final Props snapshot = props.snapshot();
+    final Props otherSnapshot = snapshot.snapshot();
+
+    snapshot.put("a", "3");
+    snapshot.removeLocal("b");
+    Assert.assertEquals("3", snapshot.get("a"));
+    Assert.assertFalse(snapshot.containsKey("b"));
+    Assert.assertEquals("1", otherSnapshot.get("a"));
+    Assert.assertEquals("2", otherSnapshot.get("b"));
+    Assert.assertEquals("1", props.get("a"));
+
+    otherSnapshot.clearLocal();
+    Assert.assertEquals(0, otherSnapshot.size());
+  }
+}
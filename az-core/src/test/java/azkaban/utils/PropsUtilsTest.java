@@ -209,6 +209,44 @@ public class PropsUtilsTest {
     failIfNotException(props);
   }
 
+  @Test
+  public void testSharedVariablesResolveProps() {
+    final Props propsParent = new Props();
+    final Props props = new Props(propsParent);
+
+    propsParent.put("root", "/data");
+    propsParent.put("base", "${root}/base");
+    props.put("input", "${base}/input");
+    props.put("output", "${base}/output");
+    props.put("both", "${input}:${output}:${root}");
+    props.put("size", "$(1024 * 2)");
+    props.put("size2", "$(1024 * 2)");
+
+    final Props resolved = PropsUtils.resolveProps(props);
+    Assert.assertEquals("/data/base", resolved.get("base"));
+    Assert.assertEquals("/data/base/input", resolved.get("input"));
+    Assert.assertEquals("/data/base/output", resolved.get("output"));
+    Assert.assertEquals("/data/base/input:/data/base/output:/data", resolved.get("both"));
+    Assert.assertEquals("2048", resolved.get("size"));
+    Assert.assertEquals("2048", resolved.get("size2"));
+  }
+
+  @Test
+  public void testCycleBehindResolvedVariable() {
+    final Props props = new Props();
+    // Whichever key is resolved first, "shared" resolves fine and the cycle is still reported
+    props.put("shared", "value");
+    props.put("a", "${shared} ${b}");
+    props.put("b", "${shared} ${a}");
+
+    try {
+      PropsUtils.resolveProps(props);
+      Assert.fail();
+    } catch (final IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Circular variable substitution found: ["));
+    }
+  }
+
   @Test
   public void testGetPropertyDiff() throws IOException {
     final Props oldProps = new Props();
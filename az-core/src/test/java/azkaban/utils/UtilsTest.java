@@ -15,15 +15,21 @@
  */
 package azkaban.utils;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -61,6 +67,37 @@ public class UtilsTest {
     }
   }
 
+  @Test
+  public void testUnzipStream() throws Exception {
+    final File zipFile = File.createTempFile("myStreamTest", ".zip");
+    final ExecutorService writeService = Executors.newFixedThreadPool(2);
+    try {
+      try (final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+        out.putNextEntry(new ZipEntry("dir/"));
+        out.putNextEntry(new ZipEntry("dir/a.txt"));
+        out.write("aaa".getBytes(StandardCharsets.UTF_8));
+        out.putNextEntry(new ZipEntry("b.txt"));
+        out.write("bb".getBytes(StandardCharsets.UTF_8));
+      }
+
+      final File dest = Utils.createTempDir();
+      final long size;
+      try (final CountingInputStream source =
+          new CountingInputStream(new FileInputStream(zipFile))) {
+        size = Utils.unzip(source, dest, writeService);
+        // The whole zip file is read.
+        assertThat(source.getByteCount()).isEqualTo(zipFile.length());
+      }
+
+      assertThat(size).isEqualTo(5);
+      assertThat(new File(dest, "dir/a.txt")).hasContent("aaa");
+      assertThat(new File(dest, "b.txt")).hasContent("bb");
+    } finally {
+      writeService.shutdownNow();
+      zipFile.delete();
+    }
+  }
+
   @Test
   public void testRunProcess() throws IOException, InterruptedException {
     ArrayList<String> result =
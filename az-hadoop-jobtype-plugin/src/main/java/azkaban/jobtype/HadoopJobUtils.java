@@ -17,6 +17,7 @@ package azkaban.jobtype;
 
 import azkaban.security.commons.HadoopSecurityManager;
 import azkaban.security.commons.HadoopSecurityManagerException;
+import azkaban.utils.LogSegmentUtils;
 import azkaban.utils.Props;
 import com.google.common.base.Joiner;
 import java.io.BufferedReader;
@@ -484,8 +485,10 @@ public class HadoopJobUtils {
             "unable to read the logFilePath specified: " + curLogFile.getAbsolutePath());
       }
       try {
-        br = new BufferedReader(new InputStreamReader(
-            new FileInputStream(curLogFile), StandardCharsets.UTF_8));
+        // The log of a job writing compressed log segments is decompressed as it is read
+        br = new BufferedReader(new InputStreamReader(LogSegmentUtils.isLogSegment(curLogFile)
+            ? LogSegmentUtils.newInputStream(curLogFile) : new FileInputStream(curLogFile),
+            StandardCharsets.UTF_8));
         String line;
 
         // finds all the application IDs
@@ -24,15 +24,20 @@ import azkaban.executor.ExecutorLoader;
 import azkaban.executor.JdbcExecutorLoader;
 import azkaban.project.JdbcProjectImpl;
 import azkaban.project.ProjectLoader;
+import azkaban.spi.LogStorage;
 import azkaban.spi.Storage;
 import azkaban.spi.StorageException;
+import azkaban.storage.LogStorageImplementationType;
 import azkaban.storage.StorageImplementationType;
 import azkaban.trigger.JdbcTriggerImpl;
 import azkaban.trigger.TriggerLoader;
 import azkaban.utils.OsCpuUtil;
 import azkaban.utils.Props;
 import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
 import com.google.inject.Provides;
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
 import org.apache.commons.dbutils.QueryRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +54,8 @@ public class AzkabanCommonModule extends AbstractModule {
 
   private final Props props;
   private final AzkabanCommonModuleConfig config;
+  private boolean hadoopRequired;
+  private Class<? extends LogStorage> logStorageClass;
 
   public AzkabanCommonModule(final Props props) {
     this.props = props;
@@ -59,6 +66,10 @@ public class AzkabanCommonModule extends AbstractModule {
   protected void configure() {
     install(new AzkabanCoreModule(this.props));
     bind(Storage.class).to(resolveStorageClassType());
+    this.logStorageClass = resolveLogStorageClassType();
+    if (this.hadoopRequired) {
+      install(new HadoopModule(this.props));
+    }
     bind(AzkabanDataSource.class).to(resolveDataSourceType());
     bind(TriggerLoader.class).to(JdbcTriggerImpl.class);
     bind(ProjectLoader.class).to(JdbcProjectImpl.class);
@@ -78,7 +89,7 @@ public class AzkabanCommonModule extends AbstractModule {
     final StorageImplementationType type = StorageImplementationType
         .from(this.config.getStorageImplementation());
     if (type == StorageImplementationType.HDFS || type == StorageImplementationType.LOCAL_HADOOP) {
-      install(new HadoopModule(this.props));
+      this.hadoopRequired = true;
     }
     if (type != null) {
       return type.getImplementationClass();
@@ -87,6 +98,29 @@ public class AzkabanCommonModule extends AbstractModule {
     }
   }
 
+  /**
+   * @return the class of the storage of the execution logs, null if they are stored in the DB.
+   */
+  public Class<? extends LogStorage> resolveLogStorageClassType() {
+    final String logStorageImplementation = this.config.getLogStorageImplementation();
+    if (logStorageImplementation == null) {
+      return null;
+    }
+    final LogStorageImplementationType type = LogStorageImplementationType
+        .from(logStorageImplementation);
+    if (type == LogStorageImplementationType.HDFS) {
+      this.hadoopRequired = true;
+    }
+    if (type != null) {
+      return type.getImplementationClass();
+    }
+    try {
+      return (Class<? extends LogStorage>) Class.forName(logStorageImplementation);
+    } catch (final ClassNotFoundException e) {
+      throw new StorageException(e);
+    }
+  }
+
   private Class<? extends Storage> loadCustomStorageClass(final String storageImplementation) {
     try {
       return (Class<? extends Storage>) Class.forName(storageImplementation);
@@ -105,6 +139,16 @@ public class AzkabanCommonModule extends AbstractModule {
     }
   }
 
+  /**
+   * @return the storage of the execution logs, null if they are stored in the DB.
+   */
+  @Provides
+  @Singleton
+  @Nullable
+  public LogStorage createLogStorage(final Injector injector) {
+    return this.logStorageClass == null ? null : injector.getInstance(this.logStorageClass);
+  }
+
   @Provides
   public QueryRunner createQueryRunner(final AzkabanDataSource dataSource) {
     return new QueryRunner(dataSource);
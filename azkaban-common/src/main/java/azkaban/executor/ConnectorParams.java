@@ -32,6 +32,7 @@ public interface ConnectorParams {
   public static final String RESUME_ACTION = "resume";
   public static final String PING_ACTION = "ping";
   public static final String LOG_ACTION = "log";
+  public static final String LOG_STREAM_ACTION = "logStream";
   public static final String ATTACHMENTS_ACTION = "attachments";
   public static final String METADATA_ACTION = "metadata";
   public static final String RELOAD_JOBTYPE_PLUGINS_ACTION = "reloadJobTypePlugins";
@@ -39,6 +40,9 @@ public interface ConnectorParams {
   public static final String DEACTIVATE = "deactivate";
   public static final String GET_STATUS = "getStatus";
   public static final String SHUTDOWN = "shutdown";
+  public static final String WAKEUP_ACTION = "wakeup";
+  public static final String CHANGES_ACTION = "changes";
+  public static final String PREFETCH_ACTION = "prefetch";
 
   public static final String MODIFY_EXECUTION_ACTION = "modifyExecution";
   public static final String MODIFY_EXECUTION_ACTION_TYPE = "modifyType";
@@ -66,6 +70,22 @@ public interface ConnectorParams {
   public static final String UPDATE_TIME_LIST_PARAM = "updatetime";
   public static final String EXEC_ID_LIST_PARAM = "executionId";
 
+  public static final String CHANGES_FEED_PARAM = "feed";
+  public static final String CHANGES_SEQUENCE_PARAM = "sequence";
+  public static final String CHANGES_TIMEOUT_PARAM = "timeout";
+  public static final String RESPONSE_CHANGED_EXECUTIONS = "changed";
+  public static final String RESPONSE_CHANGES_RESET = "reset";
+
+  public static final String LOG_STREAM_CONTENT_TYPE = "text/event-stream";
+  public static final String LOG_STREAM_EVENT_LOG = "log";
+  public static final String LOG_STREAM_EVENT_END = "end";
+  public static final String LOG_STREAM_EVENT_ERROR = "error";
+
+  public static final String PREFETCH_PROJECTS_PARAM = "projects";
+  public static final String PREFETCH_PROJECT_ID = "projectId";
+  public static final String PREFETCH_VERSION = "version";
+  public static final String PREFETCH_TIME = "time";
+
   public static final String FORCED_FAILED_MARKER = ".failed";
 
   public static final String UPDATE_MAP_EXEC_ID = "executionId";
@@ -24,6 +24,7 @@ import azkaban.project.ProjectWhitelist;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
+import azkaban.utils.RestfulApiClient.ResponseStreamHandler;
 import java.io.IOException;
 import java.lang.Thread.State;
 import java.time.Duration;
@@ -39,6 +40,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.lang.StringUtils;
@@ -63,6 +68,14 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   private final Map<Pair<String, String>, Integer> maxConcurrentRunsPerFlowMap;
   private final CommonMetrics commonMetrics;
   private final Props azkProps;
+  private final boolean wakeUpExecutors;
+  // Wakes up the executors off the submission thread, once for a burst of submissions
+  private final ExecutorService wakeUpService = Executors.newSingleThreadExecutor(r -> {
+    final Thread thread = new Thread(r, "azk-executor-wakeup");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
 
   @Inject
   ExecutionController(final Props azkProps, final ExecutorLoader executorLoader,
@@ -77,6 +90,8 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     this.executorHealthChecker = executorHealthChecker;
     this.maxConcurrentRunsOneFlow = ExecutorUtils.getMaxConcurrentRunsOneFlow(azkProps);
     this.maxConcurrentRunsPerFlowMap = ExecutorUtils.getMaxConcurentRunsPerFlowMap(azkProps);
+    this.wakeUpExecutors = azkProps
+        .getBoolean(ConfigurationKeys.AZKABAN_POLLING_WAKEUP_ENABLED, false);
   }
 
   @Override
@@ -393,6 +408,9 @@ public class ExecutionController extends EventHandler implements ExecutorManager
               typeParam, offsetParam, lengthParam);
       return LogData.createLogDataFromObject(result);
     } else {
+      if (offset < 0) {
+        return this.executorLoader.fetchLogTail(exFlow.getExecutionId(), "", 0, length);
+      }
       final LogData value =
           this.executorLoader.fetchLogs(exFlow.getExecutionId(), "", 0, offset,
               length);
@@ -421,6 +439,9 @@ public class ExecutionController extends EventHandler implements ExecutorManager
               typeParam, jobIdParam, offsetParam, lengthParam, attemptParam);
       return LogData.createLogDataFromObject(result);
     } else {
+      if (offset < 0) {
+        return this.executorLoader.fetchLogTail(exFlow.getExecutionId(), jobId, attempt, length);
+      }
       final LogData value =
           this.executorLoader.fetchLogs(exFlow.getExecutionId(), jobId, attempt,
               offset, length);
@@ -428,6 +449,22 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     }
   }
 
+  @Override
+  public void streamExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int attempt, final ResponseStreamHandler handler)
+      throws ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair = this.executorLoader
+        .fetchActiveFlowByExecId(exFlow.getExecutionId());
+    if (pair == null) {
+      throw new ExecutorManagerException("Execution " + exFlow.getExecutionId() + " of flow "
+          + exFlow.getFlowId() + " isn't running.");
+    }
+    this.apiGateway.streamWithReference(pair.getFirst(), ConnectorParams.LOG_STREAM_ACTION,
+        handler, new Pair<>("type", "job"), new Pair<>("jobId", jobId),
+        new Pair<>("offset", String.valueOf(offset)),
+        new Pair<>("attempt", String.valueOf(attempt)));
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -724,6 +761,9 @@ public class ExecutionController extends EventHandler implements ExecutorManager
       // The exflow id is set by the loader. So it's unavailable until after
       // this call.
       this.executorLoader.uploadExecutableFlow(exflow);
+      if (this.wakeUpExecutors) {
+        wakeUpExecutors();
+      }
 
       this.commonMetrics.markSubmitFlowSuccess();
       message += "Execution queued successfully with exec id " + exflow.getExecutionId();
@@ -731,6 +771,39 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     }
   }
 
+  /**
+   * Ask the active executors to poll the queued executions now instead of at their next polling
+   * interval. Best effort: the executors still poll periodically.
+   */
+  private void wakeUpExecutors() {
+    if (!this.wakeUpPending.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      this.wakeUpService.execute(() -> {
+        this.wakeUpPending.set(false);
+        final List<Executor> executors;
+        try {
+          executors = this.executorLoader.fetchActiveExecutors();
+        } catch (final ExecutorManagerException e) {
+          logger.warn("Failed to fetch the executors to wake up", e);
+          return;
+        }
+        for (final Executor executor : executors) {
+          try {
+            this.apiGateway.callWithExecutionId(executor.getHost(), executor.getPort(),
+                ConnectorParams.WAKEUP_ACTION, null, null);
+          } catch (final ExecutorManagerException e) {
+            logger.warn("Failed to wake up executor " + executor.getHost() + ":"
+                + executor.getPort(), e);
+          }
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      this.wakeUpPending.set(false);
+    }
+  }
+
   @Override
   public Map<String, Object> callExecutorStats(final int executorId, final String action,
       final Pair<String, String>... params) throws IOException, ExecutorManagerException {
@@ -771,6 +844,7 @@ public class ExecutionController extends EventHandler implements ExecutorManager
   @Override
   public void shutdown() {
     this.executorHealthChecker.shutdown();
+    this.wakeUpService.shutdownNow();
   }
 
   @Override
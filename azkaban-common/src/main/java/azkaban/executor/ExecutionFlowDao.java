@@ -16,18 +16,23 @@
 
 package azkaban.executor;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
+import azkaban.db.DatabaseTransOperator;
 import azkaban.db.EncodingType;
 import azkaban.db.SQLTransaction;
+import azkaban.utils.CompactBinaryUtils;
 import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import javax.inject.Inject;
@@ -44,11 +49,22 @@ public class ExecutionFlowDao {
   private static final Logger logger = Logger.getLogger(ExecutionFlowDao.class);
   private final DatabaseOperator dbOperator;
   private final MysqlNamedLock mysqlNamedLock;
+  // Encoding of the flow data written by this executor or web server. Rows written with another
+  // encoding are still read, so it can be changed at any time.
+  private final EncodingType flowDataEncodingType;
 
-  @Inject
   public ExecutionFlowDao(final DatabaseOperator dbOperator, final MysqlNamedLock mysqlNamedLock) {
+    this(dbOperator, mysqlNamedLock, new Props());
+  }
+
+  @Inject
+  public ExecutionFlowDao(final DatabaseOperator dbOperator, final MysqlNamedLock mysqlNamedLock,
+      final Props props) {
     this.dbOperator = dbOperator;
     this.mysqlNamedLock = mysqlNamedLock;
+    this.flowDataEncodingType = EncodingType.valueOf(props
+        .getString(ConfigurationKeys.AZKABAN_FLOW_DATA_ENCODING_TYPE,
+            EncodingType.GZIP.name()).toUpperCase());
   }
 
   public void uploadExecutableFlow(final ExecutableFlow flow)
@@ -246,26 +262,104 @@ public class ExecutionFlowDao {
   }
 
   void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
-    updateExecutableFlow(flow, EncodingType.GZIP);
+    updateExecutableFlow(flow, this.flowDataEncodingType);
   }
 
+  private static final String UPDATE_EXECUTABLE_FLOW_DATA =
+      "UPDATE execution_flows "
+          + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
+          + "WHERE exec_id=?";
+
   private void updateExecutableFlow(final ExecutableFlow flow, final EncodingType encType)
       throws ExecutorManagerException {
-    final String UPDATE_EXECUTABLE_FLOW_DATA =
-        "UPDATE execution_flows "
-            + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
-            + "WHERE exec_id=?";
+    final byte[] data = encodeExecutableFlow(flow, encType);
+    try {
+      this.dbOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
+          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
+          .getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error updating flow.", e);
+    }
+  }
+
+  /**
+   * Rewrite the flow data of a running execution and remove the change log it supersedes in a
+   * single transaction, so that the deltas are never left behind a newer flow data.
+   */
+  void compactExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
+    final EncodingType encType = this.flowDataEncodingType;
+    final byte[] data = encodeExecutableFlow(flow, encType);
+    final SQLTransaction<Integer> compact = transOperator -> {
+      transOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus().getNumVal(),
+          flow.getUpdateTime(), flow.getStartTime(), flow.getEndTime(), encType.getNumVal(), data,
+          flow.getExecutionId());
+      transOperator.update(ExecutionFlowDeltaDao.DELETE_FLOW_DELTAS, flow.getExecutionId());
+      transOperator.getConnection().commit();
+      return 1;
+    };
+    try {
+      this.dbOperator.transaction(compact);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error compacting flow " + flow.getExecutionId(), e);
+    }
+  }
 
+  /**
+   * Update several executions with a single batch statement. A flow which can not be encoded is
+   * skipped and reported once the others are written. Unlike
+   * {@link #updateExecutableFlow(ExecutableFlow)} the flows are not modified, since they are
+   * usually snapshots owned by the caller.
+   */
+  void updateExecutableFlows(final Collection<ExecutableFlow> flows)
+      throws ExecutorManagerException {
+    final EncodingType encType = this.flowDataEncodingType;
+    final List<Object[]> params = new ArrayList<>(flows.size());
+    ExecutorManagerException encodingError = null;
+    for (final ExecutableFlow flow : flows) {
+      try {
+        final byte[] data = encodeFlowData(flow, encType);
+        params.add(new Object[]{flow.getStatus().getNumVal(), flow.getUpdateTime(),
+            flow.getStartTime(), flow.getEndTime(), encType.getNumVal(), data,
+            flow.getExecutionId()});
+      } catch (final IOException | RuntimeException e) {
+        encodingError = new ExecutorManagerException("Error encoding the execution flow. "
+            + "Execution Id  = " + flow.getExecutionId(), e);
+      }
+    }
+
+    if (!params.isEmpty()) {
+      try {
+        this.dbOperator.batch(UPDATE_EXECUTABLE_FLOW_DATA, params.toArray(new Object[0][]));
+      } catch (final SQLException e) {
+        throw new ExecutorManagerException("Error updating flows.", e);
+      }
+    }
+    if (encodingError != null) {
+      throw encodingError;
+    }
+  }
+
+  private static byte[] encodeFlowData(final ExecutableFlow flow, final EncodingType encType)
+      throws IOException {
+    if (encType == EncodingType.BINARY) {
+      return CompactBinaryUtils.encode(flow.toObject());
+    }
+    final String json = JSONUtils.toJSON(flow.toObject());
+    final byte[] stringData = json.getBytes("UTF-8");
+    // Todo kunkun-tang: use a common method to transform stringData to data.
+    if (encType == EncodingType.GZIP) {
+      return GZIPUtils.gzipBytes(stringData);
+    }
+    return stringData;
+  }
+
+  private byte[] encodeExecutableFlow(final ExecutableFlow flow, final EncodingType encType)
+      throws ExecutorManagerException {
     byte[] data = null;
     try {
       // If this action fails, the execution must be failed.
-      final String json = JSONUtils.toJSON(flow.toObject());
-      final byte[] stringData = json.getBytes("UTF-8");
-      data = stringData;
-      // Todo kunkun-tang: use a common method to transform stringData to data.
-      if (encType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
-      }
+      data = encodeFlowData(flow, encType);
+      return data;
     } catch (final IOException e) {
       flow.setStatus(Status.FAILED);
       updateExecutableFlowStatusInDB(flow);
@@ -282,14 +376,6 @@ public class ExecutionFlowDao {
       throw new ExecutorManagerException("Error encoding the execution flow due to "
           + "RuntimeException. Execution Id  = " + flow.getExecutionId(), re);
     }
-
-    try {
-      this.dbOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
-          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
-          .getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error updating flow.", e);
-    }
   }
 
   private void updateExecutableFlowStatusInDB(final ExecutableFlow flow)
@@ -408,6 +494,81 @@ public class ExecutionFlowDao {
     }
   }
 
+  /**
+   * Claim up to maxExecutions queued executions for the executor in one transaction, in the same
+   * order as {@link #selectAndUpdateExecution(int, boolean)} would claim them one by one.
+   *
+   * @return the ids of the claimed executions, empty if none is queued.
+   */
+  public List<Integer> selectAndUpdateExecutions(final int executorId, final boolean isActive,
+      final int maxExecutions) throws ExecutorManagerException {
+    final SQLTransaction<List<Integer>> selectAndUpdateExecutions = transOperator -> {
+      transOperator.getConnection().setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+      final List<Integer> execIds =
+          claimExecutions(transOperator, executorId, isActive, maxExecutions);
+      transOperator.getConnection().commit();
+      return execIds;
+    };
+
+    try {
+      return this.dbOperator.transaction(selectAndUpdateExecutions);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error selecting and updating executions with executor "
+          + executorId, e);
+    }
+  }
+
+  /**
+   * Same as {@link #selectAndUpdateExecutions(int, boolean, int)}, holding the polling lock.
+   */
+  public List<Integer> selectAndUpdateExecutionsWithLocking(final int executorId,
+      final boolean isActive, final int maxExecutions) throws ExecutorManagerException {
+    final SQLTransaction<List<Integer>> selectAndUpdateExecutions = transOperator -> {
+      final String POLLING_LOCK_NAME = "execution_flows_polling";
+      final int GET_LOCK_TIMEOUT_IN_SECONDS = 5;
+      final boolean hasLocked = this.mysqlNamedLock.getLock(transOperator, POLLING_LOCK_NAME, GET_LOCK_TIMEOUT_IN_SECONDS);
+      logger.info("ExecutionFlow polling lock value: " + hasLocked + " for executorId: " + executorId);
+      if (!hasLocked) {
+        logger.info("Could not acquire polling lock for executorId: " + executorId);
+        return Collections.emptyList();
+      }
+      try {
+        return claimExecutions(transOperator, executorId, isActive, maxExecutions);
+      } finally {
+        this.mysqlNamedLock.releaseLock(transOperator, POLLING_LOCK_NAME);
+        logger.info("Released polling lock for executorId: " + executorId);
+      }
+    };
+
+    try {
+      return this.dbOperator.transaction(selectAndUpdateExecutions);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error selecting and updating executions with executor "
+          + executorId, e);
+    }
+  }
+
+  private List<Integer> claimExecutions(final DatabaseTransOperator transOperator,
+      final int executorId, final boolean isActive, final int maxExecutions) throws SQLException {
+    // Only claim the executions no other executor claimed since they were selected
+    final String UPDATE_EXECUTION = "UPDATE execution_flows SET executor_id = ?, update_time = ? "
+        + "where exec_id = ? and executor_id is NULL";
+    final String selectExecutionsForUpdate = isActive ?
+        SelectFromExecutionFlows.SELECT_EXECUTIONS_FOR_UPDATE_ACTIVE :
+        SelectFromExecutionFlows.SELECT_EXECUTIONS_FOR_UPDATE_INACTIVE;
+
+    final List<Integer> execIds = transOperator.query(selectExecutionsForUpdate,
+        new SelectFromExecutionFlows(), executorId, maxExecutions);
+    final List<Integer> claimed = new ArrayList<>(execIds.size());
+    final long updateTime = System.currentTimeMillis();
+    for (final int execId : execIds) {
+      if (transOperator.update(UPDATE_EXECUTION, executorId, updateTime, execId) == 1) {
+        claimed.add(execId);
+      }
+    }
+    return claimed;
+  }
+
   public static class SelectFromExecutionFlows implements
       ResultSetHandler<List<Integer>> {
 
@@ -424,6 +585,18 @@ public class ExecutionFlowDao {
     public static final String SELECT_EXECUTION_FOR_UPDATE_INACTIVE =
         String.format(SELECT_EXECUTION_FOR_UPDATE_FORMAT, "use_executor = ?");
 
+    private static final String SELECT_EXECUTIONS_FOR_UPDATE_FORMAT =
+        "SELECT exec_id from execution_flows WHERE status = " + Status.PREPARING.getNumVal()
+            + " and executor_id is NULL and flow_data is NOT NULL and %s"
+            + " ORDER BY flow_priority DESC, update_time ASC, exec_id ASC LIMIT ? FOR UPDATE";
+
+    public static final String SELECT_EXECUTIONS_FOR_UPDATE_ACTIVE =
+        String.format(SELECT_EXECUTIONS_FOR_UPDATE_FORMAT,
+            "(use_executor is NULL or use_executor = ?)");
+
+    public static final String SELECT_EXECUTIONS_FOR_UPDATE_INACTIVE =
+        String.format(SELECT_EXECUTIONS_FOR_UPDATE_FORMAT, "use_executor = ?");
+
     @Override
     public List<Integer> handle(final ResultSet rs) throws SQLException {
       if (!rs.next()) {
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.db.EncodingType;
+import azkaban.db.SQLTransaction;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.log4j.Logger;
+
+/**
+ * Persists the state of a running execution as a node-level change log instead of rewriting the
+ * whole flow_data blob on every update.
+ *
+ * <p>Every delta is the {@link ExecutableFlow#toUpdateObject(long)} of the nodes which changed
+ * since the previous delta. Readers rebuild the current state by applying, in sequence order, the
+ * deltas which are newer than the flow_data snapshot. Compaction rewrites flow_data and removes the
+ * deltas it supersedes.
+ */
+@Singleton
+public class ExecutionFlowDeltaDao {
+
+  static final String DELETE_FLOW_DELTAS = "DELETE FROM execution_flow_deltas WHERE exec_id=?";
+  // Max number of executions whose deltas are fetched with one query
+  private static final int FETCH_BATCH_SIZE = 500;
+
+  private static final Logger logger = Logger.getLogger(ExecutionFlowDeltaDao.class);
+  private final DatabaseOperator dbOperator;
+  private final EncodingType defaultEncodingType = EncodingType.GZIP;
+
+  @Inject
+  public ExecutionFlowDeltaDao(final DatabaseOperator dbOperator) {
+    this.dbOperator = dbOperator;
+  }
+
+  /**
+   * Append the nodes of the flow updated after {@code lastUpdateTime} to the execution's change
+   * log, and update the flow level columns of execution_flows in the same transaction.
+   */
+  public void uploadExecutableFlowDelta(final ExecutableFlow flow, final int seq,
+      final long lastUpdateTime) throws ExecutorManagerException {
+    final String INSERT_FLOW_DELTA = "INSERT INTO execution_flow_deltas "
+        + "(exec_id, seq, update_time, enc_type, delta_data) values (?,?,?,?,?)";
+    final String UPDATE_EXECUTABLE_FLOW_STATUS = "UPDATE execution_flows "
+        + "SET status=?,update_time=?,start_time=?,end_time=? WHERE exec_id=?";
+
+    final byte[] data;
+    try {
+      final String json = JSONUtils.toJSON(flow.toUpdateObject(lastUpdateTime));
+      final byte[] stringData = json.getBytes(StandardCharsets.UTF_8);
+      data = this.defaultEncodingType == EncodingType.GZIP ? GZIPUtils.gzipBytes(stringData)
+          : stringData;
+    } catch (final IOException e) {
+      throw new ExecutorManagerException("Error encoding the execution flow delta. Execution Id = "
+          + flow.getExecutionId(), e);
+    }
+
+    final SQLTransaction<Integer> insertDelta = transOperator -> {
+      transOperator.update(INSERT_FLOW_DELTA, flow.getExecutionId(), seq, flow.getUpdateTime(),
+          this.defaultEncodingType.getNumVal(), data);
+      transOperator.update(UPDATE_EXECUTABLE_FLOW_STATUS, flow.getStatus().getNumVal(),
+          flow.getUpdateTime(), flow.getStartTime(), flow.getEndTime(), flow.getExecutionId());
+      transOperator.getConnection().commit();
+      return 1;
+    };
+
+    try {
+      this.dbOperator.transaction(insertDelta);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error uploading flow delta " + seq + " of execution "
+          + flow.getExecutionId(), e);
+    }
+  }
+
+  /**
+   * Apply all deltas of the execution that are newer than the flow's snapshot to the flow.
+   */
+  public void applyExecutableFlowDeltas(final ExecutableFlow flow)
+      throws ExecutorManagerException {
+    final Map<Integer, List<Pair<Long, Object>>> deltas;
+    try {
+      deltas = this.dbOperator.query(FetchFlowDeltas.FETCH_FLOW_DELTAS_BY_EXEC_ID,
+          new FetchFlowDeltas(), flow.getExecutionId());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching flow deltas of execution "
+          + flow.getExecutionId(), e);
+    }
+    applyDeltas(flow, deltas.get(flow.getExecutionId()));
+  }
+
+  /**
+   * Same as {@link #applyExecutableFlowDeltas(ExecutableFlow)} for a batch of flows, with a query
+   * for every {@value #FETCH_BATCH_SIZE} flows.
+   */
+  public void applyExecutableFlowDeltas(final Collection<ExecutableFlow> flows)
+      throws ExecutorManagerException {
+    final List<ExecutableFlow> flowList = new ArrayList<>(flows);
+    for (int from = 0; from < flowList.size(); from += FETCH_BATCH_SIZE) {
+      final List<ExecutableFlow> batch =
+          flowList.subList(from, Math.min(flowList.size(), from + FETCH_BATCH_SIZE));
+      final Object[] execIds = batch.stream().map(ExecutableFlow::getExecutionId).toArray();
+      final String fetchFlowDeltas = String.format(FetchFlowDeltas.FETCH_FLOW_DELTAS_BY_EXEC_IDS,
+          String.join(",", Collections.nCopies(execIds.length, "?")));
+      final Map<Integer, List<Pair<Long, Object>>> deltas;
+      try {
+        deltas = this.dbOperator.query(fetchFlowDeltas, new FetchFlowDeltas(), execIds);
+      } catch (final SQLException e) {
+        throw new ExecutorManagerException("Error fetching flow deltas", e);
+      }
+      for (final ExecutableFlow flow : batch) {
+        applyDeltas(flow, deltas.get(flow.getExecutionId()));
+      }
+    }
+  }
+
+  /**
+   * Remove the change log of an execution, once its flow_data has been fully rewritten.
+   */
+  public int removeExecutableFlowDeltas(final int execId) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.update(DELETE_FLOW_DELTAS, execId);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error removing flow deltas of execution " + execId, e);
+    }
+  }
+
+  private void applyDeltas(final ExecutableFlow flow, final List<Pair<Long, Object>> deltas) {
+    if (deltas == null) {
+      return;
+    }
+    // Deltas older than the snapshot were written before the last compaction and are already
+    // part of flow_data. Applying them again would move nodes back to a previous state.
+    final long snapshotTime = flow.getUpdateTime();
+    for (final Pair<Long, Object> delta : deltas) {
+      if (delta.getFirst() > snapshotTime) {
+        try {
+          flow.applyUpdateObject((Map<String, Object>) delta.getSecond());
+        } catch (final RuntimeException e) {
+          logger.error("Failed to apply flow delta to execution " + flow.getExecutionId(), e);
+        }
+      }
+    }
+  }
+
+  private static class FetchFlowDeltas implements
+      ResultSetHandler<Map<Integer, List<Pair<Long, Object>>>> {
+
+    private static final String FETCH_FLOW_DELTAS_BY_EXEC_IDS =
+        "SELECT exec_id, update_time, enc_type, delta_data FROM execution_flow_deltas "
+            + "WHERE exec_id IN (%s) ORDER BY exec_id, seq";
+    private static final String FETCH_FLOW_DELTAS_BY_EXEC_ID =
+        "SELECT exec_id, update_time, enc_type, delta_data FROM execution_flow_deltas "
+            + "WHERE exec_id=? ORDER BY seq";
+
+    @Override
+    public Map<Integer, List<Pair<Long, Object>>> handle(final ResultSet rs)
+        throws SQLException {
+      if (!rs.next()) {
+        return Collections.emptyMap();
+      }
+
+      final Map<Integer, List<Pair<Long, Object>>> deltas = new HashMap<>();
+      do {
+        final int execId = rs.getInt(1);
+        final long updateTime = rs.getLong(2);
+        final byte[] data = rs.getBytes(4);
+        if (data == null) {
+          continue;
+        }
+        try {
+          final EncodingType encType = EncodingType.fromIntegerStrict(rs.getInt(3));
+          deltas.computeIfAbsent(execId, id -> new ArrayList<>())
+              .add(new Pair<>(updateTime, GZIPUtils.transformBytesToObject(data, encType)));
+        } catch (final IOException | IllegalArgumentException e) {
+          throw new SQLException("Error retrieving flow delta of execution " + execId, e);
+        }
+      } while (rs.next());
+
+      return deltas;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+/**
+ * A contiguous piece of the log of a job attempt, stored as one row of execution_logs.
+ */
+public class ExecutionLogChunk {
+
+  private final int execId;
+  private final String name;
+  private final int attempt;
+  private final int startByte;
+  private final byte[] data;
+
+  public ExecutionLogChunk(final int execId, final String name, final int attempt,
+      final int startByte, final byte[] data) {
+    this.execId = execId;
+    this.name = name;
+    this.attempt = attempt;
+    this.startByte = startByte;
+    this.data = data;
+  }
+
+  public int getExecId() {
+    return this.execId;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public int getAttempt() {
+    return this.attempt;
+  }
+
+  public int getStartByte() {
+    return this.startByte;
+  }
+
+  public int getEndByte() {
+    return this.startByte + this.data.length;
+  }
+
+  public byte[] getData() {
+    return this.data;
+  }
+}
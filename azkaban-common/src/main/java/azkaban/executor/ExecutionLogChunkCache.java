@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.Props;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Objects;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * LRU cache of the decompressed chunks of the logs stored in execution_logs or in the log
+ * storage.
+ *
+ * <p>A chunk never changes once written, so its decompressed content can be served to every user
+ * reading the same log. The chunks of a log may still be replaced by chunks with other bounds,
+ * when the log is moved to the log storage: a cached chunk is only used if it ends where the
+ * chunk read ends. The cache is bounded by the total size of the cached chunks.
+ *
+ * The following global Azkaban properties are used:
+ * <ul>
+ *   <li>{@code azkaban.log.chunk_cache.max_bytes} - max size of the cached chunks, default 64MB.
+ *   0 disables the cache.
+ * </ul>
+ */
+@Singleton
+public class ExecutionLogChunkCache {
+
+  private final Cache<Key, ExecutionLogChunk> cache;
+  private final boolean enabled;
+
+  @Inject
+  public ExecutionLogChunkCache(final Props azkProps) {
+    final long maxBytes = azkProps.getLong(ConfigurationKeys.AZKABAN_LOG_CHUNK_CACHE_MAX_BYTES,
+        Constants.DEFAULT_AZKABAN_LOG_CHUNK_CACHE_MAX_BYTES);
+    this.enabled = maxBytes > 0;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(Math.max(maxBytes, 0))
+        .weigher((final Key key, final ExecutionLogChunk chunk) -> chunk.getData().length)
+        .recordStats()
+        .build();
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * @return the chunk of the job attempt log from startByte to endByte, or null if it isn't
+   * cached.
+   */
+  public ExecutionLogChunk get(final int execId, final String name, final int attempt,
+      final int startByte, final int endByte) {
+    final ExecutionLogChunk chunk =
+        this.cache.getIfPresent(new Key(execId, name, attempt, startByte));
+    // A chunk of the log before it was replaced by chunks with other bounds
+    return chunk == null || chunk.getEndByte() != endByte ? null : chunk;
+  }
+
+  public void put(final ExecutionLogChunk chunk) {
+    if (this.enabled) {
+      this.cache.put(new Key(chunk.getExecId(), chunk.getName(), chunk.getAttempt(),
+          chunk.getStartByte()), chunk);
+    }
+  }
+
+  public double getHitRate() {
+    return this.cache.stats().hitRate();
+  }
+
+  public long getHitCount() {
+    return this.cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return this.cache.stats().missCount();
+  }
+
+  public long getNumChunks() {
+    return this.cache.size();
+  }
+
+  private static class Key {
+
+    private final int execId;
+    private final String name;
+    private final int attempt;
+    private final int startByte;
+
+    private Key(final int execId, final String name, final int attempt, final int startByte) {
+      this.execId = execId;
+      this.name = name;
+      this.attempt = attempt;
+      this.startByte = startByte;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return this.execId == key.execId && this.attempt == key.attempt
+          && this.startByte == key.startByte && this.name.equals(key.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.execId, this.name, this.attempt, this.startByte);
+    }
+  }
+}
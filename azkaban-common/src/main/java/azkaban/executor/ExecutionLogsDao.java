@@ -20,22 +20,39 @@ import azkaban.db.DatabaseOperator;
 import azkaban.db.DatabaseTransOperator;
 import azkaban.db.EncodingType;
 import azkaban.db.SQLTransaction;
+import azkaban.spi.LogStorage;
+import azkaban.spi.StorageException;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.GZIPUtils;
+import azkaban.utils.LogSegmentOutputStream;
+import azkaban.utils.LogSegmentUtils;
+import azkaban.utils.LogSegmentUtils.Block;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
@@ -47,29 +64,233 @@ public class ExecutionLogsDao {
   private static final Logger logger = Logger.getLogger(ExecutionLogsDao.class);
   private final DatabaseOperator dbOperator;
   private final EncodingType defaultEncodingType = EncodingType.GZIP;
+  private final ExecutionLogChunkCache chunkCache;
+  // Null when the logs are stored in execution_logs
+  private final LogStorage logStorage;
 
   @Inject
-  ExecutionLogsDao(final DatabaseOperator dbOperator) {
+  ExecutionLogsDao(final DatabaseOperator dbOperator, final ExecutionLogChunkCache chunkCache,
+      @Nullable final LogStorage logStorage) {
     this.dbOperator = dbOperator;
+    this.chunkCache = chunkCache;
+    this.logStorage = logStorage;
+  }
+
+  ExecutionLogsDao(final DatabaseOperator dbOperator, final ExecutionLogChunkCache chunkCache) {
+    this(dbOperator, chunkCache, null);
+  }
+
+  ExecutionLogsDao(final DatabaseOperator dbOperator) {
+    this(dbOperator, new ExecutionLogChunkCache(new Props()));
   }
 
   // TODO kunkun-tang: the interface's parameter is called endByte, but actually is length.
   LogData fetchLogs(final int execId, final String name, final int attempt,
       final int startByte,
       final int length) throws ExecutorManagerException {
-    final FetchLogsHandler handler = new FetchLogsHandler(startByte, length + startByte);
     try {
-      return this.dbOperator.query(FetchLogsHandler.FETCH_LOGS, handler,
-          execId, name, attempt, startByte, startByte + length);
-    } catch (final SQLException e) {
+      if (this.logStorage != null) {
+        final LogData data = fetchStoredLogs(execId, name, attempt, startByte,
+            startByte + length);
+        if (data != null) {
+          return data;
+        }
+        // Not in the log storage, e.g. uploaded before it was set up, or by the log shipper
+      }
+      final List<ExecutionLogChunk> chunks;
+      if (this.chunkCache.isEnabled()) {
+        chunks = fetchCachedLogChunks(execId, name, attempt, startByte, startByte + length);
+      } else {
+        chunks = this.dbOperator.query(LogChunksHandler.FETCH_LOGS, new LogChunksHandler(),
+            execId, name, attempt, startByte, startByte + length);
+      }
+      return createLogData(chunks, startByte, startByte + length);
+    } catch (final SQLException | IOException e) {
       throw new ExecutorManagerException("Error fetching logs " + execId
           + " : " + name, e);
     }
   }
 
+  /**
+   * Look up the blocks overlapping the range in the index of the stored log, and read the blocks
+   * which aren't cached with a single range of the stored file.
+   */
+  private LogData fetchStoredLogs(final int execId, final String name, final int attempt,
+      final int startByte, final int endByte) throws SQLException, IOException {
+    final List<StoredLogBlock> blocks = this.dbOperator.query(StoredLogBlocksHandler.FETCH_BLOCKS,
+        new StoredLogBlocksHandler(), execId, name, attempt, startByte, endByte);
+    if (blocks.isEmpty()) {
+      return null;
+    }
+
+    final List<ExecutionLogChunk> chunks = new ArrayList<>(blocks.size());
+    int firstMissing = -1;
+    int lastMissing = -1;
+    for (int i = 0; i < blocks.size(); i++) {
+      final ExecutionLogChunk chunk = this.chunkCache.isEnabled()
+          ? this.chunkCache.get(execId, name, attempt, blocks.get(i).startByte,
+          blocks.get(i).endByte) : null;
+      if (chunk == null) {
+        if (firstMissing < 0) {
+          firstMissing = i;
+        }
+        lastMissing = i;
+      }
+      chunks.add(chunk);
+    }
+
+    if (firstMissing >= 0) {
+      // The blocks of a log follow each other in the stored file
+      final StoredLogBlock first = blocks.get(firstMissing);
+      final StoredLogBlock last = blocks.get(lastMissing);
+      final byte[] data = this.logStorage.getLogRange(first.storageKey, first.fileOffset,
+          (int) (last.fileOffset + last.compressedLength - first.fileOffset));
+      for (int i = firstMissing; i <= lastMissing; i++) {
+        if (chunks.get(i) == null) {
+          final StoredLogBlock block = blocks.get(i);
+          final int offset = (int) (block.fileOffset - first.fileOffset);
+          final ExecutionLogChunk chunk = new ExecutionLogChunk(execId, name, attempt,
+              block.startByte, GZIPUtils.unGzipBytes(
+              Arrays.copyOfRange(data, offset, offset + block.compressedLength)));
+          if (this.chunkCache.isEnabled()) {
+            this.chunkCache.put(chunk);
+          }
+          chunks.set(i, chunk);
+        }
+      }
+    }
+    return createLogData(chunks, startByte, endByte);
+  }
+
+  /**
+   * Fetch the last bytes of the log of a job attempt. Only the last chunks of the log are read.
+   */
+  LogData fetchLogTail(final int execId, final String name, final int attempt,
+      final int length) throws ExecutorManagerException {
+    int endByte = this.logStorage != null ? fetchStoredLogEndByte(execId, name, attempt) : 0;
+    if (endByte == 0) {
+      endByte = fetchLogEndByte(execId, name, attempt);
+    }
+    if (endByte == 0) {
+      return null;
+    }
+    final int startByte = Math.max(0, endByte - length);
+    return fetchLogs(execId, name, attempt, startByte, endByte - startByte);
+  }
+
+  /**
+   * Look up the chunks overlapping the range in the index of the log, and only read the rows of
+   * the chunks which aren't cached.
+   */
+  private List<ExecutionLogChunk> fetchCachedLogChunks(final int execId, final String name,
+      final int attempt, final int startByte, final int endByte) throws SQLException {
+    final String FETCH_LOG_INDEX = "SELECT start_byte, end_byte FROM execution_logs "
+        + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
+        + "AND start_byte <= ? ORDER BY start_byte";
+    final List<Integer> chunkStarts = new ArrayList<>();
+    final List<Integer> chunkEnds = new ArrayList<>();
+    this.dbOperator.query(FETCH_LOG_INDEX,
+        rs -> {
+          while (rs.next()) {
+            chunkStarts.add(rs.getInt(1));
+            chunkEnds.add(rs.getInt(2));
+          }
+          return null;
+        }, execId, name, attempt, startByte, endByte);
+
+    final List<ExecutionLogChunk> chunks = new ArrayList<>(chunkStarts.size());
+    int firstMissing = -1;
+    int lastMissing = -1;
+    for (int i = 0; i < chunkStarts.size(); i++) {
+      final int chunkStart = chunkStarts.get(i);
+      final ExecutionLogChunk chunk =
+          this.chunkCache.get(execId, name, attempt, chunkStart, chunkEnds.get(i));
+      if (chunk == null) {
+        if (firstMissing < 0) {
+          firstMissing = chunkStart;
+        }
+        lastMissing = chunkStart;
+      }
+      chunks.add(chunk);
+    }
+    if (firstMissing < 0) {
+      return chunks;
+    }
+
+    final Map<Integer, ExecutionLogChunk> fetched = new HashMap<>();
+    for (final ExecutionLogChunk chunk : this.dbOperator.query(LogChunksHandler.FETCH_LOG_CHUNKS,
+        new LogChunksHandler(), execId, name, attempt, firstMissing, lastMissing)) {
+      this.chunkCache.put(chunk);
+      fetched.put(chunk.getStartByte(), chunk);
+    }
+    for (int i = 0; i < chunks.size(); i++) {
+      if (chunks.get(i) == null) {
+        final ExecutionLogChunk chunk = fetched.get(chunkStarts.get(i));
+        if (chunk == null) {
+          // Removed by the log cleaner in the meantime
+          return chunks.subList(0, i);
+        }
+        chunks.set(i, chunk);
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * @return the chunks of the log in execution_logs starting within [fromStartByte, toStartByte].
+   */
+  List<ExecutionLogChunk> fetchLogChunks(final int execId, final String name, final int attempt,
+      final int fromStartByte, final int toStartByte) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(LogChunksHandler.FETCH_LOG_CHUNKS, new LogChunksHandler(),
+          execId, name, attempt, fromStartByte, toStartByte);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching log chunks " + execId
+          + " : " + name, e);
+    }
+  }
+
+  /**
+   * Concatenate the parts of the chunks within [startByte, endByte), without the incomplete UTF-8
+   * characters at the ends.
+   */
+  private static LogData createLogData(final List<ExecutionLogChunk> chunks, final int startByte,
+      final int endByte) {
+    if (chunks.isEmpty()) {
+      return null;
+    }
+
+    final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    for (final ExecutionLogChunk chunk : chunks) {
+      final int offset =
+          startByte > chunk.getStartByte() ? startByte - chunk.getStartByte() : 0;
+      final int length =
+          endByte < chunk.getEndByte() ? endByte - chunk.getStartByte() - offset
+              : chunk.getEndByte() - chunk.getStartByte() - offset;
+      byteStream.write(chunk.getData(), offset, length);
+    }
+
+    final byte[] buffer = byteStream.toByteArray();
+    final Pair<Integer, Integer> result =
+        FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
+
+    return new LogData(startByte + result.getFirst(), result.getSecond(),
+        new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Upload the log files, which replace the chunks of the log uploaded before if there are any.
+   */
   public void uploadLogFile(final int execId, final String name, final int attempt,
       final File... files) throws ExecutorManagerException {
+    if (this.logStorage != null) {
+      storeLogFile(execId, name, attempt, files);
+      return;
+    }
+    final String DELETE_EXECUTION_LOGS = "DELETE FROM execution_logs "
+        + "WHERE exec_id=? AND name=? AND attempt=?";
     final SQLTransaction<Integer> transaction = transOperator -> {
+      transOperator.update(DELETE_EXECUTION_LOGS, execId, name, attempt);
       uploadLogFile(transOperator, execId, name, attempt, files, this.defaultEncodingType);
       transOperator.getConnection().commit();
       return 1;
@@ -82,6 +303,177 @@ public class ExecutionLogsDao {
     }
   }
 
+  /**
+   * Upload a log segment written by {@link LogSegmentOutputStream}. Its blocks are inserted as
+   * they are compressed in the segment, one chunk each.
+   */
+  public void uploadLogSegment(final int execId, final String name, final int attempt,
+      final File segmentFile) throws ExecutorManagerException {
+    if (this.logStorage != null) {
+      storeLogSegment(execId, name, attempt, segmentFile, DateTime.now().getMillis());
+      return;
+    }
+    final SQLTransaction<Integer> transaction = transOperator -> {
+      try (final FileChannel data = FileChannel
+          .open(segmentFile.toPath(), StandardOpenOption.READ)) {
+        for (final Block block : LogSegmentUtils.readBlocks(segmentFile)) {
+          if (block.getEndByte() > Integer.MAX_VALUE) {
+            // The offsets of execution_logs are ints
+            logger.warn("Log of " + execId + " : " + name + " is truncated to "
+                + block.getStartByte() + " bytes in the DB.");
+            break;
+          }
+          insertLogPart(transOperator, execId, name, attempt, (int) block.getStartByte(),
+              (int) block.getEndByte(), EncodingType.GZIP,
+              LogSegmentUtils.readCompressedBlock(data, block));
+        }
+      } catch (final IOException e) {
+        throw new SQLException("Error reading log segment " + segmentFile, e);
+      }
+      transOperator.getConnection().commit();
+      return 1;
+    };
+    try {
+      this.dbOperator.transaction(transaction);
+    } catch (final SQLException e) {
+      logger.error("uploadLogSegment failed.", e);
+      throw new ExecutorManagerException("uploadLogSegment failed.", e);
+    }
+  }
+
+  /**
+   * Write the log files as a log segment, and store it.
+   */
+  private void storeLogFile(final int execId, final String name, final int attempt,
+      final File... files) throws ExecutorManagerException {
+    File segmentFile = null;
+    try {
+      segmentFile = File.createTempFile("log", LogSegmentUtils.SEGMENT_SUFFIX);
+      try (final OutputStream out = new LogSegmentOutputStream(segmentFile)) {
+        for (final File file : files) {
+          Files.copy(file.toPath(), out);
+        }
+      }
+      storeLogSegment(execId, name, attempt, segmentFile, DateTime.now().getMillis());
+    } catch (final IOException e) {
+      throw new ExecutorManagerException("Error writing log segment of " + execId + " : " + name,
+          e);
+    } finally {
+      if (segmentFile != null) {
+        FileUtils.deleteQuietly(segmentFile);
+        FileUtils.deleteQuietly(LogSegmentUtils.getIndexFile(segmentFile));
+      }
+    }
+  }
+
+  /**
+   * Put a log segment in the log storage, and replace the index of the log, and its chunks in
+   * execution_logs if there are any, with the index of its blocks.
+   */
+  void storeLogSegment(final int execId, final String name, final int attempt,
+      final File segmentFile, final long uploadTime) throws ExecutorManagerException {
+    final String DELETE_LOG_INDEX = "DELETE FROM execution_log_index "
+        + "WHERE exec_id=? AND name=? AND attempt=?";
+    final String DELETE_EXECUTION_LOGS = "DELETE FROM execution_logs "
+        + "WHERE exec_id=? AND name=? AND attempt=?";
+    final String INSERT_LOG_INDEX = "INSERT INTO execution_log_index "
+        + "(exec_id, name, attempt, start_byte, end_byte, storage_key, file_offset, "
+        + "compressed_length, upload_time) VALUES (?,?,?,?,?,?,?,?,?)";
+
+    final List<Block> blocks;
+    final String key;
+    try {
+      blocks = LogSegmentUtils.readBlocks(segmentFile);
+      key = this.logStorage.putLog(execId, name, attempt, segmentFile);
+    } catch (final IOException | StorageException e) {
+      throw new ExecutorManagerException("Error storing log " + execId + " : " + name, e);
+    }
+
+    final SQLTransaction<Integer> transaction = transOperator -> {
+      transOperator.update(DELETE_LOG_INDEX, execId, name, attempt);
+      transOperator.update(DELETE_EXECUTION_LOGS, execId, name, attempt);
+      for (final Block block : blocks) {
+        if (block.getEndByte() > Integer.MAX_VALUE) {
+          // The offsets of execution_log_index are ints
+          logger.warn("Log of " + execId + " : " + name + " is truncated to "
+              + block.getStartByte() + " bytes in the log index.");
+          break;
+        }
+        transOperator.update(INSERT_LOG_INDEX, execId, name, attempt, (int) block.getStartByte(),
+            (int) block.getEndByte(), key, block.getFileOffset(), block.getCompressedLength(),
+            uploadTime);
+      }
+      transOperator.getConnection().commit();
+      return 1;
+    };
+    try {
+      this.dbOperator.transaction(transaction);
+    } catch (final SQLException e) {
+      logger.error("storeLogSegment failed.", e);
+      throw new ExecutorManagerException("storeLogSegment failed.", e);
+    }
+  }
+
+  /**
+   * Insert the chunks, which may belong to several job attempts, with a single batch statement.
+   */
+  public void uploadLogChunks(final Collection<ExecutionLogChunk> chunks)
+      throws ExecutorManagerException {
+    final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
+        + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
+        + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+    if (chunks.isEmpty()) {
+      return;
+    }
+
+    final long uploadTime = DateTime.now().getMillis();
+    final List<Object[]> params = new ArrayList<>(chunks.size());
+    try {
+      for (final ExecutionLogChunk chunk : chunks) {
+        final byte[] data = chunk.getData();
+        final byte[] buf = this.defaultEncodingType == EncodingType.GZIP
+            ? GZIPUtils.gzipBytes(data) : data;
+        params.add(new Object[]{chunk.getExecId(), chunk.getName(), chunk.getAttempt(),
+            this.defaultEncodingType.getNumVal(), chunk.getStartByte(), chunk.getEndByte(), buf,
+            uploadTime});
+      }
+      this.dbOperator.batch(INSERT_EXECUTION_LOGS, params.toArray(new Object[0][]));
+    } catch (final IOException e) {
+      throw new ExecutorManagerException("Error compressing log chunks", e);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error uploading " + chunks.size() + " log chunks", e);
+    }
+  }
+
+  /**
+   * @return the end byte of the last log chunk uploaded for the job attempt, 0 if there is none.
+   */
+  public int fetchLogEndByte(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    final String FETCH_LOG_END_BYTE = "SELECT MAX(end_byte) FROM execution_logs "
+        + "WHERE exec_id=? AND name=? AND attempt=?";
+    try {
+      return this.dbOperator.query(FETCH_LOG_END_BYTE, rs -> rs.next() ? rs.getInt(1) : 0,
+          execId, name, attempt);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching log end byte " + execId
+          + " : " + name, e);
+    }
+  }
+
+  private int fetchStoredLogEndByte(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    final String FETCH_STORED_LOG_END_BYTE = "SELECT MAX(end_byte) FROM execution_log_index "
+        + "WHERE exec_id=? AND name=? AND attempt=?";
+    try {
+      return this.dbOperator.query(FETCH_STORED_LOG_END_BYTE, rs -> rs.next() ? rs.getInt(1) : 0,
+          execId, name, attempt);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching stored log end byte " + execId
+          + " : " + name, e);
+    }
+  }
+
   private void uploadLogFile(final DatabaseTransOperator transOperator, final int execId,
       final String name,
       final int attempt, final File[] files, final EncodingType encType)
@@ -151,9 +543,32 @@ public class ExecutionLogsDao {
         logger.error("Execution logs cleanup thread's sleep was interrupted.", e);
       }
     } while (removedRecords == recordCleanupLimit);
+
+    if (this.logStorage != null) {
+      // The index first, so that the stored logs aren't read anymore when they are deleted
+      do {
+        removedRecords = removeLogIndexBatch(millis, recordCleanupLimit);
+        totalRecordsRemoved = totalRecordsRemoved + removedRecords;
+      } while (removedRecords == recordCleanupLimit);
+      final int removedLogs = this.logStorage.deleteLogsBefore(millis);
+      logger.info("Deleted " + removedLogs + " logs from the log storage");
+    }
     return totalRecordsRemoved;
   }
 
+  private int removeLogIndexBatch(final long millis, final int recordCleanupLimit)
+      throws ExecutorManagerException {
+    final String DELETE_BY_TIME =
+        "DELETE FROM execution_log_index WHERE upload_time < ? LIMIT ?";
+    try {
+      return this.dbOperator.update(DELETE_BY_TIME, millis, recordCleanupLimit);
+    } catch (final SQLException e) {
+      logger.error("delete execution log index failed", e);
+      throw new ExecutorManagerException(
+          "Error deleting old execution_log_index before " + millis, e);
+    }
+  }
+
   int removeExecutionLogsBatch(final long millis, final int recordCleanupLimit)
       throws ExecutorManagerException {
     final String DELETE_BY_TIME =
@@ -173,10 +588,6 @@ public class ExecutionLogsDao {
       final EncodingType encType,
       final byte[] buffer, final int length)
       throws SQLException, IOException {
-    final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
-        + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
-        + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
-
     byte[] buf = buffer;
     if (encType == EncodingType.GZIP) {
       buf = GZIPUtils.gzipBytes(buf, 0, length);
@@ -184,12 +595,23 @@ public class ExecutionLogsDao {
       buf = Arrays.copyOf(buffer, length);
     }
 
+    insertLogPart(transOperator, execId, name, attempt, startByte, startByte + length, encType,
+        buf);
+  }
+
+  private void insertLogPart(final DatabaseTransOperator transOperator, final int execId,
+      final String name, final int attempt, final int startByte, final int endByte,
+      final EncodingType encType, final byte[] encodedData) throws SQLException {
+    final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
+        + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
+        + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+
     transOperator.update(INSERT_EXECUTION_LOGS, execId, name, attempt,
-        encType.getNumVal(), startByte, startByte + length, buf, DateTime.now()
+        encType.getNumVal(), startByte, endByte, encodedData, DateTime.now()
             .getMillis());
   }
 
-  private static class FetchLogsHandler implements ResultSetHandler<LogData> {
+  private static class LogChunksHandler implements ResultSetHandler<List<ExecutionLogChunk>> {
 
     private static final String FETCH_LOGS =
         "SELECT exec_id, name, attempt, enc_type, start_byte, end_byte, log "
@@ -197,55 +619,74 @@ public class ExecutionLogsDao {
             + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
             + "AND start_byte <= ? ORDER BY start_byte";
 
-    private final int startByte;
-    private final int endByte;
-
-    FetchLogsHandler(final int startByte, final int endByte) {
-      this.startByte = startByte;
-      this.endByte = endByte;
-    }
+    private static final String FETCH_LOG_CHUNKS =
+        "SELECT exec_id, name, attempt, enc_type, start_byte, end_byte, log "
+            + "FROM execution_logs "
+            + "WHERE exec_id=? AND name=? AND attempt=? AND start_byte >= ? "
+            + "AND start_byte <= ? ORDER BY start_byte";
 
     @Override
-    public LogData handle(final ResultSet rs) throws SQLException {
-      if (!rs.next()) {
-        return null;
-      }
-
-      final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-
-      do {
-        // int execId = rs.getInt(1);
-        // String name = rs.getString(2);
+    public List<ExecutionLogChunk> handle(final ResultSet rs) throws SQLException {
+      final List<ExecutionLogChunk> chunks = new ArrayList<>();
+      while (rs.next()) {
+        final int execId = rs.getInt(1);
+        final String name = rs.getString(2);
         final int attempt = rs.getInt(3);
         final EncodingType encType = EncodingType.fromInteger(rs.getInt(4));
         final int startByte = rs.getInt(5);
-        final int endByte = rs.getInt(6);
 
         final byte[] data = rs.getBytes(7);
-
-        final int offset =
-            this.startByte > startByte ? this.startByte - startByte : 0;
-        final int length =
-            this.endByte < endByte ? this.endByte - startByte - offset
-                : endByte - startByte - offset;
         try {
           byte[] buffer = data;
           if (encType == EncodingType.GZIP) {
             buffer = GZIPUtils.unGzipBytes(data);
           }
-
-          byteStream.write(buffer, offset, length);
+          chunks.add(new ExecutionLogChunk(execId, name, attempt, startByte, buffer));
         } catch (final IOException e) {
           throw new SQLException(e);
         }
-      } while (rs.next());
+      }
+      return chunks;
+    }
+  }
+
+  /**
+   * A block of a stored log, as indexed in execution_log_index.
+   */
+  private static class StoredLogBlock {
 
-      final byte[] buffer = byteStream.toByteArray();
-      final Pair<Integer, Integer> result =
-          FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
+    private final int startByte;
+    private final int endByte;
+    private final String storageKey;
+    private final long fileOffset;
+    private final int compressedLength;
 
-      return new LogData(this.startByte + result.getFirst(), result.getSecond(),
-          new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+    private StoredLogBlock(final int startByte, final int endByte, final String storageKey,
+        final long fileOffset, final int compressedLength) {
+      this.startByte = startByte;
+      this.endByte = endByte;
+      this.storageKey = storageKey;
+      this.fileOffset = fileOffset;
+      this.compressedLength = compressedLength;
+    }
+  }
+
+  private static class StoredLogBlocksHandler implements ResultSetHandler<List<StoredLogBlock>> {
+
+    private static final String FETCH_BLOCKS =
+        "SELECT start_byte, end_byte, storage_key, file_offset, compressed_length "
+            + "FROM execution_log_index "
+            + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
+            + "AND start_byte < ? ORDER BY start_byte";
+
+    @Override
+    public List<StoredLogBlock> handle(final ResultSet rs) throws SQLException {
+      final List<StoredLogBlock> blocks = new ArrayList<>();
+      while (rs.next()) {
+        blocks.add(new StoredLogBlock(rs.getInt(1), rs.getInt(2), rs.getString(3),
+            rs.getLong(4), rs.getInt(5)));
+      }
+      return blocks;
     }
   }
 }
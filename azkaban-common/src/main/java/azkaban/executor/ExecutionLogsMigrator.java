@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.AzkabanCommonModule;
+import azkaban.db.DatabaseOperator;
+import azkaban.server.AzkabanServer;
+import azkaban.spi.LogStorage;
+import azkaban.utils.LogSegmentOutputStream;
+import azkaban.utils.LogSegmentUtils;
+import azkaban.utils.Props;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Moves the logs in execution_logs to the log storage, for the DB to keep only their index.
+ *
+ * <p>The logs are migrated execution by execution, in the order of their ids. The log of every
+ * flow and job attempt is written as a log segment and stored, then its rows are replaced by its
+ * index in a single transaction, so the migration can be stopped and run again at any time while
+ * the servers run. The migrated logs keep their upload time, but their files are only deleted by
+ * the retention of the log storage once it has passed since the migration.
+ *
+ * <p>Only the logs of finished executions are migrated: the logs of running jobs are still
+ * uploaded to execution_logs as they are written. Run it again to migrate the logs of the
+ * executions that were running.
+ *
+ * <p>Run with the conf directory of the web server: {@code -conf <conf dir>}.
+ */
+public class ExecutionLogsMigrator {
+
+  private static final Logger logger = Logger.getLogger(ExecutionLogsMigrator.class);
+
+  private static final int EXECUTION_BATCH_SIZE = 100;
+  // Size of the range of the log read at once
+  private static final int READ_BATCH_BYTES = 10 * 1024 * 1024;
+
+  private final DatabaseOperator dbOperator;
+  private final ExecutionLogsDao executionLogsDao;
+  private final LogStorage logStorage;
+
+  @Inject
+  ExecutionLogsMigrator(final DatabaseOperator dbOperator,
+      final ExecutionLogsDao executionLogsDao, @Nullable final LogStorage logStorage) {
+    this.dbOperator = dbOperator;
+    this.executionLogsDao = executionLogsDao;
+    this.logStorage = logStorage;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final Props props = AzkabanServer.loadProps(args);
+    if (props == null) {
+      logger.error("Properties not found. Need it to connect to the db.");
+      logger.error("Exiting...");
+      return;
+    }
+
+    final Injector injector = Guice.createInjector(new AzkabanCommonModule(props));
+    final int numLogs = injector.getInstance(ExecutionLogsMigrator.class).migrate();
+    logger.info("Migrated " + numLogs + " logs");
+  }
+
+  /**
+   * Migrate the logs of all the finished executions in execution_logs.
+   *
+   * @return the number of logs migrated.
+   */
+  public int migrate() throws ExecutorManagerException {
+    if (this.logStorage == null) {
+      throw new ExecutorManagerException("No log storage to migrate the logs to, see "
+          + "azkaban.log.storage.type");
+    }
+
+    int numLogs = 0;
+    int lastExecId = -1;
+    List<Integer> execIds;
+    do {
+      execIds = fetchExecIds(lastExecId);
+      for (final int execId : execIds) {
+        for (final LogKey log : fetchLogs(execId)) {
+          migrateLog(log);
+          numLogs++;
+        }
+        lastExecId = execId;
+      }
+      logger.info("Migrated the logs of executions up to " + lastExecId);
+    } while (execIds.size() == EXECUTION_BATCH_SIZE);
+    return numLogs;
+  }
+
+  private void migrateLog(final LogKey log) throws ExecutorManagerException {
+    File segmentFile = null;
+    try {
+      segmentFile = File.createTempFile("log", LogSegmentUtils.SEGMENT_SUFFIX);
+      try (final OutputStream out = new LogSegmentOutputStream(segmentFile)) {
+        int position = 0;
+        List<ExecutionLogChunk> chunks;
+        do {
+          chunks = this.executionLogsDao.fetchLogChunks(log.execId, log.name, log.attempt,
+              position, position + READ_BATCH_BYTES - 1);
+          for (final ExecutionLogChunk chunk : chunks) {
+            out.write(chunk.getData());
+            position = chunk.getEndByte();
+          }
+        } while (!chunks.isEmpty());
+      }
+      this.executionLogsDao.storeLogSegment(log.execId, log.name, log.attempt, segmentFile,
+          log.uploadTime);
+    } catch (final IOException e) {
+      throw new ExecutorManagerException("Error writing log segment of " + log.execId + " : "
+          + log.name, e);
+    } finally {
+      if (segmentFile != null) {
+        FileUtils.deleteQuietly(segmentFile);
+        FileUtils.deleteQuietly(LogSegmentUtils.getIndexFile(segmentFile));
+      }
+    }
+  }
+
+  private List<Integer> fetchExecIds(final int afterExecId) throws ExecutorManagerException {
+    final List<Object> params = new ArrayList<>();
+    params.add(afterExecId);
+    for (final Status status : Status.values()) {
+      if (Status.isStatusFinished(status)) {
+        params.add(status.getNumVal());
+      }
+    }
+    final String FETCH_EXEC_IDS = "SELECT DISTINCT l.exec_id FROM execution_logs l "
+        + "JOIN execution_flows f ON l.exec_id = f.exec_id "
+        + "WHERE l.exec_id > ? AND f.status IN ("
+        + String.join(",", Collections.nCopies(params.size() - 1, "?"))
+        + ") ORDER BY l.exec_id LIMIT ?";
+    params.add(EXECUTION_BATCH_SIZE);
+    try {
+      return this.dbOperator.query(FETCH_EXEC_IDS, rs -> {
+        final List<Integer> execIds = new ArrayList<>();
+        while (rs.next()) {
+          execIds.add(rs.getInt(1));
+        }
+        return execIds;
+      }, params.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching finished executions with logs", e);
+    }
+  }
+
+  private List<LogKey> fetchLogs(final int execId) throws ExecutorManagerException {
+    final String FETCH_LOGS = "SELECT name, attempt, MAX(upload_time) FROM execution_logs "
+        + "WHERE exec_id=? GROUP BY name, attempt";
+    try {
+      return this.dbOperator.query(FETCH_LOGS, rs -> {
+        final List<LogKey> logs = new ArrayList<>();
+        while (rs.next()) {
+          logs.add(new LogKey(execId, rs.getString(1), rs.getInt(2), rs.getLong(3)));
+        }
+        return logs;
+      }, execId);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching logs of execution " + execId, e);
+    }
+  }
+
+  private static class LogKey {
+
+    private final int execId;
+    private final String name;
+    private final int attempt;
+    private final long uploadTime;
+
+    private LogKey(final int execId, final String name, final int attempt,
+        final long uploadTime) {
+      this.execId = execId;
+      this.name = name;
+      this.attempt = attempt;
+      this.uploadTime = uploadTime;
+    }
+  }
+}
@@ -16,8 +16,12 @@
 
 package azkaban.executor;
 
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.Props;
 import azkaban.utils.RestfulApiClient;
 import java.io.IOException;
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
@@ -27,10 +31,47 @@ import org.apache.http.util.EntityUtils;
 /**
  * Client class that will be used to handle all Restful API calls between Executor and the host
  * application.
+ *
+ * The following global Azkaban properties are used:
+ * <ul>
+ *   <li>{@code azkaban.executor.client.max_connections} - max number of pooled connections to
+ *   all the executors, default 200.
+ *   <li>{@code azkaban.executor.client.max_connections_per_executor} - max number of pooled
+ *   connections to one executor, default 20.
+ *   <li>{@code azkaban.executor.client.connect_timeout_ms} - timeout to connect to an executor,
+ *   default 10s.
+ *   <li>{@code azkaban.executor.client.socket_timeout_ms} - max time to wait for data from an
+ *   executor, default 60s. Dispatching an execution waits for the response without timeout.
+ * </ul>
  */
 @Singleton
 public class ExecutorApiClient extends RestfulApiClient<String> {
 
+  public ExecutorApiClient() {
+    this(new Props());
+  }
+
+  @Inject
+  public ExecutorApiClient(final Props azkProps) {
+    this(azkProps,
+        azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_EXECUTOR,
+            Constants.DEFAULT_AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS_PER_EXECUTOR));
+  }
+
+  /**
+   * Creates a client with its own pool of up to the given number of connections to each
+   * executor, e.g. for the long-running calls.
+   */
+  ExecutorApiClient(final Props azkProps, final int maxConnectionsPerExecutor) {
+    super(azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS,
+        Constants.DEFAULT_AZKABAN_EXECUTOR_CLIENT_MAX_CONNECTIONS),
+        maxConnectionsPerExecutor,
+        azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS,
+            Constants.DEFAULT_AZKABAN_EXECUTOR_CLIENT_CONNECT_TIMEOUT_MS),
+        azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS,
+            Constants.DEFAULT_AZKABAN_EXECUTOR_CLIENT_SOCKET_TIMEOUT_MS));
+  }
+
   /**
    * Implementing the parseResponse function to return de-serialized Json object.
    *
@@ -16,8 +16,14 @@
 
 package azkaban.executor;
 
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import azkaban.utils.RestfulApiClient.ResponseStreamHandler;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import java.io.IOException;
 import java.net.URI;
@@ -25,17 +31,68 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import javax.inject.Singleton;
 import org.codehaus.jackson.map.ObjectMapper;
 
+/**
+ * Calls the executors.
+ *
+ * The following global Azkaban properties are used:
+ * <ul>
+ *   <li>{@code azkaban.executor.client.async_threads} - number of threads making the asynchronous
+ *   calls, default 20.
+ *   <li>{@code azkaban.executor.client.max_log_streams_per_executor} - max number of concurrent
+ *   log streams to one executor, default 10. The streams have their own connections, so that
+ *   they never hold the connections of the other calls.
+ * </ul>
+ */
 @Singleton
 public class ExecutorApiGateway {
 
+  // The executor sets the flow up before it responds to a dispatch, which may take longer than
+  // the socket timeout. Timing out would dispatch the execution again while it is set up.
+  private static final int DISPATCH_SOCKET_TIMEOUT_MS = 0;
+
   private final ExecutorApiClient apiClient;
+  private final ExecutorService asyncCallService;
+  // Streams may stay open for minutes: they have their own connection pool
+  private final ExecutorApiClient logStreamClient;
+  private final int maxLogStreamsPerExecutor;
+  // Log streams open to each executor, by host:port
+  private final ConcurrentMap<String, Semaphore> logStreams = new ConcurrentHashMap<>();
 
-  @Inject
   public ExecutorApiGateway(final ExecutorApiClient apiClient) {
+    this(apiClient, new Props());
+  }
+
+  @Inject
+  public ExecutorApiGateway(final ExecutorApiClient apiClient, final Props azkProps) {
+    this(apiClient, azkProps, new ExecutorApiClient(azkProps, getMaxLogStreamsPerExecutor(
+        azkProps)));
+  }
+
+  @VisibleForTesting
+  ExecutorApiGateway(final ExecutorApiClient apiClient, final Props azkProps,
+      final ExecutorApiClient logStreamClient) {
     this.apiClient = apiClient;
+    this.logStreamClient = logStreamClient;
+    this.maxLogStreamsPerExecutor = getMaxLogStreamsPerExecutor(azkProps);
+    this.asyncCallService = Executors.newFixedThreadPool(
+        azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_ASYNC_THREADS,
+            Constants.DEFAULT_AZKABAN_EXECUTOR_CLIENT_ASYNC_THREADS),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-executor-api-%d").build());
+  }
+
+  private static int getMaxLogStreamsPerExecutor(final Props azkProps) {
+    return azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_MAX_LOG_STREAMS_PER_EXECUTOR,
+        Constants.DEFAULT_AZKABAN_EXECUTOR_CLIENT_MAX_LOG_STREAMS_PER_EXECUTOR);
   }
 
   Map<String, Object> callWithExecutable(final ExecutableFlow exflow,
@@ -75,12 +132,47 @@ public class ExecutorApiGateway {
           .valueOf(executionId)));
       paramList.add(new Pair<>(ConnectorParams.USER_PARAM, user));
 
+      if (ConnectorParams.EXECUTE_ACTION.equals(action)) {
+        @SuppressWarnings("unchecked") final URI uri =
+            ExecutorApiClient.buildUri(host, port, "/executor", true);
+        return parseJsonObjectMap(
+            this.apiClient.httpPost(uri, paramList, DISPATCH_SOCKET_TIMEOUT_MS));
+      }
       return callForJsonObjectMap(host, port, "/executor", paramList);
     } catch (final IOException e) {
       throw new ExecutorManagerException(e.getMessage(), e);
     }
   }
 
+  /**
+   * Call the executor of the execution and hand its streamed response to the handler. The call
+   * is rejected if too many streams are already open to the executor.
+   */
+  void streamWithReference(final ExecutionReference ref, final String action,
+      final ResponseStreamHandler handler, final Pair<String, String>... params)
+      throws ExecutorManagerException {
+    final Executor executor = ref.getExecutor().get();
+    final Semaphore streams = this.logStreams.computeIfAbsent(
+        executor.getHost() + ":" + executor.getPort(),
+        k -> new Semaphore(this.maxLogStreamsPerExecutor));
+    if (!streams.tryAcquire()) {
+      throw new ExecutorManagerException("Too many log streams open to executor "
+          + executor.getHost() + ":" + executor.getPort() + ", try again later.");
+    }
+    final List<Pair<String, String>> paramList = new ArrayList<>(Arrays.asList(params));
+    paramList.add(new Pair<>(ConnectorParams.ACTION_PARAM, action));
+    paramList.add(new Pair<>(ConnectorParams.EXECID_PARAM, String.valueOf(ref.getExecId())));
+    try {
+      @SuppressWarnings("unchecked") final URI uri =
+          ExecutorApiClient.buildUri(executor.getHost(), executor.getPort(), "/executor", true);
+      this.logStreamClient.httpPostStream(uri, paramList, handler);
+    } catch (final IOException e) {
+      throw new ExecutorManagerException(e.getMessage(), e);
+    } finally {
+      streams.release();
+    }
+  }
+
   /**
    * Call executor and parse the JSON response as an instance of the class given as an argument.
    */
@@ -98,9 +190,11 @@ public class ExecutorApiGateway {
    */
   Map<String, Object> callForJsonObjectMap(final String host, final int port,
       final String path, final List<Pair<String, String>> paramList) throws IOException {
-    final String responseString =
-        callForJsonString(host, port, path, paramList);
+    return parseJsonObjectMap(callForJsonString(host, port, path, paramList));
+  }
 
+  private static Map<String, Object> parseJsonObjectMap(final String responseString)
+      throws IOException {
     @SuppressWarnings("unchecked") final Map<String, Object> jsonResponse =
         (Map<String, Object>) JSONUtils.parseJSONFromString(responseString);
     final String error = (String) jsonResponse.get(ConnectorParams.RESPONSE_ERROR);
@@ -145,4 +239,73 @@ public class ExecutorApiGateway {
         ConnectorParams.UPDATE_ACTION, null, null, executionIds, updateTimes);
   }
 
+  /**
+   * Same as {@link #updateExecutions(Executor, List)}, without waiting for the response. The
+   * calls to different executors run concurrently.
+   *
+   * @return the future response. It fails with the {@link ExecutorManagerException} of the call,
+   * wrapped in a {@link CompletionException}.
+   */
+  public CompletableFuture<Map<String, Object>> updateExecutionsAsync(final Executor executor,
+      final List<ExecutableFlow> executions) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return updateExecutions(executor, executions);
+      } catch (final ExecutorManagerException e) {
+        throw new CompletionException(e);
+      }
+    }, this.asyncCallService);
+  }
+
+  /**
+   * Asks the executor for the executions changed after a sequence number of its change feed,
+   * without waiting for the response. The executor responds as soon as there is a change, or when
+   * the timeout expires.
+   *
+   * @param feedId id of the change feed of the executor, null if unknown.
+   * @param sequence sequence number of the last change known.
+   * @param timeoutMs max time the executor waits for a change.
+   * @return the future response. It fails with the {@link ExecutorManagerException} of the call,
+   * wrapped in a {@link CompletionException}.
+   */
+  public CompletableFuture<Map<String, Object>> fetchChangesAsync(final Executor executor,
+      final String feedId, final long sequence, final long timeoutMs) {
+    return CompletableFuture.supplyAsync(() -> {
+      final List<Pair<String, String>> paramList = new ArrayList<>();
+      paramList.add(new Pair<>(ConnectorParams.ACTION_PARAM, ConnectorParams.CHANGES_ACTION));
+      if (feedId != null) {
+        paramList.add(new Pair<>(ConnectorParams.CHANGES_FEED_PARAM, feedId));
+      }
+      paramList.add(new Pair<>(ConnectorParams.CHANGES_SEQUENCE_PARAM, String.valueOf(sequence)));
+      paramList.add(new Pair<>(ConnectorParams.CHANGES_TIMEOUT_PARAM, String.valueOf(timeoutMs)));
+      try {
+        return callForJsonObjectMap(executor.getHost(), executor.getPort(), "/executor",
+            paramList);
+      } catch (final IOException e) {
+        throw new CompletionException(new ExecutorManagerException(e.getMessage(), e));
+      }
+    }, this.asyncCallService);
+  }
+
+  /**
+   * Asks the executor to download projects into its project cache ahead of their executions,
+   * without waiting for the response.
+   *
+   * @param projects the projects to prefetch, in the order of their next execution. Each project
+   * is a map of its id, version and next execution time.
+   * @return the future response. It fails with the {@link ExecutorManagerException} of the call,
+   * wrapped in a {@link CompletionException}.
+   */
+  public CompletableFuture<Map<String, Object>> prefetchProjectsAsync(final Executor executor,
+      final List<Map<String, Object>> projects) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return callWithExecutionId(executor.getHost(), executor.getPort(),
+            ConnectorParams.PREFETCH_ACTION, null, null,
+            new Pair<>(ConnectorParams.PREFETCH_PROJECTS_PARAM, JSONUtils.toJSON(projects)));
+      } catch (final ExecutorManagerException e) {
+        throw new CompletionException(e);
+      }
+    }, this.asyncCallService);
+  }
 }
@@ -21,6 +21,7 @@ import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -234,18 +235,90 @@ public interface ExecutorLoader {
   LogData fetchLogs(int execId, String name, int attempt, int startByte,
       int endByte) throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Fetch the last bytes of the log of a job attempt, reading only the last log chunks.
+   * Note:-
+   * returns null if no log was uploaded for the job attempt
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  LogData fetchLogTail(int execId, String name, int attempt, int length)
+      throws ExecutorManagerException;
+
   List<Object> fetchAttachments(int execId, String name, int attempt)
       throws ExecutorManagerException;
 
   void uploadLogFile(int execId, String name, int attempt, File... files)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Upload a compressed log segment, without compressing its blocks again.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  void uploadLogSegment(int execId, String name, int attempt, File segmentFile)
+      throws ExecutorManagerException;
+
+  /**
+   * <pre>
+   * Insert log chunks uploaded while the jobs are still running, in a single batch.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  void uploadLogChunks(Collection<ExecutionLogChunk> chunks)
+      throws ExecutorManagerException;
+
+  /**
+   * <pre>
+   * Fetch the end byte of the last log chunk of a job attempt, or 0 if none was uploaded yet.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  int fetchLogEndByte(int execId, String name, int attempt)
+      throws ExecutorManagerException;
+
   void uploadAttachmentFile(ExecutableNode node, File file)
       throws ExecutorManagerException;
 
   void updateExecutableFlow(ExecutableFlow flow)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Update the full flow data of several executions in a single batch.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  void updateExecutableFlows(Collection<ExecutableFlow> flows)
+      throws ExecutorManagerException;
+
+  /**
+   * <pre>
+   * Persist only the nodes of the flow updated after lastUpdateTime, as entry number
+   * sequence of the execution's change log. The flow level status and times are updated too.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  void updateExecutableFlowDelta(ExecutableFlow flow, int sequence, long lastUpdateTime)
+      throws ExecutorManagerException;
+
+  /**
+   * <pre>
+   * Rewrite the full flow data and remove the change log entries of the execution.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  void compactExecutableFlowDeltas(ExecutableFlow flow)
+      throws ExecutorManagerException;
+
   void uploadExecutableNode(ExecutableNode node, Props inputParams)
       throws ExecutorManagerException;
 
@@ -289,6 +362,21 @@ public interface ExecutorLoader {
   int selectAndUpdateExecutionWithLocking(final int executorId, boolean isActive)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Claim up to maxExecutions queued executions for the executor in a single transaction,
+   * highest priority first.
+   * Note:-
+   * returns an empty list if no execution is queued
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  List<Integer> selectAndUpdateExecutions(final int executorId, boolean isActive,
+      int maxExecutions) throws ExecutorManagerException;
+
+  List<Integer> selectAndUpdateExecutionsWithLocking(final int executorId, boolean isActive,
+      int maxExecutions) throws ExecutorManagerException;
+
   ExecutableRampMap fetchExecutableRampMap()
       throws ExecutorManagerException;
 
@@ -21,6 +21,7 @@ import azkaban.Constants.ConfigurationKeys;
 import azkaban.event.EventHandler;
 import azkaban.executor.selector.ExecutorComparator;
 import azkaban.executor.selector.ExecutorFilter;
+import azkaban.executor.selector.ExecutorRanking;
 import azkaban.executor.selector.ExecutorSelector;
 import azkaban.flow.FlowUtils;
 import azkaban.metrics.CommonMetrics;
@@ -29,6 +30,7 @@ import azkaban.project.ProjectWhitelist;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
+import azkaban.utils.RestfulApiClient.ResponseStreamHandler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.io.File;
@@ -92,6 +94,8 @@ public class ExecutorManager extends EventHandler implements
   private volatile Pair<ExecutionReference, ExecutableFlow> runningCandidate = null;
   private List<String> filterList;
   private Map<String, Integer> comparatorWeightsMap;
+  // null unless the executors are kept ranked instead of being sorted for every dispatch
+  private ExecutorRanking executorRanking;
   private long lastSuccessfulExecutorInfoRefresh;
   private Duration sleepAfterDispatchFailure = Duration.ofSeconds(1L);
   private boolean initialized = false;
@@ -133,6 +137,7 @@ public class ExecutorManager extends EventHandler implements
     // TODO extract QueueProcessor as a separate class, move all of this into it
     setupExecutotrComparatorWeightsMap();
     setupExecutorFilterList();
+    setupExecutorRanking();
     this.queueProcessor = setupQueueProcessor();
   }
 
@@ -176,6 +181,12 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  private void setupExecutorRanking() {
+    if (this.azkProps.getBoolean(ConfigurationKeys.EXECUTOR_SELECTOR_RANKING_ENABLED, false)) {
+      this.executorRanking = new ExecutorRanking(this.filterList, this.comparatorWeightsMap);
+    }
+  }
+
   private ExecutorService createExecutorInfoRefresherService() {
     return Executors.newFixedThreadPool(this.azkProps.getInt(
         ConfigurationKeys.EXECUTORINFO_REFRESH_MAX_THREADS, 5));
@@ -222,6 +233,10 @@ public class ExecutorManager extends EventHandler implements
           fetchExecutionInfo));
     }
 
+    if (this.executorRanking != null) {
+      this.executorRanking.retainAll(this.activeExecutors.getAll());
+    }
+
     boolean wasSuccess = true;
     for (final Pair<Executor, Future<ExecutorInfo>> refreshPair : futures) {
       final Executor executor = refreshPair.getFirst();
@@ -244,6 +259,10 @@ public class ExecutorManager extends EventHandler implements
             + executor, e);
       }
 
+      if (this.executorRanking != null) {
+        this.executorRanking.update(executor);
+      }
+
       // update is successful for all executors
       if (wasSuccess) {
         this.lastSuccessfulExecutorInfoRefresh = System.currentTimeMillis();
@@ -628,6 +647,9 @@ public class ExecutorManager extends EventHandler implements
               typeParam, offsetParam, lengthParam);
       return LogData.createLogDataFromObject(result);
     } else {
+      if (offset < 0) {
+        return this.executorLoader.fetchLogTail(exFlow.getExecutionId(), "", 0, length);
+      }
       final LogData value =
           this.executorLoader.fetchLogs(exFlow.getExecutionId(), "", 0, offset,
               length);
@@ -656,6 +678,9 @@ public class ExecutorManager extends EventHandler implements
               typeParam, jobIdParam, offsetParam, lengthParam, attemptParam);
       return LogData.createLogDataFromObject(result);
     } else {
+      if (offset < 0) {
+        return this.executorLoader.fetchLogTail(exFlow.getExecutionId(), jobId, attempt, length);
+      }
       final LogData value =
           this.executorLoader.fetchLogs(exFlow.getExecutionId(), jobId, attempt,
               offset, length);
@@ -663,6 +688,22 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  @Override
+  public void streamExecutionJobLog(final ExecutableFlow exFlow, final String jobId,
+      final int offset, final int attempt, final ResponseStreamHandler handler)
+      throws ExecutorManagerException {
+    final Pair<ExecutionReference, ExecutableFlow> pair =
+        this.runningExecutions.get().get(exFlow.getExecutionId());
+    if (pair == null) {
+      throw new ExecutorManagerException("Execution " + exFlow.getExecutionId() + " of flow "
+          + exFlow.getFlowId() + " isn't running.");
+    }
+    this.apiGateway.streamWithReference(pair.getFirst(), ConnectorParams.LOG_STREAM_ACTION,
+        handler, new Pair<>("type", "job"), new Pair<>("jobId", jobId),
+        new Pair<>("offset", String.valueOf(offset)),
+        new Pair<>("attempt", String.valueOf(attempt)));
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -1334,9 +1375,13 @@ public class ExecutorManager extends EventHandler implements
       if (choosenExecutor == null) {
         ExecutorManager.logger.info("Using dispatcher for execution id :"
             + exflow.getExecutionId());
-        final ExecutorSelector selector = new ExecutorSelector(ExecutorManager.this.filterList,
-            ExecutorManager.this.comparatorWeightsMap);
-        choosenExecutor = selector.getBest(availableExecutors, exflow);
+        if (ExecutorManager.this.executorRanking != null) {
+          choosenExecutor = ExecutorManager.this.executorRanking.getBest(availableExecutors);
+        } else {
+          final ExecutorSelector selector = new ExecutorSelector(ExecutorManager.this.filterList,
+              ExecutorManager.this.comparatorWeightsMap);
+          choosenExecutor = selector.getBest(availableExecutors, exflow);
+        }
       }
       return choosenExecutor;
     }
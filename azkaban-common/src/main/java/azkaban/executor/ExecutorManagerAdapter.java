@@ -19,6 +19,7 @@ package azkaban.executor;
 import azkaban.project.Project;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
+import azkaban.utils.RestfulApiClient.ResponseStreamHandler;
 import java.io.IOException;
 import java.lang.Thread.State;
 import java.util.ArrayList;
@@ -76,12 +77,28 @@ public interface ExecutorManagerAdapter {
   public int getNumberOfJobExecutions(Project project, String jobId)
       throws ExecutorManagerException;
 
+  /**
+   * Fetch a range of the flow log. A negative offset fetches the last length bytes of the log.
+   */
   public LogData getExecutableFlowLog(ExecutableFlow exFlow, int offset,
       int length) throws ExecutorManagerException;
 
+  /**
+   * Fetch a range of the log of a job attempt. A negative offset fetches the last length bytes of
+   * the log.
+   */
   public LogData getExecutionJobLog(ExecutableFlow exFlow, String jobId,
       int offset, int length, int attempt) throws ExecutorManagerException;
 
+  /**
+   * Stream the log of a job attempt of a running flow from its executor, from the offset until
+   * the job finishes, as server-sent events of ranges of the log.
+   *
+   * @throws ExecutorManagerException if the flow isn't running.
+   */
+  public void streamExecutionJobLog(ExecutableFlow exFlow, String jobId, int offset, int attempt,
+      ResponseStreamHandler handler) throws ExecutorManagerException;
+
   public List<Object> getExecutionJobStats(ExecutableFlow exflow, String jobId,
       int attempt) throws ExecutorManagerException;
 
@@ -21,8 +21,10 @@ import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -30,6 +32,7 @@ import javax.inject.Singleton;
 public class JdbcExecutorLoader implements ExecutorLoader {
 
   private final ExecutionFlowDao executionFlowDao;
+  private final ExecutionFlowDeltaDao executionFlowDeltaDao;
   private final ExecutorDao executorDao;
   private final ExecutionJobDao executionJobDao;
   private final ExecutionLogsDao executionLogsDao;
@@ -42,6 +45,7 @@ public class JdbcExecutorLoader implements ExecutorLoader {
 
   @Inject
   public JdbcExecutorLoader(final ExecutionFlowDao executionFlowDao,
+      final ExecutionFlowDeltaDao executionFlowDeltaDao,
       final ExecutorDao executorDao,
       final ExecutionJobDao executionJobDao,
       final ExecutionLogsDao executionLogsDao,
@@ -52,6 +56,7 @@ public class JdbcExecutorLoader implements ExecutorLoader {
       final NumExecutionsDao numExecutionsDao,
       final ExecutionRampDao executionRampDao) {
     this.executionFlowDao = executionFlowDao;
+    this.executionFlowDeltaDao = executionFlowDeltaDao;
     this.executorDao = executorDao;
     this.executionJobDao = executionJobDao;
     this.executionLogsDao = executionLogsDao;
@@ -73,12 +78,43 @@ public class JdbcExecutorLoader implements ExecutorLoader {
   public void updateExecutableFlow(final ExecutableFlow flow)
       throws ExecutorManagerException {
     this.executionFlowDao.updateExecutableFlow(flow);
+    if (Status.isStatusFinished(flow.getStatus())) {
+      // The flow data is complete now. Drop any change log left behind by the executor.
+      this.executionFlowDeltaDao.removeExecutableFlowDeltas(flow.getExecutionId());
+    }
+  }
+
+  @Override
+  public void updateExecutableFlows(final Collection<ExecutableFlow> flows)
+      throws ExecutorManagerException {
+    this.executionFlowDao.updateExecutableFlows(flows);
+    for (final ExecutableFlow flow : flows) {
+      if (Status.isStatusFinished(flow.getStatus())) {
+        this.executionFlowDeltaDao.removeExecutableFlowDeltas(flow.getExecutionId());
+      }
+    }
+  }
+
+  @Override
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final int sequence,
+      final long lastUpdateTime) throws ExecutorManagerException {
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, sequence, lastUpdateTime);
+  }
+
+  @Override
+  public void compactExecutableFlowDeltas(final ExecutableFlow flow)
+      throws ExecutorManagerException {
+    this.executionFlowDao.compactExecutableFlow(flow);
   }
 
   @Override
   public ExecutableFlow fetchExecutableFlow(final int id)
       throws ExecutorManagerException {
-    return this.executionFlowDao.fetchExecutableFlow(id);
+    final ExecutableFlow flow = this.executionFlowDao.fetchExecutableFlow(id);
+    if (flow != null && !Status.isStatusFinished(flow.getStatus())) {
+      this.executionFlowDeltaDao.applyExecutableFlowDeltas(flow);
+    }
+    return flow;
   }
 
   @Override
@@ -99,13 +135,13 @@ public class JdbcExecutorLoader implements ExecutorLoader {
   @Override
   public Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchActiveFlows()
       throws ExecutorManagerException {
-    return this.fetchActiveFlowDao.fetchActiveFlows();
+    return applyExecutableFlowDeltas(this.fetchActiveFlowDao.fetchActiveFlows());
   }
 
   @Override
   public Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchUnfinishedFlows()
       throws ExecutorManagerException {
-    return this.fetchActiveFlowDao.fetchUnfinishedFlows();
+    return applyExecutableFlowDeltas(this.fetchActiveFlowDao.fetchUnfinishedFlows());
   }
 
   @Override
@@ -117,7 +153,20 @@ public class JdbcExecutorLoader implements ExecutorLoader {
   @Override
   public Pair<ExecutionReference, ExecutableFlow> fetchActiveFlowByExecId(final int execId)
       throws ExecutorManagerException {
-    return this.fetchActiveFlowDao.fetchActiveFlowByExecId(execId);
+    final Pair<ExecutionReference, ExecutableFlow> activeFlow =
+        this.fetchActiveFlowDao.fetchActiveFlowByExecId(execId);
+    if (activeFlow != null) {
+      this.executionFlowDeltaDao.applyExecutableFlowDeltas(activeFlow.getSecond());
+    }
+    return activeFlow;
+  }
+
+  private Map<Integer, Pair<ExecutionReference, ExecutableFlow>> applyExecutableFlowDeltas(
+      final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> flows)
+      throws ExecutorManagerException {
+    this.executionFlowDeltaDao.applyExecutableFlowDeltas(
+        flows.values().stream().map(Pair::getSecond).collect(Collectors.toList()));
+    return flows;
   }
 
   @Override
@@ -255,6 +304,12 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     return this.executionLogsDao.fetchLogs(execId, name, attempt, startByte, length);
   }
 
+  @Override
+  public LogData fetchLogTail(final int execId, final String name, final int attempt,
+      final int length) throws ExecutorManagerException {
+    return this.executionLogsDao.fetchLogTail(execId, name, attempt, length);
+  }
+
   @Override
   public List<Object> fetchAttachments(final int execId, final String jobId, final int attempt)
       throws ExecutorManagerException {
@@ -269,6 +324,24 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.executionLogsDao.uploadLogFile(execId, name, attempt, files);
   }
 
+  @Override
+  public void uploadLogSegment(final int execId, final String name, final int attempt,
+      final File segmentFile) throws ExecutorManagerException {
+    this.executionLogsDao.uploadLogSegment(execId, name, attempt, segmentFile);
+  }
+
+  @Override
+  public void uploadLogChunks(final Collection<ExecutionLogChunk> chunks)
+      throws ExecutorManagerException {
+    this.executionLogsDao.uploadLogChunks(chunks);
+  }
+
+  @Override
+  public int fetchLogEndByte(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    return this.executionLogsDao.fetchLogEndByte(execId, name, attempt);
+  }
+
   @Override
   public void uploadAttachmentFile(final ExecutableNode node, final File file)
       throws ExecutorManagerException {
@@ -360,6 +433,19 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     return this.executionFlowDao.selectAndUpdateExecutionWithLocking(executorId, isActive);
   }
 
+  @Override
+  public List<Integer> selectAndUpdateExecutions(final int executorId, final boolean isActive,
+      final int maxExecutions) throws ExecutorManagerException {
+    return this.executionFlowDao.selectAndUpdateExecutions(executorId, isActive, maxExecutions);
+  }
+
+  @Override
+  public List<Integer> selectAndUpdateExecutionsWithLocking(final int executorId,
+      final boolean isActive, final int maxExecutions) throws ExecutorManagerException {
+    return this.executionFlowDao
+        .selectAndUpdateExecutionsWithLocking(executorId, isActive, maxExecutions);
+  }
+
   @Override
   public ExecutableRampMap fetchExecutableRampMap() throws ExecutorManagerException {
     return this.executionRampDao.fetchExecutableRampMap();
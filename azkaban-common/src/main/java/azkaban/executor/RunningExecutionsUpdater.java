@@ -16,25 +16,54 @@
 
 package azkaban.executor;
 
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.alert.Alerter;
 import azkaban.metrics.CommonMetrics;
+import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
 /**
  * Updates running executions.
+ *
+ * <p>By default all the running executions are polled from their executors. With the change feed
+ * enabled, the updater first asks each executor which of its executions changed since the last
+ * update, waiting for a change up to a timeout, and then fetches the updates of these executions
+ * only. All the executions of an executor are still updated when its feed can't tell what
+ * changed, when the executor doesn't support the feed, and every full update interval.
+ *
+ * The following global Azkaban properties are used:
+ * <ul>
+ *   <li>{@code azkaban.executor.change_feed.enabled} - use the change feed, default false.
+ *   <li>{@code azkaban.executor.change_feed.timeout_ms} - max time an executor waits for a change
+ *   before responding, default 500ms.
+ *   <li>{@code azkaban.executor.change_feed.full_update_interval_ms} - how often all the
+ *   executions of an executor are updated anyway, default 1 minute.
+ * </ul>
  */
 public class RunningExecutionsUpdater {
 
   private static final Logger logger = Logger.getLogger(RunningExecutionsUpdater.class);
+  private static final Map<String, Object> NO_UPDATES =
+      Collections.singletonMap(ConnectorParams.RESPONSE_UPDATED_FLOWS, Collections.emptyList());
   // First email is sent after 1 minute of unresponsiveness
   final int numErrorsBeforeUnresponsiveEmail = 6;
   final long errorThreshold = 10000;
@@ -48,12 +77,18 @@ public class RunningExecutionsUpdater {
   private final RunningExecutions runningExecutions;
   private final ExecutionFinalizer executionFinalizer;
   private final ExecutorLoader executorLoader;
+  private final boolean changeFeedEnabled;
+  private final long changeFeedTimeoutMs;
+  private final long fullUpdateIntervalMs;
+  // Position in the change feed of each executor, by executor id
+  private final Map<Integer, ChangeFeedCursor> changeFeedCursors = new ConcurrentHashMap<>();
 
   @Inject
   public RunningExecutionsUpdater(final ExecutorManagerUpdaterStage updaterStage,
       final AlerterHolder alerterHolder, final CommonMetrics commonMetrics,
       final ExecutorApiGateway apiGateway, final RunningExecutions runningExecutions,
-      final ExecutionFinalizer executionFinalizer, final ExecutorLoader executorLoader) {
+      final ExecutionFinalizer executionFinalizer, final ExecutorLoader executorLoader,
+      final Props azkProps) {
     this.updaterStage = updaterStage;
     this.alerterHolder = alerterHolder;
     this.commonMetrics = commonMetrics;
@@ -61,6 +96,14 @@ public class RunningExecutionsUpdater {
     this.runningExecutions = runningExecutions;
     this.executionFinalizer = executionFinalizer;
     this.executorLoader = executorLoader;
+    this.changeFeedEnabled = azkProps
+        .getBoolean(ConfigurationKeys.AZKABAN_EXECUTOR_CHANGE_FEED_ENABLED, false);
+    this.changeFeedTimeoutMs = azkProps
+        .getLong(ConfigurationKeys.AZKABAN_EXECUTOR_CHANGE_FEED_TIMEOUT_MS,
+            Constants.DEFAULT_AZKABAN_EXECUTOR_CHANGE_FEED_TIMEOUT_MS);
+    this.fullUpdateIntervalMs = azkProps
+        .getLong(ConfigurationKeys.AZKABAN_EXECUTOR_CHANGE_FEED_FULL_UPDATE_INTERVAL_MS,
+            Constants.DEFAULT_AZKABAN_EXECUTOR_CHANGE_FEED_FULL_UPDATE_INTERVAL_MS);
   }
 
   /**
@@ -73,6 +116,10 @@ public class RunningExecutionsUpdater {
     final ArrayList<ExecutableFlow> finalizeFlows =
         new ArrayList<>();
 
+    // All the executors are called before waiting for any response, so that the calls run
+    // concurrently.
+    final Map<Entry<Optional<Executor>, List<ExecutableFlow>>,
+        CompletableFuture<Map<String, Object>>> calls = new LinkedHashMap<>();
     for (final Map.Entry<Optional<Executor>, List<ExecutableFlow>> entry : exFlowMap
         .entrySet()) {
 
@@ -90,9 +137,20 @@ public class RunningExecutionsUpdater {
       this.updaterStage.set("Starting update flows on " + executor.getHost() + ":"
           + executor.getPort());
 
+      final long startTime = System.currentTimeMillis();
+      calls.put(entry, fetchUpdatesAsync(executor, entry.getValue())
+          .whenComplete((results, e) -> this.commonMetrics.recordExecutorUpdateTime(
+              executor.getHost(), executor.getPort(), System.currentTimeMillis() - startTime)));
+    }
+
+    for (final Map.Entry<Entry<Optional<Executor>, List<ExecutableFlow>>,
+        CompletableFuture<Map<String, Object>>> call : calls.entrySet()) {
+      final Entry<Optional<Executor>, List<ExecutableFlow>> entry = call.getKey();
+      final Executor executor = entry.getKey().get();
+
       Map<String, Object> results = null;
       try {
-        results = this.apiGateway.updateExecutions(executor, entry.getValue());
+        results = waitForResults(call.getValue());
       } catch (final ExecutorManagerException e) {
         handleException(entry, executor, e, finalizeFlows);
       }
@@ -133,6 +191,49 @@ public class RunningExecutionsUpdater {
     this.updaterStage.set("Updated all active flows. Waiting for next round.");
   }
 
+  /**
+   * Fetches the updates of the running executions of the executor, or only of the executions
+   * changed since the last update when the change feed is enabled.
+   */
+  private CompletableFuture<Map<String, Object>> fetchUpdatesAsync(final Executor executor,
+      final List<ExecutableFlow> flows) {
+    if (!this.changeFeedEnabled) {
+      return this.apiGateway.updateExecutionsAsync(executor, flows);
+    }
+    final ChangeFeedCursor cursor = this.changeFeedCursors
+        .computeIfAbsent(executor.getId(), id -> new ChangeFeedCursor());
+    final long now = System.currentTimeMillis();
+    if (now < cursor.feedUnavailableUntil) {
+      return this.apiGateway.updateExecutionsAsync(executor, flows);
+    }
+    final boolean fullUpdate = now - cursor.lastFullUpdateTime >= this.fullUpdateIntervalMs;
+    return this.apiGateway.fetchChangesAsync(executor, cursor.feedId, cursor.sequence,
+        fullUpdate ? 0 : this.changeFeedTimeoutMs)
+        .thenApply(changes -> cursor.advance(changes, flows, fullUpdate, now))
+        .exceptionally(e -> {
+          // E.g. the executor runs a version without the change feed
+          logger.warn("Failed to get the changes from executor " + executor.getHost() + ":"
+              + executor.getPort() + ". Updating all its executions.", e);
+          cursor.disable(now + this.fullUpdateIntervalMs);
+          return flows;
+        })
+        .thenCompose(changedFlows -> changedFlows.isEmpty()
+            ? CompletableFuture.completedFuture(NO_UPDATES)
+            : this.apiGateway.updateExecutionsAsync(executor, changedFlows));
+  }
+
+  private static Map<String, Object> waitForResults(
+      final CompletableFuture<Map<String, Object>> call) throws ExecutorManagerException {
+    try {
+      return call.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof ExecutorManagerException) {
+        throw (ExecutorManagerException) e.getCause();
+      }
+      throw new ExecutorManagerException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
   private void handleException(final Entry<Optional<Executor>, List<ExecutableFlow>> entry,
       final Executor executor, final ExecutorManagerException e,
       final ArrayList<ExecutableFlow> finalizeFlows) {
@@ -248,4 +349,53 @@ public class RunningExecutionsUpdater {
     return flow;
   }
 
+
+  /**
+   * Position of the updater in the change feed of an executor.
+   */
+  private static class ChangeFeedCursor {
+
+    private volatile String feedId = null;
+    private volatile long sequence = 0;
+    private volatile long lastFullUpdateTime = 0;
+    // The changes aren't fetched from the executor until this time
+    private volatile long feedUnavailableUntil = 0;
+    // The executions running on the executor at the last update
+    private volatile Set<Integer> knownExecIds = Collections.emptySet();
+
+    /**
+     * Moves the cursor to the sequence number of the changes.
+     *
+     * @return the running executions of the executor which must be updated: those changed, and
+     * those which weren't running at the last update, or all of them for a full update.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ExecutableFlow> advance(final Map<String, Object> changes,
+        final List<ExecutableFlow> flows, final boolean fullUpdate, final long now) {
+      final List<ExecutableFlow> changedFlows;
+      if (fullUpdate || Boolean.TRUE.equals(changes.get(ConnectorParams.RESPONSE_CHANGES_RESET))) {
+        changedFlows = flows;
+        this.lastFullUpdateTime = now;
+      } else {
+        final Set<Integer> changedExecIds = new HashSet<>(
+            (List<Integer>) changes.get(ConnectorParams.RESPONSE_CHANGED_EXECUTIONS));
+        final Set<Integer> knownExecIds = this.knownExecIds;
+        changedFlows = flows.stream()
+            .filter(flow -> changedExecIds.contains(flow.getExecutionId())
+                || !knownExecIds.contains(flow.getExecutionId()))
+            .collect(Collectors.toList());
+      }
+      this.feedId = (String) changes.get(ConnectorParams.CHANGES_FEED_PARAM);
+      this.sequence = JSONUtils
+          .getLongFromObject(changes.get(ConnectorParams.CHANGES_SEQUENCE_PARAM));
+      this.knownExecIds = flows.stream().map(ExecutableFlow::getExecutionId)
+          .collect(Collectors.toSet());
+      return changedFlows;
+    }
+
+    private void disable(final long until) {
+      this.feedId = null;
+      this.feedUnavailableUntil = until;
+    }
+  }
 }
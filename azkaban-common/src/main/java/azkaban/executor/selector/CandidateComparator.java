@@ -17,8 +17,10 @@
 package azkaban.executor.selector;
 
 import azkaban.utils.Pair;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -168,6 +170,34 @@ public abstract class CandidateComparator<T> implements Comparator<T> {
     return new Pair<>(result1, result2);
   }
 
+  /**
+   * <pre>
+   * function returns a total order which is consistent with each of the registered factor
+   * comparators: two objects are compared on the factors from the heaviest to the lightest, and
+   * the first factor which tells them apart decides.
+   * Unlike the weighted vote of {@link #compare(Object, Object)}, which is not transitive, this
+   * order can back a sorted structure. It uses the factors registered at the time of the call.
+   * </pre>
+   *
+   * @return the comparator of the lexicographic order.
+   */
+  public Comparator<T> getLexicographicOrder() {
+    final List<FactorComparator<T>> comparatorList =
+        new ArrayList<>(this.factorComparatorList.values());
+    comparatorList.sort(Comparator.comparingInt((FactorComparator<T> comparator) ->
+        -comparator.getWeight()).thenComparing(FactorComparator::getFactorName));
+
+    return (object1, object2) -> {
+      for (final FactorComparator<T> comparator : comparatorList) {
+        final int result = comparator.compare(object1, object2);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return 0;
+    };
+  }
+
   @Override
   public int compare(final T o1, final T o2) {
     final Pair<Integer, Integer> result = this.getComparisonScore(o1, o2);
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor.selector;
+
+import azkaban.executor.Executor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.log4j.Logger;
+
+/**
+ * <pre>
+ * Ranking of the executors to dispatch to, maintained incrementally as their statistics are
+ * refreshed.
+ * {@link ExecutorSelector} filters all the executors and compares them with a weighted vote of
+ * the factor comparators for every dispatch. The ranking instead keeps the executors which pass
+ * the filters in a sorted set, in the {@link CandidateComparator#getLexicographicOrder()
+ * lexicographic order} of the comparators, so that re-ranking an executor is O(log n) and the
+ * best executor is the first one of the set.
+ * NOTE: the filters are applied when an executor is ranked, so they must not depend on the
+ *       dispatched flow, which is the case of all the {@link ExecutorFilter} filters.
+ * </pre>
+ */
+public class ExecutorRanking {
+
+  private static final Logger logger = Logger.getLogger(ExecutorRanking.class);
+
+  private final ExecutorFilter filter;
+  private final TreeSet<RankedExecutor> ranking;
+  private final Map<Integer, RankedExecutor> rankedExecutors = new HashMap<>();
+
+  /**
+   * constructor of the class.
+   *
+   * @param filterList name list of the filters to be applied, filtering is disabled if a null or
+   * empty list is passed.
+   * @param comparatorList name/weight pair list of the comparators to rank the executors with, the
+   * executors are only ranked by id if a null or empty map is passed.
+   */
+  public ExecutorRanking(final Collection<String> filterList,
+      final Map<String, Integer> comparatorList) {
+    this.filter =
+        null == filterList || filterList.isEmpty() ? null : new ExecutorFilter(filterList);
+    final Comparator<Executor> factorOrder =
+        null == comparatorList || comparatorList.isEmpty() ? (o1, o2) -> 0
+            : new ExecutorComparator(comparatorList).getLexicographicOrder();
+
+    // The factor comparators consider an executor without statistics as equal to any other one,
+    // so these are ranked last to keep the order total. Ties are broken by the executor id.
+    final Comparator<Executor> executorOrder = Comparator
+        .comparing((Executor executor) -> null == executor.getExecutorInfo())
+        .thenComparing(factorOrder.reversed())
+        .thenComparingInt(Executor::getId);
+    this.ranking = new TreeSet<>(
+        Comparator.comparing((RankedExecutor ranked) -> ranked.snapshot, executorOrder));
+  }
+
+  /**
+   * Re-ranks the executor with its current statistics, or removes it from the ranking if it
+   * doesn't pass the filters anymore.
+   */
+  public synchronized void update(final Executor executor) {
+    remove(executor);
+
+    // The ranking is ordered by the statistics of a copy of the executor, so that the order isn't
+    // broken when the executor's statistics are refreshed before it's re-ranked.
+    final Executor snapshot = new Executor(executor.getId(), executor.getHost(),
+        executor.getPort(), executor.isActive());
+    snapshot.setExecutorInfo(executor.getExecutorInfo());
+    if (null != this.filter && !this.filter.filterTarget(snapshot, null)) {
+      logger.debug(String.format("%s filtered out of the ranking.", executor));
+      return;
+    }
+
+    final RankedExecutor ranked = new RankedExecutor(executor, snapshot);
+    this.rankedExecutors.put(executor.getId(), ranked);
+    this.ranking.add(ranked);
+  }
+
+  /**
+   * Removes the executor from the ranking.
+   */
+  public synchronized void remove(final Executor executor) {
+    final RankedExecutor ranked = this.rankedExecutors.remove(executor.getId());
+    if (null != ranked) {
+      this.ranking.remove(ranked);
+    }
+  }
+
+  /**
+   * Removes the executors which are not part of the given ones, e.g. after some executors were
+   * deactivated.
+   */
+  public synchronized void retainAll(final Collection<Executor> executors) {
+    final Set<Integer> executorIds = new HashSet<>();
+    for (final Executor executor : executors) {
+      executorIds.add(executor.getId());
+    }
+    for (final RankedExecutor ranked : new ArrayList<>(this.rankedExecutors.values())) {
+      if (!executorIds.contains(ranked.executor.getId())) {
+        remove(ranked.executor);
+      }
+    }
+  }
+
+  /**
+   * Returns the best ranked executor among the candidates, or null if none of them is ranked. The
+   * ranking is walked from the best executor, so this is O(log n) unless the best executors are
+   * not candidates, e.g. after a failed dispatch.
+   *
+   * @param candidates the executors to choose from.
+   */
+  public synchronized Executor getBest(final Collection<Executor> candidates) {
+    for (final RankedExecutor ranked : this.ranking) {
+      if (candidates.contains(ranked.executor)) {
+        logger.debug(String.format("candidate selected %s", ranked.executor));
+        return ranked.executor;
+      }
+    }
+    logger.debug("failed to select candidate as none of the candidates is ranked.");
+    return null;
+  }
+
+  /**
+   * Gets the number of ranked executors, i.e. the ones which pass the filters.
+   */
+  public synchronized int size() {
+    return this.ranking.size();
+  }
+
+  private static final class RankedExecutor {
+
+    private final Executor executor;
+    private final Executor snapshot;
+
+    private RankedExecutor(final Executor executor, final Executor snapshot) {
+      this.executor = executor;
+      this.snapshot = snapshot;
+    }
+  }
+}
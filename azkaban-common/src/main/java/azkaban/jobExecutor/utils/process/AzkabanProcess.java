@@ -16,13 +16,11 @@
 
 package azkaban.jobExecutor.utils.process;
 
-import azkaban.utils.LogGobbler;
+import azkaban.jobExecutor.utils.process.ProcessOutputPump.PumpedStream;
 import com.google.common.base.Joiner;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -34,12 +32,16 @@ import org.apache.log4j.Logger;
 /**
  * An improved version of java.lang.Process.
  *
- * Output is read by separate threads to avoid deadlock and logged to log4j loggers.
+ * Output is read by the executor-wide {@link ProcessOutputPump} to avoid deadlock, and logged to
+ * log4j loggers by the thread running the process.
  */
 public class AzkabanProcess {
 
   public static String KILL_COMMAND = "kill";
 
+  // Interval at which the output read from the process is logged while it runs
+  private static final long LOG_INTERVAL_MS = 50;
+
   private final String workingDir;
   private final List<String> cmd;
   private final Map<String, String> env;
@@ -97,29 +99,35 @@ public class AzkabanProcess {
 
       this.startupLatch.countDown();
 
-      final LogGobbler outputGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8),
-              this.logger, Level.INFO, 30);
-      final LogGobbler errorGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getErrorStream(), StandardCharsets.UTF_8),
-              this.logger, Level.ERROR, 30);
-
-      outputGobbler.start();
-      errorGobbler.start();
+      final ProcessOutputPump pump = ProcessOutputPump.getInstance();
+      final PumpedStream outputStream =
+          pump.pump(this.process.getInputStream(), this.logger, Level.INFO, 30);
+      final PumpedStream errorStream =
+          pump.pump(this.process.getErrorStream(), this.logger, Level.ERROR, 30);
+
       int exitCode = -1;
       try {
-        exitCode = this.process.waitFor();
+        // The output is logged by this thread, so that slow appenders don't hold up the pump.
+        while (!this.process.waitFor(LOG_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          outputStream.logPendingLines();
+          errorStream.logPendingLines();
+        }
+        exitCode = this.process.exitValue();
       } catch (final InterruptedException e) {
         this.logger.info("Process interrupted. Exit code is " + exitCode, e);
       }
 
       this.completeLatch.countDown();
 
-      // try to wait for everything to get logged out before exiting
-      outputGobbler.awaitCompletion(5000);
-      errorGobbler.awaitCompletion(5000);
+      if (this.process.isAlive()) {
+        // Interrupted: the streams are not at their end yet, log what was read so far
+        outputStream.logPendingLines();
+        errorStream.logPendingLines();
+      } else {
+        // Log everything the process wrote before closing its streams
+        outputStream.drain();
+        errorStream.drain();
+      }
 
       if (exitCode != 0) {
         throw new ProcessFailureException(exitCode);
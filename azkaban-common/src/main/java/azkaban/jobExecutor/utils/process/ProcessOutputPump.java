@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import azkaban.utils.CircularBuffer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Executor-wide pump of the output of the job processes.
+ *
+ * <p>Instead of two threads per process blocked in readLine(), a few pump threads poll the output
+ * streams of all the processes, and only read the bytes which are available, so that a pump
+ * thread is never blocked by one process. The pump threads only split the bytes into lines: the
+ * lines are logged by the thread owning the process, see {@link PumpedStream#logPendingLines()},
+ * so that slow appenders only hold up their own job. A process whose lines are not logged fast
+ * enough is no longer read, fills its pipe and blocks, so the memory held per process is bounded
+ * by the pending lines and the longest line.</p>
+ */
+final class ProcessOutputPump {
+
+  private static final Logger logger = Logger.getLogger(ProcessOutputPump.class);
+
+  private static final int NUM_PUMP_THREADS =
+      Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+  // Bytes read from a stream before moving on to the next one
+  private static final int CHUNK_SIZE = 8 * 1024;
+  // Longer lines are split, so that a process never writing a line break can't exhaust memory
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+  // A stream is not read while this many bytes of its lines are waiting to be logged
+  private static final int MAX_PENDING_BYTES = 256 * 1024;
+  private static final long MIN_IDLE_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long MAX_IDLE_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private static final ProcessOutputPump INSTANCE = new ProcessOutputPump(NUM_PUMP_THREADS);
+
+  private final PumpThread[] threads;
+  private final AtomicInteger nextThread = new AtomicInteger();
+
+  @VisibleForTesting
+  ProcessOutputPump(final int numThreads) {
+    this.threads = new PumpThread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      this.threads[i] = new PumpThread("azk-process-output-pump-" + i);
+      this.threads[i].start();
+    }
+  }
+
+  static ProcessOutputPump getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Starts reading the lines of the stream, to be logged into the logger by the caller.
+   *
+   * @param bufferLines the number of recent lines to keep for {@link PumpedStream#getRecentLog()}
+   */
+  PumpedStream pump(final InputStream inputStream, final Logger jobLogger, final Level level,
+      final int bufferLines) {
+    final PumpedStream stream = new PumpedStream(inputStream, jobLogger, level, bufferLines);
+    final PumpThread thread =
+        this.threads[Math.floorMod(this.nextThread.getAndIncrement(), this.threads.length)];
+    thread.newStreams.add(stream);
+    LockSupport.unpark(thread);
+    return stream;
+  }
+
+  @VisibleForTesting
+  void shutdown() {
+    for (final PumpThread thread : this.threads) {
+      thread.interrupt();
+    }
+  }
+
+  private static final class PumpThread extends Thread {
+
+    private final ConcurrentLinkedQueue<PumpedStream> newStreams = new ConcurrentLinkedQueue<>();
+    private final List<PumpedStream> streams = new ArrayList<>();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private PumpThread(final String name) {
+      super(name);
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      long idleSleepNanos = MIN_IDLE_SLEEP_NANOS;
+      while (!isInterrupted()) {
+        PumpedStream newStream;
+        while ((newStream = this.newStreams.poll()) != null) {
+          this.streams.add(newStream);
+        }
+
+        boolean pumpedAny = false;
+        for (final Iterator<PumpedStream> it = this.streams.iterator(); it.hasNext(); ) {
+          final PumpedStream stream = it.next();
+          try {
+            pumpedAny |= stream.pump(this.chunk);
+          } catch (final RuntimeException e) {
+            logger.error("Failed to pump process output.", e);
+            stream.stopPumping();
+          }
+          if (!stream.isPumped()) {
+            it.remove();
+          }
+        }
+
+        if (pumpedAny) {
+          idleSleepNanos = MIN_IDLE_SLEEP_NANOS;
+        } else {
+          // Back off while the processes are quiet; registering a stream wakes the thread up.
+          LockSupport.parkNanos(this, idleSleepNanos);
+          idleSleepNanos = Math.min(idleSleepNanos * 2, MAX_IDLE_SLEEP_NANOS);
+        }
+      }
+    }
+  }
+
+  /**
+   * The output stream of a process, read by a pump thread until the process exits, then drained
+   * by the thread owning the process.
+   */
+  static final class PumpedStream {
+
+    private final InputStream inputStream;
+    private final Logger jobLogger;
+    private final Level level;
+    private final CircularBuffer<String> buffer;
+    // Lines read but not logged yet, and their size. Guarded by this.
+    private List<String> pendingLines = new ArrayList<>();
+    private int pendingBytes;
+    // Whether a pump thread reads the stream. Guarded by this.
+    private boolean pumped = true;
+    private boolean endOfStream;
+    // The line being read, only used by the thread reading the stream
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean skipLineFeed;
+
+    private PumpedStream(final InputStream inputStream, final Logger jobLogger, final Level level,
+        final int bufferLines) {
+      this.inputStream = inputStream;
+      this.jobLogger = jobLogger;
+      this.level = level;
+      this.buffer = new CircularBuffer<>(bufferLines);
+    }
+
+    /**
+     * Reads a chunk of the available bytes, unless too many lines are waiting to be logged.
+     *
+     * @return whether any byte was read
+     */
+    private synchronized boolean pump(final byte[] chunk) {
+      if (!this.pumped || this.pendingBytes >= MAX_PENDING_BYTES) {
+        return false;
+      }
+      try {
+        final int available = this.inputStream.available();
+        if (available <= 0) {
+          return false;
+        }
+        final int read = this.inputStream.read(chunk, 0, Math.min(available, chunk.length));
+        if (read < 0) {
+          this.endOfStream = true;
+          stopPumping();
+          return false;
+        }
+        splitLines(chunk, read);
+        return read > 0;
+      } catch (final IOException e) {
+        // Let the owner of the process read the stream again and report the error
+        stopPumping();
+        return false;
+      }
+    }
+
+    private synchronized void stopPumping() {
+      this.pumped = false;
+    }
+
+    private synchronized boolean isPumped() {
+      return this.pumped;
+    }
+
+    /**
+     * Logs the lines read so far by the pump.
+     */
+    void logPendingLines() {
+      final List<String> lines;
+      synchronized (this) {
+        if (this.pendingLines.isEmpty()) {
+          return;
+        }
+        lines = this.pendingLines;
+        this.pendingLines = new ArrayList<>();
+        this.pendingBytes = 0;
+      }
+      for (final String line : lines) {
+        this.buffer.append(line);
+        if (this.jobLogger != null) {
+          this.jobLogger.log(this.level, line);
+        }
+      }
+    }
+
+    /**
+     * Takes the stream over from the pump once the process exited, and reads and logs what the
+     * process wrote to it. Only the available bytes are read, never waiting for the end of the
+     * stream: a child process left behind may keep the stream open, and what it writes is not
+     * logged.
+     */
+    void drain() {
+      stopPumping();
+      logPendingLines();
+      if (!this.endOfStream) {
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        try {
+          int available;
+          while ((available = this.inputStream.available()) > 0) {
+            final int read = this.inputStream.read(chunk, 0, Math.min(available, chunk.length));
+            if (read < 0) {
+              break;
+            }
+            splitLines(chunk, read);
+            logPendingLines();
+          }
+        } catch (final IOException e) {
+          if (this.jobLogger != null) {
+            this.jobLogger.error("Error reading from logging stream:", e);
+          }
+        }
+      }
+      if (this.lineLength > 0) {
+        endLine();
+      }
+      logPendingLines();
+    }
+
+    private void splitLines(final byte[] chunk, final int length) {
+      for (int i = 0; i < length; i++) {
+        final byte b = chunk[i];
+        // Line breaks are the same as for BufferedReader.readLine(): \n, \r or \r\n
+        if (b == '\n') {
+          if (this.skipLineFeed) {
+            this.skipLineFeed = false;
+          } else {
+            endLine();
+          }
+        } else if (b == '\r') {
+          endLine();
+          this.skipLineFeed = true;
+        } else {
+          this.skipLineFeed = false;
+          if (this.lineLength == this.line.length) {
+            if (this.lineLength == MAX_LINE_LENGTH) {
+              endLine();
+            } else {
+              this.line = Arrays.copyOf(this.line, Math.min(this.line.length * 2, MAX_LINE_LENGTH));
+            }
+          }
+          this.line[this.lineLength++] = b;
+        }
+      }
+    }
+
+    private void endLine() {
+      // Decoding whole lines is safe as a line break byte is never part of a multi-byte character
+      final String line = new String(this.line, 0, this.lineLength, StandardCharsets.UTF_8);
+      synchronized (this) {
+        this.pendingLines.add(line);
+        this.pendingBytes += this.lineLength;
+      }
+      this.lineLength = 0;
+    }
+
+    String getRecentLog() {
+      return Joiner.on(System.getProperty("line.separator")).join(this.buffer);
+    }
+  }
+}
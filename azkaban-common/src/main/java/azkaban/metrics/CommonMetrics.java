@@ -18,6 +18,7 @@ package azkaban.metrics;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Meter;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -39,6 +40,8 @@ public class CommonMetrics {
   public static final String OOM_WAITING_JOB_COUNT_NAME = "OOM-waiting-job-count";
   public static final String UPLOAD_FAT_PROJECT_METER_NAME = "upload-fat-project-meter";
   public static final String UPLOAD_THIN_PROJECT_METER_NAME = "upload-thin-project-meter";
+  // Followed by host:port of the executor
+  public static final String EXECUTOR_UPDATE_TIMER_NAME_PREFIX = "executor-update-timer-";
 
   private Counter OOMWaitingJobCount;
   private final MetricsManager metricsManager;
@@ -140,6 +143,15 @@ public class CommonMetrics {
    */
   public void markUploadThinProject() { this.uploadThinProjectMeter.mark(); }
 
+  /**
+   * Record the time the web server took to get the updates of the running executions from an
+   * executor. There is one timer per executor.
+   */
+  public void recordExecutorUpdateTime(final String host, final int port, final long timeMs) {
+    this.metricsManager.addTimer(EXECUTOR_UPDATE_TIMER_NAME_PREFIX + host + ":" + port)
+        .update(timeMs, TimeUnit.MILLISECONDS);
+  }
+
   /**
    * Mark the occurrence of a job waiting event due to OOM
    */
@@ -42,19 +42,25 @@ import azkaban.utils.PropsUtils;
 import azkaban.utils.Triple;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -74,6 +80,8 @@ public class JdbcProjectImpl implements ProjectLoader {
   private static final Logger logger = Logger.getLogger(JdbcProjectImpl.class);
 
   private static final int CHUCK_SIZE = 1024 * 1024 * 10;
+  // Number of file chunks fetched from the DB at once
+  private static final int CHUNKS_PER_FETCH = 5;
   // Flow yaml files are usually small, set size limitation to 10 MB should be sufficient for now.
   private static final int MAX_FLOW_FILE_SIZE_IN_BYTES = 1024 * 1024 * 10;
   private final DatabaseOperator dbOperator;
@@ -440,13 +448,7 @@ public class JdbcProjectImpl implements ProjectLoader {
       return null;
     }
     final int numChunks = projHandler.getNumChunks();
-    if (numChunks <= 0) {
-      throw new ProjectManagerException(String.format("Got numChunks=%s for version %s of project "
-              + "%s - seems like this version has been cleaned up already, because enough newer "
-              + "versions have been uploaded. To increase the retention of project versions, set "
-              + "%s", numChunks, version, projectId,
-          ConfigurationKeys.PROJECT_VERSION_RETENTION));
-    }
+    checkNumChunks(numChunks, projectId, version);
     BufferedOutputStream bStream = null;
     File file;
     try {
@@ -458,22 +460,11 @@ public class JdbcProjectImpl implements ProjectLoader {
         throw new ProjectManagerException("Error creating temp file for stream.");
       }
 
-      final int collect = 5;
+      final int collect = CHUNKS_PER_FETCH;
       int fromChunk = 0;
       int toChunk = collect;
       do {
-        final ProjectFileChunkResultHandler chunkHandler = new ProjectFileChunkResultHandler();
-        List<byte[]> data = null;
-        try {
-          data = this.dbOperator
-              .query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE, chunkHandler,
-                  projectId,
-                  version, fromChunk, toChunk);
-        } catch (final SQLException e) {
-          logger.error(e);
-          throw new ProjectManagerException("Query for uploaded file for " + projectId + " failed.",
-              e);
-        }
+        final List<byte[]> data = fetchChunks(projectId, version, fromChunk, toChunk);
 
         try {
           for (final byte[] d : data) {
@@ -513,6 +504,65 @@ public class JdbcProjectImpl implements ProjectLoader {
     return projHandler;
   }
 
+  /**
+   * Stream an uploaded file, fetching its chunks from the DB as they are read. Unlike {@link
+   * #getUploadedFile(int, int)}, the MD5 hash is not checked.
+   */
+  @Override
+  public InputStream getUploadedFileInputStream(final ProjectFileHandler projHandler)
+      throws ProjectManagerException {
+    final int projectId = projHandler.getProjectId();
+    final int version = projHandler.getVersion();
+    final int numChunks = projHandler.getNumChunks();
+    checkNumChunks(numChunks, projectId, version);
+
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+      private int fromChunk = 0;
+      private Iterator<byte[]> chunks = Collections.emptyIterator();
+
+      @Override
+      public boolean hasMoreElements() {
+        while (!this.chunks.hasNext() && this.fromChunk <= numChunks) {
+          this.chunks = fetchChunks(projectId, version, this.fromChunk,
+              this.fromChunk + CHUNKS_PER_FETCH).iterator();
+          this.fromChunk += CHUNKS_PER_FETCH;
+        }
+        return this.chunks.hasNext();
+      }
+
+      @Override
+      public InputStream nextElement() {
+        if (!hasMoreElements()) {
+          throw new NoSuchElementException();
+        }
+        return new ByteArrayInputStream(this.chunks.next());
+      }
+    });
+  }
+
+  private void checkNumChunks(final int numChunks, final int projectId, final int version) {
+    if (numChunks <= 0) {
+      throw new ProjectManagerException(String.format("Got numChunks=%s for version %s of project "
+              + "%s - seems like this version has been cleaned up already, because enough newer "
+              + "versions have been uploaded. To increase the retention of project versions, set "
+              + "%s", numChunks, version, projectId,
+          ConfigurationKeys.PROJECT_VERSION_RETENTION));
+    }
+  }
+
+  private List<byte[]> fetchChunks(final int projectId, final int version, final int fromChunk,
+      final int toChunk) {
+    try {
+      return this.dbOperator
+          .query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE,
+              new ProjectFileChunkResultHandler(), projectId, version, fromChunk, toChunk);
+    } catch (final SQLException e) {
+      logger.error(e);
+      throw new ProjectManagerException("Query for uploaded file for " + projectId + " failed.",
+          e);
+    }
+  }
+
   @Override
   public void changeProjectVersion(final Project project, final int version, final String user)
       throws ProjectManagerException {
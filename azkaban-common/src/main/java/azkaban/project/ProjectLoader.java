@@ -24,6 +24,7 @@ import azkaban.utils.Props;
 import azkaban.utils.Triple;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -123,6 +124,14 @@ public interface ProjectLoader {
   ProjectFileHandler getUploadedFile(int projectId, int version)
       throws ProjectManagerException;
 
+  /**
+   * Stream the content of a file that's uploaded, without storing it locally.
+   *
+   * @param projHandler the metadata of the uploaded file, from {@link #fetchProjectMetaData}
+   */
+  InputStream getUploadedFileInputStream(ProjectFileHandler projHandler)
+      throws ProjectManagerException;
+
   /**
    * Changes and commits different project version.
    */
@@ -53,6 +53,12 @@ public class DatabaseStorage implements Storage {
     return this.projectLoader.getUploadedFile(projectId, version);
   }
 
+  @Override
+  public InputStream getProject(final int projectId, final int version, final String key) {
+    return this.projectLoader.getUploadedFileInputStream(
+        this.projectLoader.fetchProjectMetaData(projectId, version));
+  }
+
   @Override
   public String putProject(final ProjectStorageMetadata metadata, final File localFile) {
     this.projectLoader.uploadProjectFile(metadata.getProjectId(), metadata.getVersion(),
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import static java.util.Objects.requireNonNull;
+
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.spi.LogStorage;
+import azkaban.spi.StorageException;
+import azkaban.utils.StorageUtils;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Stores the logs in HDFS, with a directory per execution.
+ */
+@Singleton
+public class HdfsLogStorage implements LogStorage {
+
+  private static final String TMP_LOG_UPLOAD_SUFFIX = ".tmp";
+  private static final Logger log = Logger.getLogger(HdfsLogStorage.class);
+
+  private final HdfsAuth hdfsAuth;
+  private final URI logRootUri;
+  private final DistributedFileSystem hdfs;
+
+  @Inject
+  public HdfsLogStorage(final AzkabanCommonModuleConfig config, final HdfsAuth hdfsAuth,
+      @Named("hdfsFS") final FileSystem hdfs) {
+    this.hdfsAuth = requireNonNull(hdfsAuth);
+    // Cast for the rename() with the OVERWRITE option, as in HdfsStorage
+    this.hdfs = (DistributedFileSystem) requireNonNull(hdfs);
+    this.logRootUri = requireNonNull(config.getHdfsLogRootUri(),
+        "azkaban.log.storage.hdfs.root.uri must be set");
+  }
+
+  @Override
+  public String putLog(final int execId, final String name, final int attempt,
+      final File localFile) {
+    this.hdfsAuth.authorize();
+    final String key = StorageUtils.getTargetLogPath(execId, name, attempt);
+    final Path targetPath = fullLogPath(key);
+    final Path tmpPath = new Path(targetPath.getParent(),
+        targetPath.getName() + TMP_LOG_UPLOAD_SUFFIX);
+    try {
+      this.hdfs.copyFromLocalFile(false, true, new Path(localFile.getAbsolutePath()), tmpPath);
+      this.hdfs.rename(tmpPath, targetPath, Options.Rename.OVERWRITE);
+    } catch (final IOException e) {
+      log.error("error in putLog(): " + key);
+      throw new StorageException(e);
+    }
+    return key;
+  }
+
+  @Override
+  public byte[] getLogRange(final String key, final long offset, final int length)
+      throws IOException {
+    this.hdfsAuth.authorize();
+    final byte[] bytes = new byte[length];
+    try (final FSDataInputStream in = this.hdfs.open(fullLogPath(key))) {
+      in.readFully(offset, bytes);
+    }
+    return bytes;
+  }
+
+  @Override
+  public int deleteLogsBefore(final long millis) {
+    this.hdfsAuth.authorize();
+    final Path rootPath = new Path(this.logRootUri.toString());
+    int count = 0;
+    try {
+      if (!this.hdfs.exists(rootPath)) {
+        return 0;
+      }
+      for (final FileStatus execDir : this.hdfs.listStatus(rootPath)) {
+        // The directory is modified whenever a log is put in it
+        if (!execDir.isDirectory() || execDir.getModificationTime() >= millis) {
+          continue;
+        }
+        final int numLogs = this.hdfs.listStatus(execDir.getPath()).length;
+        if (this.hdfs.delete(execDir.getPath(), true)) {
+          count += numLogs;
+        }
+      }
+    } catch (final IOException e) {
+      log.error("HDFS log delete failed under " + rootPath, e);
+    }
+    return count;
+  }
+
+  private Path fullLogPath(final String key) {
+    return new Path(this.logRootUri.toString(), key);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.spi.LogStorage;
+import azkaban.spi.StorageException;
+import azkaban.utils.FileIOUtils;
+import azkaban.utils.StorageUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Stores the logs in a local directory, e.g. a shared mount, with a directory per execution.
+ */
+@Singleton
+public class LocalLogStorage implements LogStorage {
+
+  private static final Logger log = Logger.getLogger(LocalLogStorage.class);
+
+  final File rootDirectory;
+
+  @Inject
+  public LocalLogStorage(final AzkabanCommonModuleConfig config) {
+    this.rootDirectory = new File(config.getLocalLogStorageBaseDirPath());
+    if (this.rootDirectory.mkdirs()) {
+      log.info("Creating dir: " + this.rootDirectory.getAbsolutePath());
+    }
+    checkArgument(this.rootDirectory.isDirectory());
+    if (!FileIOUtils.isDirWritable(this.rootDirectory)) {
+      throw new IllegalArgumentException("Directory not writable: " + this.rootDirectory);
+    }
+  }
+
+  @Override
+  public String putLog(final int execId, final String name, final int attempt,
+      final File localFile) {
+    final String key = StorageUtils.getTargetLogPath(execId, name, attempt);
+    final File targetFile = new File(this.rootDirectory, key);
+    final File tmpFile = new File(targetFile.getPath() + ".tmp");
+    try {
+      // Renamed once complete, as the log may be put again by another executor, e.g. after a
+      // restart
+      FileUtils.copyFile(localFile, tmpFile);
+      FileUtils.deleteQuietly(targetFile);
+      FileUtils.moveFile(tmpFile, targetFile);
+    } catch (final IOException e) {
+      log.error("LocalLogStorage error in putLog(): " + key);
+      FileUtils.deleteQuietly(tmpFile);
+      throw new StorageException(e);
+    }
+    return key;
+  }
+
+  @Override
+  public byte[] getLogRange(final String key, final long offset, final int length)
+      throws IOException {
+    final byte[] bytes = new byte[length];
+    try (final RandomAccessFile file = new RandomAccessFile(new File(this.rootDirectory, key),
+        "r")) {
+      file.seek(offset);
+      file.readFully(bytes);
+    }
+    return bytes;
+  }
+
+  @Override
+  public int deleteLogsBefore(final long millis) {
+    final File[] execDirs = this.rootDirectory.listFiles(File::isDirectory);
+    if (execDirs == null) {
+      return 0;
+    }
+    int count = 0;
+    for (final File execDir : execDirs) {
+      // The directory is modified whenever a log is put in it
+      if (execDir.lastModified() >= millis) {
+        continue;
+      }
+      final String[] logs = execDir.list();
+      try {
+        FileUtils.deleteDirectory(execDir);
+        count += logs == null ? 0 : logs.length;
+      } catch (final IOException e) {
+        log.warn("Unable to delete logs: " + execDir.getAbsolutePath(), e);
+      }
+    }
+    return count;
+  }
+}
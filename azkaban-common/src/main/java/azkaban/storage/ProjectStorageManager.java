@@ -31,9 +31,12 @@ import azkaban.user.User;
 import azkaban.utils.HashUtils;
 import azkaban.utils.Props;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -186,6 +189,38 @@ public class ProjectStorageManager {
     }
   }
 
+  /**
+   * Fetch the metadata of a project file, without fetching the file itself.
+   *
+   * @param projectId required project ID
+   * @param version version to be fetched
+   * @return Handler object containing the metadata of the project file, without local file
+   */
+  public ProjectFileHandler getProjectFileMetadata(final int projectId, final int version) {
+    return requireNonNull(this.projectLoader.fetchProjectMetaData(projectId, version),
+        String.format("No project file. project ID: %d version: %d", projectId, version));
+  }
+
+  /**
+   * Stream a project file from storage, without storing it locally. The MD5 hash is validated
+   * while the stream is read: reading the end of the stream throws an IOException if the hash
+   * doesn't match.
+   *
+   * @param pfh metadata of the project file, from {@link #getProjectFileMetadata(int, int)}
+   * @return the content of the project file, to be closed by the caller
+   */
+  public InputStream getProjectFileInputStream(final ProjectFileHandler pfh) {
+    log.info(String.format("Streaming project file. project ID: %d version: %d",
+        pfh.getProjectId(), pfh.getVersion()));
+    final InputStream is;
+    try {
+      is = this.storage.getProject(pfh.getProjectId(), pfh.getVersion(), pfh.getResourceId());
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    }
+    return new ChecksumValidatingInputStream(is, pfh);
+  }
+
   private void validateChecksum(final File file, final ProjectFileHandler pfh) throws IOException {
     final byte[] hash = HashUtils.MD5.getHashBytes(file);
     checkState(HashUtils.isSameHash(pfh.getMD5Hash(), hash),
@@ -201,4 +236,74 @@ public class ProjectStorageManager {
         projectFileHandler.getFileName(),
         String.valueOf(projectFileHandler.getVersion()), this.tempDir);
   }
+
+  /**
+   * Validates the MD5 hash of a project file when its end is read.
+   */
+  private static class ChecksumValidatingInputStream extends FilterInputStream {
+
+    private final MessageDigest digest;
+    private final ProjectFileHandler pfh;
+    private boolean validated = false;
+
+    ChecksumValidatingInputStream(final InputStream in, final ProjectFileHandler pfh) {
+      this(in, HashUtils.MD5.getDigest(), pfh);
+    }
+
+    private ChecksumValidatingInputStream(final InputStream in, final MessageDigest digest,
+        final ProjectFileHandler pfh) {
+      super(new DigestInputStream(in, digest));
+      this.digest = digest;
+      this.pfh = pfh;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = super.read();
+      if (b == -1) {
+        validate();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      final int n = super.read(b, off, len);
+      if (n == -1) {
+        validate();
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      // Skipped bytes must be digested too.
+      if (n <= 0) {
+        return 0;
+      }
+      final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+      final int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void validate() throws IOException {
+      if (this.validated) {
+        return;
+      }
+      this.validated = true;
+      final byte[] hash = this.digest.digest();
+      if (!HashUtils.isSameHash(this.pfh.getMD5Hash(), hash)) {
+        throw new IOException(
+            String.format("MD5 HASH Failed. project ID: %d version: %d Expected: %s Actual: %s",
+                this.pfh.getProjectId(), this.pfh.getVersion(),
+                HashUtils.bytesHashToString(this.pfh.getMD5Hash()),
+                HashUtils.bytesHashToString(hash)));
+      }
+    }
+  }
 }
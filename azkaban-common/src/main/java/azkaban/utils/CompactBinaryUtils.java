@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact binary encoding of the object trees built by the toObject() methods, like
+ * {@link azkaban.executor.ExecutableFlow#toObject()}.
+ *
+ * <p>It accepts and returns the same types as {@link JSONUtils}: maps, lists, strings, numbers,
+ * booleans and nulls. Decoding produces the same objects as parsing the JSON of the tree, so both
+ * encodings can be read side by side.
+ *
+ * <p>Format, version 1: a version byte followed by the root value. Every value starts with a tag
+ * byte. Integral numbers are zigzag varints, so times and ids take a few bytes. Every distinct
+ * string is written once, and referenced by its varint index afterwards. Map keys, node ids in
+ * in/out node lists and status names are repeated many times in a flow and take one or two bytes
+ * each after their first occurrence.
+ */
+public class CompactBinaryUtils {
+
+  public static final int VERSION = 1;
+
+  private static final int TAG_NULL = 0;
+  private static final int TAG_FALSE = 1;
+  private static final int TAG_TRUE = 2;
+  private static final int TAG_INTEGER = 3;
+  private static final int TAG_DOUBLE = 4;
+  private static final int TAG_STRING = 5;
+  private static final int TAG_STRING_REF = 6;
+  private static final int TAG_LIST = 7;
+  private static final int TAG_MAP = 8;
+
+  public static byte[] encode(final Object obj) throws IOException {
+    final Encoder encoder = new Encoder();
+    encoder.writeByte(VERSION);
+    encoder.writeValue(obj);
+    return encoder.toByteArray();
+  }
+
+  public static Object decode(final byte[] data) throws IOException {
+    if (data.length == 0 || data[0] != VERSION) {
+      throw new IOException("Unsupported compact binary version "
+          + (data.length == 0 ? "(empty data)" : data[0]));
+    }
+    final Decoder decoder = new Decoder(data);
+    try {
+      return decoder.readValue();
+    } catch (final IndexOutOfBoundsException e) {
+      throw new IOException("Truncated compact binary data", e);
+    }
+  }
+
+  private static class Encoder {
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private byte[] buf = new byte[1024];
+    private int pos = 0;
+
+    private void ensureCapacity(final int extra) {
+      if (this.pos + extra > this.buf.length) {
+        this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.pos + extra));
+      }
+    }
+
+    private void writeByte(final int b) {
+      ensureCapacity(1);
+      this.buf[this.pos++] = (byte) b;
+    }
+
+    private void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        this.buf[this.pos++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      this.buf[this.pos++] = (byte) value;
+    }
+
+    private void writeString(final String str) {
+      final Integer index = this.strings.get(str);
+      if (index != null) {
+        writeByte(TAG_STRING_REF);
+        writeVarLong(index);
+        return;
+      }
+      this.strings.put(str, this.strings.size());
+      final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      writeByte(TAG_STRING);
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, this.buf, this.pos, bytes.length);
+      this.pos += bytes.length;
+    }
+
+    private void writeValue(final Object obj) throws IOException {
+      if (obj == null) {
+        writeByte(TAG_NULL);
+      } else if (obj instanceof String) {
+        writeString((String) obj);
+      } else if (obj instanceof Boolean) {
+        writeByte((Boolean) obj ? TAG_TRUE : TAG_FALSE);
+      } else if (obj instanceof Long || obj instanceof Integer || obj instanceof Short
+          || obj instanceof Byte || obj instanceof AtomicInteger || obj instanceof AtomicLong) {
+        final long value = ((Number) obj).longValue();
+        writeByte(TAG_INTEGER);
+        writeVarLong((value << 1) ^ (value >> 63));
+      } else if (obj instanceof Double || obj instanceof Float) {
+        final long bits = Double.doubleToLongBits(((Number) obj).doubleValue());
+        writeByte(TAG_DOUBLE);
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          this.buf[this.pos++] = (byte) (bits >>> shift);
+        }
+      } else if (obj instanceof Map) {
+        final Map<?, ?> map = (Map<?, ?>) obj;
+        writeByte(TAG_MAP);
+        writeVarLong(map.size());
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+          writeString(String.valueOf(entry.getKey()));
+          writeValue(entry.getValue());
+        }
+      } else if (obj instanceof Collection) {
+        final Collection<?> list = (Collection<?>) obj;
+        writeByte(TAG_LIST);
+        writeVarLong(list.size());
+        for (final Object element : list) {
+          writeValue(element);
+        }
+      } else {
+        // Anything else is written the way the JSON encoding would have represented it.
+        writeValue(JSONUtils.parseJSONFromString(JSONUtils.toJSON(obj)));
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(this.buf, this.pos);
+    }
+  }
+
+  private static class Decoder {
+
+    private final List<String> strings = new ArrayList<>();
+    private final byte[] buf;
+    private int pos = 1;
+
+    private Decoder(final byte[] buf) {
+      this.buf = buf;
+    }
+
+    private long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        final byte b = this.buf[this.pos++];
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint at offset " + this.pos);
+    }
+
+    private int readLength() throws IOException {
+      final long length = readVarLong();
+      if (length < 0 || length > this.buf.length - this.pos) {
+        throw new IOException("Invalid length " + length + " at offset " + this.pos);
+      }
+      return (int) length;
+    }
+
+    private Object readValue() throws IOException {
+      final int tag = this.buf[this.pos++];
+      switch (tag) {
+        case TAG_NULL:
+          return null;
+        case TAG_FALSE:
+          return false;
+        case TAG_TRUE:
+          return true;
+        case TAG_INTEGER: {
+          final long zigzag = readVarLong();
+          final long value = (zigzag >>> 1) ^ -(zigzag & 1);
+          // Same types as the JSON parser: Integer if the value fits, Long otherwise
+          if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+          }
+          return value;
+        }
+        case TAG_DOUBLE: {
+          long bits = 0;
+          for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (this.buf[this.pos++] & 0xFF);
+          }
+          return Double.longBitsToDouble(bits);
+        }
+        case TAG_STRING:
+        case TAG_STRING_REF:
+          return readString(tag);
+        case TAG_LIST: {
+          final int size = readLength();
+          final List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(readValue());
+          }
+          return list;
+        }
+        case TAG_MAP: {
+          final int size = readLength();
+          final Map<String, Object> map = new HashMap<>();
+          for (int i = 0; i < size; i++) {
+            final String key = readString(this.buf[this.pos++]);
+            map.put(key, readValue());
+          }
+          return map;
+        }
+        default:
+          throw new IOException("Unknown tag " + tag + " at offset " + (this.pos - 1));
+      }
+    }
+
+    private String readString(final int tag) throws IOException {
+      if (tag == TAG_STRING_REF) {
+        final long index = readVarLong();
+        if (index < 0 || index >= this.strings.size()) {
+          throw new IOException("Invalid string reference " + index + " at offset " + this.pos);
+        }
+        return this.strings.get((int) index);
+      } else if (tag == TAG_STRING) {
+        final int length = readLength();
+        final String str = new String(this.buf, this.pos, length, StandardCharsets.UTF_8);
+        this.pos += length;
+        this.strings.add(str);
+        return str;
+      }
+      throw new IOException("Expected a string but found tag " + tag + " at offset "
+          + (this.pos - 1));
+    }
+  }
+}
@@ -21,6 +21,7 @@ import azkaban.spi.DependencyFile;
 import azkaban.spi.Storage;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -102,7 +103,15 @@ public class DependencyTransferManager {
     }
   }
 
-  private void downloadDependency(final DependencyFile f) {
+  /**
+   * downloads a single dependency from an origin into the file returned by DependencyFile::getFile,
+   * retrying and validating its checksum like {@link #downloadAllDependencies(Set)}. The calling
+   * thread does the download.
+   *
+   * @param f DependencyFile to download
+   */
+  public void downloadDependency(final DependencyFile f) {
+    ensureIsEnabled();
     try {
       downloadDependency(f, 0);
     } catch (IOException e) {
@@ -118,8 +127,10 @@ public class DependencyTransferManager {
       // Make any necessary directories
       f.getFile().getParentFile().mkdirs();
 
-      FileOutputStream fos = new FileOutputStream(f.getFile());
-      IOUtils.copy(this.storage.getDependency(f), fos);
+      try (InputStream is = this.storage.getDependency(f);
+          FileOutputStream fos = new FileOutputStream(f.getFile())) {
+        IOUtils.copy(is, fos);
+      }
     } catch (IOException e) {
       if (retries + 1 < dependencyMaxDownloadTries) {
         // downloadDependency will overwrite our destination file if attempted again
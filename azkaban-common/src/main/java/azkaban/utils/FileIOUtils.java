@@ -30,12 +30,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.apache.commons.fileupload.util.Streams;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -48,6 +52,9 @@ import org.slf4j.LoggerFactory;
  */
 public class FileIOUtils {
 
+  // Number of files hard-linked by each task of the parallel deep hard link
+  private static final int HARDLINK_BATCH_SIZE = 1000;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(FileIOUtils.class);
 
   /**
@@ -288,19 +295,80 @@ public class FileIOUtils {
     createDirsFindFiles(sourceDir, sourceDir, destDir, paths);
 
     int linkCount = 0;
-    for (String path : paths) {
-      final File sourceLink = new File(sourceDir, path);
-      path = destDir + path;
-
-      final File[] targetFiles = sourceLink.listFiles();
-      for (final File targetFile : targetFiles) {
-        if (targetFile.isFile()) {
-          final File linkFile = new File(path, targetFile.getName());
-          // NOTE!! If modifying this, you must run this ignored test manually to validate:
-          // FileIOUtilsTest#testHardlinkCopyOfBigDir
-          Files.createLink(linkFile.toPath(), Paths.get(targetFile.getAbsolutePath()));
-          linkCount++;
-        }
+    for (final String path : paths) {
+      final File[] targetFiles = new File(sourceDir, path).listFiles();
+      linkCount += createHardlinks(targetFiles, 0, targetFiles.length, new File(destDir + path));
+    }
+    return linkCount;
+  }
+
+  /**
+   * Hard link files and recurse into directories like {@link #createDeepHardlink(File, File)},
+   * linking the files in parallel on the given executor service. The directories are still
+   * created by the calling thread.
+   */
+  public static int createDeepHardlink(final File sourceDir, final File destDir,
+      final ExecutorService linkService) throws IOException {
+    if (!sourceDir.exists()) {
+      throw new IOException("Source directory " + sourceDir.getPath()
+          + " doesn't exist");
+    } else if (!destDir.exists()) {
+      throw new IOException("Destination directory " + destDir.getPath()
+          + " doesn't exist");
+    } else if (sourceDir.isFile() && destDir.isFile()) {
+      throw new IOException("Source or Destination is not a directory.");
+    }
+
+    final Set<String> paths = new HashSet<>();
+    createDirsFindFiles(sourceDir, sourceDir, destDir, paths);
+
+    // Split big directories into batches so that they are linked by several threads too.
+    final List<Future<Integer>> batches = new ArrayList<>();
+    for (final String path : paths) {
+      final File[] targetFiles = new File(sourceDir, path).listFiles();
+      final File linkDir = new File(destDir + path);
+      for (int from = 0; from < targetFiles.length; from += HARDLINK_BATCH_SIZE) {
+        final int start = from;
+        final int end = Math.min(from + HARDLINK_BATCH_SIZE, targetFiles.length);
+        batches.add(linkService.submit(() -> createHardlinks(targetFiles, start, end, linkDir)));
+      }
+    }
+
+    int linkCount = 0;
+    try {
+      for (final Future<Integer> batch : batches) {
+        linkCount += batch.get();
+      }
+    } catch (final InterruptedException e) {
+      batches.forEach(batch -> batch.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while creating hard links in " + destDir, e);
+    } catch (final ExecutionException e) {
+      batches.forEach(batch -> batch.cancel(true));
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error while creating hard links in " + destDir, e.getCause());
+    }
+    return linkCount;
+  }
+
+  /**
+   * Hard link the files among targetFiles[from, to) into linkDir.
+   *
+   * @return the number of links created
+   */
+  private static int createHardlinks(final File[] targetFiles, final int from, final int to,
+      final File linkDir) throws IOException {
+    int linkCount = 0;
+    for (int i = from; i < to; i++) {
+      final File targetFile = targetFiles[i];
+      if (targetFile.isFile()) {
+        final File linkFile = new File(linkDir, targetFile.getName());
+        // NOTE!! If modifying this, you must run this ignored test manually to validate:
+        // FileIOUtilsTest#testHardlinkCopyOfBigDir
+        Files.createLink(linkFile.toPath(), Paths.get(targetFile.getAbsolutePath()));
+        linkCount++;
       }
     }
     return linkCount;
@@ -352,8 +420,12 @@ public class FileIOUtils {
         utf8Range.getSecond());
   }
 
-  public static LogData readUtf8File(final File file, final int fileOffset, final int length)
+  /**
+   * Read a range of a UTF-8 file. A negative offset reads the last length bytes of the file.
+   */
+  public static LogData readUtf8File(final File file, final int offset, final int length)
       throws IOException {
+    final int fileOffset = offset < 0 ? (int) Math.max(0, file.length() - length) : offset;
     final byte[] buffer = new byte[length];
     final FileInputStream fileStream = new FileInputStream(file);
 
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a log as a compressed log segment, see {@link LogSegmentUtils}.
+ *
+ * <p>The log is compressed in blocks of {@link LogSegmentUtils#BLOCK_SIZE} bytes, each one a
+ * separate GZIP member, and a block is added to the index once it is complete. A flush makes
+ * everything written so far readable from the file without completing the block, so the log of
+ * a running job can be followed. Flushing every few bytes costs some compression, which is why
+ * log4j appenders that flush per batch of events suit it best.
+ *
+ * <p>The log may be capped to a number of bytes, like the rolling log files of jobs: what is
+ * written past it is dropped, with a note at the end of the log.
+ *
+ * <p>Not thread safe: log4j appenders synchronize their writes.
+ */
+public class LogSegmentOutputStream extends OutputStream {
+
+  // GZIP header without file name, modification time or other optional fields
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0,
+      0, 0, (byte) 0xff};
+  private static final byte[] TRUNCATED_NOTE =
+      "\n[Log truncated: it is larger than the maximum log size]\n"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private final int blockSize;
+  private final long maxLogSize;
+  private final OutputStream data;
+  private final DataOutputStream index;
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+  private final CRC32 crc = new CRC32();
+  private final byte[] buffer = new byte[8 * 1024];
+
+  // Number of bytes of log written, and of compressed bytes written to the data file
+  private long position;
+  private long filePosition;
+  private boolean blockOpen;
+  private long blockStart;
+  private long blockFileOffset;
+  private boolean truncated;
+  private boolean closed;
+
+  public LogSegmentOutputStream(final File file) throws IOException {
+    this(file, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param maxLogSize number of bytes of log kept, the rest is dropped
+   */
+  public LogSegmentOutputStream(final File file, final long maxLogSize) throws IOException {
+    this(file, LogSegmentUtils.BLOCK_SIZE, maxLogSize);
+  }
+
+  LogSegmentOutputStream(final File file, final int blockSize, final long maxLogSize)
+      throws IOException {
+    this.blockSize = blockSize;
+    this.maxLogSize = maxLogSize;
+    this.data = new BufferedOutputStream(new FileOutputStream(file));
+    this.index = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(LogSegmentUtils.getIndexFile(file))));
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    if (this.closed) {
+      throw new IOException("Log segment is closed");
+    }
+    if (this.truncated) {
+      return;
+    }
+    if (len > this.maxLogSize - this.position) {
+      compress(b, off, (int) (this.maxLogSize - this.position));
+      this.truncated = true;
+      compress(TRUNCATED_NOTE, 0, TRUNCATED_NOTE.length);
+      return;
+    }
+    compress(b, off, len);
+  }
+
+  /**
+   * @return true if the log was larger than the maximum size and its end was dropped.
+   */
+  public boolean isTruncated() {
+    return this.truncated;
+  }
+
+  private void compress(final byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (!this.blockOpen) {
+        startBlock();
+      }
+      final int n = (int) Math.min(len, this.blockSize - (this.position - this.blockStart));
+      this.deflater.setInput(b, off, n);
+      while (!this.deflater.needsInput()) {
+        writeDeflated(Deflater.NO_FLUSH);
+      }
+      this.crc.update(b, off, n);
+      this.position += n;
+      off += n;
+      len -= n;
+      if (this.position - this.blockStart == this.blockSize) {
+        finishBlock();
+      }
+    }
+  }
+
+  /**
+   * Write everything compressed so far to the file, so that it can be read before the block is
+   * complete.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (this.blockOpen) {
+      // With a sync flush, there may be more output only if the buffer was filled
+      int n;
+      do {
+        n = writeDeflated(Deflater.SYNC_FLUSH);
+      } while (n == this.buffer.length);
+    }
+    this.data.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      if (this.blockOpen) {
+        finishBlock();
+      }
+    } finally {
+      this.deflater.end();
+      this.data.close();
+      this.index.close();
+    }
+  }
+
+  private void startBlock() throws IOException {
+    this.deflater.reset();
+    this.crc.reset();
+    this.blockStart = this.position;
+    this.blockFileOffset = this.filePosition;
+    this.blockOpen = true;
+    writeData(GZIP_HEADER, GZIP_HEADER.length);
+  }
+
+  private void finishBlock() throws IOException {
+    this.deflater.finish();
+    while (!this.deflater.finished()) {
+      writeDeflated(Deflater.NO_FLUSH);
+    }
+    final byte[] trailer = new byte[8];
+    writeIntLE(trailer, 0, (int) this.crc.getValue());
+    writeIntLE(trailer, 4, (int) (this.position - this.blockStart));
+    writeData(trailer, trailer.length);
+    // The block must be readable before it is indexed
+    this.data.flush();
+
+    this.index.writeLong(this.blockStart);
+    this.index.writeLong(this.position);
+    this.index.writeLong(this.blockFileOffset);
+    this.index.writeInt((int) (this.filePosition - this.blockFileOffset));
+    this.index.flush();
+    this.blockOpen = false;
+  }
+
+  private int writeDeflated(final int flush) throws IOException {
+    final int n = this.deflater.deflate(this.buffer, 0, this.buffer.length, flush);
+    writeData(this.buffer, n);
+    return n;
+  }
+
+  private void writeData(final byte[] bytes, final int length) throws IOException {
+    this.data.write(bytes, 0, length);
+    this.filePosition += length;
+  }
+
+  private static void writeIntLE(final byte[] bytes, final int offset, final int value) {
+    bytes[offset] = (byte) value;
+    bytes[offset + 1] = (byte) (value >> 8);
+    bytes[offset + 2] = (byte) (value >> 16);
+    bytes[offset + 3] = (byte) (value >> 24);
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import azkaban.utils.FileIOUtils.LogData;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the compressed log segments written by {@link LogSegmentOutputStream}.
+ *
+ * <p>A log segment is a data file and an index file. The data file is a sequence of GZIP
+ * members, each one holding a block of the log, so it can still be read with gunzip. The index
+ * file has a record for every complete block: the range of the log in the block, and the range
+ * of the data file holding it. A range of the log is read by decompressing the few blocks
+ * overlapping it, and the blocks are the chunks of the log uploaded to the DB, as they are.
+ *
+ * <p>The last block is incomplete while the log is written: it isn't indexed yet, and its GZIP
+ * member has no end.
+ */
+public class LogSegmentUtils {
+
+  // Same size as the chunks of the logs in the DB
+  public static final int BLOCK_SIZE = 50 * 1024;
+  public static final String SEGMENT_SUFFIX = ".gz";
+  private static final String INDEX_SUFFIX = ".idx";
+  // Start and end byte of the block, offset and length of its GZIP member in the data file
+  private static final int INDEX_RECORD_SIZE = 28;
+  private static final int GZIP_HEADER_SIZE = 10;
+
+  public static boolean isLogSegment(final File file) {
+    return file.getName().endsWith(SEGMENT_SUFFIX);
+  }
+
+  /**
+   * @return the data file of the log segment of a log file.
+   */
+  public static File getSegmentFile(final File logFile) {
+    return new File(logFile.getPath() + SEGMENT_SUFFIX);
+  }
+
+  /**
+   * @return the index file of a log segment.
+   */
+  public static File getIndexFile(final File segmentFile) {
+    final String path = segmentFile.getPath();
+    return new File(path.substring(0, path.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+  }
+
+  /**
+   * @return the complete blocks of the log segment.
+   */
+  public static List<Block> readBlocks(final File segmentFile) throws IOException {
+    try (final FileChannel index = FileChannel
+        .open(getIndexFile(segmentFile).toPath(), StandardOpenOption.READ)) {
+      final int numBlocks = (int) (index.size() / INDEX_RECORD_SIZE);
+      final List<Block> blocks = new ArrayList<>(numBlocks);
+      for (int i = 0; i < numBlocks; i++) {
+        blocks.add(readBlock(index, i));
+      }
+      return blocks;
+    }
+  }
+
+  /**
+   * @return the GZIP member of the block.
+   */
+  public static byte[] readCompressedBlock(final FileChannel data, final Block block)
+      throws IOException {
+    final byte[] bytes = new byte[block.getCompressedLength()];
+    readFully(data, bytes, block.getFileOffset());
+    return bytes;
+  }
+
+  /**
+   * Read a range of the log of a UTF-8 log segment, as
+   * {@link FileIOUtils#readUtf8File(File, int, int)}.
+   */
+  public static LogData readUtf8Range(final File segmentFile, final int offset, final int length)
+      throws IOException {
+    try (final FileChannel data = FileChannel
+        .open(segmentFile.toPath(), StandardOpenOption.READ)) {
+      return readUtf8Range(data, segmentFile, offset, length);
+    }
+  }
+
+  /**
+   * Read a range of the log of a UTF-8 log segment from its open data file. A negative offset
+   * reads the last length bytes of the log.
+   */
+  public static LogData readUtf8Range(final FileChannel data, final File segmentFile,
+      final int offset, final int length) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final long start;
+    try (final FileChannel index = FileChannel
+        .open(getIndexFile(segmentFile).toPath(), StandardOpenOption.READ)) {
+      // Blocks indexed after this are read as part of the incomplete block
+      final int numBlocks = (int) (index.size() / INDEX_RECORD_SIZE);
+      final Block last = numBlocks == 0 ? null : readBlock(index, numBlocks - 1);
+      final long indexedEnd = last == null ? 0 : last.getEndByte();
+      final long tailOffset = last == null ? 0 : last.getFileOffset() + last.getCompressedLength();
+
+      byte[] tail = null;
+      if (offset < 0) {
+        tail = readIncompleteBlock(data, tailOffset);
+        start = Math.max(0, indexedEnd + tail.length - length);
+      } else {
+        start = offset;
+      }
+      if (start > Integer.MAX_VALUE) {
+        // The offsets of LogData are ints
+        throw new IOException("Can't read past 2 GB of log segment " + segmentFile);
+      }
+      final long end = Math.min(start + length, Integer.MAX_VALUE);
+
+      if (start < indexedEnd) {
+        for (int i = findBlock(index, numBlocks, start); i < numBlocks; i++) {
+          final Block block = readBlock(index, i);
+          if (block.getStartByte() >= end) {
+            break;
+          }
+          copyRange(GZIPUtils.unGzipBytes(readCompressedBlock(data, block)),
+              block.getStartByte(), start, end, bytes);
+        }
+      }
+      if (end > indexedEnd) {
+        if (tail == null) {
+          tail = readIncompleteBlock(data, tailOffset);
+        }
+        copyRange(tail, indexedEnd, start, end, bytes);
+      }
+    }
+
+    final byte[] buffer = bytes.toByteArray();
+    if (buffer.length == 0) {
+      return new LogData((int) start, 0, "");
+    }
+    final Pair<Integer, Integer> utf8Range = FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
+    return new LogData((int) start + utf8Range.getFirst(), utf8Range.getSecond(),
+        new String(buffer, utf8Range.getFirst(), utf8Range.getSecond(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Open the whole log of a log segment, including what is readable of the incomplete block.
+   */
+  public static InputStream newInputStream(final File segmentFile) throws IOException {
+    final InputStream fileStream = new BufferedInputStream(new FileInputStream(segmentFile));
+    final GZIPInputStream gzipStream;
+    try {
+      gzipStream = new GZIPInputStream(fileStream);
+    } catch (final EOFException e) {
+      // Nothing written yet
+      fileStream.close();
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    return new FilterInputStream(gzipStream) {
+      @Override
+      public int read() throws IOException {
+        try {
+          return super.read();
+        } catch (final EOFException e) {
+          // The GZIP member of the incomplete block has no end
+          return -1;
+        }
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        try {
+          return super.read(b, off, len);
+        } catch (final EOFException e) {
+          return -1;
+        }
+      }
+    };
+  }
+
+  /**
+   * @return the index of the block holding the byte of the log.
+   */
+  private static int findBlock(final FileChannel index, final int numBlocks, final long pos)
+      throws IOException {
+    int low = 0;
+    int high = numBlocks - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (readBlock(index, mid).getStartByte() <= pos) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private static Block readBlock(final FileChannel index, final int i) throws IOException {
+    final byte[] record = new byte[INDEX_RECORD_SIZE];
+    readFully(index, record, (long) i * INDEX_RECORD_SIZE);
+    final ByteBuffer buffer = ByteBuffer.wrap(record);
+    return new Block(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+  }
+
+  /**
+   * Decompress what was flushed of the block after the indexed ones.
+   */
+  private static byte[] readIncompleteBlock(final FileChannel data, final long fileOffset)
+      throws IOException {
+    final long compressedLength = data.size() - fileOffset - GZIP_HEADER_SIZE;
+    if (compressedLength <= 0) {
+      return new byte[0];
+    }
+    final byte[] compressed = new byte[(int) compressedLength];
+    readFully(data, compressed, fileOffset + GZIP_HEADER_SIZE);
+
+    final Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(compressed);
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8 * 1024];
+      while (!inflater.finished()) {
+        final int n = inflater.inflate(buffer);
+        if (n == 0) {
+          // The rest of the block isn't flushed yet
+          break;
+        }
+        bytes.write(buffer, 0, n);
+      }
+      return bytes.toByteArray();
+    } catch (final DataFormatException e) {
+      throw new IOException("Corrupted log segment block at " + fileOffset, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static void copyRange(final byte[] data, final long dataStart, final long start,
+      final long end, final ByteArrayOutputStream out) {
+    final int from = (int) (Math.max(start, dataStart) - dataStart);
+    final int to = (int) (Math.min(end, dataStart + data.length) - dataStart);
+    if (to > from) {
+      out.write(data, from, to - from);
+    }
+  }
+
+  private static void readFully(final FileChannel channel, final byte[] bytes,
+      final long position) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Log segment ends before " + (position + bytes.length));
+      }
+    }
+  }
+
+  /**
+   * A complete block of a log segment.
+   */
+  public static class Block {
+
+    private final long startByte;
+    private final long endByte;
+    private final long fileOffset;
+    private final int compressedLength;
+
+    private Block(final long startByte, final long endByte, final long fileOffset,
+        final int compressedLength) {
+      this.startByte = startByte;
+      this.endByte = endByte;
+      this.fileOffset = fileOffset;
+      this.compressedLength = compressedLength;
+    }
+
+    public long getStartByte() {
+      return this.startByte;
+    }
+
+    public long getEndByte() {
+      return this.endByte;
+    }
+
+    public long getFileOffset() {
+      return this.fileOffset;
+    }
+
+    public int getCompressedLength() {
+      return this.compressedLength;
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package azkaban.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -25,14 +26,20 @@ import java.util.stream.Collectors;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
 
 /**
@@ -43,11 +50,56 @@ import org.apache.log4j.Logger;
  * as a black box and focus on processing the result. With that said the abstract class will be
  * provided as a template, which ideally can support different types of returning object
  * (Dictionary, xmlDoc , text etc.)
+ *
+ * <p>The requests share one pool of keep-alive connections, so consecutive calls to the same
+ * host don't open a new connection each time.
  */
 public abstract class RestfulApiClient<T> {
 
   protected static Logger logger = Logger.getLogger(RestfulApiClient.class);
 
+  // A pooled connection idle for longer than this is checked before being reused, as the server
+  // may have closed it in the meantime.
+  private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+  private final CloseableHttpClient httpClient;
+  private final RequestConfig requestConfig;
+
+  /**
+   * Creates a client with the default pool of HttpClients: 20 connections in total, 2 per host,
+   * and no timeouts.
+   */
+  protected RestfulApiClient() {
+    this.httpClient = HttpClients.createDefault();
+    this.requestConfig = RequestConfig.DEFAULT;
+  }
+
+  /**
+   * Creates a client with its own connection pool.
+   *
+   * @param maxConnections max number of connections in total.
+   * @param maxConnectionsPerHost max number of connections to the same host.
+   * @param connectTimeoutMs timeout to connect, and to wait for a connection from the pool.
+   * @param socketTimeoutMs max time without data while waiting for a response. 0 waits forever.
+   */
+  protected RestfulApiClient(final int maxConnections, final int maxConnectionsPerHost,
+      final int connectTimeoutMs, final int socketTimeoutMs) {
+    final PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+    connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+    this.requestConfig = RequestConfig.custom()
+        .setConnectTimeout(connectTimeoutMs)
+        .setConnectionRequestTimeout(connectTimeoutMs)
+        .setSocketTimeout(socketTimeoutMs)
+        .build();
+    this.httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(this.requestConfig)
+        .build();
+  }
+
   /**
    * helper function to build a valid URI.
    *
@@ -125,12 +177,74 @@ public abstract class RestfulApiClient<T> {
     return this.sendAndReturn(completeRequest(post, params));
   }
 
+  /**
+   * Same as {@link #httpPost(URI, List)}, with another socket timeout than the client's, e.g.
+   * for a request the server takes long to respond to.
+   *
+   * @param socketTimeoutMs max time without data while waiting for the response. 0 waits
+   * forever.
+   */
+  public T httpPost(final URI uri, final List<Pair<String, String>> params,
+      final int socketTimeoutMs) throws IOException {
+    final HttpPost post = new HttpPost(uri);
+    post.setConfig(RequestConfig.copy(this.requestConfig).setSocketTimeout(socketTimeoutMs)
+        .build());
+    return this.sendAndReturn(completeRequest(post, params));
+  }
+
+  /**
+   * Perform a Post http request, and hand the body of the response to the handler while it is
+   * received, e.g. a stream of events. The response isn't parsed.
+   *
+   * @param uri the URI of the request.
+   * @param params the form params to be posted, optional.
+   * @param handler reads the body of the response, if any.
+   */
+  public void httpPostStream(final URI uri, final List<Pair<String, String>> params,
+      final ResponseStreamHandler handler) throws IOException {
+    final HttpPost post = new HttpPost(uri);
+    try (CloseableHttpResponse response = this.httpClient.execute(completeRequest(post, params))) {
+      final StatusLine statusLine = response.getStatusLine();
+      if (statusLine.getStatusCode() >= 300) {
+        EntityUtils.consumeQuietly(response.getEntity());
+        throw new HttpResponseException(statusLine.getStatusCode(),
+            statusLine.getReasonPhrase());
+      }
+      final HttpEntity entity = response.getEntity();
+      if (entity == null) {
+        return;
+      }
+      try {
+        handler.handle(entity.getContent());
+      } catch (final IOException | RuntimeException e) {
+        // Close the connection rather than waiting for the end of the stream to reuse it
+        post.abort();
+        throw e;
+      }
+      EntityUtils.consumeQuietly(entity);
+    }
+  }
+
   /**
    * function to dispatch the request and pass back the response.
    */
   protected T sendAndReturn(final HttpUriRequest request) throws IOException {
-    try (CloseableHttpClient client = HttpClients.createDefault()) {
-      return this.parseResponse(client.execute(request));
+    try (CloseableHttpResponse response = this.httpClient.execute(request)) {
+      try {
+        return this.parseResponse(response);
+      } finally {
+        // The connection goes back to the pool only once the whole body is read
+        EntityUtils.consumeQuietly(response.getEntity());
+      }
     }
   }
+
+  /**
+   * Reads the body of a response while it is received.
+   */
+  @FunctionalInterface
+  public interface ResponseStreamHandler {
+
+    void handle(InputStream stream) throws IOException;
+  }
 }
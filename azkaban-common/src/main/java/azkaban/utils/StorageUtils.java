@@ -17,6 +17,9 @@
 package azkaban.utils;
 
 import azkaban.spi.Dependency;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.codec.binary.Hex;
 
 import static azkaban.utils.ThinArchiveUtils.convertIvyCoordinateToPath;
@@ -36,4 +39,18 @@ public class StorageUtils {
     // samsa/samsa-api/0.6.0/samsa-api-0.6.0.jar
     return convertIvyCoordinateToPath(dep);
   }
+
+  public static String getTargetLogPath(final int execId, final String name, final int attempt) {
+    // Logs are grouped by execution, so that the logs of old executions are deleted together.
+    // Nested job ids have ':', which isn't allowed in HDFS paths.
+    final String fileName;
+    try {
+      fileName = name.isEmpty() ? "flow"
+          : "job-" + URLEncoder.encode(name, StandardCharsets.UTF_8.name());
+    } catch (final UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    return String.format("%d/%s.%d.log%s", execId, fileName, attempt,
+        LogSegmentUtils.SEGMENT_SUFFIX);
+  }
 }
@@ -49,6 +49,13 @@ public class SystemMemoryInfo {
     return true;
   }
 
+  /**
+   * @return the available physical memory in kb, 0 if unknown on this platform.
+   */
+  public long getFreePhysicalMemorySize() {
+    return this.util.getOsFreePhysicalMemorySize();
+  }
+
   /**
    * @param memKb represents a memory value in kb
    * @return true if available physical memory is greater than memKb
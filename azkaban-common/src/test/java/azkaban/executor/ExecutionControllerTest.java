@@ -20,6 +20,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -174,6 +175,20 @@ public class ExecutionControllerTest {
     verify(this.loader).uploadExecutableFlow(this.flow1);
   }
 
+  @Test
+  public void testSubmitFlowWakesUpExecutors() throws Exception {
+    this.props.put(ConfigurationKeys.AZKABAN_POLLING_WAKEUP_ENABLED, "true");
+    this.controller = new ExecutionController(this.props, this.loader, this.commonMetrics,
+        this.apiGateway, this.alertHolder, this.executorHealthChecker);
+    this.controller.submitExecutableFlow(this.flow1, this.user.getUserId());
+    verify(this.loader).uploadExecutableFlow(this.flow1);
+    for (final Executor executor : this.activeExecutors) {
+      verify(this.apiGateway, timeout(5000)).callWithExecutionId(executor.getHost(),
+          executor.getPort(), ConnectorParams.WAKEUP_ACTION, null, null);
+    }
+    this.controller.shutdown();
+  }
+
   @Test
   public void testSubmitFlowsExceedingMaxConcurrentRuns() throws Exception {
     this.props.put(ConfigurationKeys.CONCURRENT_RUNS_ONEFLOW_WHITELIST, "exectest1,"
@@ -20,6 +20,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
 import azkaban.db.DatabaseTransOperator;
 import azkaban.project.JdbcProjectImpl;
@@ -27,6 +28,7 @@ import azkaban.project.ProjectLoader;
 import azkaban.test.Utils;
 import azkaban.test.executions.ExecutionsTestUtil;
 import azkaban.user.User;
+import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.utils.TestUtils;
@@ -143,6 +145,50 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(fetchFlow, fetchFlow2);
   }
 
+  @Test
+  public void testUpdateExecutableFlows() throws Exception {
+    final ExecutableFlow flow1 = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow1);
+    final ExecutableFlow flow2 = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow2);
+
+    flow1.setStatus(Status.RUNNING);
+    flow1.setUpdateTime(1000);
+    flow2.setStatus(Status.SUCCEEDED);
+    flow2.setEndTime(2000);
+    this.executionFlowDao.updateExecutableFlows(ImmutableList.of(flow1, flow2));
+
+    assertTwoFlowSame(flow1, this.executionFlowDao.fetchExecutableFlow(flow1.getExecutionId()));
+    assertTwoFlowSame(flow2, this.executionFlowDao.fetchExecutableFlow(flow2.getExecutionId()));
+  }
+
+  @Test
+  public void testBinaryEncodedFlowsAreReadSideBySide() throws Exception {
+    final Props binaryProps = new Props();
+    binaryProps.put(ConfigurationKeys.AZKABAN_FLOW_DATA_ENCODING_TYPE, "binary");
+    final ExecutionFlowDao binaryFlowDao =
+        new ExecutionFlowDao(dbOperator, this.mysqlNamedLock, binaryProps);
+
+    final ExecutableFlow gzipFlow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(gzipFlow);
+    final ExecutableFlow binaryFlow = createTestFlow();
+    binaryFlowDao.uploadExecutableFlow(binaryFlow);
+    binaryFlow.setStatus(Status.RUNNING);
+    binaryFlow.getExecutableNode("job1").setStatus(Status.SUCCEEDED);
+    binaryFlowDao.updateExecutableFlow(binaryFlow);
+
+    final ExecutableFlow fetchedGzipFlow =
+        binaryFlowDao.fetchExecutableFlow(gzipFlow.getExecutionId());
+    final ExecutableFlow fetchedBinaryFlow =
+        this.executionFlowDao.fetchExecutableFlow(binaryFlow.getExecutionId());
+    assertTwoFlowSame(gzipFlow, fetchedGzipFlow);
+    assertTwoFlowSame(binaryFlow, fetchedBinaryFlow);
+    assertThat(fetchedBinaryFlow.getExecutableNode("job1").getStatus())
+        .isEqualTo(Status.SUCCEEDED);
+    assertThat(JSONUtils.toJSON(fetchedBinaryFlow.toObject()))
+        .isEqualTo(JSONUtils.toJSON(binaryFlow.toObject()));
+  }
+
   @Test
   public void fetchFlowHistory() throws Exception {
     final ExecutableFlow flow = createTestFlow();
@@ -557,6 +603,56 @@ public class ExecutionFlowDaoTest {
         .isEqualTo(-1);
   }
 
+  @Test
+  public void testSelectAndUpdateExecutions() throws Exception {
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(-1, true, 2))
+        .as("Expected no execution selected")
+        .isEmpty();
+
+    final long currentTime = System.currentTimeMillis();
+    final ExecutableFlow lowPriorityFlow = submitNewFlow("exectest1", "exec1", currentTime,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY);
+    final ExecutableFlow highPriorityFlow = submitNewFlow("exectest1", "exec1", currentTime + 5,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY + 5);
+    final ExecutableFlow mediumPriorityFlow = submitNewFlow("exectest1", "exec1",
+        currentTime + 10, ExecutionOptions.DEFAULT_FLOW_PRIORITY + 3);
+
+    final Executor executor = this.executorDao.addExecutor("localhost", 12345);
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2))
+        .as("Expected the two flows with highest priority")
+        .containsExactly(highPriorityFlow.getExecutionId(), mediumPriorityFlow.getExecutionId());
+    assertThat(this.executorDao.fetchExecutorByExecutionId(highPriorityFlow.getExecutionId()))
+        .isEqualTo(executor);
+    assertThat(this.executorDao.fetchExecutorByExecutionId(mediumPriorityFlow.getExecutionId()))
+        .isEqualTo(executor);
+
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2))
+        .containsExactly(lowPriorityFlow.getExecutionId());
+    assertThat(this.executionFlowDao.selectAndUpdateExecutions(executor.getId(), true, 2))
+        .isEmpty();
+  }
+
+  @Test
+  public void testSelectAndUpdateExecutionsWithLocking() throws Exception {
+    when(mysqlNamedLock.getLock(any(DatabaseTransOperator.class), any(String.class), any(Integer.class)))
+        .thenReturn(false);
+    final long currentTime = System.currentTimeMillis();
+    final ExecutableFlow flow1 = submitNewFlow("exectest1", "exec1", currentTime,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY);
+    final ExecutableFlow flow2 = submitNewFlow("exectest1", "exec1", currentTime + 5,
+        ExecutionOptions.DEFAULT_FLOW_PRIORITY);
+    final Executor executor1 = this.executorDao.addExecutor("localhost", 12345);
+    assertThat(this.executionFlowDao
+        .selectAndUpdateExecutionsWithLocking(executor1.getId(), true, 5)).isEmpty();
+
+    when(mysqlNamedLock.getLock(any(DatabaseTransOperator.class), any(String.class), any(Integer.class)))
+        .thenReturn(true);
+    when(mysqlNamedLock.releaseLock(any(DatabaseTransOperator.class), any(String.class))).thenReturn(true);
+    assertThat(this.executionFlowDao
+        .selectAndUpdateExecutionsWithLocking(executor1.getId(), true, 5))
+        .containsExactly(flow1.getExecutionId(), flow2.getExecutionId());
+  }
+
   @Test
   public void testSelectAndUpdateExecutionWithSamePriority() throws Exception {
     // Selecting executions when DB is empty
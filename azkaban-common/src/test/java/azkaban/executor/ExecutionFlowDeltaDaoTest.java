@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.test.Utils;
+import azkaban.utils.TestUtils;
+import com.google.common.collect.ImmutableList;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ExecutionFlowDeltaDaoTest {
+
+  private static DatabaseOperator dbOperator;
+  private ExecutionFlowDao executionFlowDao;
+  private ExecutionFlowDeltaDao executionFlowDeltaDao;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() {
+    this.executionFlowDao = new ExecutionFlowDao(dbOperator, mock(MysqlNamedLock.class));
+    this.executionFlowDeltaDao = new ExecutionFlowDeltaDao(dbOperator);
+  }
+
+  @After
+  public void clearDB() {
+    try {
+      dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM execution_flow_deltas");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private ExecutableFlow createRunningFlow() throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    flow.setSubmitTime(1000);
+    this.executionFlowDao.uploadExecutableFlow(flow);
+    flow.setStatus(Status.RUNNING);
+    flow.setStartTime(2000);
+    flow.setUpdateTime(2000);
+    this.executionFlowDao.updateExecutableFlow(flow);
+    return flow;
+  }
+
+  @Test
+  public void testApplyDeltas() throws Exception {
+    final ExecutableFlow flow = createRunningFlow();
+
+    final ExecutableNode job1 = flow.getExecutableNode("job1");
+    job1.setStatus(Status.RUNNING);
+    job1.setStartTime(3000);
+    job1.setUpdateTime(3000);
+    flow.setUpdateTime(3000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 1, 2000);
+
+    job1.setStatus(Status.SUCCEEDED);
+    job1.setEndTime(4000);
+    job1.setUpdateTime(4000);
+    final ExecutableNode job2 = flow.getExecutableNode("job2");
+    job2.setStatus(Status.RUNNING);
+    job2.setStartTime(4000);
+    job2.setUpdateTime(4000);
+    flow.setUpdateTime(4000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 2, 3000);
+
+    final ExecutableFlow snapshot =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertThat(snapshot.getExecutableNode("job1").getStatus()).isEqualTo(Status.READY);
+
+    this.executionFlowDeltaDao.applyExecutableFlowDeltas(snapshot);
+    assertThat(snapshot.getUpdateTime()).isEqualTo(4000);
+    assertThat(snapshot.getExecutableNode("job1").getStatus()).isEqualTo(Status.SUCCEEDED);
+    assertThat(snapshot.getExecutableNode("job1").getEndTime()).isEqualTo(4000);
+    assertThat(snapshot.getExecutableNode("job2").getStatus()).isEqualTo(Status.RUNNING);
+    assertThat(snapshot.getExecutableNode("job2").getStartTime()).isEqualTo(4000);
+  }
+
+  @Test
+  public void testApplyDeltasToMultipleFlows() throws Exception {
+    final ExecutableFlow flow1 = createRunningFlow();
+    final ExecutableFlow flow2 = createRunningFlow();
+
+    final ExecutableNode job1 = flow1.getExecutableNode("job1");
+    job1.setStatus(Status.FAILED);
+    job1.setUpdateTime(3000);
+    flow1.setStatus(Status.FAILED_FINISHING);
+    flow1.setUpdateTime(3000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow1, 1, 2000);
+
+    final ExecutableFlow snapshot1 =
+        this.executionFlowDao.fetchExecutableFlow(flow1.getExecutionId());
+    final ExecutableFlow snapshot2 =
+        this.executionFlowDao.fetchExecutableFlow(flow2.getExecutionId());
+    // The status column is kept current by every delta
+    assertThat(snapshot1.getStatus()).isEqualTo(Status.FAILED_FINISHING);
+
+    this.executionFlowDeltaDao.applyExecutableFlowDeltas(ImmutableList.of(snapshot1, snapshot2));
+    assertThat(snapshot1.getExecutableNode("job1").getStatus()).isEqualTo(Status.FAILED);
+    assertThat(snapshot2.getExecutableNode("job1").getStatus()).isEqualTo(Status.READY);
+  }
+
+  @Test
+  public void testDeltasOlderThanSnapshotAreIgnored() throws Exception {
+    final ExecutableFlow flow = createRunningFlow();
+
+    final ExecutableNode job1 = flow.getExecutableNode("job1");
+    job1.setStatus(Status.RUNNING);
+    job1.setUpdateTime(3000);
+    flow.setUpdateTime(3000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 1, 2000);
+
+    // A compaction that rewrote flow_data but has not removed the deltas yet
+    job1.setStatus(Status.SUCCEEDED);
+    job1.setUpdateTime(4000);
+    flow.setUpdateTime(4000);
+    this.executionFlowDao.updateExecutableFlow(flow);
+
+    final ExecutableFlow snapshot =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    this.executionFlowDeltaDao.applyExecutableFlowDeltas(snapshot);
+    assertThat(snapshot.getExecutableNode("job1").getStatus()).isEqualTo(Status.SUCCEEDED);
+  }
+
+  @Test(expected = ExecutorManagerException.class)
+  public void testDeltaWithUnknownEncodingIsRejected() throws Exception {
+    final ExecutableFlow flow = createRunningFlow();
+    flow.setUpdateTime(3000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 1, 2000);
+    dbOperator.update("UPDATE execution_flow_deltas SET enc_type=0");
+
+    this.executionFlowDeltaDao.applyExecutableFlowDeltas(
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId()));
+  }
+
+  @Test
+  public void testRemoveDeltas() throws Exception {
+    final ExecutableFlow flow = createRunningFlow();
+    flow.setUpdateTime(3000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 1, 2000);
+    flow.setUpdateTime(4000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 2, 3000);
+
+    assertThat(this.executionFlowDeltaDao.removeExecutableFlowDeltas(flow.getExecutionId()))
+        .isEqualTo(2);
+    assertThat(this.executionFlowDeltaDao.removeExecutableFlowDeltas(flow.getExecutionId()))
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void testCompactionRemovesDeltas() throws Exception {
+    final ExecutableFlow flow = createRunningFlow();
+    final ExecutableNode job1 = flow.getExecutableNode("job1");
+    job1.setStatus(Status.RUNNING);
+    job1.setUpdateTime(3000);
+    flow.setUpdateTime(3000);
+    this.executionFlowDeltaDao.uploadExecutableFlowDelta(flow, 1, 2000);
+
+    job1.setStatus(Status.SUCCEEDED);
+    job1.setUpdateTime(4000);
+    flow.setUpdateTime(4000);
+    this.executionFlowDao.compactExecutableFlow(flow);
+
+    assertThat(this.executionFlowDeltaDao.removeExecutableFlowDeltas(flow.getExecutionId()))
+        .isEqualTo(0);
+    final ExecutableFlow snapshot =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertThat(snapshot.getExecutableNode("job1").getStatus()).isEqualTo(Status.SUCCEEDED);
+  }
+}
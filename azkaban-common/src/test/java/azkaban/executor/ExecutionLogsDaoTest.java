@@ -17,23 +17,41 @@
 package azkaban.executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
+import azkaban.storage.LocalLogStorage;
 import azkaban.test.Utils;
 import azkaban.test.executions.ExecutionsTestUtil;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.LogSegmentOutputStream;
+import azkaban.utils.LogSegmentUtils;
+import azkaban.utils.Props;
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ExecutionLogsDaoTest {
 
   private static final String LOG_TEST_DIR_NAME = "logtest";
   private static DatabaseOperator dbOperator;
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
   private ExecutionLogsDao executionLogsDao;
 
   @BeforeClass
@@ -60,6 +78,7 @@ public class ExecutionLogsDaoTest {
   public void clearDB() {
     try {
       dbOperator.update("delete from execution_logs");
+      dbOperator.update("delete from execution_log_index");
     } catch (final SQLException e) {
       e.printStackTrace();
     }
@@ -149,4 +168,161 @@ public class ExecutionLogsDaoTest {
     totalRemovedRecords = executionLogsDao.removeExecutionLogsByTime(currentTimeMillis2, 2);
     assertThat(totalRemovedRecords).isEqualTo(4);
   }
+
+  @Test
+  public void testUploadLogChunks() throws ExecutorManagerException {
+    assertThat(this.executionLogsDao.fetchLogEndByte(1, "chunks", 0)).isEqualTo(0);
+
+    final byte[] first = "first chunk\n".getBytes(StandardCharsets.UTF_8);
+    final byte[] second = "second chunk\n".getBytes(StandardCharsets.UTF_8);
+    this.executionLogsDao.uploadLogChunks(Arrays.asList(
+        new ExecutionLogChunk(1, "chunks", 0, 0, first),
+        new ExecutionLogChunk(1, "chunks", 0, first.length, second)));
+
+    final LogData data = this.executionLogsDao.fetchLogs(1, "chunks", 0, 0, 50000);
+    assertThat(data.getData()).isEqualTo("first chunk\nsecond chunk\n");
+    assertThat(this.executionLogsDao.fetchLogEndByte(1, "chunks", 0))
+        .isEqualTo(first.length + second.length);
+    assertThat(this.executionLogsDao.fetchLogEndByte(1, "chunks", 1)).isEqualTo(0);
+  }
+
+  @Test
+  public void testFetchLogsFromChunkCache() throws ExecutorManagerException {
+    final ExecutionLogChunkCache cache = new ExecutionLogChunkCache(new Props());
+    final ExecutionLogsDao cachedDao = new ExecutionLogsDao(dbOperator, cache);
+    final Props noCacheProps = new Props();
+    noCacheProps.put(ConfigurationKeys.AZKABAN_LOG_CHUNK_CACHE_MAX_BYTES, 0);
+    final ExecutionLogsDao uncachedDao =
+        new ExecutionLogsDao(dbOperator, new ExecutionLogChunkCache(noCacheProps));
+
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+    cachedDao.uploadLogFile(1, "largeFiles", 0, largelog);
+
+    final LogData first = cachedDao.fetchLogs(1, "largeFiles", 0, 1000, 64000);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+    assertThat(cache.getNumChunks()).isEqualTo(2);
+
+    final LogData second = cachedDao.fetchLogs(1, "largeFiles", 0, 1000, 64000);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(second.toObject()).isEqualTo(first.toObject());
+    assertThat(uncachedDao.fetchLogs(1, "largeFiles", 0, 1000, 64000).toObject())
+        .isEqualTo(first.toObject());
+
+    // Only the chunks which aren't cached are read
+    final LogData all = cachedDao.fetchLogs(1, "largeFiles", 0, 0, 250000);
+    assertThat(cache.getMissCount()).isEqualTo(5);
+    assertThat(cache.getHitCount()).isEqualTo(4);
+    assertThat(all.toObject())
+        .isEqualTo(uncachedDao.fetchLogs(1, "largeFiles", 0, 0, 250000).toObject());
+    assertThat(cachedDao.fetchLogs(2, "largeFiles", 0, 0, 250000)).isNull();
+  }
+
+  @Test
+  public void testFetchLogTail() throws ExecutorManagerException {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+    this.executionLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+    final int endByte = this.executionLogsDao.fetchLogEndByte(1, "largeFiles", 0);
+
+    final LogData tail = this.executionLogsDao.fetchLogTail(1, "largeFiles", 0, 1000);
+    assertThat(tail.getOffset() + tail.getLength()).isEqualTo(endByte);
+    assertThat(tail.toObject()).isEqualTo(
+        this.executionLogsDao.fetchLogs(1, "largeFiles", 0, endByte - 1000, 1000).toObject());
+
+    final LogData all = this.executionLogsDao.fetchLogTail(1, "largeFiles", 0, endByte + 1000);
+    assertThat(all.getOffset()).isEqualTo(0);
+    assertThat(all.getLength()).isEqualTo(endByte);
+    assertThat(this.executionLogsDao.fetchLogTail(1, "largeFiles", 1, 1000)).isNull();
+  }
+
+  @Test
+  public void testUploadLogSegment() throws Exception {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final byte[] log = Files.readAllBytes(new File(logDir, "largeLog1.log").toPath());
+    final File segmentFile =
+        LogSegmentUtils.getSegmentFile(new File(this.temp.getRoot(), "largeLog1.log"));
+    try (final OutputStream segment = new LogSegmentOutputStream(segmentFile)) {
+      segment.write(log);
+    }
+
+    this.executionLogsDao.uploadLogSegment(1, "segment", 0, segmentFile);
+    this.executionLogsDao.uploadLogFile(1, "plain", 0, new File(logDir, "largeLog1.log"));
+
+    assertThat(this.executionLogsDao.fetchLogEndByte(1, "segment", 0)).isEqualTo(log.length);
+    assertThat(this.executionLogsDao.fetchLogs(1, "segment", 0, 1000, 64000).toObject())
+        .isEqualTo(this.executionLogsDao.fetchLogs(1, "plain", 0, 1000, 64000).toObject());
+  }
+
+  @Test
+  public void testStoredLogs() throws Exception {
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    final File storageDir = this.temp.newFolder("logs");
+    when(config.getLocalLogStorageBaseDirPath()).thenReturn(storageDir.getPath());
+    final ExecutionLogsDao storedDao = new ExecutionLogsDao(dbOperator,
+        new ExecutionLogChunkCache(new Props()), new LocalLogStorage(config));
+
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+    storedDao.uploadLogFile(1, "stored", 0, largelog);
+    this.executionLogsDao.uploadLogFile(1, "plain", 0, largelog);
+
+    // Only the index of the log is in the DB
+    assertThat(this.executionLogsDao.fetchLogEndByte(1, "stored", 0)).isEqualTo(0);
+    assertThat(new File(storageDir, "1/job-stored.0.log.gz")).exists();
+    for (final int offset : new int[]{0, 1000, 51200, 150000}) {
+      assertThat(storedDao.fetchLogs(1, "stored", 0, offset, 64000).toObject())
+          .isEqualTo(this.executionLogsDao.fetchLogs(1, "plain", 0, offset, 64000).toObject());
+    }
+    assertThat(storedDao.fetchLogTail(1, "stored", 0, 1000).toObject())
+        .isEqualTo(this.executionLogsDao.fetchLogTail(1, "plain", 0, 1000).toObject());
+    assertThat(storedDao.fetchLogs(1, "stored", 0, 1000000, 1000)).isNull();
+    // The logs in execution_logs are still read
+    assertThat(storedDao.fetchLogs(1, "plain", 0, 0, 1000).getLength()).isEqualTo(1000);
+
+    // The stored logs are deleted by the log storage
+    final int removed = storedDao.removeExecutionLogsByTime(System.currentTimeMillis() + 1000,
+        1000);
+    assertThat(removed).isEqualTo(14);
+    assertThat(storedDao.fetchLogs(1, "stored", 0, 0, 1000)).isNull();
+    assertThat(new File(storageDir, "1")).doesNotExist();
+  }
+
+  @Test
+  public void testCachedChunksOfMovedLogAreNotUsed() throws Exception {
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    when(config.getLocalLogStorageBaseDirPath())
+        .thenReturn(this.temp.newFolder("logs").getPath());
+    final ExecutionLogsDao storedDao = new ExecutionLogsDao(dbOperator,
+        new ExecutionLogChunkCache(new Props()), new LocalLogStorage(config));
+
+    // Small chunks uploaded by the log shipper, then cached by a read
+    final StringBuilder log = new StringBuilder();
+    final List<ExecutionLogChunk> chunks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final byte[] line = ("line " + i + "\n").getBytes(StandardCharsets.UTF_8);
+      chunks.add(new ExecutionLogChunk(1, "moved", 0, log.length(), line));
+      log.append(new String(line, StandardCharsets.UTF_8));
+    }
+    storedDao.uploadLogChunks(chunks);
+    assertThat(storedDao.fetchLogs(1, "moved", 0, 0, 1000).getData())
+        .isEqualTo(log.toString());
+
+    // The log is moved to the log storage as a single block
+    final File segmentFile =
+        LogSegmentUtils.getSegmentFile(new File(this.temp.getRoot(), "moved.log"));
+    try (final OutputStream segment = new LogSegmentOutputStream(segmentFile)) {
+      segment.write(log.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    storedDao.storeLogSegment(1, "moved", 0, segmentFile, System.currentTimeMillis());
+
+    assertThat(storedDao.fetchLogs(1, "moved", 0, 0, 1000).getData())
+        .isEqualTo(log.toString());
+  }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.db.DatabaseOperator;
+import azkaban.storage.LocalLogStorage;
+import azkaban.test.Utils;
+import azkaban.test.executions.ExecutionsTestUtil;
+import azkaban.utils.Props;
+import java.io.File;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExecutionLogsMigratorTest {
+
+  private static final String LOG_TEST_DIR_NAME = "logtest";
+  private static DatabaseOperator dbOperator;
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+  private ExecutionLogsDao executionLogsDao;
+  private ExecutionLogsDao storedLogsDao;
+  private ExecutionLogsMigrator migrator;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dbOperator = Utils.initTestDB();
+  }
+
+  @AfterClass
+  public static void destroyDB() throws Exception {
+    try {
+      dbOperator.update("DROP ALL OBJECTS");
+      dbOperator.update("SHUTDOWN");
+    } catch (final SQLException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @Before
+  public void setup() throws Exception {
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    when(config.getLocalLogStorageBaseDirPath())
+        .thenReturn(this.temp.newFolder("logs").getPath());
+    final LocalLogStorage logStorage = new LocalLogStorage(config);
+    this.executionLogsDao = new ExecutionLogsDao(dbOperator);
+    this.storedLogsDao = new ExecutionLogsDao(dbOperator, new ExecutionLogChunkCache(new Props()),
+        logStorage);
+    this.migrator = new ExecutionLogsMigrator(dbOperator, this.storedLogsDao, logStorage);
+  }
+
+  @After
+  public void clearDB() throws Exception {
+    dbOperator.update("DELETE FROM execution_logs");
+    dbOperator.update("DELETE FROM execution_log_index");
+    dbOperator.update("DELETE FROM execution_flows");
+  }
+
+  private void insertExecution(final int execId, final Status status) throws SQLException {
+    dbOperator.update("INSERT INTO execution_flows (exec_id, project_id, version, flow_id, "
+        + "status) VALUES (?, 1, 1, 'flow', ?)", execId, status.getNumVal());
+  }
+
+  @Test
+  public void testMigrate() throws Exception {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+    this.executionLogsDao.uploadLogFile(1, "", 0, new File(logDir, "log1.log"));
+    this.executionLogsDao.uploadLogFile(1, "job", 0, largelog);
+    this.executionLogsDao.uploadLogFile(2, "job", 1, largelog);
+    this.executionLogsDao.uploadLogFile(3, "job", 0, largelog);
+    insertExecution(1, Status.SUCCEEDED);
+    insertExecution(2, Status.FAILED_SUCCEEDED);
+    insertExecution(3, Status.RUNNING);
+    final Object expected = this.executionLogsDao.fetchLogs(1, "job", 0, 1000, 64000).toObject();
+    final long uploadTime = dbOperator.query(
+        "SELECT MAX(upload_time) FROM execution_logs WHERE exec_id=1 AND name='job'",
+        rs -> rs.next() ? rs.getLong(1) : 0);
+
+    assertThat(this.migrator.migrate()).isEqualTo(3);
+
+    // The logs of running executions are still uploaded to execution_logs
+    assertThat(dbOperator.query("SELECT COUNT(DISTINCT exec_id) FROM execution_logs",
+        rs -> rs.next() ? rs.getInt(1) : -1)).isEqualTo(1);
+    assertThat(dbOperator.query("SELECT COUNT(*) FROM execution_log_index WHERE exec_id=3",
+        rs -> rs.next() ? rs.getInt(1) : -1)).isEqualTo(0);
+    assertThat(this.storedLogsDao.fetchLogs(1, "job", 0, 1000, 64000).toObject())
+        .isEqualTo(expected);
+    assertThat(this.storedLogsDao.fetchLogs(2, "job", 1, 1000, 64000).toObject())
+        .isEqualTo(expected);
+    assertThat(this.storedLogsDao.fetchLogs(1, "", 0, 0, 1000).getLength()).isEqualTo(12);
+    // The migrated logs keep their upload time for the retention
+    assertThat(dbOperator.query(
+        "SELECT MAX(upload_time) FROM execution_log_index WHERE exec_id=1 AND name='job'",
+        rs -> rs.next() ? rs.getLong(1) : 0)).isEqualTo(uploadTime);
+
+    // Nothing left to migrate until the running execution finishes
+    assertThat(this.migrator.migrate()).isEqualTo(0);
+    dbOperator.update("UPDATE execution_flows SET status=? WHERE exec_id=3",
+        Status.SUCCEEDED.getNumVal());
+    assertThat(this.migrator.migrate()).isEqualTo(1);
+    assertThat(this.storedLogsDao.fetchLogs(3, "job", 0, 1000, 64000).toObject())
+        .isEqualTo(expected);
+  }
+
+  @Test(expected = ExecutorManagerException.class)
+  public void testMigrateWithoutLogStorage() throws Exception {
+    new ExecutionLogsMigrator(dbOperator, this.executionLogsDao, null).migrate();
+  }
+}
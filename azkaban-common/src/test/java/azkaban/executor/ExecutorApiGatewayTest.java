@@ -16,18 +16,29 @@
 
 package azkaban.executor;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,4 +88,80 @@ public class ExecutorApiGatewayTest {
     assertEquals(new Pair<>("execid", "null"), this.params.getValue().get(3));
     assertEquals(new Pair<>("user", null), this.params.getValue().get(4));
   }
+
+  @Test
+  public void dispatchHasNoSocketTimeout() throws Exception {
+    final ImmutableMap<String, String> map = ImmutableMap.of("status", "success");
+    when(this.client.httpPost(eq(new URI("http://executor-2:1234/executor")), any(), eq(0)))
+        .thenReturn(JSONUtils.toJSON(map));
+    final ExecutableFlow flow = new ExecutableFlow();
+    flow.setExecutionId(1);
+    final Map<String, Object> response = this.gateway.callWithExecutable(flow,
+        new Executor(2, "executor-2", 1234, true), ConnectorParams.EXECUTE_ACTION);
+    assertEquals(map, response);
+    verify(this.client, never()).httpPost(any(), any());
+  }
+
+  @Test(timeout = 10000)
+  public void updateExecutionsAsyncCallsExecutorsConcurrently() throws Exception {
+    final CountDownLatch bothCalled = new CountDownLatch(2);
+    when(this.client.httpPost(any(), any())).thenAnswer(invocation -> {
+      // Neither call returns before the other one starts
+      bothCalled.countDown();
+      bothCalled.await();
+      return JSONUtils.toJSON(ImmutableMap.of("test", "response"));
+    });
+    final CompletableFuture<Map<String, Object>> response1 = this.gateway.updateExecutionsAsync(
+        new Executor(1, "executor-1", 1234, true), Collections.singletonList(new ExecutableFlow()));
+    final CompletableFuture<Map<String, Object>> response2 = this.gateway.updateExecutionsAsync(
+        new Executor(2, "executor-2", 1234, true), Collections.singletonList(new ExecutableFlow()));
+    assertEquals("response", response1.join().get("test"));
+    assertEquals("response", response2.join().get("test"));
+  }
+
+  @Test
+  public void updateExecutionsAsyncFails() throws Exception {
+    when(this.client.httpPost(any(), any())).thenThrow(new IOException("Mocked API timeout"));
+    final CompletableFuture<Map<String, Object>> response = this.gateway.updateExecutionsAsync(
+        new Executor(2, "executor-2", 1234, true), Collections.singletonList(new ExecutableFlow()));
+    assertThatThrownBy(response::join).isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(ExecutorManagerException.class);
+  }
+
+  @Test(timeout = 10000)
+  public void logStreamsOverTheLimitAreRejected() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_EXECUTOR_CLIENT_MAX_LOG_STREAMS_PER_EXECUTOR, 1);
+    final ExecutorApiClient logStreamClient = Mockito.mock(ExecutorApiClient.class);
+    this.gateway = new ExecutorApiGateway(this.client, props, logStreamClient);
+    final CountDownLatch streaming = new CountDownLatch(1);
+    final CountDownLatch endStream = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      streaming.countDown();
+      endStream.await();
+      return null;
+    }).doNothing().when(logStreamClient).httpPostStream(any(), any(), any());
+    final ExecutionReference ref =
+        new ExecutionReference(1, new Executor(2, "executor-2", 1234, true));
+
+    final CompletableFuture<Void> stream = CompletableFuture.runAsync(() -> {
+      try {
+        this.gateway.streamWithReference(ref, ConnectorParams.LOG_STREAM_ACTION, in -> {
+        });
+      } catch (final ExecutorManagerException e) {
+        throw new CompletionException(e);
+      }
+    });
+    streaming.await();
+    assertThatThrownBy(() -> this.gateway.streamWithReference(ref,
+        ConnectorParams.LOG_STREAM_ACTION, in -> {
+        })).isInstanceOf(ExecutorManagerException.class);
+
+    endStream.countDown();
+    stream.join();
+    this.gateway.streamWithReference(ref, ConnectorParams.LOG_STREAM_ACTION, in -> {
+    });
+    verify(logStreamClient, times(2)).httpPostStream(any(), any(), any());
+    verify(this.client, never()).httpPostStream(any(), any(), any());
+  }
 }
@@ -19,12 +19,17 @@ import azkaban.executor.ExecutorLogEvent.EventType;
 import azkaban.flow.Flow;
 import azkaban.project.Project;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.LogSegmentUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +37,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -148,6 +154,32 @@ public class MockExecutorLoader implements ExecutorLoader {
     }
   }
 
+  @Override
+  public void uploadLogSegment(final int execId, final String name, final int attempt,
+      final File segmentFile) throws ExecutorManagerException {
+    try (final InputStream log = LogSegmentUtils.newInputStream(segmentFile)) {
+      LOGGER.info("Uploaded log for [" + name + "]:[" + execId + "]:\n"
+          + IOUtils.toString(log, StandardCharsets.UTF_8));
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void uploadLogChunks(final Collection<ExecutionLogChunk> chunks)
+      throws ExecutorManagerException {
+    for (final ExecutionLogChunk chunk : chunks) {
+      LOGGER.info("Uploaded log chunk for [" + chunk.getName() + "]:[" + chunk.getExecId()
+          + "]:\n" + new String(chunk.getData(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Override
+  public int fetchLogEndByte(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    return 0;
+  }
+
   @Override
   public void updateExecutableFlow(final ExecutableFlow flow)
       throws ExecutorManagerException {
@@ -157,6 +189,29 @@ public class MockExecutorLoader implements ExecutorLoader {
     this.flowUpdateCount++;
   }
 
+  @Override
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final int sequence,
+      final long lastUpdateTime) throws ExecutorManagerException {
+    final ExecutableFlow toUpdate = this.flows.get(flow.getExecutionId());
+
+    toUpdate.applyUpdateObject(flow.toUpdateObject(lastUpdateTime));
+    this.flowUpdateCount++;
+  }
+
+  @Override
+  public void updateExecutableFlows(final Collection<ExecutableFlow> flows)
+      throws ExecutorManagerException {
+    for (final ExecutableFlow flow : flows) {
+      updateExecutableFlow(flow);
+    }
+  }
+
+  @Override
+  public void compactExecutableFlowDeltas(final ExecutableFlow flow)
+      throws ExecutorManagerException {
+    updateExecutableFlow(flow);
+  }
+
   @Override
   public void uploadExecutableNode(final ExecutableNode node, final Props inputParams)
       throws ExecutorManagerException {
@@ -228,6 +283,12 @@ public class MockExecutorLoader implements ExecutorLoader {
     return null;
   }
 
+  @Override
+  public LogData fetchLogTail(final int execId, final String name, final int attempt,
+      final int length) throws ExecutorManagerException {
+    return null;
+  }
+
   @Override
   public List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
@@ -463,6 +524,18 @@ public class MockExecutorLoader implements ExecutorLoader {
     return 1;
   }
 
+  @Override
+  public List<Integer> selectAndUpdateExecutions(final int executorId, final boolean isActive,
+      final int maxExecutions) throws ExecutorManagerException {
+    return Collections.singletonList(1);
+  }
+
+  @Override
+  public List<Integer> selectAndUpdateExecutionsWithLocking(final int executorId,
+      final boolean isActive, final int maxExecutions) throws ExecutorManagerException {
+    return Collections.singletonList(1);
+  }
+
   @Override
   public ExecutableRampMap fetchExecutableRampMap() throws ExecutorManagerException {
     ExecutableRampMap map = ExecutableRampMap.createInstance();
@@ -2,20 +2,29 @@ package azkaban.executor;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.alert.Alerter;
 import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.joda.time.DateTimeUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -26,6 +35,7 @@ import org.mockito.MockitoAnnotations;
 public class RunningExecutionsUpdaterTest {
 
   private static final int EXECUTION_ID_77 = 77;
+  private static final int EXECUTION_ID_88 = 88;
   private static final ExecutorManagerException API_CALL_EXCEPTION =
       new ExecutorManagerException("Mocked API timeout");
 
@@ -61,8 +71,27 @@ public class RunningExecutionsUpdaterTest {
         new ExecutionReference(EXECUTION_ID_77, this.activeExecutor), this.execution));
     this.updater = new RunningExecutionsUpdater(this.updaterStage, this.alerterHolder,
         this.commonMetrics, this.apiGateway, this.runningExecutions, this.executionFinalizer,
-        this.executorLoader);
+        this.executorLoader, new Props());
     when(this.alerterHolder.get("email")).thenReturn(this.mailAlerter);
+    mockUpdateExecutionsAsync(this.apiGateway);
+  }
+
+  /**
+   * Makes the asynchronous update of the mocked gateway return what its synchronous update
+   * returns, so that the tests only need to mock the latter.
+   */
+  static void mockUpdateExecutionsAsync(final ExecutorApiGateway apiGateway)
+      throws ExecutorManagerException {
+    when(apiGateway.updateExecutionsAsync(any(), any())).thenAnswer(invocation -> {
+      final CompletableFuture<Map<String, Object>> call = new CompletableFuture<>();
+      try {
+        call.complete(apiGateway.updateExecutions(invocation.getArgument(0),
+            invocation.getArgument(1)));
+      } catch (final ExecutorManagerException e) {
+        call.completeExceptionally(e);
+      }
+      return call;
+    });
   }
 
   @After
@@ -142,6 +171,109 @@ public class RunningExecutionsUpdaterTest {
     verifyZeroInteractions(this.executionFinalizer);
   }
 
+  @Test(timeout = 10000)
+  public void updateExecutionsCallsAllExecutorsBeforeWaiting() throws Exception {
+    final Executor otherExecutor = new Executor(2, "activeExecutor-2", 9999, true);
+    final ExecutableFlow otherExecution = new ExecutableFlow();
+    otherExecution.setExecutionId(EXECUTION_ID_88);
+    this.runningExecutions.get().put(EXECUTION_ID_88, new Pair<>(
+        new ExecutionReference(EXECUTION_ID_88, otherExecutor), otherExecution));
+    final List<CompletableFuture<Map<String, Object>>> calls = new ArrayList<>();
+    doAnswer(invocation -> {
+      final CompletableFuture<Map<String, Object>> call = new CompletableFuture<>();
+      calls.add(call);
+      // The executors respond only once both of them are called
+      if (calls.size() == 2) {
+        calls.forEach(c -> c.complete(ImmutableMap.of(
+            ConnectorParams.RESPONSE_UPDATED_FLOWS, Collections.emptyList())));
+      }
+      return call;
+    }).when(this.apiGateway).updateExecutionsAsync(any(), any());
+    this.updater.updateExecutions();
+    verify(this.commonMetrics)
+        .recordExecutorUpdateTime(eq("activeExecutor-1"), eq(9999), anyLong());
+    verify(this.commonMetrics)
+        .recordExecutorUpdateTime(eq("activeExecutor-2"), eq(9999), anyLong());
+    verifyZeroInteractions(this.executionFinalizer);
+  }
+
+  @Test
+  public void changeFeedUpdatesOnlyChangedExecutions() throws Exception {
+    this.updater = createChangeFeedUpdater();
+    mockFlowStillRunning();
+    // The first update is a full one
+    mockChanges(true);
+    this.updater.updateExecutions();
+    verify(this.apiGateway).fetchChangesAsync(this.activeExecutor, null, 0, 0);
+    verifyCallUpdateApi();
+
+    mockChanges(false);
+    this.updater.updateExecutions();
+    verify(this.apiGateway).fetchChangesAsync(this.activeExecutor, "feed-1", 1, 500);
+    verify(this.apiGateway).updateExecutions(any(), any());
+
+    mockChanges(false, EXECUTION_ID_77);
+    this.updater.updateExecutions();
+    verify(this.apiGateway, times(2)).fetchChangesAsync(this.activeExecutor, "feed-1", 1, 500);
+    verify(this.apiGateway, times(2)).updateExecutions(
+        this.activeExecutor, Collections.singletonList(this.execution));
+    verifyZeroInteractions(this.executionFinalizer);
+  }
+
+  @Test
+  public void changeFeedUpdatesNewExecutions() throws Exception {
+    this.updater = createChangeFeedUpdater();
+    mockFlowStillRunning();
+    mockChanges(true);
+    this.updater.updateExecutions();
+
+    final ExecutableFlow newExecution = new ExecutableFlow();
+    newExecution.setExecutionId(EXECUTION_ID_88);
+    this.runningExecutions.get().put(EXECUTION_ID_88, new Pair<>(
+        new ExecutionReference(EXECUTION_ID_88, this.activeExecutor), newExecution));
+    mockChanges(false);
+    this.updater.updateExecutions();
+    verify(this.apiGateway).updateExecutions(
+        this.activeExecutor, Collections.singletonList(newExecution));
+  }
+
+  @Test
+  public void changeFeedUnavailable() throws Exception {
+    this.updater = createChangeFeedUpdater();
+    mockFlowStillRunning();
+    final CompletableFuture<Map<String, Object>> failedCall = new CompletableFuture<>();
+    failedCall.completeExceptionally(API_CALL_EXCEPTION);
+    doReturn(failedCall).when(this.apiGateway)
+        .fetchChangesAsync(any(), any(), anyLong(), anyLong());
+    this.updater.updateExecutions();
+    verifyCallUpdateApi();
+
+    // Polls without asking for the changes again
+    this.updater.updateExecutions();
+    verify(this.apiGateway).fetchChangesAsync(any(), any(), anyLong(), anyLong());
+    verify(this.apiGateway, times(2)).updateExecutions(
+        this.activeExecutor, Collections.singletonList(this.execution));
+    verifyZeroInteractions(this.executionFinalizer);
+  }
+
+  private RunningExecutionsUpdater createChangeFeedUpdater() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_EXECUTOR_CHANGE_FEED_ENABLED, "true");
+    return new RunningExecutionsUpdater(this.updaterStage, this.alerterHolder,
+        this.commonMetrics, this.apiGateway, this.runningExecutions, this.executionFinalizer,
+        this.executorLoader, props);
+  }
+
+  private void mockChanges(final boolean reset, final Integer... changedExecIds) {
+    final Map<String, Object> changes = new HashMap<>();
+    changes.put(ConnectorParams.CHANGES_FEED_PARAM, "feed-1");
+    changes.put(ConnectorParams.CHANGES_SEQUENCE_PARAM, 1);
+    changes.put(ConnectorParams.RESPONSE_CHANGES_RESET, reset);
+    changes.put(ConnectorParams.RESPONSE_CHANGED_EXECUTIONS, Arrays.asList(changedExecIds));
+    doReturn(CompletableFuture.completedFuture(changes)).when(this.apiGateway)
+        .fetchChangesAsync(any(), any(), anyLong(), anyLong());
+  }
+
   private void mockFlowStillRunning() throws Exception {
     mockUpdateResponse();
   }
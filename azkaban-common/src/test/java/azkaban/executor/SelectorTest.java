@@ -21,6 +21,7 @@ import azkaban.executor.selector.CandidateFilter;
 import azkaban.executor.selector.CandidateSelector;
 import azkaban.executor.selector.ExecutorComparator;
 import azkaban.executor.selector.ExecutorFilter;
+import azkaban.executor.selector.ExecutorRanking;
 import azkaban.executor.selector.ExecutorSelector;
 import azkaban.executor.selector.FactorComparator;
 import azkaban.executor.selector.FactorFilter;
@@ -28,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import org.apache.log4j.BasicConfigurator;
@@ -556,6 +558,74 @@ public class SelectorTest {
     Assert.assertEquals(executorList.get(2), executor);
   }
 
+  @Test
+  public void testExecutorRanking() throws Exception {
+    final List<String> filterList = new ArrayList<>(ExecutorFilter.getAvailableFilterNames());
+    final Map<String, Integer> comparatorMap = new HashMap<>();
+    comparatorMap.put("CpuUsage", 2);
+    comparatorMap.put("Memory", 1);
+    final List<Executor> executorList = new ArrayList<>();
+    executorList.add(new Executor(1, "host1", 80, true));
+    executorList.add(new Executor(2, "host2", 80, true));
+    executorList.add(new Executor(3, "host3", 80, true));
+
+    executorList.get(0).setExecutorInfo(new ExecutorInfo(50, 14095, 50, 0, 30, 0));
+    executorList.get(1).setExecutorInfo(new ExecutorInfo(99.9, 24095, 50, 0, 30, 0));
+    executorList.get(2).setExecutorInfo(new ExecutorInfo(99.9, 34095, 50, 0, 60, 0));
+
+    final ExecutorRanking ranking = new ExecutorRanking(filterList, comparatorMap);
+    for (final Executor executor : executorList) {
+      ranking.update(executor);
+    }
+    Assert.assertEquals(3, ranking.size());
+    // same CPU usage as executor1, but more memory
+    Assert.assertEquals(executorList.get(1), ranking.getBest(executorList));
+
+    // the best executor isn't a candidate any more, e.g. after a failed dispatch
+    final HashSet<Executor> remainingExecutors = new HashSet<>(executorList);
+    remainingExecutors.remove(executorList.get(1));
+    Assert.assertEquals(executorList.get(0), ranking.getBest(remainingExecutors));
+
+    // executor2 is busier after a refresh
+    executorList.get(1).setExecutorInfo(new ExecutorInfo(99.9, 24095, 50, 0, 70, 0));
+    ranking.update(executorList.get(1));
+    Assert.assertEquals(executorList.get(0), ranking.getBest(executorList));
+
+    // executor1 doesn't pass the MinimumFreeMemory filter any more
+    executorList.get(0).setExecutorInfo(new ExecutorInfo(10, 4095, 50, 0, 10, 0));
+    ranking.update(executorList.get(0));
+    Assert.assertEquals(2, ranking.size());
+    Assert.assertEquals(executorList.get(2), ranking.getBest(executorList));
+
+    // executor3 was deactivated
+    ranking.retainAll(executorList.subList(0, 2));
+    Assert.assertEquals(executorList.get(1), ranking.getBest(executorList));
+    ranking.remove(executorList.get(1));
+    Assert.assertNull(ranking.getBest(executorList));
+  }
+
+  @Test
+  public void testExecutorRankingWithoutFilters() throws Exception {
+    final Map<String, Integer> comparatorMap = new HashMap<>();
+    comparatorMap.put("CpuUsage", 1);
+    final List<Executor> executorList = new ArrayList<>();
+    executorList.add(new Executor(1, "host1", 80, true));
+    executorList.add(new Executor(2, "host2", 80, true));
+    executorList.add(new Executor(3, "host3", 80, true));
+    executorList.get(1).setExecutorInfo(new ExecutorInfo(99.9, 14095, 50, 0, 90, 0));
+    executorList.get(2).setExecutorInfo(new ExecutorInfo(99.9, 14095, 50, 0, 90, 0));
+
+    final ExecutorRanking ranking = new ExecutorRanking(null, comparatorMap);
+    for (final Executor executor : executorList) {
+      ranking.update(executor);
+    }
+    Assert.assertEquals(3, ranking.size());
+    // executors without statistics are ranked last, ties are broken by id
+    Assert.assertEquals(executorList.get(1), ranking.getBest(executorList));
+    Assert.assertEquals(executorList.get(0),
+        ranking.getBest(Collections.singletonList(executorList.get(0))));
+  }
+
   // mock executor object.
   static class MockExecutorObject implements Comparable<MockExecutorObject> {
 
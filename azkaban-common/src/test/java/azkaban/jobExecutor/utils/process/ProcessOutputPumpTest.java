@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.jobExecutor.utils.process.ProcessOutputPump.PumpedStream;
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessOutputPumpTest {
+
+  private static final String NEW_LINE = System.getProperty("line.separator");
+
+  private ProcessOutputPump pump;
+  private Logger logger;
+  private List<String> loggedLines;
+  private List<Thread> loggingThreads;
+
+  @Before
+  public void setUp() {
+    this.pump = new ProcessOutputPump(2);
+    this.loggedLines = new ArrayList<>();
+    this.loggingThreads = new ArrayList<>();
+    this.logger = Logger.getLogger("ProcessOutputPumpTest-" + System.nanoTime());
+    this.logger.setAdditivity(false);
+    this.logger.addAppender(new AppenderSkeleton() {
+      @Override
+      protected void append(final LoggingEvent event) {
+        synchronized (ProcessOutputPumpTest.this.loggedLines) {
+          ProcessOutputPumpTest.this.loggedLines.add(event.getRenderedMessage());
+          ProcessOutputPumpTest.this.loggingThreads.add(Thread.currentThread());
+        }
+      }
+
+      @Override
+      public void close() {
+      }
+
+      @Override
+      public boolean requiresLayout() {
+        return false;
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    this.pump.shutdown();
+  }
+
+  @Test
+  public void testLinesAreSplitLikeReadLine() {
+    final PumpedStream stream = this.pump.pump(new ByteArrayInputStream(
+            "first\nsecond\r\nthird\rfourth\n\nlast without line break"
+                .getBytes(StandardCharsets.UTF_8)),
+        this.logger, Level.INFO, 30);
+    stream.drain();
+
+    assertThat(this.loggedLines).containsExactly("first", "second", "third", "fourth", "",
+        "last without line break");
+  }
+
+  @Test
+  public void testRecentLogKeepsLastLines() {
+    final StringBuilder output = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      output.append("line ").append(i).append('\n');
+    }
+    final PumpedStream stream = this.pump.pump(
+        new ByteArrayInputStream(output.toString().getBytes(StandardCharsets.UTF_8)),
+        this.logger, Level.INFO, 3);
+    stream.drain();
+
+    assertThat(stream.getRecentLog())
+        .isEqualTo("line 7" + NEW_LINE + "line 8" + NEW_LINE + "line 9");
+    assertThat(this.loggedLines).hasSize(10);
+  }
+
+  @Test
+  public void testLongLinesAreSplit() {
+    final String longLine = Strings.repeat("a", 100 * 1024);
+    final PumpedStream stream = this.pump.pump(
+        new ByteArrayInputStream((longLine + "\nshort\n").getBytes(StandardCharsets.UTF_8)),
+        this.logger, Level.INFO, 30);
+    stream.drain();
+
+    assertThat(this.loggedLines).hasSize(3);
+    assertThat(this.loggedLines.get(0)).hasSize(64 * 1024);
+    assertThat(this.loggedLines.get(0) + this.loggedLines.get(1)).isEqualTo(longLine);
+    assertThat(this.loggedLines.get(2)).isEqualTo("short");
+  }
+
+  @Test
+  public void testOutputWrittenWhileRunningIsPumped() throws Exception {
+    final PipedOutputStream processOutput = new PipedOutputStream();
+    final PipedInputStream processInput = new PipedInputStream(processOutput, 1024);
+    final PumpedStream stream = this.pump.pump(processInput, this.logger, Level.INFO, 30);
+
+    // More output than the pipe holds: the writer blocks until the pump catches up, and the lines
+    // wait to be logged meanwhile
+    for (int i = 0; i < 1000; i++) {
+      processOutput.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    processOutput.write("end".getBytes(StandardCharsets.UTF_8));
+    processOutput.close();
+    stream.drain();
+
+    assertThat(this.loggedLines).hasSize(1001);
+    assertThat(this.loggedLines.get(999)).isEqualTo("line 999");
+    assertThat(this.loggedLines.get(1000)).isEqualTo("end");
+  }
+
+  @Test(timeout = 10000)
+  public void testDrainDoesNotWaitForEndOfStream() throws Exception {
+    final PipedOutputStream processOutput = new PipedOutputStream();
+    final PipedInputStream processInput = new PipedInputStream(processOutput, 1024);
+    final PumpedStream stream = this.pump.pump(processInput, this.logger, Level.INFO, 30);
+
+    // A child process left behind keeps the stream open after the process exited
+    processOutput.write("exited\nlast".getBytes(StandardCharsets.UTF_8));
+    processOutput.flush();
+    stream.drain();
+
+    assertThat(this.loggedLines).containsExactly("exited", "last");
+    processOutput.close();
+  }
+
+  @Test
+  public void testLinesAreLoggedByTheOwnerThread() throws Exception {
+    final PipedOutputStream processOutput = new PipedOutputStream();
+    final PipedInputStream processInput = new PipedInputStream(processOutput, 1024);
+    final PumpedStream stream = this.pump.pump(processInput, this.logger, Level.INFO, 30);
+
+    processOutput.write("running\n".getBytes(StandardCharsets.UTF_8));
+    processOutput.flush();
+    while (this.loggedLines.isEmpty()) {
+      Thread.sleep(10);
+      stream.logPendingLines();
+    }
+    assertThat(this.loggedLines).containsExactly("running");
+
+    processOutput.write("exited".getBytes(StandardCharsets.UTF_8));
+    processOutput.close();
+    stream.drain();
+
+    assertThat(this.loggedLines).containsExactly("running", "exited");
+    assertThat(this.loggingThreads).containsOnly(Thread.currentThread());
+  }
+}
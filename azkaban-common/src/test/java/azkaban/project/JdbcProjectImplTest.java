@@ -30,12 +30,14 @@ import azkaban.utils.Props;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -153,6 +155,22 @@ public class JdbcProjectImplTest {
     Assert.assertEquals(fileHandler.getUploader(), "uploadUser1");
   }
 
+  @Test
+  public void testGetUploadedFileInputStream() throws Exception {
+    createThreeProjects();
+    final Project project = this.loader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = this.loader.getLatestProjectVersion(project) + 1;
+    this.loader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1",
+        IPv4);
+
+    final ProjectFileHandler fileHandler =
+        this.loader.fetchProjectMetaData(project.getId(), newVersion);
+    try (final InputStream is = this.loader.getUploadedFileInputStream(fileHandler)) {
+      Assert.assertArrayEquals(FileUtils.readFileToByteArray(testFile), IOUtils.toByteArray(is));
+    }
+  }
+
   @Test(expected = ProjectManagerException.class)
   public void testDuplicateUploadProjectFile() throws Exception {
     createThreeProjects();
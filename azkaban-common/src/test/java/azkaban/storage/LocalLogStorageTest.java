@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.AzkabanCommonModuleConfig;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalLogStorageTest {
+
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private File baseDirectory;
+  private LocalLogStorage logStorage;
+
+  @Before
+  public void setUp() throws Exception {
+    this.baseDirectory = this.temp.newFolder("logs");
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    when(config.getLocalLogStorageBaseDirPath()).thenReturn(this.baseDirectory.getPath());
+    this.logStorage = new LocalLogStorage(config);
+  }
+
+  private File writeLog(final String log) throws Exception {
+    final File file = this.temp.newFile();
+    FileUtils.writeStringToFile(file, log, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  @Test
+  public void testPutAndGetLogRange() throws Exception {
+    final String key = this.logStorage.putLog(1, "flow:job", 2, writeLog("0123456789"));
+    assertThat(key).isEqualTo("1/job-flow%3Ajob.2.log.gz");
+    assertThat(new String(this.logStorage.getLogRange(key, 3, 4), StandardCharsets.UTF_8))
+        .isEqualTo("3456");
+
+    // The log of the flow, put again
+    final String flowKey = this.logStorage.putLog(1, "", 0, writeLog("first"));
+    assertThat(this.logStorage.putLog(1, "", 0, writeLog("second"))).isEqualTo(flowKey);
+    assertThat(new String(this.logStorage.getLogRange(flowKey, 0, 6), StandardCharsets.UTF_8))
+        .isEqualTo("second");
+    assertThat(new File(this.baseDirectory, "1").list()).hasSize(2);
+  }
+
+  @Test
+  public void testDeleteLogsBefore() throws Exception {
+    this.logStorage.putLog(1, "job", 0, writeLog("old"));
+    this.logStorage.putLog(1, "job", 1, writeLog("old"));
+    this.logStorage.putLog(2, "job", 0, writeLog("new"));
+    final File oldDir = new File(this.baseDirectory, "1");
+    final long cutoff = System.currentTimeMillis() - 60 * 1000;
+    assertThat(oldDir.setLastModified(cutoff - 1000)).isTrue();
+
+    assertThat(this.logStorage.deleteLogsBefore(cutoff)).isEqualTo(2);
+    assertThat(oldDir).doesNotExist();
+    assertThat(new File(this.baseDirectory, "2/job-job.0.log.gz")).exists();
+  }
+}
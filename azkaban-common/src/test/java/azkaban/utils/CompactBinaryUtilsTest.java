@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import azkaban.db.EncodingType;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.Status;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class CompactBinaryUtilsTest {
+
+  /**
+   * Decoding must give exactly what parsing the JSON of the same tree gives.
+   */
+  private static void assertSameAsJson(final Object obj) throws IOException {
+    final Object fromJson = JSONUtils.parseJSONFromString(JSONUtils.toJSON(obj));
+    final Object fromBinary = CompactBinaryUtils.decode(CompactBinaryUtils.encode(obj));
+    assertThat(fromBinary).isEqualTo(fromJson);
+  }
+
+  @Test
+  public void testScalars() throws Exception {
+    final Map<String, Object> map = new HashMap<>();
+    map.put("null", null);
+    map.put("true", true);
+    map.put("false", false);
+    map.put("zero", 0);
+    map.put("negative", -1L);
+    map.put("intMax", Integer.MAX_VALUE);
+    map.put("intMin", Integer.MIN_VALUE);
+    map.put("time", 1577836800000L);
+    map.put("longMin", Long.MIN_VALUE);
+    map.put("double", 3.25d);
+    map.put("string", "héllo 世界");
+    map.put("empty", "");
+    assertSameAsJson(map);
+
+    final Map<String, Object> decoded =
+        (Map<String, Object>) CompactBinaryUtils.decode(CompactBinaryUtils.encode(map));
+    assertThat(decoded.get("negative")).isInstanceOf(Integer.class);
+    assertThat(decoded.get("time")).isInstanceOf(Long.class);
+  }
+
+  @Test
+  public void testRepeatedStringsAreWrittenOnce() throws Exception {
+    final List<Object> nodes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final Map<String, Object> node = new HashMap<>();
+      node.put("id", "job" + (i % 3));
+      node.put("status", Status.SUCCEEDED.toString());
+      node.put("inNodes", Arrays.asList("job0", "job1"));
+      nodes.add(node);
+    }
+    assertSameAsJson(nodes);
+
+    final byte[] data = CompactBinaryUtils.encode(nodes);
+    assertThat(data.length).isLessThan(JSONUtils.toJSON(nodes).length() / 3);
+  }
+
+  @Test
+  public void testExecutableFlow() throws Exception {
+    final ExecutableFlow flow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    flow.setExecutionId(1);
+    flow.setStatus(Status.RUNNING);
+    flow.setStartTime(1577836800000L);
+    flow.getExecutableNode("job1").setStatus(Status.SUCCEEDED);
+    assertSameAsJson(flow.toObject());
+
+    final byte[] data = CompactBinaryUtils.encode(flow.toObject());
+    final ExecutableFlow decoded = ExecutableFlow.createExecutableFlow(
+        GZIPUtils.transformBytesToObject(data, EncodingType.BINARY), Status.RUNNING);
+    assertThat(JSONUtils.toJSON(decoded.toObject())).isEqualTo(JSONUtils.toJSON(flow.toObject()));
+  }
+
+  @Test
+  public void testUnsupportedVersion() {
+    final byte[] json = "{}".getBytes(StandardCharsets.UTF_8);
+    assertThatThrownBy(() -> CompactBinaryUtils.decode(json)).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> CompactBinaryUtils.decode(new byte[0]))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void testTruncatedData() throws Exception {
+    final byte[] data = CompactBinaryUtils.encode(Arrays.asList("job1", 1577836800000L));
+    assertThatThrownBy(() -> CompactBinaryUtils.decode(Arrays.copyOf(data, data.length - 2)))
+        .isInstanceOf(IOException.class);
+  }
+}
@@ -28,6 +28,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.comparator.NameFileComparator;
 import org.junit.After;
@@ -146,6 +148,33 @@ public class FileIOUtilsTest {
     assertThat(areDirsEqual(this.baseDir, this.sourceDir, true)).isTrue();
   }
 
+  @Test
+  public void testParallelHardlinkCopy() throws IOException {
+    final ExecutorService linkService = Executors.newFixedThreadPool(2);
+    try {
+      final int hardLinkCount =
+          FileIOUtils.createDeepHardlink(this.sourceDir, this.destDir, linkService);
+      assertThat(areDirsEqual(this.sourceDir, this.destDir, true)).isTrue();
+      assertThat(hardLinkCount).isEqualTo(5);
+    } finally {
+      linkService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testParallelHardlinkCopyFailure() throws IOException {
+    final ExecutorService linkService = Executors.newFixedThreadPool(2);
+    try {
+      // Linking onto existing files fails
+      FileIOUtils.createDeepHardlink(this.sourceDir, this.destDir, linkService);
+      assertThatThrownBy(
+          () -> FileIOUtils.createDeepHardlink(this.sourceDir, this.destDir, linkService))
+          .isInstanceOf(IOException.class);
+    } finally {
+      linkService.shutdownNow();
+    }
+  }
+
   @Ignore("Slow test (over 30s) - run manually if need to touch createDeepHardlink()")
   @Test
   public void testHardlinkCopyOfBigDir() throws IOException {
@@ -297,4 +326,18 @@ public class FileIOUtilsTest {
     Mockito.when(file.canRead()).thenReturn(true);
     Assert.assertTrue(FileIOUtils.isValidDirectory(file));
   }
+
+  @Test
+  public void testReadUtf8FileTail() throws IOException {
+    final File file = this.temp.newFile("tail.log");
+    FileUtils.writeStringToFile(file, "line1\nline2\nline3\n", "UTF-8");
+
+    final FileIOUtils.LogData data = FileIOUtils.readUtf8File(file, -1, 6);
+    assertThat(data.getOffset()).isEqualTo(12);
+    assertThat(data.getData()).isEqualTo("line3\n");
+
+    final FileIOUtils.LogData all = FileIOUtils.readUtf8File(file, -1, 100);
+    assertThat(all.getOffset()).isEqualTo(0);
+    assertThat(all.getData()).isEqualTo("line1\nline2\nline3\n");
+  }
 }
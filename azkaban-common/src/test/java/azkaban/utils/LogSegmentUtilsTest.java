@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.LogSegmentUtils.Block;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogSegmentUtilsTest {
+
+  private static final int BLOCK_SIZE = 1000;
+
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private File segmentFile;
+  private String log;
+
+  @Before
+  public void setUp() throws Exception {
+    this.segmentFile = LogSegmentUtils.getSegmentFile(new File(this.temp.getRoot(), "job.log"));
+    final StringBuilder log = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      log.append("01-01-2020 00:00:00 UTC job INFO - Log line ").append(i).append('\n');
+    }
+    this.log = log.toString();
+  }
+
+  private LogSegmentOutputStream writeLog(final String log) throws Exception {
+    final LogSegmentOutputStream stream =
+        new LogSegmentOutputStream(this.segmentFile, BLOCK_SIZE, Long.MAX_VALUE);
+    stream.write(log.getBytes(StandardCharsets.UTF_8));
+    return stream;
+  }
+
+  @Test
+  public void testRangesAreReadAcrossBlocks() throws Exception {
+    writeLog(this.log).close();
+
+    final List<Block> blocks = LogSegmentUtils.readBlocks(this.segmentFile);
+    assertThat(blocks).hasSize((this.log.length() + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    assertThat(blocks.get(blocks.size() - 1).getEndByte()).isEqualTo(this.log.length());
+
+    for (final int offset : new int[]{0, 999, 1000, 1500, 20000}) {
+      final LogData data = LogSegmentUtils.readUtf8Range(this.segmentFile, offset, 2500);
+      assertThat(data.getOffset()).isEqualTo(offset);
+      assertThat(data.getData())
+          .isEqualTo(this.log.substring(offset, Math.min(this.log.length(), offset + 2500)));
+    }
+
+    final LogData tail = LogSegmentUtils.readUtf8Range(this.segmentFile, -1, 100);
+    assertThat(tail.getOffset()).isEqualTo(this.log.length() - 100);
+    assertThat(tail.getData()).isEqualTo(this.log.substring(this.log.length() - 100));
+
+    final LogData end = LogSegmentUtils.readUtf8Range(this.segmentFile, this.log.length(), 100);
+    assertThat(end.getLength()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFlushedLogIsReadableBeforeBlockIsComplete() throws Exception {
+    final LogSegmentOutputStream stream = writeLog(this.log.substring(0, 2500));
+    stream.flush();
+
+    assertThat(LogSegmentUtils.readBlocks(this.segmentFile)).hasSize(2);
+    assertThat(LogSegmentUtils.readUtf8Range(this.segmentFile, 1800, 50000).getData())
+        .isEqualTo(this.log.substring(1800, 2500));
+    assertThat(LogSegmentUtils.readUtf8Range(this.segmentFile, -1, 100).getData())
+        .isEqualTo(this.log.substring(2400, 2500));
+    try (final InputStream in = LogSegmentUtils.newInputStream(this.segmentFile)) {
+      assertThat(IOUtils.toString(in, StandardCharsets.UTF_8))
+          .isEqualTo(this.log.substring(0, 2500));
+    }
+
+    stream.write(this.log.substring(2500).getBytes(StandardCharsets.UTF_8));
+    stream.close();
+    assertThat(LogSegmentUtils.readUtf8Range(this.segmentFile, 2400, 200).getData())
+        .isEqualTo(this.log.substring(2400, 2600));
+  }
+
+  @Test
+  public void testEmptySegmentIsReadable() throws Exception {
+    final LogSegmentOutputStream stream = writeLog("");
+    stream.flush();
+
+    assertThat(LogSegmentUtils.readUtf8Range(this.segmentFile, 0, 100).getLength()).isEqualTo(0);
+    try (final InputStream in = LogSegmentUtils.newInputStream(this.segmentFile)) {
+      assertThat(in.read()).isEqualTo(-1);
+    }
+    stream.close();
+  }
+
+  @Test
+  public void testBlocksAreGzipMembers() throws Exception {
+    writeLog(this.log).close();
+
+    // The whole segment can be read with gunzip
+    try (final InputStream in = new GZIPInputStream(new FileInputStream(this.segmentFile))) {
+      assertThat(IOUtils.toString(in, StandardCharsets.UTF_8)).isEqualTo(this.log);
+    }
+
+    try (final FileChannel data = FileChannel
+        .open(this.segmentFile.toPath(), StandardOpenOption.READ)) {
+      final Block block = LogSegmentUtils.readBlocks(this.segmentFile).get(3);
+      assertThat(new String(
+          GZIPUtils.unGzipBytes(LogSegmentUtils.readCompressedBlock(data, block)),
+          StandardCharsets.UTF_8))
+          .isEqualTo(this.log.substring((int) block.getStartByte(), (int) block.getEndByte()));
+    }
+  }
+
+  @Test
+  public void testLogPastMaxSizeIsDropped() throws Exception {
+    try (final LogSegmentOutputStream stream =
+        new LogSegmentOutputStream(this.segmentFile, BLOCK_SIZE, 2500)) {
+      stream.write(this.log.substring(0, 2000).getBytes(StandardCharsets.UTF_8));
+      assertThat(stream.isTruncated()).isFalse();
+      stream.write(this.log.substring(2000).getBytes(StandardCharsets.UTF_8));
+      assertThat(stream.isTruncated()).isTrue();
+      stream.write(this.log.getBytes(StandardCharsets.UTF_8));
+    }
+
+    try (final InputStream in = LogSegmentUtils.newInputStream(this.segmentFile)) {
+      final String log = IOUtils.toString(in, StandardCharsets.UTF_8);
+      assertThat(log).startsWith(this.log.substring(0, 2500));
+      assertThat(log.substring(2500)).contains("Log truncated");
+    }
+  }
+
+  @Test
+  public void testWholeUtf8CharactersAreRead() throws Exception {
+    writeLog("aé").close();
+
+    final LogData data = LogSegmentUtils.readUtf8Range(this.segmentFile, 0, 2);
+    assertThat(data.getData()).isEqualTo("a");
+  }
+}
@@ -17,12 +17,13 @@
 package azkaban.db;
 
 /**
- * Used for when we store text data. Plain uses UTF8 encoding.
+ * Used for when we store text data. Plain uses UTF8 encoding. Binary is the compact binary
+ * encoding of the data's object tree, see azkaban.utils.CompactBinaryUtils.
  */
 // TODO kunkun-tang: This class needs to move to azkaban-db module, as database module should be
 // Deprecated soon.
 public enum EncodingType {
-  PLAIN(1), GZIP(2);
+  PLAIN(1), GZIP(2), BINARY(3);
 
   private final int numVal;
 
@@ -36,11 +37,28 @@ public enum EncodingType {
         return PLAIN;
       case 2:
         return GZIP;
+      case 3:
+        return BINARY;
       default:
         return PLAIN;
     }
   }
 
+  /**
+   * Like {@link #fromInteger(int)}, for data which has always been written with its encoding:
+   * decoding it as another encoding would only fail later, or silently return garbage.
+   *
+   * @throws IllegalArgumentException if the encoding type is unknown
+   */
+  public static EncodingType fromIntegerStrict(final int x) {
+    for (final EncodingType type : values()) {
+      if (type.numVal == x) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown encoding type " + x);
+  }
+
   public int getNumVal() {
     return this.numVal;
   }
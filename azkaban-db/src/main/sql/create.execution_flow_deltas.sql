@@ -0,0 +1,11 @@
+-- Node-level change log for running executions. Each row holds the update object
+-- (see ExecutableFlowBase#toUpdateObject) of the nodes that changed since the previous row.
+-- Rows are folded back into execution_flows.flow_data and deleted on compaction.
+CREATE TABLE execution_flow_deltas (
+  exec_id     INT    NOT NULL,
+  seq         INT    NOT NULL,
+  update_time BIGINT NOT NULL,
+  enc_type    TINYINT,
+  delta_data  LONGBLOB,
+  PRIMARY KEY (exec_id, seq)
+);
@@ -0,0 +1,17 @@
+-- Index of the logs stored in a LogStorage instead of execution_logs. Each row is a block of the
+-- log, compressed as a GZIP member at file_offset in the stored file named by storage_key.
+CREATE TABLE execution_log_index (
+  exec_id           INT          NOT NULL,
+  name              VARCHAR(640) NOT NULL,
+  attempt           INT          NOT NULL,
+  start_byte        INT          NOT NULL,
+  end_byte          INT          NOT NULL,
+  storage_key       VARCHAR(512) NOT NULL,
+  file_offset       BIGINT       NOT NULL,
+  compressed_length INT          NOT NULL,
+  upload_time       BIGINT       NOT NULL,
+  PRIMARY KEY (exec_id, name, attempt, start_byte)
+);
+
+CREATE INDEX ex_log_index_upload_time
+  ON execution_log_index (upload_time);
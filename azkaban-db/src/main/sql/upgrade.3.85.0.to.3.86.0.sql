@@ -0,0 +1,27 @@
+-- DB Migration from release 3.85.0 to 3.86.0
+-- Adding execution_flow_deltas, used by executors to persist running flow state incrementally.
+CREATE TABLE execution_flow_deltas (
+  exec_id     INT    NOT NULL,
+  seq         INT    NOT NULL,
+  update_time BIGINT NOT NULL,
+  enc_type    TINYINT,
+  delta_data  LONGBLOB,
+  PRIMARY KEY (exec_id, seq)
+);
+
+-- Adding execution_log_index, the index of the execution logs stored in a LogStorage.
+CREATE TABLE execution_log_index (
+  exec_id           INT          NOT NULL,
+  name              VARCHAR(640) NOT NULL,
+  attempt           INT          NOT NULL,
+  start_byte        INT          NOT NULL,
+  end_byte          INT          NOT NULL,
+  storage_key       VARCHAR(512) NOT NULL,
+  file_offset       BIGINT       NOT NULL,
+  compressed_length INT          NOT NULL,
+  upload_time       BIGINT       NOT NULL,
+  PRIMARY KEY (exec_id, name, attempt, start_byte)
+);
+
+CREATE INDEX ex_log_index_upload_time
+  ON execution_log_index (upload_time);
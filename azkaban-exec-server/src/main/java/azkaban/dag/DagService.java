@@ -78,6 +78,14 @@ public class DagService {
     this.executorService.submit(node::markFailed);
   }
 
+  /**
+   * Transitions the node to the killed state if it is being killed, to the failure state
+   * otherwise.
+   */
+  public void markNodeFailedOrKilled(final Node node) {
+    this.executorService.submit(node::markFailedOrKilled);
+  }
+
   /**
    * Kills a DAG.
    */
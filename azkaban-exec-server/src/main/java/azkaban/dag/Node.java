@@ -129,6 +129,10 @@ public class Node {
   }
 
   private void cancel() {
+    if (this.status == Status.CANCELED) {
+      // The node has more than one failed parent, or is canceled by a kill already.
+      return;
+    }
     // The node shouldn't have started.
     assert (this.status.isPreRunState());
     if (this.status != Status.DISABLED) {
@@ -178,6 +182,21 @@ public class Node {
     this.dag.updateDagStatus();
   }
 
+  /**
+   * Transitions the node to the killed state if it is being killed, to the failure state
+   * otherwise.
+   *
+   * <p>The unit of work of a node can end without success after the dag is asked to be killed,
+   * and the caller can't know if the kill has reached the node yet.
+   */
+  void markFailedOrKilled() {
+    if (this.status == Status.KILLING) {
+      markKilled();
+    } else {
+      markFailed();
+    }
+  }
+
   @Override
   public String toString() {
     return String.format("Node (%s) status (%s) in %s", this.name, this.status, this.dag);
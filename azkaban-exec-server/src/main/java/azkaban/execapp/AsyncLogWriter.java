@@ -0,0 +1,423 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.Props;
+import com.codahale.metrics.Timer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Writes the job and flow logs of this executor to their files on a single background thread.
+ *
+ * <p>The file appenders of the jobs are wrapped by appenders which only put the logging events in
+ * a ring buffer pre-allocated for the whole executor, so that a job logging a lot never waits for
+ * the disk. The writer thread takes the queued events by batches, writes them to their files and
+ * flushes every file once per batch.
+ *
+ * <p>Logging never blocks on a full buffer: depending on the overflow policy either the new event
+ * or the oldest queued one is dropped, and a warning with the number of dropped lines is written
+ * to the log of the job before its next line, or when the log is closed.
+ *
+ * <p>The events are written by another thread than the one which logged them: their thread name,
+ * NDC and MDC are captured when they are queued, but location information (%C, %F, %L, %l, %M) is
+ * not available to the layout.
+ */
+@Singleton
+public class AsyncLogWriter {
+
+  // Events written before the files are flushed
+  private static final int MAX_BATCH_SIZE = 512;
+  // How long closing an appender waits for its queued events to be written
+  private static final long CLOSE_TIMEOUT_MS = 10 * 1000;
+  private static final long IDLE_WAIT_MS = 100;
+
+  private static final Logger logger = Logger.getLogger(AsyncLogWriter.class);
+
+  private final ExecMetrics execMetrics;
+  private final boolean enabled;
+  private final OverflowPolicy overflowPolicy;
+
+  // Ring buffer of the queued events and their appenders. Guarded by lock.
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = this.lock.newCondition();
+  private final AsyncFileAppender[] ringAppenders;
+  private final LoggingEvent[] ringEvents;
+  private int head = 0;
+  private int count = 0;
+
+  // Notified when a batch is written, for the appenders waiting for their events to be written
+  private final Object written = new Object();
+  private final AtomicLong numDropped = new AtomicLong();
+  private volatile Thread writer;
+  private volatile boolean running = false;
+
+  @Inject
+  public AsyncLogWriter(final Props azkabanProps, final ExecMetrics execMetrics) {
+    this.execMetrics = execMetrics;
+    this.enabled = azkabanProps.getBoolean(ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_ENABLED, false);
+    this.overflowPolicy = OverflowPolicy.fromName(azkabanProps
+        .getString(ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_OVERFLOW_POLICY,
+            OverflowPolicy.DROP_NEWEST.getName()));
+    final int bufferSize = azkabanProps.getInt(ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_BUFFER_SIZE,
+        Constants.DEFAULT_AZKABAN_JOB_LOG_ASYNC_BUFFER_SIZE);
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException(
+          ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_BUFFER_SIZE + " must be positive: " + bufferSize);
+    }
+    // The buffer is only allocated if it is used
+    this.ringAppenders = new AsyncFileAppender[this.enabled ? bufferSize : 0];
+    this.ringEvents = new LoggingEvent[this.enabled ? bufferSize : 0];
+    this.execMetrics.addAsyncLogWriterMetrics(this);
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Start the writer thread. Does nothing if the writer is disabled.
+   */
+  public synchronized void start() {
+    if (!this.enabled || this.writer != null) {
+      return;
+    }
+    logger.info("Starting async log writer with a buffer of " + this.ringEvents.length
+        + " lines, overflow policy " + this.overflowPolicy.getName());
+    this.running = true;
+    this.writer = new Thread(this::writeLoop, "azk-job-log-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Stop the writer thread once the queued events are written.
+   */
+  public void shutdown() {
+    final Thread thread;
+    synchronized (this) {
+      thread = this.writer;
+      if (thread == null) {
+        return;
+      }
+      this.running = false;
+    }
+    this.lock.lock();
+    try {
+      this.notEmpty.signal();
+    } finally {
+      this.lock.unlock();
+    }
+    try {
+      thread.join(CLOSE_TIMEOUT_MS);
+    } catch (final InterruptedException e) {
+      logger.warn("Interrupted waiting for the async log writer to stop");
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      this.writer = null;
+    }
+  }
+
+  /**
+   * Wrap the file appender of a job or flow log so that its events are written by the writer
+   * thread. The appender is returned as is if the writer isn't running.
+   *
+   * <p>Closing the returned appender waits for the queued events to be written, then closes the
+   * file appender.
+   */
+  public Appender wrap(final WriterAppender appender) {
+    if (!this.running) {
+      return appender;
+    }
+    final AsyncFileAppender asyncAppender = new AsyncFileAppender(appender);
+    asyncAppender.setName(appender.getName());
+    return asyncAppender;
+  }
+
+  /**
+   * @return the number of events waiting to be written.
+   */
+  public int getNumQueued() {
+    this.lock.lock();
+    try {
+      return this.count;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of events dropped since the executor started because the buffer was full.
+   */
+  public long getNumDropped() {
+    return this.numDropped.get();
+  }
+
+  private void enqueue(final AsyncFileAppender appender, final LoggingEvent event) {
+    this.lock.lock();
+    try {
+      if (this.count == this.ringEvents.length) {
+        if (this.overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+          appender.dropped(false);
+          return;
+        }
+        final AsyncFileAppender oldestAppender = this.ringAppenders[this.head];
+        this.ringAppenders[this.head] = null;
+        this.ringEvents[this.head] = null;
+        this.head = (this.head + 1) % this.ringEvents.length;
+        this.count--;
+        oldestAppender.dropped(true);
+      }
+      final int tail = (this.head + this.count) % this.ringEvents.length;
+      this.ringAppenders[tail] = appender;
+      this.ringEvents[tail] = event;
+      this.count++;
+      appender.numQueued.incrementAndGet();
+      // The writer only waits when the buffer is empty
+      if (this.count == 1) {
+        this.notEmpty.signal();
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private void writeLoop() {
+    final AsyncFileAppender[] batchAppenders = new AsyncFileAppender[MAX_BATCH_SIZE];
+    final LoggingEvent[] batchEvents = new LoggingEvent[MAX_BATCH_SIZE];
+    try {
+      while (true) {
+        final int batchSize;
+        this.lock.lock();
+        try {
+          while (this.count == 0) {
+            if (!this.running) {
+              return;
+            }
+            this.notEmpty.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+          }
+          batchSize = Math.min(this.count, MAX_BATCH_SIZE);
+          for (int i = 0; i < batchSize; i++) {
+            batchAppenders[i] = this.ringAppenders[this.head];
+            batchEvents[i] = this.ringEvents[this.head];
+            this.ringAppenders[this.head] = null;
+            this.ringEvents[this.head] = null;
+            this.head = (this.head + 1) % this.ringEvents.length;
+          }
+          this.count -= batchSize;
+        } finally {
+          this.lock.unlock();
+        }
+
+        write(batchAppenders, batchEvents, batchSize);
+        for (int i = 0; i < batchSize; i++) {
+          batchAppenders[i] = null;
+          batchEvents[i] = null;
+        }
+        synchronized (this.written) {
+          this.written.notifyAll();
+        }
+      }
+    } catch (final InterruptedException e) {
+      logger.warn("Async log writer interrupted, " + getNumQueued() + " lines not written");
+    } finally {
+      synchronized (this.written) {
+        this.written.notifyAll();
+      }
+    }
+  }
+
+  private void write(final AsyncFileAppender[] appenders, final LoggingEvent[] events, final int size) {
+    // Only the last event of every appender is written with a flush, so that each file is
+    // flushed once per batch.
+    final boolean[] flush = new boolean[size];
+    final Set<AsyncFileAppender> flushed = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = size - 1; i >= 0; i--) {
+      flush[i] = flushed.add(appenders[i]);
+    }
+
+    final Timer.Context context = this.execMetrics.getJobLogWriteTimerContext();
+    try {
+      for (int i = 0; i < size; i++) {
+        final AsyncFileAppender appender = appenders[i];
+        synchronized (appender.targetLock) {
+          try {
+            // The events still queued when the appender was closed are not written.
+            if (!appender.targetClosed) {
+              appender.target.setImmediateFlush(false);
+              appender.writeDroppedWarning(events[i].getLogger());
+              appender.target.setImmediateFlush(flush[i]);
+              appender.target.doAppend(events[i]);
+            }
+          } catch (final RuntimeException e) {
+            logger.error("Error writing log event of " + appender.getName(), e);
+          } finally {
+            appender.numQueued.decrementAndGet();
+          }
+        }
+      }
+    } finally {
+      context.stop();
+    }
+  }
+
+  public enum OverflowPolicy {
+    // Drop the event logged when the buffer is full
+    DROP_NEWEST("drop_newest"),
+    // Drop the oldest queued event to make room for the new one
+    DROP_OLDEST("drop_oldest");
+
+    private final String name;
+
+    OverflowPolicy(final String name) {
+      this.name = name;
+    }
+
+    public static OverflowPolicy fromName(final String name) {
+      for (final OverflowPolicy policy : values()) {
+        if (policy.name.equalsIgnoreCase(name.trim())) {
+          return policy;
+        }
+      }
+      throw new IllegalArgumentException("Unknown log overflow policy " + name);
+    }
+
+    public String getName() {
+      return this.name;
+    }
+  }
+
+  /**
+   * Queues the events of a log for the writer thread.
+   */
+  private final class AsyncFileAppender extends AppenderSkeleton {
+
+    private final WriterAppender target;
+    private final AtomicInteger numQueued = new AtomicInteger();
+    private final AtomicLong numDroppedSinceWrite = new AtomicLong();
+    // Held while writing to the target, so that it's never closed during a write
+    private final Object targetLock = new Object();
+    // Guarded by targetLock
+    private boolean targetClosed = false;
+
+    private AsyncFileAppender(final WriterAppender target) {
+      this.target = target;
+    }
+
+    @Override
+    protected void append(final LoggingEvent event) {
+      // Capture what depends on the logging thread before the event changes thread
+      event.getNDC();
+      event.getThreadName();
+      event.getMDCCopy();
+      event.getRenderedMessage();
+      event.getThrowableStrRep();
+      enqueue(this, event);
+    }
+
+    private void dropped(final boolean queued) {
+      this.numDroppedSinceWrite.incrementAndGet();
+      AsyncLogWriter.this.numDropped.incrementAndGet();
+      if (queued) {
+        this.numQueued.decrementAndGet();
+      }
+    }
+
+    /**
+     * Write the warning about the lines dropped since the last write, if any. Must be called with
+     * targetLock held.
+     */
+    private void writeDroppedWarning(final Category category) {
+      final long dropped = this.numDroppedSinceWrite.getAndSet(0);
+      if (dropped > 0) {
+        this.target.doAppend(new LoggingEvent(AsyncLogWriter.class.getName(), category,
+            Level.WARN, "Dropped " + dropped + " log lines because the log buffer of the executor "
+            + "was full.", null));
+      }
+    }
+
+    /**
+     * Wait for the queued events to be written, then close the file appender once the writer
+     * thread is done writing to it.
+     */
+    @Override
+    public void close() {
+      synchronized (this) {
+        if (this.closed) {
+          return;
+        }
+        // Events logged from now on are rejected by doAppend()
+        this.closed = true;
+      }
+
+      final Thread thread = AsyncLogWriter.this.writer;
+      final long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+      synchronized (AsyncLogWriter.this.written) {
+        while (this.numQueued.get() > 0 && thread != null && thread.isAlive()) {
+          final long remainingMs = deadline - System.currentTimeMillis();
+          if (remainingMs <= 0) {
+            break;
+          }
+          try {
+            AsyncLogWriter.this.written.wait(Math.min(remainingMs, IDLE_WAIT_MS));
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+        }
+      }
+      synchronized (this.targetLock) {
+        this.targetClosed = true;
+        final int notWritten = this.numQueued.get();
+        if (notWritten > 0) {
+          logger.warn(notWritten + " log lines of " + getName()
+              + " not written before closing the log");
+          this.numDroppedSinceWrite.addAndGet(notWritten);
+        }
+        try {
+          writeDroppedWarning(logger);
+        } catch (final RuntimeException e) {
+          logger.error("Error writing log event of " + getName(), e);
+        }
+        this.target.close();
+      }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+      return false;
+    }
+  }
+}
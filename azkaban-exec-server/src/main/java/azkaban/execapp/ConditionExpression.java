@@ -0,0 +1,368 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static azkaban.project.DirectoryYamlFlowLoader.CONDITION_ON_JOB_STATUS_PATTERN;
+import static azkaban.project.DirectoryYamlFlowLoader.CONDITION_VARIABLE_REPLACEMENT_PATTERN;
+
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled condition of a conditional workflow node.
+ *
+ * <p>The condition is parsed once, and evaluated without a script engine. The grammar is the one
+ * validated by DirectoryYamlFlowLoader:
+ * <ul>
+ *   <li>operands: numbers, 'strings' or "strings", runtime variables ${jobName:param}, and
+ *   conditionOnJobStatus macros such as one_success. The macros are evaluated separately by
+ *   {@link ConditionalWorkflowUtils}, so they are true here.
+ *   <li>operators, by increasing precedence: ||, &&, == and !=, &gt; &gt;= &lt; &lt;=, ! and
+ *   parentheses.
+ * </ul>
+ *
+ * <p>The values are compared like JavaScript did when the conditions were evaluated by a script
+ * engine: the runtime variables are strings, two strings are compared lexicographically, and a
+ * string is converted to a number when compared to a number. The condition is met only if it
+ * evaluates to the boolean true.
+ */
+public class ConditionExpression {
+
+  private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+(\\.\\d+)?");
+  private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+  // Strings converted to numbers, as by JavaScript
+  private static final Pattern NUMERIC_STRING_PATTERN = Pattern
+      .compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?|[+-]?Infinity");
+
+  private final String condition;
+  private final Expr expr;
+
+  private ConditionExpression(final String condition, final Expr expr) {
+    this.condition = condition;
+    this.expr = expr;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the condition doesn't follow the grammar.
+   */
+  public static ConditionExpression compile(final String condition) {
+    final Parser parser = new Parser(condition);
+    final Expr expr = parser.parseOr();
+    if (parser.peek() != null) {
+      throw parser.error("unexpected " + parser.peek().text);
+    }
+    return new ConditionExpression(condition, expr);
+  }
+
+  /**
+   * @param variables resolves the value of the runtime variable param of the job, null if the
+   * job has no such output property.
+   * @throws IllegalArgumentException if a runtime variable can't be resolved.
+   */
+  public boolean evaluate(final BiFunction<String, String, String> variables) {
+    return Boolean.TRUE.equals(this.expr.eval(variables));
+  }
+
+  @Override
+  public String toString() {
+    return this.condition;
+  }
+
+  private interface Expr {
+
+    Object eval(BiFunction<String, String, String> variables);
+  }
+
+  private static boolean isTruthy(final Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Double) {
+      final double d = (Double) value;
+      return d != 0 && !Double.isNaN(d);
+    } else {
+      return !((String) value).isEmpty();
+    }
+  }
+
+  private static double toNumber(final Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    } else if (value instanceof Double) {
+      return (Double) value;
+    }
+    final String s = ((String) value).trim();
+    if (s.isEmpty()) {
+      return 0;
+    }
+    return NUMERIC_STRING_PATTERN.matcher(s).matches() ? Double.parseDouble(s) : Double.NaN;
+  }
+
+  private static boolean looseEquals(final Object left, final Object right) {
+    if (left instanceof String && right instanceof String) {
+      return left.equals(right);
+    } else if (left instanceof Boolean && right instanceof Boolean) {
+      return left.equals(right);
+    }
+    // Any other pair of types is compared as numbers. NaN is never equal.
+    return toNumber(left) == toNumber(right);
+  }
+
+  /**
+   * @return the sign of the comparison, or null if the values can't be ordered.
+   */
+  private static Integer compare(final Object left, final Object right) {
+    if (left instanceof String && right instanceof String) {
+      return Integer.signum(((String) left).compareTo((String) right));
+    }
+    final double l = toNumber(left);
+    final double r = toNumber(right);
+    if (Double.isNaN(l) || Double.isNaN(r)) {
+      return null;
+    }
+    return Double.compare(l, r) == 0 ? 0 : (l < r ? -1 : 1);
+  }
+
+  private static class Token {
+
+    private final String text;
+    // The value of an operand token, null for the operators.
+    private final Expr operand;
+
+    private Token(final String text, final Expr operand) {
+      this.text = text;
+      this.operand = operand;
+    }
+  }
+
+  /**
+   * Recursive descent parser, one method per precedence level.
+   */
+  private static class Parser {
+
+    private static final String[] OPERATORS = {"&&", "||", "==", "!=", ">=", "<=", ">", "<", "!",
+        "(", ")"};
+
+    private final String condition;
+    private int pos = 0;
+    private Token next;
+
+    private Parser(final String condition) {
+      this.condition = condition;
+      this.next = readToken();
+    }
+
+    private IllegalArgumentException error(final String message) {
+      return new IllegalArgumentException(
+          "Invalid condition [" + this.condition + "]: " + message);
+    }
+
+    private Token peek() {
+      return this.next;
+    }
+
+    private boolean accept(final String operator) {
+      if (this.next != null && this.next.operand == null && this.next.text.equals(operator)) {
+        this.next = readToken();
+        return true;
+      }
+      return false;
+    }
+
+    private Expr parseOr() {
+      Expr expr = parseAnd();
+      while (accept("||")) {
+        final Expr left = expr;
+        final Expr right = parseAnd();
+        expr = variables -> {
+          final Object value = left.eval(variables);
+          return isTruthy(value) ? value : right.eval(variables);
+        };
+      }
+      return expr;
+    }
+
+    private Expr parseAnd() {
+      Expr expr = parseEquality();
+      while (accept("&&")) {
+        final Expr left = expr;
+        final Expr right = parseEquality();
+        expr = variables -> {
+          final Object value = left.eval(variables);
+          return isTruthy(value) ? right.eval(variables) : value;
+        };
+      }
+      return expr;
+    }
+
+    private Expr parseEquality() {
+      Expr expr = parseRelational();
+      while (true) {
+        final Expr left = expr;
+        if (accept("==")) {
+          final Expr right = parseRelational();
+          expr = variables -> looseEquals(left.eval(variables), right.eval(variables));
+        } else if (accept("!=")) {
+          final Expr right = parseRelational();
+          expr = variables -> !looseEquals(left.eval(variables), right.eval(variables));
+        } else {
+          return expr;
+        }
+      }
+    }
+
+    private Expr parseRelational() {
+      Expr expr = parseUnary();
+      while (true) {
+        final Expr left = expr;
+        if (accept(">=")) {
+          final Expr right = parseUnary();
+          expr = variables -> {
+            final Integer c = compare(left.eval(variables), right.eval(variables));
+            return c != null && c >= 0;
+          };
+        } else if (accept("<=")) {
+          final Expr right = parseUnary();
+          expr = variables -> {
+            final Integer c = compare(left.eval(variables), right.eval(variables));
+            return c != null && c <= 0;
+          };
+        } else if (accept(">")) {
+          final Expr right = parseUnary();
+          expr = variables -> {
+            final Integer c = compare(left.eval(variables), right.eval(variables));
+            return c != null && c > 0;
+          };
+        } else if (accept("<")) {
+          final Expr right = parseUnary();
+          expr = variables -> {
+            final Integer c = compare(left.eval(variables), right.eval(variables));
+            return c != null && c < 0;
+          };
+        } else {
+          return expr;
+        }
+      }
+    }
+
+    private Expr parseUnary() {
+      if (accept("!")) {
+        final Expr operand = parseUnary();
+        return variables -> !isTruthy(operand.eval(variables));
+      }
+      return parsePrimary();
+    }
+
+    private Expr parsePrimary() {
+      if (accept("(")) {
+        final Expr expr = parseOr();
+        if (!accept(")")) {
+          throw error("missing )");
+        }
+        return expr;
+      }
+      final Token token = this.next;
+      if (token == null) {
+        throw error("missing operand");
+      } else if (token.operand == null) {
+        throw error("unexpected " + token.text);
+      }
+      this.next = readToken();
+      return token.operand;
+    }
+
+    private Token readToken() {
+      while (this.pos < this.condition.length()
+          && Character.isWhitespace(this.condition.charAt(this.pos))) {
+        this.pos++;
+      }
+      if (this.pos == this.condition.length()) {
+        return null;
+      }
+
+      final char c = this.condition.charAt(this.pos);
+      if (c == '\'' || c == '"') {
+        return readString(c);
+      }
+      if (c == '$') {
+        final Matcher matcher = match(CONDITION_VARIABLE_REPLACEMENT_PATTERN);
+        if (matcher == null) {
+          throw error("invalid variable at " + this.condition.substring(this.pos));
+        }
+        final String jobName = matcher.group(1);
+        final String param = matcher.group(2);
+        return new Token(matcher.group(), variables -> {
+          final String value = variables.apply(jobName, param);
+          if (value == null) {
+            throw new IllegalArgumentException(
+                "Can't resolve ${" + jobName + ":" + param + "} in condition [" + this.condition
+                    + "]");
+          }
+          return value;
+        });
+      }
+      Matcher matcher = match(NUMBER_PATTERN);
+      if (matcher != null) {
+        final Double value = Double.valueOf(matcher.group());
+        return new Token(matcher.group(), variables -> value);
+      }
+      matcher = match(IDENTIFIER_PATTERN);
+      if (matcher != null) {
+        if (!CONDITION_ON_JOB_STATUS_PATTERN.matcher(matcher.group()).matches()) {
+          throw error("unknown operand " + matcher.group());
+        }
+        // Conditions on job status are checked before the condition is evaluated.
+        return new Token(matcher.group(), variables -> Boolean.TRUE);
+      }
+      for (final String operator : OPERATORS) {
+        if (this.condition.startsWith(operator, this.pos)) {
+          this.pos += operator.length();
+          return new Token(operator, null);
+        }
+      }
+      throw error("unexpected character " + c);
+    }
+
+    private Matcher match(final Pattern pattern) {
+      final Matcher matcher = pattern.matcher(this.condition)
+          .region(this.pos, this.condition.length());
+      if (!matcher.lookingAt()) {
+        return null;
+      }
+      this.pos = matcher.end();
+      return matcher;
+    }
+
+    private Token readString(final char quote) {
+      final int start = this.pos;
+      final StringBuilder value = new StringBuilder();
+      this.pos++;
+      while (this.pos < this.condition.length()) {
+        final char c = this.condition.charAt(this.pos++);
+        if (c == quote) {
+          final String s = value.toString();
+          return new Token(this.condition.substring(start, this.pos), variables -> s);
+        } else if (c == '\\' && this.pos < this.condition.length()) {
+          value.append(this.condition.charAt(this.pos++));
+        } else {
+          value.append(c);
+        }
+      }
+      throw error("unterminated string");
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.execapp.metric.DependencyCacheHitRatio;
+import azkaban.spi.DependencyFile;
+import azkaban.utils.DependencyTransferException;
+import azkaban.utils.DependencyTransferManager;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor-wide store of the startup dependencies of thin archives, keyed by their SHA1.
+ *
+ * <p>A dependency is downloaded and its checksum validated once, then hard-linked into every
+ * project directory needing it. Concurrent requests for the same dependency share a single
+ * download. The least recently used dependencies are deleted when the store grows over its
+ * maximum size; the project directories keep their own links to them.</p>
+ *
+ * <p>Just like the hard links from the project directories to the execution directories, the
+ * linked files must not be modified in place.</p>
+ */
+class DependencyCache {
+
+  // Prefix of the files being downloaded into the cache directory
+  static final String TEMP_FILE_PREFIX = "_temp.";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DependencyCache.class);
+
+  private static final Pattern SHA1_FILE_NAME = Pattern.compile("[0-9a-f]{40}");
+
+  private final File cacheDir;
+  private final long maxSizeInBytes;
+  private final DependencyTransferManager dependencyTransferManager;
+  private final DependencyCacheHitRatio dependencyCacheHitRatio;
+  private final ExecutorService downloadService;
+
+  // Size of the cached dependencies by SHA1, from least to most recently used. Guarded by this.
+  private final LinkedHashMap<String, Long> cachedDependencies =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long cacheSizeInBytes = 0;
+  // Number of threads linking or copying each cached dependency, by SHA1. Guarded by this.
+  private final Map<String, Integer> pinnedDependencies = new HashMap<>();
+
+  // Downloads in progress by SHA1
+  private final Map<String, CompletableFuture<Void>> downloadsInProgress =
+      new ConcurrentHashMap<>();
+
+  DependencyCache(final File cacheDir, final long maxSizeInBytes,
+      final DependencyTransferManager dependencyTransferManager,
+      final DependencyCacheHitRatio dependencyCacheHitRatio, final int numDownloadThreads) {
+    Preconditions.checkNotNull(cacheDir);
+    Preconditions.checkNotNull(dependencyTransferManager);
+    Preconditions.checkNotNull(dependencyCacheHitRatio);
+    Preconditions.checkArgument(maxSizeInBytes > 0);
+
+    this.cacheDir = cacheDir;
+    this.maxSizeInBytes = maxSizeInBytes;
+    this.dependencyTransferManager = dependencyTransferManager;
+    this.dependencyCacheHitRatio = dependencyCacheHitRatio;
+    this.downloadService = Executors.newFixedThreadPool(numDownloadThreads,
+        new ThreadFactoryBuilder().setNameFormat("azk-dependency-download-%d").setDaemon(true)
+            .build());
+
+    if (!this.cacheDir.exists()) {
+      this.cacheDir.mkdirs();
+    }
+    loadCachedDependencies();
+  }
+
+  /**
+   * Register the dependencies left in the cache directory by a previous run of the executor, in
+   * the order of their last access, and delete the partial downloads.
+   */
+  private synchronized void loadCachedDependencies() {
+    final File[] files = this.cacheDir.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (final File file : files) {
+      if (file.getName().startsWith(TEMP_FILE_PREFIX)) {
+        file.delete();
+      } else if (file.isFile() && SHA1_FILE_NAME.matcher(file.getName()).matches()) {
+        this.cachedDependencies.put(file.getName(), file.length());
+        this.cacheSizeInBytes += file.length();
+      }
+    }
+    evictIfNecessary(null);
+    LOGGER.info("Loaded {} cached dependencies ({} bytes) from {}",
+        this.cachedDependencies.size(), this.cacheSizeInBytes, this.cacheDir);
+  }
+
+  /**
+   * Place each dependency in the file returned by DependencyFile::getFile, downloading the ones
+   * not in the cache yet.
+   *
+   * @param deps set of DependencyFile to install
+   * @throws DependencyTransferException if a dependency can't be downloaded or installed
+   */
+  void installDependencies(final Set<DependencyFile> deps) {
+    if (deps.isEmpty()) {
+      return;
+    }
+    if (!this.dependencyTransferManager.isEnabled()) {
+      throw new UnsupportedOperationException("Thin archive support is not enabled!");
+    }
+
+    final CompletableFuture<?>[] installations = deps.stream()
+        .map(f -> CompletableFuture.runAsync(() -> installDependency(f), this.downloadService))
+        .toArray(CompletableFuture[]::new);
+    try {
+      // Let the other downloads complete when one fails: they will be cached for the next try.
+      CompletableFuture.allOf(installations).join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof DependencyTransferException) {
+        throw (DependencyTransferException) e.getCause();
+      }
+      throw new DependencyTransferException("Error while installing dependencies", e.getCause());
+    }
+  }
+
+  @VisibleForTesting
+  void installDependency(final DependencyFile f) {
+    final String sha1 = f.getSHA1();
+    boolean hit = true;
+    // The dependency can be evicted by other downloads before it's linked, so loop until linked.
+    while (!linkIfCached(sha1, f.getFile())) {
+      hit = false;
+      download(f);
+    }
+    if (hit) {
+      this.dependencyCacheHitRatio.markHit();
+    } else {
+      this.dependencyCacheHitRatio.markMiss();
+    }
+  }
+
+  /**
+   * Download a dependency into the cache, or wait for the download of the same dependency by
+   * another thread.
+   */
+  private void download(final DependencyFile f) {
+    final String sha1 = f.getSHA1();
+    final CompletableFuture<Void> download = new CompletableFuture<>();
+    final CompletableFuture<Void> inProgress = this.downloadsInProgress.putIfAbsent(sha1, download);
+    if (inProgress != null) {
+      try {
+        inProgress.join();
+        return;
+      } catch (final CompletionException e) {
+        throw (RuntimeException) e.getCause();
+      }
+    }
+
+    try {
+      downloadToCache(f);
+      download.complete(null);
+    } catch (final RuntimeException e) {
+      download.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.downloadsInProgress.remove(sha1, download);
+    }
+  }
+
+  private void downloadToCache(final DependencyFile f) {
+    final String sha1 = f.getSHA1();
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile(TEMP_FILE_PREFIX + sha1, null, this.cacheDir);
+      final long start = System.currentTimeMillis();
+      // Validates the checksum, so the cached file can be trusted from now on.
+      this.dependencyTransferManager.downloadDependency(f.makeDependencyFile(tempFile));
+      LOGGER.info("Downloading dependency {} ({}) completed in {} second(s)", f.getFileName(),
+          sha1, (System.currentTimeMillis() - start) / 1000);
+
+      final File cachedFile = getCachedFile(sha1);
+      Files.move(tempFile.toPath(), cachedFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      synchronized (this) {
+        final Long previousSize = this.cachedDependencies.put(sha1, cachedFile.length());
+        if (previousSize != null) {
+          this.cacheSizeInBytes -= previousSize;
+        }
+        this.cacheSizeInBytes += cachedFile.length();
+        evictIfNecessary(sha1);
+      }
+    } catch (final IOException e) {
+      throw new DependencyTransferException(
+          "Error while caching dependency " + f.getFileName(), e);
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * Link a cached dependency to the destination file.
+   *
+   * <p>The dependency is pinned while being linked, so that it isn't evicted meanwhile, and
+   * the link or the copy is made outside of the cache lock.</p>
+   *
+   * @return false if the dependency is not cached.
+   */
+  private boolean linkIfCached(final String sha1, final File dest) {
+    final File cachedFile = pinIfCached(sha1);
+    if (cachedFile == null) {
+      return false;
+    }
+    try {
+      dest.getParentFile().mkdirs();
+      Files.deleteIfExists(dest.toPath());
+      try {
+        Files.createLink(dest.toPath(), cachedFile.toPath());
+      } catch (final UnsupportedOperationException | FileSystemException e) {
+        // The project directory may be on another file system than the cache.
+        Files.copy(cachedFile.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (final IOException e) {
+      throw new DependencyTransferException("Error while linking dependency " + dest, e);
+    } finally {
+      unpin(sha1);
+    }
+    // The last modified time orders the cached dependencies after a restart.
+    cachedFile.setLastModified(System.currentTimeMillis());
+    return true;
+  }
+
+  /**
+   * Protect a cached dependency from eviction until {@link #unpin(String)} is called.
+   *
+   * @return the cached file, null if the dependency is not cached.
+   */
+  private synchronized File pinIfCached(final String sha1) {
+    // get() also makes it the most recently used dependency.
+    if (this.cachedDependencies.get(sha1) == null) {
+      return null;
+    }
+    final File cachedFile = getCachedFile(sha1);
+    if (!cachedFile.exists()) {
+      LOGGER.warn("Cached dependency {} was deleted from outside of the cache", cachedFile);
+      this.cacheSizeInBytes -= this.cachedDependencies.remove(sha1);
+      return null;
+    }
+    this.pinnedDependencies.merge(sha1, 1, Integer::sum);
+    return cachedFile;
+  }
+
+  private synchronized void unpin(final String sha1) {
+    if (this.pinnedDependencies.merge(sha1, -1, Integer::sum) == 0) {
+      this.pinnedDependencies.remove(sha1);
+      // The dependency may have been kept over the maximum size while pinned.
+      evictIfNecessary(null);
+    }
+  }
+
+  /**
+   * Delete the least recently used dependencies until the cache fits in its maximum size. The
+   * pinned dependencies are kept.
+   *
+   * @param keep SHA1 of the dependency which must not be deleted, null if none.
+   */
+  private void evictIfNecessary(final String keep) {
+    final Iterator<Map.Entry<String, Long>> it = this.cachedDependencies.entrySet().iterator();
+    while (this.cacheSizeInBytes > this.maxSizeInBytes && it.hasNext()) {
+      final Map.Entry<String, Long> entry = it.next();
+      if (entry.getKey().equals(keep) || this.pinnedDependencies.containsKey(entry.getKey())) {
+        continue;
+      }
+      final File cachedFile = getCachedFile(entry.getKey());
+      if (!cachedFile.delete() && cachedFile.exists()) {
+        LOGGER.warn("Unable to delete cached dependency {}", cachedFile);
+        continue;
+      }
+      LOGGER.info("Evicted cached dependency {}", cachedFile);
+      this.cacheSizeInBytes -= entry.getValue();
+      it.remove();
+    }
+  }
+
+  private File getCachedFile(final String sha1) {
+    return new File(this.cacheDir, sha1);
+  }
+
+  @VisibleForTesting
+  synchronized long getCacheSizeInBytes() {
+    return this.cacheSizeInBytes;
+  }
+
+  @VisibleForTesting
+  synchronized boolean isCached(final String sha1) {
+    return this.cachedDependencies.containsKey(sha1);
+  }
+
+  void shutdown() {
+    this.downloadService.shutdownNow();
+  }
+}
@@ -1,5 +1,6 @@
 package azkaban.execapp;
 
+import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.utils.Props;
 import com.google.inject.AbstractModule;
@@ -18,7 +19,6 @@ public class ExecJettyServerModule extends AbstractModule {
   public static final String EXEC_JETTY_SERVER = "ExecServer";
   public static final String EXEC_ROOT_CONTEXT = "root";
 
-  private static final int DEFAULT_THREAD_NUMBER = 50;
   private static final int DEFAULT_HEADER_BUFFER_SIZE = 4096;
   private static final int MAX_FORM_CONTENT_SIZE = 10 * 1024 * 1024;
 
@@ -32,7 +32,8 @@ public class ExecJettyServerModule extends AbstractModule {
   @Named(EXEC_JETTY_SERVER)
   @Singleton
   private Server createJettyServer(final Props props) {
-    final int maxThreads = props.getInt("executor.maxThreads", DEFAULT_THREAD_NUMBER);
+    final int maxThreads = props.getInt(ConfigurationKeys.EXECUTOR_MAX_THREADS,
+        Constants.DEFAULT_EXECUTOR_MAX_THREADS);
 
     /*
      * Default to a port number 0 (zero)
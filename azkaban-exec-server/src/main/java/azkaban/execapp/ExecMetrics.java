@@ -16,6 +16,7 @@
 
 package azkaban.execapp;
 
+import azkaban.execapp.metric.DependencyCacheHitRatio;
 import azkaban.execapp.metric.ProjectCacheHitRatio;
 import azkaban.metrics.MetricsManager;
 import com.codahale.metrics.Counter;
@@ -32,8 +33,13 @@ import javax.inject.Singleton;
 public class ExecMetrics {
   public static final String NUM_RUNNING_FLOWS_NAME = "EXEC-NumRunningFlows";
   public static final String NUM_QUEUED_FLOWS_NAME = "EXEC-NumQueuedFlows";
+  public static final String NUM_LOG_STREAMS_NAME = "EXEC-NumLogStreams";
   public static final String PROJECT_DIR_CACHE_HIT_RATIO_NAME = "project-dir-cache-hit-ratio";
+  public static final String DEPENDENCY_CACHE_HIT_RATIO_NAME = "dependency-cache-hit-ratio";
   public static final String FLOW_SETUP_TIMER_NAME = "flow-setup-timer";
+  public static final String FLOW_SETUP_LOCK_WAIT_TIMER_NAME = "flow-setup-lock-wait-timer";
+  public static final String FLOW_SETUP_CRITICAL_SECTION_TIMER_NAME =
+      "flow-setup-critical-section-timer";
   public static final String FLOW_KILLING_COUNTER_NAME = "flow-killing-counter";
   public static final String FLOW_TIME_TO_KILL_HISTOGRAM_NAME = "flow-time-to-kill-histogram";
   public static final String FLOW_KILLED_METER_NAME = "flow-killed-meter";
@@ -41,10 +47,20 @@ public class ExecMetrics {
   public static final String JOB_FAIL_METER_NAME = "job-fail-meter";
   public static final String JOB_SUCCESS_METER_NAME = "job-success-meter";
   public static final String JOB_KILLED_METER_NAME = "job-killed-meter";
+  public static final String FLOW_UPDATE_FLUSH_TIMER_NAME = "flow-update-flush-timer";
+  public static final String FLOW_UPDATE_COALESCE_RATIO_NAME = "flow-update-coalesce-ratio";
+  public static final String DISPATCH_LATENCY_HISTOGRAM_NAME = "dispatch-latency-histogram";
+  public static final String DISPATCH_WAKEUP_METER_NAME = "dispatch-wakeup-meter";
+  public static final String JOB_LOG_QUEUED_LINES_NAME = "job-log-queued-lines";
+  public static final String JOB_LOG_DROPPED_LINES_NAME = "job-log-dropped-lines";
+  public static final String JOB_LOG_WRITE_TIMER_NAME = "job-log-write-timer";
 
   private final MetricsManager metricsManager;
   private Timer flowSetupTimer;
+  private Timer flowSetupLockWaitTimer;
+  private Timer flowSetupCriticalSectionTimer;
   private final ProjectCacheHitRatio projectCacheHitRatio;
+  private final DependencyCacheHitRatio dependencyCacheHitRatio;
   private Counter flowKillingCounter;
   private Histogram flowTimeToKillHistogram;
   private Meter flowKilledMeter;
@@ -52,6 +68,10 @@ public class ExecMetrics {
   private Meter jobFailMeter;
   private Meter jobSuccessMeter;
   private Meter jobKilledMeter;
+  private Timer flowUpdateFlushTimer;
+  private Histogram dispatchLatencyHistogram;
+  private Meter dispatchWakeUpMeter;
+  private Timer jobLogWriteTimer;
   // TODO ypadron-in: add metrics to measure the time between flow submission and flow execution
   // preparation/start after clock skew issues in execution times are resolved.
 
@@ -62,7 +82,13 @@ public class ExecMetrics {
     this.projectCacheHitRatio = new ProjectCacheHitRatio();
     this.metricsManager.addGauge(PROJECT_DIR_CACHE_HIT_RATIO_NAME,
         this.projectCacheHitRatio::getValue);
+    this.dependencyCacheHitRatio = new DependencyCacheHitRatio();
+    this.metricsManager.addGauge(DEPENDENCY_CACHE_HIT_RATIO_NAME,
+        this.dependencyCacheHitRatio::getValue);
     this.flowSetupTimer = this.metricsManager.addTimer(FLOW_SETUP_TIMER_NAME);
+    this.flowSetupLockWaitTimer = this.metricsManager.addTimer(FLOW_SETUP_LOCK_WAIT_TIMER_NAME);
+    this.flowSetupCriticalSectionTimer =
+        this.metricsManager.addTimer(FLOW_SETUP_CRITICAL_SECTION_TIMER_NAME);
     this.flowKillingCounter = this.metricsManager.addCounter(FLOW_KILLING_COUNTER_NAME);
     this.flowTimeToKillHistogram =
         this.metricsManager.addHistogram(FLOW_TIME_TO_KILL_HISTOGRAM_NAME);
@@ -71,17 +97,54 @@ public class ExecMetrics {
     this.jobFailMeter = this.metricsManager.addMeter(JOB_FAIL_METER_NAME);
     this.jobSuccessMeter = this.metricsManager.addMeter(JOB_SUCCESS_METER_NAME);
     this.jobKilledMeter = this.metricsManager.addMeter(JOB_KILLED_METER_NAME);
+    this.flowUpdateFlushTimer = this.metricsManager.addTimer(FLOW_UPDATE_FLUSH_TIMER_NAME);
+    this.dispatchLatencyHistogram =
+        this.metricsManager.addHistogram(DISPATCH_LATENCY_HISTOGRAM_NAME);
+    this.dispatchWakeUpMeter = this.metricsManager.addMeter(DISPATCH_WAKEUP_METER_NAME);
+    this.jobLogWriteTimer = this.metricsManager.addTimer(JOB_LOG_WRITE_TIMER_NAME);
   }
 
   ProjectCacheHitRatio getProjectCacheHitRatio() {
     return this.projectCacheHitRatio;
   }
 
+  DependencyCacheHitRatio getDependencyCacheHitRatio() {
+    return this.dependencyCacheHitRatio;
+  }
+
+  /**
+   * @return the timer of the waits for a project dir lock during flow setup.
+   */
+  Timer getFlowSetupLockWaitTimer() {
+    return this.flowSetupLockWaitTimer;
+  }
+
+  /**
+   * @return the timer of the time spent holding a project dir lock during flow setup.
+   */
+  Timer getFlowSetupCriticalSectionTimer() {
+    return this.flowSetupCriticalSectionTimer;
+  }
+
   public void addFlowRunnerManagerMetrics(final FlowRunnerManager flowRunnerManager) {
     this.metricsManager
         .addGauge(NUM_RUNNING_FLOWS_NAME, flowRunnerManager::getNumRunningFlows);
     this.metricsManager
         .addGauge(NUM_QUEUED_FLOWS_NAME, flowRunnerManager::getNumQueuedFlows);
+    this.metricsManager
+        .addGauge(NUM_LOG_STREAMS_NAME, flowRunnerManager::getNumLogStreams);
+  }
+
+  public void addFlowUpdateWriterMetrics(final FlowUpdateWriter flowUpdateWriter) {
+    this.metricsManager
+        .addGauge(FLOW_UPDATE_COALESCE_RATIO_NAME, flowUpdateWriter::getCoalesceRatio);
+  }
+
+  public void addAsyncLogWriterMetrics(final AsyncLogWriter asyncLogWriter) {
+    this.metricsManager
+        .addGauge(JOB_LOG_QUEUED_LINES_NAME, asyncLogWriter::getNumQueued);
+    this.metricsManager
+        .addGauge(JOB_LOG_DROPPED_LINES_NAME, asyncLogWriter::getNumDropped);
   }
 
   /**
@@ -91,6 +154,35 @@ public class ExecMetrics {
     return this.flowSetupTimer.time();
   }
 
+  /**
+   * @return the {@link Timer.Context} for the flush of the coalesced flow updates.
+   */
+  public Timer.Context getFlowUpdateFlushTimerContext() {
+    return this.flowUpdateFlushTimer.time();
+  }
+
+  /**
+   * @return the {@link Timer.Context} for the write of a batch of queued log lines.
+   */
+  public Timer.Context getJobLogWriteTimerContext() {
+    return this.jobLogWriteTimer.time();
+  }
+
+  /**
+   * Add the time between the submission of a flow and its pickup by this executor in poll
+   * dispatch mode. The submit time comes from the clock of the web server.
+   *
+   * @param time submit-to-dispatch time for a flow
+   */
+  public void addDispatchLatency(final long time) {
+    this.dispatchLatencyHistogram.update(time);
+  }
+
+  /**
+   * Record a wake up of the polling service by the web server.
+   */
+  public void markDispatchWakeUp() { this.dispatchWakeUpMeter.mark(); }
+
   /**
    * Increment the number of flow executions in killing status.
    */
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ConnectorParams;
+import azkaban.utils.Props;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Feed of the changes of the executions running on this executor.
+ *
+ * <p>Every change of an execution gets the next sequence number. The web server asks for the
+ * executions changed after the last sequence number it got, and fetches the updates of these
+ * executions only, instead of the updates of all the running executions. The request waits until
+ * there is a change or the timeout expires.
+ *
+ * <p>The feed remembers only the last change of the most recently changed executions. When the
+ * changes after a sequence number are no longer known, or the sequence number comes from another
+ * feed (e.g. before the executor restarted), the answer is a reset: the web server must fetch the
+ * updates of all the running executions.
+ *
+ * The following global Azkaban properties are used:
+ * <ul>
+ *   <li>{@code azkaban.executor.change_feed.max_executions} - number of executions whose last
+ *   change is remembered, default 10000.
+ * </ul>
+ */
+@Singleton
+public class ExecutionChangeFeed {
+
+  // The longest a request waits for changes
+  static final long MAX_TIMEOUT_MS = 30000;
+
+  private final String feedId = UUID.randomUUID().toString();
+  private final int maxExecutions;
+
+  // Sequence number of the last change of the executions, oldest first. Guarded by this.
+  private final LinkedHashMap<Integer, Long> lastChanges = new LinkedHashMap<>();
+  private long sequence = 0;
+  // Changes up to this sequence number are forgotten
+  private long forgottenSequence = 0;
+
+  @Inject
+  public ExecutionChangeFeed(final Props azkProps) {
+    this.maxExecutions = azkProps.getInt(
+        ConfigurationKeys.AZKABAN_EXECUTOR_CHANGE_FEED_MAX_EXECUTIONS,
+        Constants.DEFAULT_AZKABAN_EXECUTOR_CHANGE_FEED_MAX_EXECUTIONS);
+  }
+
+  public String getFeedId() {
+    return this.feedId;
+  }
+
+  public synchronized long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Records a change of the execution, and wakes up the requests waiting for changes.
+   */
+  public synchronized void recordChange(final int execId) {
+    this.sequence++;
+    // Moves the execution to the end of the map
+    this.lastChanges.remove(execId);
+    this.lastChanges.put(execId, this.sequence);
+    if (this.lastChanges.size() > this.maxExecutions) {
+      final Map.Entry<Integer, Long> oldest = this.lastChanges.entrySet().iterator().next();
+      this.forgottenSequence = oldest.getValue();
+      this.lastChanges.remove(oldest.getKey());
+    }
+    notifyAll();
+  }
+
+  /**
+   * Waits until an execution changes after the sequence number, or the timeout expires.
+   *
+   * @param feedId id of the feed the sequence number comes from, null if unknown.
+   * @param sequence sequence number of the last change known by the caller.
+   * @param timeoutMs max time to wait for a change, capped to 30 seconds. 0 doesn't wait.
+   */
+  public synchronized Changes getChanges(final String feedId, final long sequence,
+      final long timeoutMs) throws InterruptedException {
+    if (!this.feedId.equals(feedId) || sequence > this.sequence
+        || sequence < this.forgottenSequence) {
+      return new Changes(this.feedId, this.sequence, true, new ArrayList<>());
+    }
+
+    final long deadline = System.currentTimeMillis() + Math.min(timeoutMs, MAX_TIMEOUT_MS);
+    long remainingMs = deadline - System.currentTimeMillis();
+    while (this.sequence == sequence && remainingMs > 0) {
+      wait(remainingMs);
+      remainingMs = deadline - System.currentTimeMillis();
+    }
+    if (sequence < this.forgottenSequence) {
+      return new Changes(this.feedId, this.sequence, true, new ArrayList<>());
+    }
+
+    final List<Integer> changedExecIds = new ArrayList<>();
+    for (final Map.Entry<Integer, Long> lastChange : this.lastChanges.entrySet()) {
+      if (lastChange.getValue() > sequence) {
+        changedExecIds.add(lastChange.getKey());
+      }
+    }
+    return new Changes(this.feedId, this.sequence, false, changedExecIds);
+  }
+
+  /**
+   * The executions changed after a sequence number.
+   */
+  public static class Changes {
+
+    private final String feedId;
+    private final long sequence;
+    private final boolean reset;
+    private final List<Integer> changedExecIds;
+
+    private Changes(final String feedId, final long sequence, final boolean reset,
+        final List<Integer> changedExecIds) {
+      this.feedId = feedId;
+      this.sequence = sequence;
+      this.reset = reset;
+      this.changedExecIds = changedExecIds;
+    }
+
+    /**
+     * @return the id of the feed, to send with the next request.
+     */
+    public String getFeedId() {
+      return this.feedId;
+    }
+
+    /**
+     * @return the sequence number of the last change, to send with the next request.
+     */
+    public long getSequence() {
+      return this.sequence;
+    }
+
+    /**
+     * @return true if the changes are unknown, and all the running executions must be updated.
+     */
+    public boolean isReset() {
+      return this.reset;
+    }
+
+    public List<Integer> getChangedExecIds() {
+      return this.changedExecIds;
+    }
+
+    public Map<String, Object> toObject() {
+      final Map<String, Object> changes = new HashMap<>();
+      changes.put(ConnectorParams.CHANGES_FEED_PARAM, this.feedId);
+      changes.put(ConnectorParams.CHANGES_SEQUENCE_PARAM, this.sequence);
+      changes.put(ConnectorParams.RESPONSE_CHANGES_RESET, this.reset);
+      changes.put(ConnectorParams.RESPONSE_CHANGED_EXECUTIONS, this.changedExecIds);
+      return changes;
+    }
+  }
+}
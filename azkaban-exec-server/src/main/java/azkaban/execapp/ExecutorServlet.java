@@ -27,8 +27,12 @@ import azkaban.executor.ExecutorManagerException;
 import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -120,6 +124,13 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
           setActive(false, respMap);
         } else if (action.equals(ConnectorParams.SHUTDOWN)) {
           shutdown(respMap);
+        } else if (action.equals(ConnectorParams.WAKEUP_ACTION)) {
+          this.flowRunnerManager.wakeUpPolling();
+          respMap.put(ConnectorParams.STATUS_PARAM, ConnectorParams.RESPONSE_SUCCESS);
+        } else if (action.equals(ConnectorParams.CHANGES_ACTION)) {
+          handleAjaxChangesRequest(req, respMap);
+        } else if (action.equals(ConnectorParams.PREFETCH_ACTION)) {
+          handleAjaxPrefetchRequest(req, respMap);
         } else {
           final int execid = Integer.parseInt(getParam(req, ConnectorParams.EXECID_PARAM));
           final String user = getParam(req, ConnectorParams.USER_PARAM, null);
@@ -130,6 +141,10 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
             handleFetchMetaDataEvent(execid, req, resp, respMap);
           } else if (action.equals(ConnectorParams.LOG_ACTION)) {
             handleFetchLogEvent(execid, req, resp, respMap);
+          } else if (action.equals(ConnectorParams.LOG_STREAM_ACTION)) {
+            // The response is the stream, not a JSON object
+            handleLogStreamEvent(execid, req, resp);
+            return;
           } else if (action.equals(ConnectorParams.ATTACHMENTS_ACTION)) {
             handleFetchAttachmentsEvent(execid, req, resp, respMap);
           } else if (action.equals(ConnectorParams.EXECUTE_ACTION)) {
@@ -213,6 +228,46 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     }
   }
 
+  /**
+   * Streams the log as server-sent events, see {@link JobLogStreamer}. Errors are sent as an
+   * {@code error} event, after which the client should fetch the log by ranges.
+   */
+  private void handleLogStreamEvent(final int execId, final HttpServletRequest req,
+      final HttpServletResponse resp) throws IOException {
+    resp.setContentType(ConnectorParams.LOG_STREAM_CONTENT_TYPE);
+    resp.setCharacterEncoding("utf-8");
+    // Unlike the writer of the response, the output stream reports a client gone away
+    final Writer writer =
+        new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8);
+    try {
+      final String type = getParam(req, "type");
+      final int startByte = getIntParam(req, "offset");
+      final boolean streamed;
+      if (type.equals("flow")) {
+        streamed = this.flowRunnerManager.streamFlowLogs(execId, startByte, writer);
+      } else {
+        final int attempt = getIntParam(req, "attempt", 0);
+        final String jobId = getParam(req, "jobId");
+        streamed = this.flowRunnerManager
+            .streamJobLogs(execId, jobId, attempt, startByte, writer);
+      }
+      if (!streamed) {
+        JobLogStreamer.writeEvent(writer, ConnectorParams.LOG_STREAM_EVENT_ERROR,
+            ImmutableMap.of(ConnectorParams.RESPONSE_ERROR, "Too many log streams"));
+      }
+    } catch (final ServletException | ExecutorManagerException e) {
+      logger.error(e.getMessage(), e);
+      JobLogStreamer.writeEvent(writer, ConnectorParams.LOG_STREAM_EVENT_ERROR,
+          ImmutableMap.of(ConnectorParams.RESPONSE_ERROR, String.valueOf(e.getMessage())));
+    } catch (final IOException e) {
+      logger.info("Log stream of execution " + execId + " closed by the client: "
+          + e.getMessage());
+    } catch (final InterruptedException e) {
+      logger.info("Log stream of execution " + execId + " interrupted");
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private void handleFetchAttachmentsEvent(final int execId, final HttpServletRequest req,
       final HttpServletResponse resp, final Map<String, Object> respMap)
       throws ServletException {
@@ -282,6 +337,35 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     respMap.put(ConnectorParams.RESPONSE_UPDATED_FLOWS, updateList);
   }
 
+  /**
+   * Waits for the executions changed after the given sequence number of the change feed, for at
+   * most the given timeout.
+   */
+  private void handleAjaxChangesRequest(final HttpServletRequest req,
+      final Map<String, Object> respMap) throws ServletException, InterruptedException {
+    final String feedId = getParam(req, ConnectorParams.CHANGES_FEED_PARAM, null);
+    final long sequence = getLongParam(req, ConnectorParams.CHANGES_SEQUENCE_PARAM);
+    final long timeoutMs = getLongParam(req, ConnectorParams.CHANGES_TIMEOUT_PARAM, 0);
+    respMap.putAll(
+        this.flowRunnerManager.getExecutionChanges(feedId, sequence, timeoutMs).toObject());
+  }
+
+  /**
+   * Queues the download of the given projects into the project cache, in the given order.
+   */
+  private void handleAjaxPrefetchRequest(final HttpServletRequest req,
+      final Map<String, Object> respMap) throws ServletException, IOException {
+    final List<Object> projects = (List<Object>) JSONUtils.parseJSONFromString(getParam(req,
+        ConnectorParams.PREFETCH_PROJECTS_PARAM));
+    for (final Object o : projects) {
+      final Map<String, Object> project = (Map<String, Object>) o;
+      this.flowRunnerManager.prefetchProject(
+          (Integer) project.get(ConnectorParams.PREFETCH_PROJECT_ID),
+          (Integer) project.get(ConnectorParams.PREFETCH_VERSION));
+    }
+    respMap.put(ConnectorParams.STATUS_PARAM, ConnectorParams.RESPONSE_SUCCESS);
+  }
+
   private void handleAjaxExecute(final HttpServletRequest req,
       final Map<String, Object> respMap, final int execId) {
     try {
@@ -456,4 +540,23 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
 
     return defaultVal;
   }
+
+  public long getLongParam(final HttpServletRequest request, final String name)
+      throws ServletException {
+    final String p = getParam(request, name);
+    return Long.parseLong(p);
+  }
+
+  public long getLongParam(final HttpServletRequest request, final String name,
+      final long defaultVal) {
+    if (hasParam(request, name)) {
+      try {
+        return getLongParam(request, name);
+      } catch (final Exception e) {
+        return defaultVal;
+      }
+    }
+
+    return defaultVal;
+  }
 }
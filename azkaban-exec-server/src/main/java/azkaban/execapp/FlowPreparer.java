@@ -18,8 +18,8 @@ package azkaban.execapp;
 
 import static azkaban.utils.ThinArchiveUtils.getDependencyFile;
 import static com.google.common.base.Preconditions.checkState;
-import static java.util.Objects.requireNonNull;
 
+import azkaban.Constants;
 import azkaban.execapp.metric.ProjectCacheHitRatio;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutorManagerException;
@@ -31,18 +31,31 @@ import azkaban.utils.DependencyTransferException;
 import azkaban.utils.DependencyTransferManager;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.Utils;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.stream.Collectors;
-import java.util.zip.ZipFile;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,23 +68,52 @@ class FlowPreparer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FlowPreparer.class);
 
+  // Number of stripes of the project dir locks
+  private static final int PROJECT_DIR_LOCK_STRIPES = 64;
+
+  // Execution id logged for the projects downloaded ahead of their executions
+  private static final int PREFETCH_EXEC_ID = -1;
+
   // TODO spyne: move to config class
   private final File executionsDir;
   // TODO spyne: move to config class
   private final File projectCacheDir;
   private final ProjectStorageManager projectStorageManager;
-  // Null if cache clean-up is disabled
+  // Empty if cache clean-up is disabled
   private final Optional<ProjectCacheCleaner> projectCacheCleaner;
   private final ProjectCacheHitRatio projectCacheHitRatio;
   private final DependencyTransferManager dependencyTransferManager;
+  // Empty if the dependency cache is disabled
+  private final Optional<DependencyCache> dependencyCache;
+  // Guards the project dirs when cache clean-up is disabled. Otherwise the locks of the cleaner
+  // are used, since it evicts project dirs too.
+  private final Striped<ReadWriteLock> projectDirLocks =
+      Striped.readWriteLock(PROJECT_DIR_LOCK_STRIPES);
+  // Unzips the project files and hard-links the project dirs into the execution dirs
+  private final ExecutorService projectDirService;
+  private final Timer flowSetupLockWaitTimer;
+  private final Timer flowSetupCriticalSectionTimer;
+  // Size of the prefetched project dirs not used by an execution yet, by project dir
+  private final Map<Path, Long> unusedPrefetchedProjects = new ConcurrentHashMap<>();
 
   FlowPreparer(final ProjectStorageManager projectStorageManager, final DependencyTransferManager dependencyTransferManager,
       final File projectsDir, final ProjectCacheCleaner cleaner, final ProjectCacheHitRatio projectCacheHitRatio,
       final File executionsDir) {
+    this(projectStorageManager, dependencyTransferManager, projectsDir, cleaner, projectCacheHitRatio,
+        executionsDir, null, Constants.DEFAULT_AZKABAN_FLOW_PREPARATION_THREADS, new Timer(),
+        new Timer());
+  }
+
+  FlowPreparer(final ProjectStorageManager projectStorageManager, final DependencyTransferManager dependencyTransferManager,
+      final File projectsDir, final ProjectCacheCleaner cleaner, final ProjectCacheHitRatio projectCacheHitRatio,
+      final File executionsDir, final DependencyCache dependencyCache, final int numProjectDirThreads,
+      final Timer flowSetupLockWaitTimer, final Timer flowSetupCriticalSectionTimer) {
     Preconditions.checkNotNull(projectStorageManager);
     Preconditions.checkNotNull(executionsDir);
     Preconditions.checkNotNull(projectsDir);
     Preconditions.checkNotNull(projectCacheHitRatio);
+    Preconditions.checkNotNull(flowSetupLockWaitTimer);
+    Preconditions.checkNotNull(flowSetupCriticalSectionTimer);
 
     Preconditions.checkArgument(projectsDir.exists());
     Preconditions.checkArgument(executionsDir.exists());
@@ -82,6 +124,11 @@ class FlowPreparer {
     this.projectCacheCleaner = Optional.ofNullable(cleaner);
     this.projectCacheHitRatio = projectCacheHitRatio;
     this.dependencyTransferManager = dependencyTransferManager;
+    this.dependencyCache = Optional.ofNullable(dependencyCache);
+    this.projectDirService = Executors.newFixedThreadPool(numProjectDirThreads,
+        new ThreadFactoryBuilder().setNameFormat("azk-project-dir-%d").setDaemon(true).build());
+    this.flowSetupLockWaitTimer = flowSetupLockWaitTimer;
+    this.flowSetupCriticalSectionTimer = flowSetupCriticalSectionTimer;
   }
 
   /**
@@ -105,6 +152,13 @@ class FlowPreparer {
   /**
    * Prepare the flow directory for execution.
    *
+   * <p>Only the preparations of the same project version wait for each other: a project dir is
+   * write-locked while it's installed or evicted, and read-locked while it's hard-linked into an
+   * execution dir. It's downloaded again if it was evicted before it could be locked. But it
+   * doesn't prevent multiple executor processes interfering with each other triggering race
+   * conditions. So it's important to operationally make sure that only one executor process is
+   * setting up flow execution against the shared project directory.</p>
+   *
    * @param flow Executable Flow instance.
    */
   void setup(final ExecutableFlow flow) throws ExecutorManagerException {
@@ -116,43 +170,40 @@ class FlowPreparer {
           flow.getVersion());
 
       final long flowPrepStartTime = System.currentTimeMillis();
-
-      tempDir = downloadProjectIfNotExists(project, flow.getExecutionId());
-
-      LOGGER.info("Project is setup for execution {}", flow.getExecutionId());
-      // With synchronization, only one thread is allowed to proceed to avoid complicated race
-      // conditions which could arise when multiple threads are downloading/deleting/hard-linking
-      // the same project. But it doesn't prevent multiple executor processes interfering with each
-      // other triggering race conditions. So it's important to operationally make sure that only
-      // one executor process is setting up flow execution against the shared project directory.
-      long criticalSectionStartTime = -1;
+      long criticalSectionTime = 0;
       File execDir = null;
 
-      synchronized (this) {
+      while (execDir == null) {
+        tempDir = downloadProjectIfNotExists(project, flow.getExecutionId());
+        if (tempDir != null) {
+          installProject(project, tempDir);
+          tempDir = null;
+        }
+
         LOGGER.info("Setting up execution dir for {}", flow.getExecutionId());
-        criticalSectionStartTime = System.currentTimeMillis();
-        if (!project.getInstalledDir().exists() && tempDir != null) {
-          // If new project is downloaded and project dir cache clean-up feature is enabled, then
-          // perform clean-up if size of all project dirs exceeds the cache size.
-          if (this.projectCacheCleaner.isPresent()) {
-            this.projectCacheCleaner.get()
-                .deleteProjectDirsIfNecessary(project.getDirSizeInByte());
+        final Lock lock = lockProjectDir(project, false);
+        try {
+          final long start = System.currentTimeMillis();
+          if (project.getInstalledDir().exists()) {
+            execDir = setupExecutionDir(project.getInstalledDir(), flow);
+          } else {
+            LOGGER.info("Project {} was evicted before execution {} could use it", project,
+                flow.getExecutionId());
           }
-          // Rename temp dir to a proper project directory name.
-          Files.move(tempDir.toPath(), project.getInstalledDir().toPath());
+          final long end = System.currentTimeMillis();
+          criticalSectionTime += end - start;
+          this.flowSetupCriticalSectionTimer.update(end - start, TimeUnit.MILLISECONDS);
+        } finally {
+          lock.unlock();
         }
-
-        final long start = System.currentTimeMillis();
-        execDir = setupExecutionDir(project.getInstalledDir(), flow);
-        final long end = System.currentTimeMillis();
-        LOGGER.info("Setting up execution dir {} took {} sec(s)", execDir, (end - start) / 1000);
       }
+      LOGGER.info("Project is setup for execution {}", flow.getExecutionId());
 
       final long flowPrepCompletionTime = System.currentTimeMillis();
       LOGGER.info("Flow preparation completed in {} sec(s), out ot which {} sec(s) was spent inside "
               + "critical section. [execid: {}, path: {}]",
           (flowPrepCompletionTime - flowPrepStartTime) / 1000,
-          (flowPrepCompletionTime - criticalSectionStartTime) / 1000,
+          criticalSectionTime / 1000,
           flow.getExecutionId(), execDir.getPath());
     } catch (final Exception ex) {
       FileIOUtils.deleteDirectorySilently(tempDir);
@@ -165,13 +216,143 @@ class FlowPreparer {
     }
   }
 
+  /**
+   * Move a downloaded project to its project dir, unless another execution installed it
+   * meanwhile.
+   *
+   * @param project project downloaded
+   * @param tempDir the temp dir where the project was downloaded to
+   */
+  private void installProject(final ProjectDirectoryMetadata project, final File tempDir)
+      throws IOException {
+    // If project dir cache clean-up feature is enabled, then perform clean-up if size of all
+    // project dirs exceeds the cache size. This is done before locking the project dir since the
+    // cleaner locks the project dirs it evicts.
+    if (this.projectCacheCleaner.isPresent()) {
+      this.projectCacheCleaner.get().deleteProjectDirsIfNecessary(project.getDirSizeInByte());
+    }
+    moveToProjectDir(project, tempDir);
+  }
+
+  /**
+   * Rename a downloaded project to its project dir, or delete it if the project dir exists.
+   *
+   * @return true if the project dir was created
+   */
+  private boolean moveToProjectDir(final ProjectDirectoryMetadata project, final File tempDir)
+      throws IOException {
+    final Lock lock = lockProjectDir(project, true);
+    try {
+      if (project.getInstalledDir().exists()) {
+        LOGGER.info("Project {} was installed by another execution meanwhile", project);
+        FileIOUtils.deleteDirectorySilently(tempDir);
+        return false;
+      }
+      // Rename temp dir to a proper project directory name.
+      Files.move(tempDir.toPath(), project.getInstalledDir().toPath(),
+          StandardCopyOption.ATOMIC_MOVE);
+      if (this.projectCacheCleaner.isPresent()) {
+        this.projectCacheCleaner.get().recordInstall(project.getInstalledDir().toPath(),
+            project.getDirSizeInByte());
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Download a project into the project cache ahead of its executions, unless it's cached
+   * already.
+   *
+   * <p>Unlike the projects downloaded for an execution, a prefetched project never makes the
+   * cleaner evict other projects: it's discarded if it doesn't fit below the high watermark of
+   * the cache, or if the prefetched projects not used yet would exceed the disk budget.</p>
+   *
+   * @param diskBudgetInBytes max size of the prefetched projects not used by an execution yet
+   * @param rateLimiter limits the download rate, in bytes per second
+   * @return true if the project was installed in the project cache
+   */
+  boolean prefetchProject(final int projectId, final int version, final long diskBudgetInBytes,
+      final RateLimiter rateLimiter) throws IOException {
+    final ProjectDirectoryMetadata project = new ProjectDirectoryMetadata(projectId, version);
+    project.setInstalledDir(new File(this.projectCacheDir, generateProjectDirName(project)));
+    if (project.getInstalledDir().exists()) {
+      return false;
+    }
+    if (!hasRoomForPrefetchedProject(0, diskBudgetInBytes)) {
+      LOGGER.info("No room left in the project cache to prefetch project {}", project);
+      return false;
+    }
+
+    final File tempDir = createTempDir(project);
+    try {
+      downloadAndUnzipProject(project, PREFETCH_EXEC_ID, tempDir, rateLimiter);
+      if (!hasRoomForPrefetchedProject(project.getDirSizeInByte(), diskBudgetInBytes)) {
+        LOGGER.info("Discarding prefetched project {} of {} bytes which doesn't fit in the "
+            + "project cache", project, project.getDirSizeInByte());
+        FileIOUtils.deleteDirectorySilently(tempDir);
+        return false;
+      }
+      if (!moveToProjectDir(project, tempDir)) {
+        return false;
+      }
+    } catch (final IOException | RuntimeException e) {
+      FileIOUtils.deleteDirectorySilently(tempDir);
+      throw e;
+    }
+    this.unusedPrefetchedProjects.put(project.getInstalledDir().toPath(),
+        project.getDirSizeInByte());
+    LOGGER.info("Prefetched project {} of {} bytes", project, project.getDirSizeInByte());
+    return true;
+  }
+
+  private boolean hasRoomForPrefetchedProject(final long sizeInBytes,
+      final long diskBudgetInBytes) {
+    // Forget the prefetched projects evicted before any execution used them.
+    this.unusedPrefetchedProjects.keySet().removeIf(dir -> !Files.exists(dir));
+    long unusedSizeInBytes = 0;
+    for (final long size : this.unusedPrefetchedProjects.values()) {
+      unusedSizeInBytes += size;
+    }
+    if (unusedSizeInBytes + sizeInBytes > diskBudgetInBytes) {
+      return false;
+    }
+    return !this.projectCacheCleaner.isPresent()
+        || this.projectCacheCleaner.get().hasRoomFor(sizeInBytes);
+  }
+
+  /**
+   * Lock a project dir, and record the time spent waiting for the lock.
+   *
+   * @param project project whose dir is locked
+   * @param exclusive true to install or delete the project dir, false to read it
+   * @return the acquired lock
+   */
+  private Lock lockProjectDir(final ProjectDirectoryMetadata project, final boolean exclusive) {
+    final Path projectDir = project.getInstalledDir().toPath();
+    final ReadWriteLock projectDirLock = this.projectCacheCleaner.isPresent()
+        ? this.projectCacheCleaner.get().getProjectDirLock(projectDir)
+        : this.projectDirLocks.get(projectDir);
+    final Lock lock = exclusive ? projectDirLock.writeLock() : projectDirLock.readLock();
+
+    final long start = System.currentTimeMillis();
+    lock.lock();
+    this.flowSetupLockWaitTimer.update(System.currentTimeMillis() - start, TimeUnit.MILLISECONDS);
+    return lock;
+  }
+
   private File setupExecutionDir(final File installedDir, final ExecutableFlow flow)
       throws IOException {
     File execDir = null;
     try {
       execDir = createExecDir(flow);
+      final long start = System.currentTimeMillis();
       // Create hardlinks from the project
-      FileIOUtils.createDeepHardlink(installedDir, execDir);
+      final int linkCount = FileIOUtils.createDeepHardlink(installedDir, execDir,
+          this.projectDirService);
+      LOGGER.info("Setting up execution dir {} with {} hard links took {} sec(s)", execDir,
+          linkCount, (System.currentTimeMillis() - start) / 1000);
       return execDir;
     } catch (final Exception ex) {
       FileIOUtils.deleteDirectorySilently(execDir);
@@ -211,30 +392,48 @@ class FlowPreparer {
   @VisibleForTesting
   void downloadAndUnzipProject(final ProjectDirectoryMetadata proj, final int execId, final File dest)
       throws IOException {
+    downloadAndUnzipProject(proj, execId, dest, null);
+  }
+
+  /**
+   * @param rateLimiter limits the rate the project file is read at, in bytes per second. Null
+   * for no limit.
+   */
+  private void downloadAndUnzipProject(final ProjectDirectoryMetadata proj, final int execId,
+      final File dest, final RateLimiter rateLimiter) throws IOException {
     final long start = System.currentTimeMillis();
-    final ProjectFileHandler projectFileHandler = requireNonNull(this.projectStorageManager
-        .getProjectFile(proj.getProjectId(), proj.getVersion()));
-    LOGGER.info("Downloading zip file for project {} when preparing "
+    final ProjectFileHandler projectFileHandler = this.projectStorageManager
+        .getProjectFileMetadata(proj.getProjectId(), proj.getVersion());
+    checkState("zip".equalsIgnoreCase(projectFileHandler.getFileType()));
+
+    // The zip file is unzipped while it's downloaded rather than stored locally first, and the
+    // size of the project directory is counted along the way rather than by walking it later.
+    long dirSizeInByte;
+    try (final InputStream zipStream = rateLimiter == null
+        ? this.projectStorageManager.getProjectFileInputStream(projectFileHandler)
+        : new RateLimitedInputStream(
+            this.projectStorageManager.getProjectFileInputStream(projectFileHandler),
+            rateLimiter)) {
+      dirSizeInByte = Utils.unzip(zipStream, dest, this.projectDirService);
+    }
+    LOGGER.info("Downloading and unzipping zip file for project {} when preparing "
             + "execution [execid {}] completed in {} second(s)", proj, execId,
         (System.currentTimeMillis() - start) / 1000);
 
-    try {
-      checkState("zip".equalsIgnoreCase(projectFileHandler.getFileType()));
-      final File zipFile = requireNonNull(projectFileHandler.getLocalFile());
-      final ZipFile zip = new ZipFile(zipFile);
-      Utils.unzip(zip, dest);
-
-      // Download all startup dependencies. If this is a fat archive, it will be an empty set (so we won't download
-      // anything). Note that we are getting our list of startup dependencies from the DB, NOT from the
-      // startup-dependencies.json file contained in the archive. Both should be IDENTICAL, however we chose to get the
-      // list from the DB because this will be consistent with how containerized executions determine the startup
-      // dependency list.
-      downloadAllDependencies(proj, execId, dest, projectFileHandler.getStartupDependencies());
-
-      proj.setDirSizeInByte(calculateDirSizeAndSave(dest));
-    } finally {
-      projectFileHandler.deleteLocalFile();
+    // Download all startup dependencies. If this is a fat archive, it will be an empty set (so we won't download
+    // anything). Note that we are getting our list of startup dependencies from the DB, NOT from the
+    // startup-dependencies.json file contained in the archive. Both should be IDENTICAL, however we chose to get the
+    // list from the DB because this will be consistent with how containerized executions determine the startup
+    // dependency list.
+    final Set<Dependency> dependencies = projectFileHandler.getStartupDependencies();
+    downloadAllDependencies(proj, execId, dest, dependencies);
+    for (final Dependency d : dependencies) {
+      dirSizeInByte += getDependencyFile(dest, d).getFile().length();
     }
+
+    FileIOUtils.dumpNumberToFile(Paths.get(dest.getPath(), PROJECT_DIR_SIZE_FILE_NAME),
+        dirSizeInByte);
+    proj.setDirSizeInByte(dirSizeInByte);
   }
 
   /**
@@ -256,7 +455,11 @@ class FlowPreparer {
 
     try {
       final long start = System.currentTimeMillis();
-      this.dependencyTransferManager.downloadAllDependencies(depFiles);
+      if (this.dependencyCache.isPresent()) {
+        this.dependencyCache.get().installDependencies(depFiles);
+      } else {
+        this.dependencyTransferManager.downloadAllDependencies(depFiles);
+      }
       LOGGER.info("Downloading {} JAR dependencies for project {} when preparing "
               + "execution [execid {}] completed in {} second(s)", dependencies.size(), proj, execId,
           (System.currentTimeMillis() - start) / 1000);
@@ -288,9 +491,13 @@ class FlowPreparer {
       LOGGER.info("Project {} already cached. Skipping download. ExecId: {}", proj, execId);
       // Hit the local cache.
       this.projectCacheHitRatio.markHit();
+      this.unusedPrefetchedProjects.remove(proj.getInstalledDir().toPath());
+      if (this.projectCacheCleaner.isPresent()) {
+        this.projectCacheCleaner.get().recordAccess(proj.getInstalledDir().toPath());
+      }
       // Update last modified time of the file keeping project dir size when the project is
-      // accessed. This last modified time will be used to determined least recently used
-      // projects when performing project directory clean-up.
+      // accessed. This last modified time orders the project dirs missing from the journal of
+      // the cleaner when it's loaded.
       updateLastModifiedTime(
           Paths.get(proj.getInstalledDir().getPath(), PROJECT_DIR_SIZE_FILE_NAME));
       return null;
@@ -317,5 +524,40 @@ class FlowPreparer {
     if (projectCacheCleaner.isPresent()) {
       this.projectCacheCleaner.get().shutdown();
     }
+    if (this.dependencyCache.isPresent()) {
+      this.dependencyCache.get().shutdown();
+    }
+    this.projectDirService.shutdownNow();
+  }
+
+  /**
+   * Input stream reading at most as many bytes per second as the permits of a rate limiter.
+   */
+  private static class RateLimitedInputStream extends FilterInputStream {
+
+    private final RateLimiter rateLimiter;
+
+    RateLimitedInputStream(final InputStream in, final RateLimiter rateLimiter) {
+      super(in);
+      this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = super.read();
+      if (b >= 0) {
+        this.rateLimiter.acquire();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      final int n = super.read(b, off, len);
+      if (n > 0) {
+        this.rateLimiter.acquire(n);
+      }
+      return n;
+    }
   }
 }
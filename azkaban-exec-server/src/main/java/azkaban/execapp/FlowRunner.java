@@ -21,13 +21,17 @@ import static azkaban.Constants.ConfigurationKeys.AZKABAN_WEBSERVER_EXTERNAL_HOS
 import static azkaban.execapp.ConditionalWorkflowUtils.FAILED;
 import static azkaban.execapp.ConditionalWorkflowUtils.PENDING;
 import static azkaban.execapp.ConditionalWorkflowUtils.checkConditionOnJobStatus;
-import static azkaban.project.DirectoryYamlFlowLoader.CONDITION_ON_JOB_STATUS_PATTERN;
-import static azkaban.project.DirectoryYamlFlowLoader.CONDITION_VARIABLE_REPLACEMENT_PATTERN;
 
 import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.Constants.JobProperties;
 import azkaban.ServiceProvider;
+import azkaban.dag.Dag;
+import azkaban.dag.DagBuilder;
+import azkaban.dag.DagProcessor;
+import azkaban.dag.DagService;
+import azkaban.dag.Node;
+import azkaban.dag.NodeProcessor;
 import azkaban.event.Event;
 import azkaban.event.EventData;
 import azkaban.event.EventHandler;
@@ -61,6 +65,7 @@ import azkaban.project.ProjectManagerException;
 import azkaban.sla.SlaOption;
 import azkaban.spi.AzkabanEventReporter;
 import azkaban.spi.EventType;
+import azkaban.utils.LogSegmentUtils;
 import azkaban.utils.Props;
 import azkaban.utils.SwapQueue;
 import com.google.common.annotations.VisibleForTesting;
@@ -71,10 +76,6 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
-import java.security.AccessControlContext;
-import java.security.AccessController;
-import java.security.PrivilegedExceptionAction;
-import java.security.ProtectionDomain;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -84,14 +85,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.regex.Matcher;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
@@ -155,6 +154,31 @@ public class FlowRunner extends EventHandler implements Runnable {
   private volatile boolean flowIsRamping = false;
   private volatile long flowKillTime = -1;
 
+  // The compiled conditions of the conditional jobs, by condition.
+  private final Map<String, ConditionExpression> conditionExpressions =
+      new ConcurrentHashMap<>();
+
+  // Incremental persistence of the flow state. See ExecutionFlowDeltaDao.
+  private final boolean flowDeltaUpdatesEnabled;
+  private final int flowDeltaCompactionInterval;
+  private int flowDeltaSeq = 0;
+  private long lastFlowUpdateTime = -1;
+  // Coalesces full flow updates with the ones of other executions. Null to write synchronously.
+  private FlowUpdateWriter flowUpdateWriter;
+  // Uploads the job logs while the jobs run. Null to upload them when the jobs finish.
+  private JobLogShipper jobLogShipper;
+  // Writes the flow and job logs on a background thread. Null to write them synchronously.
+  private AsyncLogWriter asyncLogWriter;
+  // Tells the web server which executions changed. Null if the changes aren't recorded.
+  private ExecutionChangeFeed changeFeed;
+  // Progresses the flow on the event driven dag engine. Null to use the polling loop of runFlow().
+  private DagService dagService;
+  // The dag of the flow, set once it is started on the dag engine.
+  private volatile Dag dag;
+  private final Map<String, Node> dagNodes = new HashMap<>();
+  // The dag transitions and the finished jobs, handled in order by the flow runner thread.
+  private final BlockingDeque<DagEvent> dagEvents = new LinkedBlockingDeque<>();
+
   // For flow related metrics
   private final CommonMetrics commonMetrics;
   private final ExecMetrics execMetrics;
@@ -204,6 +228,11 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.alerterHolder = alerterHolder;
     this.commonMetrics = commonMetrics;
     this.execMetrics = execMetrics;
+    this.flowDeltaUpdatesEnabled = azkabanProps
+        .getBoolean(ConfigurationKeys.AZKABAN_FLOW_DELTA_UPDATES_ENABLED, false);
+    this.flowDeltaCompactionInterval = azkabanProps
+        .getInt(ConfigurationKeys.AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL,
+            Constants.DEFAULT_AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL);
 
     // Add the flow listener only if a non-null eventReporter is available.
     if (azkabanEventReporter != null) {
@@ -241,6 +270,37 @@ public class FlowRunner extends EventHandler implements Runnable {
     return this;
   }
 
+  public FlowRunner setFlowUpdateWriter(final FlowUpdateWriter flowUpdateWriter) {
+    this.flowUpdateWriter = flowUpdateWriter;
+    return this;
+  }
+
+  public FlowRunner setJobLogShipper(final JobLogShipper jobLogShipper) {
+    this.jobLogShipper = jobLogShipper;
+    return this;
+  }
+
+  public FlowRunner setAsyncLogWriter(final AsyncLogWriter asyncLogWriter) {
+    this.asyncLogWriter = asyncLogWriter;
+    return this;
+  }
+
+  public FlowRunner setDagService(final DagService dagService) {
+    this.dagService = dagService;
+    return this;
+  }
+
+  public FlowRunner setChangeFeed(final ExecutionChangeFeed changeFeed) {
+    this.changeFeed = changeFeed;
+    return this;
+  }
+
+  private void recordChange() {
+    if (this.changeFeed != null) {
+      this.changeFeed.recordChange(this.execId);
+    }
+  }
+
   public File getExecutionDir() {
     return this.execDir;
   }
@@ -388,12 +448,40 @@ public class FlowRunner extends EventHandler implements Runnable {
   private synchronized void updateFlow(final long time) {
     try {
       this.flow.setUpdateTime(time);
-      this.executorLoader.updateExecutableFlow(this.flow);
+      recordChange();
+      if (!this.flowDeltaUpdatesEnabled) {
+        if (this.flowUpdateWriter != null) {
+          this.flowUpdateWriter.updateExecutableFlow(this.flow);
+        } else {
+          this.executorLoader.updateExecutableFlow(this.flow);
+        }
+      } else if (shouldCompactFlowDeltas()) {
+        this.executorLoader.compactExecutableFlowDeltas(this.flow);
+        this.flowDeltaSeq = 0;
+        // Nodes updated within the same millisecond are included in the next delta again.
+        this.lastFlowUpdateTime = time - 1;
+      } else {
+        this.executorLoader
+            .updateExecutableFlowDelta(this.flow, this.flowDeltaSeq + 1, this.lastFlowUpdateTime);
+        this.flowDeltaSeq++;
+        this.lastFlowUpdateTime = time - 1;
+      }
     } catch (final ExecutorManagerException e) {
       this.logger.error("Error updating flow.", e);
     }
   }
 
+  /**
+   * The first update of a run rewrites the flow data to start from a clean change log, the last
+   * one leaves a complete flow data behind. In between, deltas are compacted every
+   * flowDeltaCompactionInterval updates to bound the work of readers.
+   */
+  private boolean shouldCompactFlowDeltas() {
+    return this.lastFlowUpdateTime < 0
+        || this.flowDeltaSeq >= this.flowDeltaCompactionInterval
+        || Status.isStatusFinished(this.flow.getStatus());
+  }
+
   /**
    * setup logger and execution dir for the flowId
    */
@@ -409,7 +497,9 @@ public class FlowRunner extends EventHandler implements Runnable {
 
     this.flowAppender = null;
     try {
-      this.flowAppender = new FileAppender(this.loggerLayout, absolutePath, false);
+      final FileAppender fileAppender = new FileAppender(this.loggerLayout, absolutePath, false);
+      this.flowAppender = this.asyncLogWriter == null ? fileAppender
+          : this.asyncLogWriter.wrap(fileAppender);
       this.logger.addAppender(this.flowAppender);
     } catch (final IOException e) {
       this.logger.error("Could not open log file in " + this.execDir, e);
@@ -456,6 +546,10 @@ public class FlowRunner extends EventHandler implements Runnable {
    * Main method that executes the jobs.
    */
   private void runFlow() throws Exception {
+    if (isRunOnDagEngine()) {
+      runDagFlow();
+      return;
+    }
     this.logger.info("Starting flows");
     runReadyJob(this.flow);
     updateFlow();
@@ -489,6 +583,161 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.logger.info("Finished Flow");
   }
 
+  private boolean isRunOnDagEngine() {
+    return this.dagService != null && isDagEngineSupported();
+  }
+
+  /**
+   * The dag engine runs flows made of jobs only. Embedded flows and conditions are left to the
+   * polling loop of runFlow().
+   */
+  private boolean isDagEngineSupported() {
+    for (final ExecutableNode node : this.flow.getExecutableNodes()) {
+      if (node instanceof ExecutableFlowBase || node.getCondition() != null
+          || node.getConditionOnJobStatus() != ConditionOnJobStatus.ALL_SUCCESS) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Executes the jobs on the dag engine. The dag service starts each job as soon as its
+   * dependencies have succeeded, so the flow runner thread only waits for the resulting events
+   * instead of scanning the finished jobs.
+   */
+  private void runDagFlow() throws Exception {
+    this.logger.info("Starting flows on the dag engine");
+    synchronized (this.mainSyncObj) {
+      if (getImpliedStatus(this.flow) == Status.CANCELLED) {
+        this.logger.info(String.format("Flow '%s' was cancelled before execution had started.",
+            this.flow.getId()));
+        finalizeFlow(this.flow);
+      } else {
+        this.flow.setStatus(Status.RUNNING);
+        prepareJobProperties(this.flow);
+        this.dag = createDag();
+        this.dagService.startDag(this.dag);
+      }
+    }
+    updateFlow();
+
+    while (!this.flowFinished) {
+      synchronized (this.mainSyncObj) {
+        if (this.flowPaused) {
+          try {
+            this.mainSyncObj.wait(CHECK_WAIT_MS);
+          } catch (final InterruptedException e) {
+          }
+          continue;
+        }
+      }
+
+      final DagEvent event;
+      try {
+        event = this.dagEvents.take();
+      } catch (final InterruptedException e) {
+        continue;
+      }
+      synchronized (this.mainSyncObj) {
+        if (this.flowPaused) {
+          // Paused while waiting, the event is handled once resumed. A kill unpauses the flow, and
+          // the jobs started from then on are cancelled by startDagJob.
+          this.dagEvents.addFirst(event);
+          continue;
+        }
+        event.handle();
+        // Handle the events queued meanwhile before writing the flow.
+        DagEvent next;
+        while (!this.flowPaused && (next = this.dagEvents.poll()) != null) {
+          next.handle();
+        }
+      }
+      updateFlow();
+    }
+
+    this.logger.info("Finishing up flow. Awaiting Termination");
+    this.executorService.shutdown();
+
+    updateFlow();
+    this.logger.info("Finished Flow");
+  }
+
+  private Dag createDag() {
+    final DagBuilder dagBuilder = new DagBuilder(this.flow.getNestedId(), new FlowDagProcessor());
+    for (final ExecutableNode node : this.flow.getExecutableNodes()) {
+      this.dagNodes.put(node.getId(), dagBuilder.createNode(node.getId(),
+          new JobNodeProcessor(node)));
+    }
+    for (final ExecutableNode node : this.flow.getExecutableNodes()) {
+      for (final String inNodeId : node.getInNodes()) {
+        dagBuilder.addParentNode(node.getId(), inNodeId);
+      }
+    }
+    return dagBuilder.build();
+  }
+
+  /**
+   * Starts a job whose dependencies have succeeded, unless it is disabled or the flow has failed
+   * or been killed meanwhile.
+   */
+  private void startDagJob(final ExecutableNode node) throws IOException {
+    final Node dagNode = this.dagNodes.get(node.getId());
+    final Status nextNodeStatus = getImpliedStatus(node);
+    if (nextNodeStatus == Status.READY) {
+      runExecutableNode(node);
+    } else if (nextNodeStatus == Status.SKIPPED) {
+      this.logger.info("Skipping disabled job '" + node.getId() + "'.");
+      node.skipNode(System.currentTimeMillis());
+      finishExecutableNode(node);
+      this.dagService.markNodeSuccess(dagNode);
+    } else {
+      this.logger.info(String.format("Cancelling '%s' due to prior errors.", node.getNestedId()));
+      node.cancelNode(System.currentTimeMillis());
+      finishExecutableNode(node);
+      // Cancels the jobs depending on it as well.
+      this.dagService.markNodeFailedOrKilled(dagNode);
+    }
+  }
+
+  /**
+   * Cancels a job the dag won't run, because one of its dependencies hasn't succeeded or the flow
+   * is killed.
+   */
+  private void cancelDagJob(final ExecutableNode node) {
+    if (node.getStatus() == Status.DISABLED) {
+      this.logger.info("Skipping disabled job '" + node.getId() + "'.");
+      node.skipNode(System.currentTimeMillis());
+    } else {
+      this.logger.info(String.format("Cancelling '%s' due to prior errors.", node.getNestedId()));
+      node.cancelNode(System.currentTimeMillis());
+    }
+    finishExecutableNode(node);
+  }
+
+  private void finishDagJob(final ExecutableNode node) throws IOException {
+    final Node dagNode = this.dagNodes.get(node.getId());
+    final Status status = node.getStatus();
+    if (Status.isStatusSucceeded(status)) {
+      this.dagService.markNodeSuccess(dagNode);
+      return;
+    }
+    // If a job is seen as failed or killed due to failing SLA, then we fail the flow.
+    if (status == Status.FAILED || (status == Status.KILLED && node.isKilledBySLA())) {
+      if (retryJobIfPossible(node)) {
+        startDagJob(node);
+        return;
+      }
+      setFlowFailed(node);
+    }
+    this.dagService.markNodeFailedOrKilled(dagNode);
+  }
+
+  private void finishDagFlow() {
+    finalizeFlow(this.flow);
+    finishExecutableNode(this.flow);
+  }
+
   private void retryAllFailures() throws IOException {
     this.logger.info("Restarting all failed jobs");
 
@@ -713,7 +962,9 @@ public class FlowRunner extends EventHandler implements Runnable {
   }
 
   private void finishExecutableNode(final ExecutableNode node) {
-    this.finishedNodes.add(node);
+    if (this.dag == null) {
+      this.finishedNodes.add(node);
+    }
     final EventData eventData = new EventData(node.getStatus(), node.getNestedId());
     fireEventListeners(Event.create(this, EventType.JOB_FINISHED, eventData));
   }
@@ -1032,28 +1283,22 @@ public class FlowRunner extends EventHandler implements Runnable {
       return true;
     }
 
-    String replaced = condition;
-    // Replace the condition on job status macro with "true" to skip the evaluation by Script
-    // Engine since it has already been evaluated.
-    final Matcher jobStatusMatcher = CONDITION_ON_JOB_STATUS_PATTERN.matcher
-        (condition);
-    if (jobStatusMatcher.find()) {
-      replaced = condition.replace(jobStatusMatcher.group(1), "true");
-    }
-
-    final Matcher variableMatcher = CONDITION_VARIABLE_REPLACEMENT_PATTERN.matcher(replaced);
-
-    while (variableMatcher.find()) {
-      final String value = findValueForJobVariable(node, variableMatcher.group(1),
-          variableMatcher.group(2));
-      if (value != null) {
-        replaced = replaced.replace(variableMatcher.group(), "'" + value + "'");
-      }
-      this.logger.info("Resolved condition of " + node.getId() + " is " + replaced);
+    boolean result = false;
+    try {
+      final ConditionExpression expression = this.conditionExpressions
+          .computeIfAbsent(condition, ConditionExpression::compile);
+      result = expression.evaluate((jobName, variable) -> {
+        final String value = findValueForJobVariable(node, jobName, variable);
+        this.logger.info("Resolved ${" + jobName + ":" + variable + "} in condition of "
+            + node.getId() + " to " + value);
+        return value;
+      });
+    } catch (final IllegalArgumentException e) {
+      this.logger.error("Failed to evaluate the condition.", e);
     }
 
-    // Evaluate string expression using script engine
-    return evaluateExpression(replaced);
+    this.logger.info("Condition is evaluated to " + result);
+    return result;
   }
 
   private String findValueForJobVariable(final ExecutableNode node, final String jobName, final
@@ -1074,34 +1319,6 @@ public class FlowRunner extends EventHandler implements Runnable {
     return null;
   }
 
-  private boolean evaluateExpression(final String expression) {
-    boolean result = false;
-    final ScriptEngineManager sem = new ScriptEngineManager();
-    final ScriptEngine se = sem.getEngineByName("JavaScript");
-
-    // Restrict permission using the two-argument form of doPrivileged()
-    try {
-      final Object object = AccessController.doPrivileged(
-          new PrivilegedExceptionAction<Object>() {
-            @Override
-            public Object run() throws ScriptException {
-              return se.eval(expression);
-            }
-          },
-          new AccessControlContext(
-              new ProtectionDomain[]{new ProtectionDomain(null, null)}) // no permissions
-      );
-      if (object != null) {
-        result = (boolean) object;
-      }
-    } catch (final Exception e) {
-      this.logger.error("Failed to evaluate the condition.", e);
-    }
-
-    this.logger.info("Condition is evaluated to " + result);
-    return result;
-  }
-
   private Props collectOutputProps(final ExecutableNode node) {
     Props previousOutput = null;
     // Iterate the in nodes again and create the dependencies
@@ -1134,6 +1351,8 @@ public class FlowRunner extends EventHandler implements Runnable {
 
     jobRunner.setDelayStart(node.getDelayedExecution());
     jobRunner.setLogSettings(this.logger, this.jobLogFileSize, this.jobLogNumFiles);
+    jobRunner.setLogShipper(this.jobLogShipper);
+    jobRunner.setAsyncLogWriter(this.asyncLogWriter);
     jobRunner.addListener(this.listener);
 
     if (JobCallbackManager.isInitialized()) {
@@ -1238,6 +1457,9 @@ public class FlowRunner extends EventHandler implements Runnable {
       for (final JobRunner runner : this.activeJobRunners) {
         runner.kill();
       }
+      if (this.dag != null) {
+        this.dagService.killDag(this.dag);
+      }
       updateFlow();
     }
     interrupt();
@@ -1246,6 +1468,12 @@ public class FlowRunner extends EventHandler implements Runnable {
   public void retryFailures(final String user) {
     synchronized (this.mainSyncObj) {
       this.logger.info("Retrying failures invoked by " + user);
+      if (isRunOnDagEngine()) {
+        final String errorMessage = "Execution " + this.execId
+            + " runs on the dag engine, which doesn't support retrying failures.";
+        this.logger.warn(errorMessage);
+        throw new IllegalStateException(errorMessage);
+      }
       this.retryFailedJobs = true;
       interrupt();
     }
@@ -1381,7 +1609,8 @@ public class FlowRunner extends EventHandler implements Runnable {
     final File logFile = new File(path.getParentFile(), logFileName);
 
     if (!logFile.exists()) {
-      return null;
+      final File segmentFile = LogSegmentUtils.getSegmentFile(logFile);
+      return segmentFile.exists() ? segmentFile : null;
     }
 
     return logFile;
@@ -1508,6 +1737,55 @@ public class FlowRunner extends EventHandler implements Runnable {
     }
   }
 
+  /**
+   * A step of a flow running on the dag engine.
+   */
+  private interface DagEvent {
+
+    void handle() throws IOException;
+  }
+
+  /**
+   * Hands the end of the dag over to the flow runner thread. Called by the dag service thread.
+   */
+  private class FlowDagProcessor implements DagProcessor {
+
+    @Override
+    public void changeStatus(final Dag dag, final azkaban.dag.Status status) {
+      if (status.isTerminal()) {
+        FlowRunner.this.dagEvents.add(FlowRunner.this::finishDagFlow);
+      }
+    }
+  }
+
+  /**
+   * Hands the jobs the dag starts or cancels over to the flow runner thread. Called by the dag
+   * service thread.
+   */
+  private class JobNodeProcessor implements NodeProcessor {
+
+    private final ExecutableNode node;
+
+    JobNodeProcessor(final ExecutableNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public void changeStatus(final Node dagNode, final azkaban.dag.Status status) {
+      switch (status) {
+        case RUNNING:
+          FlowRunner.this.dagEvents.add(() -> startDagJob(this.node));
+          break;
+        case CANCELED:
+          FlowRunner.this.dagEvents.add(() -> cancelDagJob(this.node));
+          break;
+        default:
+          // The job runners are killed by kill(), and report the other transitions themselves.
+          break;
+      }
+    }
+  }
+
   @VisibleForTesting
   class JobRunnerEventListener implements EventListener {
 
@@ -1575,9 +1853,14 @@ public class FlowRunner extends EventHandler implements Runnable {
             FlowRunner.this.flowPaused = false;
           }
 
-          FlowRunner.this.finishedNodes.add(node);
+          if (FlowRunner.this.dag != null) {
+            FlowRunner.this.dagEvents.add(() -> finishDagJob(node));
+          } else {
+            FlowRunner.this.finishedNodes.add(node);
+          }
           FlowRunner.this.activeJobRunners.remove(jobRunner);
           node.getParentFlow().setUpdateTime(System.currentTimeMillis());
+          recordChange();
           interrupt();
           fireEventListeners(event);
         }
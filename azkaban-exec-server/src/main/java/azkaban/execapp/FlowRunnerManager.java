@@ -20,6 +20,7 @@ import static java.util.Objects.requireNonNull;
 import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.ServiceProvider;
+import azkaban.dag.DagService;
 import azkaban.event.Event;
 import azkaban.event.EventListener;
 import azkaban.execapp.event.FlowWatcher;
@@ -28,6 +29,7 @@ import azkaban.execapp.event.RemoteFlowWatcher;
 import azkaban.execapp.metric.NumFailedFlowMetric;
 import azkaban.executor.AlerterHolder;
 import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.Executor;
 import azkaban.executor.ExecutorLoader;
@@ -59,8 +61,10 @@ import azkaban.utils.TrackingThreadPool;
 import azkaban.utils.UndefinedPropertyException;
 import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.Thread.State;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -73,12 +77,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -136,6 +143,8 @@ public class FlowRunnerManager implements EventListener,
   private final ProjectLoader projectLoader;
   private final JobTypeManager jobtypeManager;
   private final FlowPreparer flowPreparer;
+  // Null if project prefetching is disabled
+  private final ProjectPrefetcher projectPrefetcher;
   private final TriggerManager triggerManager;
   private final FlowRampManager flowRampManager;
   private final AlerterHolder alerterHolder;
@@ -144,8 +153,16 @@ public class FlowRunnerManager implements EventListener,
   private final File executionDirectory;
   private final File projectDirectory;
   private final Object executionDirDeletionSync = new Object();
+  private final JobLogReader jobLogReader;
+  private final JobLogStreamer jobLogStreamer;
   private final CommonMetrics commonMetrics;
   private final ExecMetrics execMetrics;
+  private final FlowUpdateWriter flowUpdateWriter;
+  private final JobLogShipper jobLogShipper;
+  private final AsyncLogWriter asyncLogWriter;
+  private final DagService dagService;
+  private final boolean dagEngineEnabled;
+  private final ExecutionChangeFeed changeFeed;
   private final DependencyTransferManager dependencyTransferManager;
   private final Storage storage;
 
@@ -175,6 +192,11 @@ public class FlowRunnerManager implements EventListener,
       final AlerterHolder alerterHolder,
       final CommonMetrics commonMetrics,
       final ExecMetrics execMetrics,
+      final FlowUpdateWriter flowUpdateWriter,
+      final JobLogShipper jobLogShipper,
+      final AsyncLogWriter asyncLogWriter,
+      final DagService dagService,
+      final ExecutionChangeFeed changeFeed,
       final DependencyTransferManager dependencyTransferManager,
       final Storage storage,
       @Nullable final AzkabanEventReporter azkabanEventReporter) throws IOException {
@@ -203,6 +225,13 @@ public class FlowRunnerManager implements EventListener,
     this.alerterHolder = alerterHolder;
     this.commonMetrics = commonMetrics;
     this.execMetrics = execMetrics;
+    this.flowUpdateWriter = flowUpdateWriter;
+    this.jobLogShipper = jobLogShipper;
+    this.asyncLogWriter = asyncLogWriter;
+    this.dagService = dagService;
+    this.dagEngineEnabled = props
+        .getBoolean(ConfigurationKeys.AZKABAN_FLOW_DAG_ENGINE_ENABLED, false);
+    this.changeFeed = changeFeed;
     this.dependencyTransferManager = dependencyTransferManager;
     this.storage = storage;
 
@@ -213,6 +242,9 @@ public class FlowRunnerManager implements EventListener,
 
     this.validateProxyUser = this.azkabanProps.getBoolean("proxy.user.lock.down", false);
 
+    this.jobLogReader = new JobLogReader(props);
+    this.jobLogStreamer = new JobLogStreamer(props);
+
     final String globalPropsPath = props.getString("executor.global.properties", null);
     if (globalPropsPath != null) {
       this.globalProps = new Props(null, globalPropsPath);
@@ -253,21 +285,60 @@ public class FlowRunnerManager implements EventListener,
       }
     }
 
+    DependencyCache dependencyCache = null;
+    if (props.getBoolean(ConfigurationKeys.AZKABAN_DEPENDENCY_CACHE_ENABLED, false)) {
+      final File dependencyCacheDir = new File(
+          props.getString(ConfigurationKeys.AZKABAN_DEPENDENCY_CACHE_DIR, "dependencies"));
+      dependencyCache = new DependencyCache(dependencyCacheDir,
+          props.getLong(ConfigurationKeys.AZKABAN_DEPENDENCY_CACHE_MAX_SIZE_BYTES,
+              Constants.DEFAULT_AZKABAN_DEPENDENCY_CACHE_MAX_SIZE_BYTES),
+          this.dependencyTransferManager, this.execMetrics.getDependencyCacheHitRatio(),
+          props.getInt(ConfigurationKeys.AZKABAN_DEPENDENCY_CACHE_DOWNLOAD_THREADS,
+              Constants.DEFAULT_AZKABAN_DEPENDENCY_CACHE_DOWNLOAD_THREADS));
+      this.LOGGER.info("Dependency cache configured in {}", dependencyCacheDir);
+    }
+
     // Create a flow preparer
     this.flowPreparer = new FlowPreparer(projectStorageManager, this.dependencyTransferManager,
         this.projectDirectory, cleaner, this.execMetrics.getProjectCacheHitRatio(),
-        this.executionDirectory);
+        this.executionDirectory, dependencyCache,
+        props.getInt(ConfigurationKeys.AZKABAN_FLOW_PREPARATION_THREADS,
+            Constants.DEFAULT_AZKABAN_FLOW_PREPARATION_THREADS),
+        this.execMetrics.getFlowSetupLockWaitTimer(),
+        this.execMetrics.getFlowSetupCriticalSectionTimer());
+
+    if (props.getBoolean(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_ENABLED, false)) {
+      this.projectPrefetcher = new ProjectPrefetcher(this.flowPreparer,
+          props.getLong(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_DISK_BUDGET_BYTES,
+              Constants.DEFAULT_AZKABAN_PROJECT_PREFETCH_DISK_BUDGET_BYTES),
+          props.getLong(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_MAX_BYTES_PER_SEC,
+              Constants.DEFAULT_AZKABAN_PROJECT_PREFETCH_MAX_BYTES_PER_SEC));
+      this.LOGGER.info("Project prefetching enabled.");
+    } else {
+      this.projectPrefetcher = null;
+    }
 
     this.execMetrics.addFlowRunnerManagerMetrics(this);
 
+    this.flowUpdateWriter.start();
+    this.jobLogShipper.start();
+    this.asyncLogWriter.start();
+
     this.cleanerThread = new CleanerThread();
     this.cleanerThread.start();
 
     if (this.azkabanProps.getBoolean(ConfigurationKeys.AZKABAN_POLL_MODEL, false)) {
       this.LOGGER.info("Starting polling service.");
-      this.pollingService = new PollingService(this.azkabanProps
-          .getLong(ConfigurationKeys.AZKABAN_POLLING_INTERVAL_MS,
-              Constants.DEFAULT_AZKABAN_POLLING_INTERVAL_MS),
+      final boolean wakeUpEnabled = this.azkabanProps
+          .getBoolean(ConfigurationKeys.AZKABAN_POLLING_WAKEUP_ENABLED, false);
+      final long pollingIntervalMs = wakeUpEnabled
+          ? this.azkabanProps.getLong(ConfigurationKeys.AZKABAN_POLLING_FALLBACK_INTERVAL_MS,
+          Constants.DEFAULT_AZKABAN_POLLING_FALLBACK_INTERVAL_MS)
+          : this.azkabanProps.getLong(ConfigurationKeys.AZKABAN_POLLING_INTERVAL_MS,
+              Constants.DEFAULT_AZKABAN_POLLING_INTERVAL_MS);
+      this.pollingService = new PollingService(pollingIntervalMs, wakeUpEnabled,
+          this.azkabanProps.getInt(ConfigurationKeys.AZKABAN_POLLING_BATCH_MAX_EXECUTIONS,
+              Constants.DEFAULT_AZKABAN_POLLING_BATCH_MAX_EXECUTIONS),
           new PollingCriteria(this.azkabanProps));
       this.pollingService.start();
     }
@@ -495,6 +566,11 @@ public class FlowRunnerManager implements EventListener,
     runner.setFlowWatcher(watcher)
         .setJobLogSettings(this.jobLogChunkSize, this.jobLogNumFiles)
         .setValidateProxyUser(this.validateProxyUser)
+        .setFlowUpdateWriter(this.flowUpdateWriter)
+        .setJobLogShipper(this.jobLogShipper)
+        .setAsyncLogWriter(this.asyncLogWriter)
+        .setDagService(this.dagEngineEnabled ? this.dagService : null)
+        .setChangeFeed(this.changeFeed)
         .setNumJobThreads(numJobThreads)
         .addListeners(this, this.flowRampManager);
 
@@ -613,7 +689,11 @@ public class FlowRunnerManager implements EventListener,
           + " is not running.");
     }
 
-    flowRunner.retryFailures(user);
+    try {
+      flowRunner.retryFailures(user);
+    } catch (final IllegalStateException e) {
+      throw new ExecutorManagerException(e.getMessage());
+    }
   }
 
   public ExecutableFlow getExecutableFlow(final int execId) {
@@ -653,6 +733,9 @@ public class FlowRunnerManager implements EventListener,
         LOGGER.info("Flow " + flow.getExecutionId()
             + " is finished. Adding it to recently finished flows list.");
         this.runningFlows.remove(flow.getExecutionId());
+        if (flowRunner.getExecutionDir() != null) {
+          this.jobLogReader.closeFiles(flowRunner.getExecutionDir());
+        }
         this.deleteExecutionDir(flow.getExecutionId());
       } else if (event.getType() == EventType.FLOW_STARTED) {
         // add flow level SLA checker
@@ -682,7 +765,7 @@ public class FlowRunnerManager implements EventListener,
 
           final File logFile = runner.getFlowLogFile();
           if (logFile != null && logFile.exists()) {
-            return FileIOUtils.readUtf8File(logFile, startByte, length);
+            return this.jobLogReader.read(logFile, startByte, length);
           } else {
             throw new ExecutorManagerException("Flow log file doesn't exist.");
           }
@@ -714,7 +797,7 @@ public class FlowRunnerManager implements EventListener,
           }
           final File logFile = runner.getJobLogFile(jobId, attempt);
           if (logFile != null && logFile.exists()) {
-            return FileIOUtils.readUtf8File(logFile, startByte, length);
+            return this.jobLogReader.read(logFile, startByte, length);
           } else {
             throw new ExecutorManagerException("Job log file doesn't exist.");
           }
@@ -728,6 +811,84 @@ public class FlowRunnerManager implements EventListener,
         "Error reading file. Log directory doesn't exist.");
   }
 
+  /**
+   * Stream the flow log from the offset while the flow runs. See {@link JobLogStreamer}.
+   *
+   * @return false if the max number of streams is reached.
+   */
+  public boolean streamFlowLogs(final int execId, final int startByte, final Writer writer)
+      throws ExecutorManagerException, IOException, InterruptedException {
+    final FlowRunner runner = getRunningFlowRunner(execId);
+    return this.jobLogStreamer.stream(new JobLogStreamer.LogSource() {
+      @Override
+      public LogData read(final int offset, final int length) throws ExecutorManagerException {
+        return readStreamedLog(execId, runner.getFlowLogFile(), offset, length);
+      }
+
+      @Override
+      public boolean isComplete() {
+        return !FlowRunnerManager.this.runningFlows.containsKey(execId);
+      }
+    }, startByte, writer);
+  }
+
+  /**
+   * Stream the log of a job attempt from the offset while the job runs. The stream waits for the
+   * log of a job which didn't start yet. See {@link JobLogStreamer}.
+   *
+   * @return false if the max number of streams is reached.
+   */
+  public boolean streamJobLogs(final int execId, final String jobId, final int attempt,
+      final int startByte, final Writer writer)
+      throws ExecutorManagerException, IOException, InterruptedException {
+    final FlowRunner runner = getRunningFlowRunner(execId);
+    final ExecutableNode node = runner.getExecutableFlow().getExecutableNodePath(jobId);
+    if (node == null) {
+      throw new ExecutorManagerException("Job " + jobId + " not found in execution " + execId);
+    }
+    return this.jobLogStreamer.stream(new JobLogStreamer.LogSource() {
+      @Override
+      public LogData read(final int offset, final int length) throws ExecutorManagerException {
+        return readStreamedLog(execId, runner.getJobLogFile(jobId, attempt), offset, length);
+      }
+
+      @Override
+      public boolean isComplete() {
+        return !FlowRunnerManager.this.runningFlows.containsKey(execId)
+            || node.getAttempt() > attempt || Status.isStatusFinished(node.getStatus());
+      }
+    }, startByte, writer);
+  }
+
+  private FlowRunner getRunningFlowRunner(final int execId) throws ExecutorManagerException {
+    final FlowRunner runner = this.runningFlows.get(execId);
+    if (runner == null) {
+      throw new ExecutorManagerException("Running flow " + execId + " not found.");
+    }
+    return runner;
+  }
+
+  private LogData readStreamedLog(final int execId, final File logFile, final int offset,
+      final int length) throws ExecutorManagerException {
+    if (logFile == null || !logFile.exists()) {
+      // Not created yet, or already deleted with the execution dir
+      return new LogData(offset, 0, "");
+    }
+    try {
+      return this.jobLogReader.read(logFile, offset, length);
+    } catch (final IOException e) {
+      if (!this.runningFlows.containsKey(execId)) {
+        // Deleted while reading, the rest of the log is in the DB
+        return new LogData(offset, 0, "");
+      }
+      throw new ExecutorManagerException(e);
+    }
+  }
+
+  public int getNumLogStreams() {
+    return this.jobLogStreamer.getNumStreams();
+  }
+
   public List<Object> readJobAttachments(final int execId, final String jobId, final int attempt)
       throws ExecutorManagerException {
     final FlowRunner runner = this.runningFlows.get(execId);
@@ -902,7 +1063,18 @@ public class FlowRunnerManager implements EventListener,
         LOGGER.error(e.getMessage());
       }
     }
+    if (this.projectPrefetcher != null) {
+      this.projectPrefetcher.shutdown();
+    }
     flowPreparer.shutdown();
+    try {
+      this.dagService.shutdownAndAwaitTermination();
+    } catch (final InterruptedException e) {
+      LOGGER.error(e.getMessage());
+    }
+    this.flowUpdateWriter.shutdown();
+    this.asyncLogWriter.shutdown();
+    this.jobLogShipper.shutdown();
     LOGGER.warn("Shutdown FlowRunnerManager complete.");
   }
 
@@ -917,6 +1089,9 @@ public class FlowRunnerManager implements EventListener,
     }
     this.executorService.shutdownNow();
     this.triggerManager.shutdown();
+    this.flowUpdateWriter.shutdown();
+    this.asyncLogWriter.shutdown();
+    this.jobLogShipper.shutdown();
   }
 
   /**
@@ -1029,6 +1204,37 @@ public class FlowRunnerManager implements EventListener,
     }
   }
 
+  /**
+   * Wake up the polling service to poll right away, e.g. when the web server queued a new
+   * execution. Does nothing if the executor is not in poll dispatch mode.
+   */
+  public void wakeUpPolling() {
+    if (this.pollingService != null) {
+      this.execMetrics.markDispatchWakeUp();
+      this.pollingService.wakeUp();
+    }
+  }
+
+  /**
+   * Queue the download of a project into the project cache ahead of its executions. Does nothing
+   * if project prefetching is not enabled.
+   */
+  public void prefetchProject(final int projectId, final int version) {
+    if (this.projectPrefetcher != null) {
+      this.projectPrefetcher.prefetch(projectId, version);
+    }
+  }
+
+  /**
+   * Waits for the executions changed after the sequence number of the change feed.
+   *
+   * @see ExecutionChangeFeed#getChanges(String, long, long)
+   */
+  public ExecutionChangeFeed.Changes getExecutionChanges(final String feedId,
+      final long sequence, final long timeoutMs) throws InterruptedException {
+    return this.changeFeed.getChanges(feedId, sequence, timeoutMs);
+  }
+
   /**
    * Polls new executions from DB periodically and submits the executions to run on the executor.
    */
@@ -1038,12 +1244,26 @@ public class FlowRunnerManager implements EventListener,
     private final ScheduledExecutorService scheduler;
     private final PollingCriteria pollingCriteria;
     private final long pollingIntervalMs;
+    private final boolean wakeUpEnabled;
+    // Several wake ups received before the poll runs only trigger one poll
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean(false);
+    private final int maxBatchExecutions;
+    // Sets up the executions claimed together concurrently. Null if claiming them one by one.
+    private final ExecutorService batchSubmitter;
     private int executorId = -1;
     private int numRetries = 0;
 
-    public PollingService(final long pollingIntervalMs, final PollingCriteria pollingCriteria) {
+    public PollingService(final long pollingIntervalMs, final boolean wakeUpEnabled,
+        final int maxBatchExecutions, final PollingCriteria pollingCriteria) {
       this.pollingIntervalMs = pollingIntervalMs;
+      this.wakeUpEnabled = wakeUpEnabled;
+      this.maxBatchExecutions = maxBatchExecutions;
       this.scheduler = Executors.newSingleThreadScheduledExecutor();
+      this.batchSubmitter = maxBatchExecutions > 1
+          ? Executors.newFixedThreadPool(maxBatchExecutions,
+          new ThreadFactoryBuilder().setNameFormat("azk-flow-submitter-%d").setDaemon(true)
+              .build())
+          : null;
       this.pollingCriteria = pollingCriteria;
     }
 
@@ -1052,6 +1272,21 @@ public class FlowRunnerManager implements EventListener,
           TimeUnit.MILLISECONDS);
     }
 
+    public void wakeUp() {
+      if (!this.wakeUpPending.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        this.scheduler.execute(() -> {
+          this.wakeUpPending.set(false);
+          pollExecution();
+        });
+      } catch (final RejectedExecutionException e) {
+        this.wakeUpPending.set(false);
+        FlowRunnerManager.LOGGER.warn("Polling service is shut down, ignoring wake up");
+      }
+    }
+
     private void pollExecution() {
       if (this.executorId == -1) {
         if (AzkabanExecutorServer.getApp() != null) {
@@ -1065,6 +1300,14 @@ public class FlowRunnerManager implements EventListener,
           }
         }
       } else if (this.pollingCriteria.shouldPoll()) {
+        if (this.batchSubmitter != null) {
+          final int maxExecutions =
+              this.pollingCriteria.getNumExecutionsToClaim(this.maxBatchExecutions);
+          if (maxExecutions > 1) {
+            pollExecutions(maxExecutions);
+            return;
+          }
+        }
         try {
           final int execId;
           if (FlowRunnerManager.this.azkabanProps.getBoolean(ConfigurationKeys.AZKABAN_POLLING_LOCK_ENABLED, false)) {
@@ -1079,7 +1322,12 @@ public class FlowRunnerManager implements EventListener,
             try {
               submitFlow(execId);
               FlowRunnerManager.this.commonMetrics.markDispatchSuccess();
+              recordDispatchLatency(execId);
               this.numRetries = 0;
+              if (this.wakeUpEnabled) {
+                // More executions may be queued, don't wait for the next wake up to pick them up.
+                wakeUp();
+              }
             } catch (final ExecutorManagerException e) {
               // If the flow fails to be submitted, then unset its executor id in DB so that other
               // executors can pick up this flow and submit again.
@@ -1091,22 +1339,131 @@ public class FlowRunnerManager implements EventListener,
         } catch (final Exception e) {
           FlowRunnerManager.LOGGER.error("Failed to submit flow ", e);
           FlowRunnerManager.this.commonMetrics.markDispatchFail();
-          this.numRetries = this.numRetries + 1;
-          try {
-            // Implement exponential backoff retries when flow submission fails,
-            // i.e., sleep 1s, 2s, 4s, 8s ... before next retries.
-            Thread.sleep((long) (Math.pow(2, this.numRetries) * 1000));
-          } catch (final InterruptedException ie) {
-            FlowRunnerManager.LOGGER
-                .warn("Sleep after flow submission failure was interrupted - ignoring");
+          backOff();
+        }
+      }
+    }
+
+    /**
+     * Claim several executions in one transaction, and set them up concurrently.
+     */
+    private void pollExecutions(final int maxExecutions) {
+      final List<Integer> execIds;
+      try {
+        if (FlowRunnerManager.this.azkabanProps.getBoolean(ConfigurationKeys.AZKABAN_POLLING_LOCK_ENABLED, false)) {
+          execIds = FlowRunnerManager.this.executorLoader.selectAndUpdateExecutionsWithLocking(
+              this.executorId, FlowRunnerManager.this.active, maxExecutions);
+        } else {
+          execIds = FlowRunnerManager.this.executorLoader.selectAndUpdateExecutions(
+              this.executorId, FlowRunnerManager.this.active, maxExecutions);
+        }
+      } catch (final ExecutorManagerException e) {
+        FlowRunnerManager.LOGGER.error("Failed to claim executions ", e);
+        FlowRunnerManager.this.commonMetrics.markDispatchFail();
+        backOff();
+        return;
+      }
+      if (execIds.isEmpty()) {
+        return;
+      }
+
+      final List<Future<Boolean>> submissions = new ArrayList<>(execIds.size());
+      final List<Integer> submittedExecIds = new ArrayList<>(execIds.size());
+      for (final int execId : execIds) {
+        try {
+          submissions.add(this.batchSubmitter.submit(() -> submitClaimedFlow(execId)));
+          submittedExecIds.add(execId);
+        } catch (final RejectedExecutionException e) {
+          // Shutting down
+          unsetExecutorId(execId);
+        }
+      }
+      boolean failed = false;
+      for (final Future<Boolean> submission : submissions) {
+        try {
+          failed |= !submission.get();
+        } catch (final InterruptedException e) {
+          // Shutting down: give back the claimed executions whose set up hasn't started. The others
+          // are given back by submitClaimedFlow if their set up fails.
+          for (int i = 0; i < submissions.size(); i++) {
+            if (submissions.get(i).cancel(false)) {
+              unsetExecutorId(submittedExecIds.get(i));
+            }
           }
+          Thread.currentThread().interrupt();
+          return;
+        } catch (final ExecutionException e) {
+          FlowRunnerManager.LOGGER.error("Failed to submit flow ", e);
+          failed = true;
+        }
+      }
+
+      if (failed) {
+        backOff();
+      } else {
+        this.numRetries = 0;
+        if (this.wakeUpEnabled) {
+          wakeUp();
         }
       }
     }
 
+    /**
+     * @return false if the flow couldn't be submitted, and was given back to the queue.
+     */
+    private boolean submitClaimedFlow(final int execId) {
+      FlowRunnerManager.LOGGER.info("Submitting flow " + execId);
+      try {
+        submitFlow(execId);
+        FlowRunnerManager.this.commonMetrics.markDispatchSuccess();
+        recordDispatchLatency(execId);
+        return true;
+      } catch (final ExecutorManagerException e) {
+        FlowRunnerManager.LOGGER.error("Failed to submit flow " + execId, e);
+        FlowRunnerManager.this.commonMetrics.markDispatchFail();
+        unsetExecutorId(execId);
+        return false;
+      }
+    }
+
+    /**
+     * Unset the executor id of a claimed execution in DB so that other executors can pick it up.
+     */
+    private void unsetExecutorId(final int execId) {
+      try {
+        FlowRunnerManager.this.executorLoader.unsetExecutorIdForExecution(execId);
+      } catch (final ExecutorManagerException e) {
+        FlowRunnerManager.LOGGER.error("Failed to unset executor id " + this.executorId
+            + " for execution " + execId, e);
+      }
+    }
+
+    private void backOff() {
+      this.numRetries = this.numRetries + 1;
+      try {
+        // Implement exponential backoff retries when flow submission fails,
+        // i.e., sleep 1s, 2s, 4s, 8s ... before next retries.
+        Thread.sleep((long) (Math.pow(2, this.numRetries) * 1000));
+      } catch (final InterruptedException ie) {
+        FlowRunnerManager.LOGGER
+            .warn("Sleep after flow submission failure was interrupted - ignoring");
+      }
+    }
+
+    private void recordDispatchLatency(final int execId) {
+      final FlowRunner runner = FlowRunnerManager.this.runningFlows.get(execId);
+      if (runner != null && runner.getExecutableFlow().getSubmitTime() > 0) {
+        FlowRunnerManager.this.execMetrics.addDispatchLatency(
+            System.currentTimeMillis() - runner.getExecutableFlow().getSubmitTime());
+      }
+    }
+
     public void shutdown() {
       this.scheduler.shutdown();
       this.scheduler.shutdownNow();
+      if (this.batchSubmitter != null) {
+        this.batchSubmitter.shutdownNow();
+      }
     }
   }
 
@@ -1133,6 +1490,37 @@ public class FlowRunnerManager implements EventListener,
       return false;
     }
 
+    /**
+     * How many executions can be claimed at once, at most maxExecutions: no more than the free
+     * flow threads, than the number of times the min free memory fits in the free memory, and
+     * than the free flow threads scaled by the cpu headroom. Always at least 1, to be called when
+     * {@link #shouldPoll()} is true.
+     */
+    public int getNumExecutionsToClaim(final int maxExecutions) {
+      int numExecutions = Math.min(maxExecutions,
+          FlowRunnerManager.this.getMaxNumRunningFlows() - FlowRunnerManager.this
+              .getNumRunningFlows());
+
+      final int minFreeMemoryConfigGb = this.azkabanProps.
+          getInt(ConfigurationKeys.AZKABAN_POLLING_CRITERIA_MIN_FREE_MEMORY_GB, 0);
+      final long freeMemoryKb = this.memInfo.getFreePhysicalMemorySize();
+      if (minFreeMemoryConfigGb > 0 && freeMemoryKb > 0) {
+        numExecutions = (int) Math.min(numExecutions,
+            freeMemoryKb / (minFreeMemoryConfigGb * 1024L * 1024L));
+      }
+
+      final double maxCpuUtilizationConfig = this.azkabanProps.
+          getDouble(ConfigurationKeys.AZKABAN_POLLING_CRITERIA_MAX_CPU_UTILIZATION_PCT, 100);
+      if (maxCpuUtilizationConfig > 0 && maxCpuUtilizationConfig < 100) {
+        final double cpuLoad = this.cpuUtil.getCpuLoad();
+        if (cpuLoad != -1) {
+          numExecutions = (int) Math.min(numExecutions, Math.ceil(
+              numExecutions * (maxCpuUtilizationConfig - cpuLoad) / maxCpuUtilizationConfig));
+        }
+      }
+      return Math.max(numExecutions, 1);
+    }
+
     private boolean satisfiesFlowThreadsAvailableCriteria() {
       final boolean flowThreadsAvailableConfig = this.azkabanProps.
           getBoolean(ConfigurationKeys.AZKABAN_POLLING_CRITERIA_FLOW_THREADS_AVAILABLE, false);
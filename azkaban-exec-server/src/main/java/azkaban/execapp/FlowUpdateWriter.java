@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.utils.Props;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Striped;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Write-behind writer for the flow updates of all the executions running on this executor.
+ *
+ * <p>Updates are coalesced per execution id: a running flow updated several times between two
+ * flushes is written only once, with its latest state. Pending updates are written with a single
+ * batch statement every flush interval. Updates to a finished status bypass the queue and are
+ * written immediately, since other components act on them as soon as they are visible in the DB.
+ *
+ * <p>Queued updates are snapshots of the flow taken by the calling thread, so the flushing thread
+ * never reads a flow which is still being modified by its runner.
+ *
+ * <p>Writes are ordered per execution, so that a flush can't overwrite a finished status written
+ * meanwhile, while the writes of different executions run concurrently.
+ *
+ * <p>When the writer is disabled every update is written immediately.
+ */
+@Singleton
+public class FlowUpdateWriter {
+
+  private static final Logger logger = Logger.getLogger(FlowUpdateWriter.class);
+
+  // Number of stripes of the write locks
+  private static final int WRITE_LOCK_STRIPES = 64;
+
+  private final ExecutorLoader executorLoader;
+  private final ExecMetrics execMetrics;
+  private final boolean enabled;
+  private final long flushIntervalMs;
+
+  // Snapshots of the pending flows by execution id. Guarded by this.
+  private final Map<Integer, ExecutableFlow> pendingFlows = new LinkedHashMap<>();
+  // Serializes the DB writes of an execution, by execution id
+  private final Striped<Lock> writeLocks = Striped.lock(WRITE_LOCK_STRIPES);
+  private final AtomicLong numUpdates = new AtomicLong();
+  private final AtomicLong numWrites = new AtomicLong();
+  private ScheduledExecutorService scheduler;
+
+  @Inject
+  public FlowUpdateWriter(final Props azkabanProps, final ExecutorLoader executorLoader,
+      final ExecMetrics execMetrics) {
+    this.executorLoader = executorLoader;
+    this.execMetrics = execMetrics;
+    this.enabled = azkabanProps
+        .getBoolean(ConfigurationKeys.AZKABAN_FLOW_WRITE_BEHIND_ENABLED, false);
+    this.flushIntervalMs = azkabanProps
+        .getLong(ConfigurationKeys.AZKABAN_FLOW_WRITE_BEHIND_FLUSH_INTERVAL_MS,
+            Constants.DEFAULT_AZKABAN_FLOW_WRITE_BEHIND_FLUSH_INTERVAL_MS);
+    this.execMetrics.addFlowUpdateWriterMetrics(this);
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Start flushing pending updates periodically. Does nothing if the writer is disabled.
+   */
+  public synchronized void start() {
+    if (!this.enabled || this.scheduler != null) {
+      return;
+    }
+    logger.info("Starting flow update writer with flush interval " + this.flushIntervalMs + " ms");
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "azk-flow-update-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.scheduler.scheduleWithFixedDelay(this::flushQuietly, this.flushIntervalMs,
+        this.flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop the periodic flush and write the updates still pending.
+   */
+  public void shutdown() {
+    synchronized (this) {
+      if (this.scheduler != null) {
+        this.scheduler.shutdownNow();
+        this.scheduler = null;
+      }
+    }
+    flushQuietly();
+  }
+
+  /**
+   * Queue an update of the flow, or write it right away if the flow is finished or the writer is
+   * disabled. Errors of queued updates are logged by the flushing thread.
+   *
+   * <p>The caller must hold the lock its flow runner modifies the flow under, since the queued
+   * snapshot is taken on the calling thread.
+   */
+  public void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
+    this.numUpdates.incrementAndGet();
+    if (!this.enabled) {
+      this.numWrites.incrementAndGet();
+      this.executorLoader.updateExecutableFlow(flow);
+      return;
+    }
+
+    if (!Status.isStatusFinished(flow.getStatus())) {
+      final ExecutableFlow snapshot = snapshot(flow);
+      if (snapshot != null) {
+        synchronized (this) {
+          this.pendingFlows.put(flow.getExecutionId(), snapshot);
+        }
+        return;
+      }
+    }
+
+    final Lock lock = this.writeLocks.get(flow.getExecutionId());
+    lock.lock();
+    try {
+      synchronized (this) {
+        this.pendingFlows.remove(flow.getExecutionId());
+      }
+      this.numWrites.incrementAndGet();
+      this.executorLoader.updateExecutableFlow(flow);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Write all pending updates in one batch.
+   */
+  @VisibleForTesting
+  void flush() throws ExecutorManagerException {
+    final List<Integer> execIds;
+    synchronized (this) {
+      if (this.pendingFlows.isEmpty()) {
+        return;
+      }
+      execIds = new ArrayList<>(this.pendingFlows.keySet());
+    }
+
+    // Locked in the order of their stripes, so that flushes can't deadlock
+    final Iterable<Lock> locks = this.writeLocks.bulkGet(execIds);
+    for (final Lock lock : locks) {
+      lock.lock();
+    }
+    try {
+      // The flows written synchronously meanwhile are no longer pending
+      final List<ExecutableFlow> flows = new ArrayList<>(execIds.size());
+      synchronized (this) {
+        for (final Integer execId : execIds) {
+          final ExecutableFlow flow = this.pendingFlows.remove(execId);
+          if (flow != null) {
+            flows.add(flow);
+          }
+        }
+      }
+      if (flows.isEmpty()) {
+        return;
+      }
+
+      final Timer.Context context = this.execMetrics.getFlowUpdateFlushTimerContext();
+      try {
+        this.numWrites.addAndGet(flows.size());
+        this.executorLoader.updateExecutableFlows(flows);
+      } catch (final ExecutorManagerException e) {
+        // Retry with the next flush, unless a newer update is already queued.
+        synchronized (this) {
+          for (final ExecutableFlow flow : flows) {
+            if (!Status.isStatusFinished(flow.getStatus())) {
+              this.pendingFlows.putIfAbsent(flow.getExecutionId(), flow);
+            }
+          }
+        }
+        throw e;
+      } finally {
+        context.stop();
+      }
+    } finally {
+      for (final Lock lock : locks) {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the flow which isn't shared with its runner, or null if the flow can't be
+   * serialized. Such a flow is written synchronously, which fails it like before.
+   */
+  private static ExecutableFlow snapshot(final ExecutableFlow flow) {
+    try {
+      return ExecutableFlow.createExecutableFlow(flow.toObject(), flow.getStatus());
+    } catch (final RuntimeException e) {
+      logger.warn("Failed to snapshot flow " + flow.getExecutionId(), e);
+      return null;
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (final Throwable t) {
+      logger.error("Error flushing flow updates.", t);
+    }
+  }
+
+  /**
+   * @return the number of flow updates requested per DB row written.
+   */
+  public double getCoalesceRatio() {
+    final long writes = this.numWrites.get();
+    return writes == 0 ? 1.0 : (double) this.numUpdates.get() / writes;
+  }
+
+  @VisibleForTesting
+  synchronized int getNumPendingFlows() {
+    return this.pendingFlows.size();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.FileIOUtils;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.LogSegmentUtils;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads ranges of the logs of the running flows and jobs for the web server.
+ *
+ * <p>The log of a running job is read again and again with growing offsets while a user follows
+ * it. Instead of opening the file and skipping to the offset for every read, the reader keeps the
+ * recently read files open and reads the range at its position. The open files are bounded: the
+ * least recently read one is closed to open another one, the files not read for a while are
+ * closed, and so are the files of a flow when it finishes.
+ *
+ * <p>A file replaced since it was opened, e.g. rolled over by its RollingFileAppender, is opened
+ * again.
+ */
+public class JobLogReader {
+
+  // Open files not read for this long are closed
+  private static final long IDLE_TIMEOUT_MS = 60 * 1000;
+
+  private final int maxOpenFiles;
+  // Open files by path, in least recently read order. Guarded by this.
+  private final LinkedHashMap<File, OpenFile> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+  private long lastIdleCheckMs = System.currentTimeMillis();
+
+  public JobLogReader(final Props azkabanProps) {
+    this.maxOpenFiles = azkabanProps
+        .getInt(ConfigurationKeys.AZKABAN_JOB_LOG_READER_MAX_OPEN_FILES,
+            Constants.DEFAULT_AZKABAN_JOB_LOG_READER_MAX_OPEN_FILES);
+  }
+
+  /**
+   * Read a range of a UTF-8 log file, as {@link FileIOUtils#readUtf8File(File, int, int)}, or of
+   * the log of a log segment. A negative offset reads the last length bytes of the log.
+   */
+  public LogData read(final File file, final int offset, final int length) throws IOException {
+    if (this.maxOpenFiles <= 0) {
+      return LogSegmentUtils.isLogSegment(file)
+          ? LogSegmentUtils.readUtf8Range(file, offset, length)
+          : FileIOUtils.readUtf8File(file, offset, length);
+    }
+    try {
+      return read(file, getOpenFile(file), offset, length);
+    } catch (final ClosedChannelException e) {
+      // Closed by another thread in the meantime, e.g. to open another file
+      return read(file, getOpenFile(file), offset, length);
+    }
+  }
+
+  private static LogData read(final File file, final FileChannel channel, final int offset,
+      final int length) throws IOException {
+    if (LogSegmentUtils.isLogSegment(file)) {
+      return LogSegmentUtils.readUtf8Range(channel, file, offset, length);
+    }
+    final long position = offset < 0 ? Math.max(0, channel.size() - length) : offset;
+    final byte[] buffer = new byte[length];
+    final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    while (byteBuffer.hasRemaining()) {
+      final int read = channel.read(byteBuffer, position + byteBuffer.position());
+      if (read <= 0) {
+        break;
+      }
+    }
+
+    final int read = byteBuffer.position();
+    if (read <= 0) {
+      return new LogData((int) position, 0, "");
+    }
+    final Pair<Integer, Integer> utf8Range = FileIOUtils.getUtf8Range(buffer, 0, read);
+    return new LogData((int) position + utf8Range.getFirst(), utf8Range.getSecond(),
+        new String(buffer, utf8Range.getFirst(), utf8Range.getSecond(), StandardCharsets.UTF_8));
+  }
+
+  private synchronized FileChannel getOpenFile(final File file) throws IOException {
+    final long now = System.currentTimeMillis();
+    if (now - this.lastIdleCheckMs > IDLE_TIMEOUT_MS) {
+      this.lastIdleCheckMs = now;
+      closeIdleFiles(now);
+    }
+
+    final Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class)
+        .fileKey();
+    OpenFile openFile = this.openFiles.get(file);
+    if (openFile != null && (fileKey == null || !Objects.equals(fileKey, openFile.fileKey)
+        || !openFile.channel.isOpen())) {
+      // The file was replaced, or the file system doesn't tell
+      close(this.openFiles.remove(file));
+      openFile = null;
+    }
+    if (openFile == null) {
+      openFile = new OpenFile(FileChannel.open(file.toPath(), StandardOpenOption.READ), fileKey);
+      this.openFiles.put(file, openFile);
+      if (this.openFiles.size() > this.maxOpenFiles) {
+        final Iterator<OpenFile> eldest = this.openFiles.values().iterator();
+        close(eldest.next());
+        eldest.remove();
+      }
+    }
+    openFile.lastReadMs = now;
+    return openFile.channel;
+  }
+
+  private void closeIdleFiles(final long now) {
+    for (final Iterator<OpenFile> it = this.openFiles.values().iterator(); it.hasNext(); ) {
+      final OpenFile openFile = it.next();
+      if (now - openFile.lastReadMs > IDLE_TIMEOUT_MS) {
+        close(openFile);
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Close the open files in the directory, e.g. the logs of a finished flow.
+   */
+  public synchronized void closeFiles(final File dir) {
+    final String dirPath = dir.getAbsolutePath() + File.separator;
+    for (final Iterator<Map.Entry<File, OpenFile>> it = this.openFiles.entrySet().iterator();
+        it.hasNext(); ) {
+      final Map.Entry<File, OpenFile> entry = it.next();
+      if (entry.getKey().getAbsolutePath().startsWith(dirPath)) {
+        close(entry.getValue());
+        it.remove();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getNumOpenFiles() {
+    return this.openFiles.size();
+  }
+
+  private static void close(final OpenFile openFile) {
+    if (openFile != null) {
+      IOUtils.closeQuietly(openFile.channel);
+    }
+  }
+
+  private static final class OpenFile {
+
+    private final FileChannel channel;
+    private final Object fileKey;
+    private long lastReadMs;
+
+    private OpenFile(final FileChannel channel, final Object fileKey) {
+      this.channel = channel;
+      this.fileKey = fileKey;
+    }
+  }
+}
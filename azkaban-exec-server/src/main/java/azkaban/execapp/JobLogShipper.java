@@ -0,0 +1,567 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ExecutionLogChunk;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+
+/**
+ * Uploads the logs of running jobs to the DB while the jobs run.
+ *
+ * <p>A poller thread follows the log file of every running job attempt, across roll overs of its
+ * RollingFileAppender, and queues every completed chunk of the log. An uploader thread inserts the
+ * queued chunks with batch statements. The queue is bounded: when it is full the poller stops
+ * reading, and the unread part of the logs waits in the log files, including the rolled over
+ * ones.
+ *
+ * <p>When the job finishes only the chunks written since the last poll remain to be uploaded. If
+ * a chunk of the job could not be uploaded, or the queued chunks are not uploaded in time, the
+ * whole log is uploaded again from its files instead. A stream started for a job attempt which
+ * already has log chunks in the DB, e.g. after a restart of the executor, continues after the end
+ * byte of its last chunk.
+ */
+@Singleton
+public class JobLogShipper {
+
+  // Same chunk size as the logs uploaded at the end of the job by ExecutionLogsDao
+  @VisibleForTesting
+  static final int CHUNK_SIZE = 50 * 1024;
+  private static final int MAX_BATCH_SIZE = 20;
+  private static final int MAX_UPLOAD_ATTEMPTS = 3;
+  private static final long UPLOAD_RETRY_DELAY_MS = 1000;
+  private static final long FINISH_TIMEOUT_MS = 60 * 1000;
+
+  private static final Logger logger = Logger.getLogger(JobLogShipper.class);
+
+  private final ExecutorLoader executorLoader;
+  private final boolean enabled;
+  private final long intervalMs;
+  private final BlockingQueue<Pair<LogStream, ExecutionLogChunk>> queue;
+  private final Set<LogStream> streams = ConcurrentHashMap.newKeySet();
+  // Held while chunks are inserted, so that a stream can't be abandoned during its upload
+  private final Object uploadLock = new Object();
+  // Once shut down, the uploader and the streams finishing share this deadline
+  private volatile long shutdownDeadline = Long.MAX_VALUE;
+  private ScheduledExecutorService poller;
+  private Thread uploader;
+
+  @Inject
+  public JobLogShipper(final Props azkabanProps, final ExecutorLoader executorLoader) {
+    this.executorLoader = executorLoader;
+    this.enabled = azkabanProps
+        .getBoolean(ConfigurationKeys.AZKABAN_JOB_LOG_STREAMING_ENABLED, false);
+    this.intervalMs = azkabanProps.getLong(ConfigurationKeys.AZKABAN_JOB_LOG_STREAMING_INTERVAL_MS,
+        Constants.DEFAULT_AZKABAN_JOB_LOG_STREAMING_INTERVAL_MS);
+    this.queue = new ArrayBlockingQueue<>(azkabanProps
+        .getInt(ConfigurationKeys.AZKABAN_JOB_LOG_STREAMING_QUEUE_SIZE,
+            Constants.DEFAULT_AZKABAN_JOB_LOG_STREAMING_QUEUE_SIZE));
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Start the poller and uploader threads. Does nothing if log streaming is disabled.
+   */
+  public synchronized void start() {
+    if (!this.enabled || this.poller != null) {
+      return;
+    }
+    logger.info("Starting job log shipper with interval " + this.intervalMs + " ms");
+    this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "azk-job-log-poller");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.poller.scheduleWithFixedDelay(this::poll, this.intervalMs, this.intervalMs,
+        TimeUnit.MILLISECONDS);
+    this.uploader = new Thread(this::uploadLoop, "azk-job-log-uploader");
+    this.uploader.setDaemon(true);
+    this.uploader.start();
+  }
+
+  /**
+   * Stop polling the log files. The chunks already queued are still uploaded for at most
+   * FINISH_TIMEOUT_MS, which also bounds the wait of all the streams finished from now on.
+   */
+  public synchronized void shutdown() {
+    if (this.shutdownDeadline == Long.MAX_VALUE) {
+      this.shutdownDeadline = System.currentTimeMillis() + FINISH_TIMEOUT_MS;
+    }
+    if (this.poller != null) {
+      this.poller.shutdownNow();
+      this.poller = null;
+    }
+    this.uploader = null;
+  }
+
+  /**
+   * Start following the log file of a job attempt.
+   */
+  public LogStream startStream(final int execId, final String name, final int attempt,
+      final File logFile) throws ExecutorManagerException {
+    final int endByte = this.executorLoader.fetchLogEndByte(execId, name, attempt);
+    if (endByte > 0) {
+      logger.info("Resuming log upload of " + name + " attempt " + attempt + " of execution "
+          + execId + " at byte " + endByte);
+    }
+    final LogStream stream = new LogStream(execId, name, attempt, logFile, endByte);
+    this.streams.add(stream);
+    return stream;
+  }
+
+  /**
+   * Upload the rest of the log once the job has closed it, and wait for the chunks still queued.
+   * If some chunks of the log were not uploaded, the whole log is uploaded from its files.
+   */
+  public void finishStream(final LogStream stream) throws ExecutorManagerException {
+    this.streams.remove(stream);
+    List<ExecutionLogChunk> tail = null;
+    try {
+      tail = stream.readRemainingChunks();
+    } catch (final IOException e) {
+      logger.error("Error reading log file " + stream.file, e);
+    } finally {
+      stream.close();
+    }
+
+    final long deadline = Math.min(System.currentTimeMillis() + FINISH_TIMEOUT_MS,
+        this.shutdownDeadline);
+    if (tail != null && stream.awaitUploaded(deadline) && !stream.hasFailedChunks()) {
+      try {
+        this.executorLoader.uploadLogChunks(tail);
+        return;
+      } catch (final ExecutorManagerException e) {
+        logger.error("Error uploading the last log chunks of " + stream.name + " of execution "
+            + stream.execId, e);
+      }
+    }
+
+    logger.warn("Uploading the whole log of " + stream.name + " of execution " + stream.execId
+        + " since some of its chunks were not uploaded");
+    synchronized (this.uploadLock) {
+      stream.abandon();
+      this.executorLoader.uploadLogFile(stream.execId, stream.name, stream.attempt,
+          stream.listLogFiles());
+    }
+  }
+
+  /**
+   * Queue the completed chunks of all streams, as long as the queue has room for them.
+   */
+  @VisibleForTesting
+  void poll() {
+    for (final LogStream stream : this.streams) {
+      final int capacity = this.queue.remainingCapacity();
+      if (capacity == 0) {
+        return;
+      }
+      try {
+        for (final ExecutionLogChunk chunk : stream.pollCompletedChunks(capacity)) {
+          this.queue.add(new Pair<>(stream, chunk));
+        }
+      } catch (final IOException e) {
+        logger.error("Error reading log file " + stream.file, e);
+      }
+    }
+  }
+
+  private void uploadLoop() {
+    final List<Pair<LogStream, ExecutionLogChunk>> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    try {
+      while (System.currentTimeMillis() < this.shutdownDeadline) {
+        final Pair<LogStream, ExecutionLogChunk> first =
+            this.queue.poll(this.intervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        this.queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+        upload(batch);
+        batch.clear();
+      }
+      logger.info("Job log uploader stopped, " + this.queue.size() + " chunks not uploaded");
+    } catch (final InterruptedException e) {
+      logger.info("Job log uploader interrupted, " + this.queue.size() + " chunks not uploaded");
+    }
+  }
+
+  @VisibleForTesting
+  void upload(final List<Pair<LogStream, ExecutionLogChunk>> batch)
+      throws InterruptedException {
+    try {
+      synchronized (this.uploadLock) {
+        uploadChunks(batch);
+      }
+    } finally {
+      for (final Pair<LogStream, ExecutionLogChunk> pair : batch) {
+        pair.getFirst().chunkUploaded();
+      }
+    }
+  }
+
+  private void uploadChunks(final List<Pair<LogStream, ExecutionLogChunk>> batch)
+      throws InterruptedException {
+    final List<Pair<LogStream, ExecutionLogChunk>> pairs = new ArrayList<>(batch.size());
+    final List<ExecutionLogChunk> chunks = new ArrayList<>(batch.size());
+    for (final Pair<LogStream, ExecutionLogChunk> pair : batch) {
+      // The whole log of an abandoned stream is uploaded by finishStream
+      if (!pair.getFirst().isAbandoned()) {
+        pairs.add(pair);
+        chunks.add(pair.getSecond());
+      }
+    }
+    if (chunks.isEmpty()) {
+      return;
+    }
+    for (int attempt = 1; ; attempt++) {
+      try {
+        this.executorLoader.uploadLogChunks(chunks);
+        return;
+      } catch (final ExecutorManagerException e) {
+        if (attempt == MAX_UPLOAD_ATTEMPTS) {
+          logger.error("Error uploading a batch of " + chunks.size() + " log chunks", e);
+          break;
+        }
+        logger.warn("Error uploading log chunks, attempt " + attempt, e);
+        Thread.sleep(UPLOAD_RETRY_DELAY_MS * attempt);
+      }
+    }
+    // Don't let a bad chunk hold back the others
+    for (final Pair<LogStream, ExecutionLogChunk> pair : pairs) {
+      final ExecutionLogChunk chunk = pair.getSecond();
+      try {
+        this.executorLoader.uploadLogChunks(Collections.singletonList(chunk));
+      } catch (final ExecutorManagerException e) {
+        logger.error("Error uploading log chunk " + chunk.getStartByte() + "-"
+            + chunk.getEndByte() + " of " + chunk.getName() + " of execution "
+            + chunk.getExecId() + ", the whole log will be uploaded when the job finishes", e);
+        pair.getFirst().chunkFailed();
+      }
+    }
+  }
+
+  /**
+   * Follows the log file of a job attempt. The log file may be rolled over by the appender, any
+   * number of times between two reads: each file is read to its end, then the reading moves to the
+   * file the appender wrote next. The files are told apart by their file key, since the appender
+   * renames them.
+   */
+  public static class LogStream {
+
+    private final int execId;
+    private final String name;
+    private final int attempt;
+    private final File file;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int bufferLength = 0;
+    // Offset of the next chunk in the whole log of the attempt
+    private int offset;
+    // Bytes already uploaded before the stream was started, to skip in the log files
+    private long bytesToSkip;
+    private FileChannel channel;
+    private Object fileKey;
+    private boolean closed = false;
+    private int queuedChunks = 0;
+    private volatile boolean failedChunks = false;
+    private volatile boolean abandoned = false;
+
+    private LogStream(final int execId, final String name, final int attempt, final File file,
+        final int offset) {
+      this.execId = execId;
+      this.name = name;
+      this.attempt = attempt;
+      this.file = file;
+      this.offset = offset;
+      this.bytesToSkip = offset;
+    }
+
+    /**
+     * Read the completed chunks and count them as queued, so that finishing the stream waits for
+     * them to be uploaded.
+     */
+    private synchronized List<ExecutionLogChunk> pollCompletedChunks(final int maxChunks)
+        throws IOException {
+      final List<ExecutionLogChunk> chunks = readCompletedChunks(maxChunks);
+      this.queuedChunks += chunks.size();
+      return chunks;
+    }
+
+    private List<ExecutionLogChunk> readCompletedChunks(final int maxChunks)
+        throws IOException {
+      final List<ExecutionLogChunk> chunks = new ArrayList<>();
+      while (!this.closed && chunks.size() < maxChunks && fillBuffer()) {
+        chunks.add(emitChunk());
+      }
+      return chunks;
+    }
+
+    private synchronized List<ExecutionLogChunk> readRemainingChunks() throws IOException {
+      final List<ExecutionLogChunk> chunks = readCompletedChunks(Integer.MAX_VALUE);
+      if (this.bufferLength > 0) {
+        chunks.add(emitChunk());
+      }
+      return chunks;
+    }
+
+    /**
+     * @return true if the buffer is full, false if the end of the log was reached first.
+     */
+    private boolean fillBuffer() throws IOException {
+      while (this.bufferLength < CHUNK_SIZE) {
+        if (this.channel == null && !openNextFile()) {
+          return false;
+        }
+        if (read() > 0) {
+          continue;
+        }
+        if (!isRolledOver()) {
+          return false;
+        }
+        // Anything written to the old file before the roll over is readable now
+        if (read() > 0) {
+          continue;
+        }
+        if (!openNextFile()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int read() throws IOException {
+      final int n = this.channel.read(
+          ByteBuffer.wrap(this.buffer, this.bufferLength, CHUNK_SIZE - this.bufferLength));
+      if (n > 0) {
+        this.bufferLength += n;
+      }
+      return n;
+    }
+
+    /**
+     * Open the file written after the open one, or the oldest log file if none is open yet.
+     *
+     * @return false if there is no such file yet, or if it's being rolled over.
+     */
+    private boolean openNextFile() throws IOException {
+      final List<Pair<File, Object>> files = listLogFileKeys();
+      if (files.isEmpty()) {
+        return false;
+      }
+      final Pair<File, Object> next;
+      if (this.channel == null) {
+        next = files.get(files.size() - 1);
+      } else if (this.fileKey == null) {
+        // Without file keys only one roll over between two reads can be followed
+        next = files.get(0);
+      } else {
+        final int index = indexOf(files, this.fileKey);
+        if (index == 0) {
+          return false;
+        } else if (index > 0) {
+          next = files.get(index - 1);
+        } else {
+          // The open file was rolled over past the last backup index and deleted. The files
+          // written after it may be gone too, the oldest file left is the next one available.
+          logger.warn("Log file " + this.file + " was rolled over before it could be uploaded");
+          next = files.get(files.size() - 1);
+        }
+      }
+
+      final FileChannel nextChannel;
+      try {
+        nextChannel = FileChannel.open(next.getFirst().toPath(), StandardOpenOption.READ);
+      } catch (final NoSuchFileException e) {
+        return false;
+      }
+      // Make sure nothing was renamed in the meantime, the next file is looked up again otherwise
+      final List<Pair<File, Object>> filesAfterOpen = listLogFileKeys();
+      if (!filesAfterOpen.equals(files)) {
+        nextChannel.close();
+        return false;
+      }
+
+      if (this.channel != null) {
+        this.channel.close();
+      }
+      this.channel = nextChannel;
+      this.fileKey = next.getSecond();
+      if (this.bytesToSkip > 0) {
+        final long skipped = Math.min(this.bytesToSkip, this.channel.size());
+        this.channel.position(skipped);
+        this.bytesToSkip -= skipped;
+      }
+      return true;
+    }
+
+    private static int indexOf(final List<Pair<File, Object>> files, final Object fileKey) {
+      for (int i = 0; i < files.size(); i++) {
+        if (fileKey.equals(files.get(i).getSecond())) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * @return the log file and its rolled over files, from the most recent to the oldest.
+     */
+    private File[] listLogFiles() {
+      final File[] rolledFiles = this.file.getParentFile()
+          .listFiles((dir, fileName) -> getRolledIndex(fileName) > 0);
+      final List<File> files = new ArrayList<>();
+      if (this.file.exists()) {
+        files.add(this.file);
+      }
+      if (rolledFiles != null) {
+        Arrays.sort(rolledFiles,
+            (a, b) -> Integer.compare(getRolledIndex(a.getName()), getRolledIndex(b.getName())));
+        files.addAll(Arrays.asList(rolledFiles));
+      }
+      return files.toArray(new File[0]);
+    }
+
+    /**
+     * @return the index of a rolled over log file, e.g. 2 for log.2, or 0 if the name isn't one.
+     */
+    private int getRolledIndex(final String fileName) {
+      final String prefix = this.file.getName() + ".";
+      if (!fileName.startsWith(prefix) || fileName.length() == prefix.length()) {
+        return 0;
+      }
+      try {
+        return Integer.parseInt(fileName.substring(prefix.length()));
+      } catch (final NumberFormatException e) {
+        return 0;
+      }
+    }
+
+    private List<Pair<File, Object>> listLogFileKeys() throws IOException {
+      final List<Pair<File, Object>> files = new ArrayList<>();
+      for (final File logFile : listLogFiles()) {
+        try {
+          files.add(new Pair<>(logFile,
+              Files.readAttributes(logFile.toPath(), BasicFileAttributes.class).fileKey()));
+        } catch (final NoSuchFileException e) {
+          // Renamed meanwhile, the caller finds out when it lists the files again
+        }
+      }
+      return files;
+    }
+
+    private boolean isRolledOver() throws IOException {
+      final BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(this.file.toPath(), BasicFileAttributes.class);
+      } catch (final NoSuchFileException e) {
+        // Renamed, but the new file is not created yet
+        return false;
+      }
+      if (this.fileKey != null && attributes.fileKey() != null) {
+        return !Objects.equals(this.fileKey, attributes.fileKey());
+      }
+      return attributes.size() < this.channel.position();
+    }
+
+    private ExecutionLogChunk emitChunk() {
+      final ExecutionLogChunk chunk = new ExecutionLogChunk(this.execId, this.name, this.attempt,
+          this.offset, Arrays.copyOf(this.buffer, this.bufferLength));
+      this.offset += this.bufferLength;
+      this.bufferLength = 0;
+      return chunk;
+    }
+
+    private synchronized void close() {
+      this.closed = true;
+      if (this.channel != null) {
+        try {
+          this.channel.close();
+        } catch (final IOException e) {
+          logger.warn("Error closing log file " + this.file, e);
+        }
+        this.channel = null;
+      }
+    }
+
+    private synchronized void chunkUploaded() {
+      this.queuedChunks--;
+      notifyAll();
+    }
+
+    private void chunkFailed() {
+      this.failedChunks = true;
+    }
+
+    private boolean hasFailedChunks() {
+      return this.failedChunks;
+    }
+
+    private void abandon() {
+      this.abandoned = true;
+    }
+
+    private boolean isAbandoned() {
+      return this.abandoned;
+    }
+
+    private synchronized boolean awaitUploaded(final long deadline) {
+      try {
+        while (this.queuedChunks > 0) {
+          final long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            return false;
+          }
+          wait(remaining);
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      return true;
+    }
+  }
+}
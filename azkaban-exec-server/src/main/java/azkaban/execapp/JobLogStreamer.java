@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * Streams the log of a running flow or job as server-sent events while it is written.
+ *
+ * <p>Instead of the web server asking for the next range of the log every second while a user
+ * follows it, one request stays open: the log is read from the given offset, then followed until
+ * it is complete, and every new range is sent as a {@code log} event with the same fields as the
+ * response of a log fetch. The stream ends with an {@code end} event with the offset where the
+ * next read should start, and whether the log is complete or the stream just reached its max
+ * duration. A comment is sent when the log doesn't grow for a while, so that a client gone away
+ * is noticed.
+ */
+public class JobLogStreamer {
+
+  // Same as the range of the log fetched by the web UI
+  @VisibleForTesting
+  static final int CHUNK_SIZE = 50000;
+  private static final long HEARTBEAT_INTERVAL_MS = 15 * 1000;
+
+  private static final Logger logger = Logger.getLogger(JobLogStreamer.class);
+
+  private final int maxStreams;
+  private final long maxDurationMs;
+  private final long pollIntervalMs;
+  private final AtomicInteger numStreams = new AtomicInteger();
+
+  /**
+   * @throws IllegalArgumentException if the log streams may use more than half of the server
+   * threads of the executor.
+   */
+  public JobLogStreamer(final Props azkabanProps) {
+    // Every stream holds a server thread, the other requests to the executor must have threads
+    // left
+    final int maxThreads = azkabanProps.getInt(ConfigurationKeys.EXECUTOR_MAX_THREADS,
+        Constants.DEFAULT_EXECUTOR_MAX_THREADS);
+    this.maxStreams = azkabanProps.getInt(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_STREAMS,
+        maxThreads * Constants.DEFAULT_AZKABAN_JOB_LOG_STREAM_THREADS_PERCENT / 100);
+    final int maxAllowedStreams =
+        maxThreads * Constants.MAX_AZKABAN_JOB_LOG_STREAM_THREADS_PERCENT / 100;
+    if (this.maxStreams > maxAllowedStreams) {
+      throw new IllegalArgumentException(
+          ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_STREAMS + " is " + this.maxStreams
+              + ", but log streams can use at most " + maxAllowedStreams + " of the "
+              + maxThreads + " threads of " + ConfigurationKeys.EXECUTOR_MAX_THREADS);
+    }
+    this.maxDurationMs = azkabanProps
+        .getLong(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_DURATION_MS,
+            Constants.DEFAULT_AZKABAN_JOB_LOG_STREAM_MAX_DURATION_MS);
+    this.pollIntervalMs = azkabanProps
+        .getLong(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_POLL_INTERVAL_MS,
+            Constants.DEFAULT_AZKABAN_JOB_LOG_STREAM_POLL_INTERVAL_MS);
+  }
+
+  /**
+   * Stream the log from the offset until it is complete, the max duration is reached, or the
+   * client goes away.
+   *
+   * @return false, without writing anything, if the max number of streams is reached: the client
+   * should fetch the log by ranges instead.
+   * @throws IOException if the client went away.
+   */
+  public boolean stream(final LogSource source, final int offset, final Writer writer)
+      throws IOException, ExecutorManagerException, InterruptedException {
+    if (this.numStreams.incrementAndGet() > this.maxStreams) {
+      this.numStreams.decrementAndGet();
+      logger.info("Max number of log streams " + this.maxStreams + " reached");
+      return false;
+    }
+
+    try {
+      final long deadline = System.currentTimeMillis() + this.maxDurationMs;
+      long lastWriteMs = System.currentTimeMillis();
+      int position = offset;
+      while (true) {
+        // Checked before reading, so that the read sees the whole log once it's complete
+        final boolean complete = source.isComplete();
+        final LogData data = source.read(position, CHUNK_SIZE);
+        if (data.getLength() > 0) {
+          writeEvent(writer, ConnectorParams.LOG_STREAM_EVENT_LOG, data.toObject());
+          position = data.getOffset() + data.getLength();
+          lastWriteMs = System.currentTimeMillis();
+          continue;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (complete || now >= deadline) {
+          final Map<String, Object> end = new HashMap<>();
+          end.put("offset", Math.max(position, data.getOffset()));
+          end.put("complete", complete);
+          writeEvent(writer, ConnectorParams.LOG_STREAM_EVENT_END, end);
+          return true;
+        }
+        if (now - lastWriteMs >= HEARTBEAT_INTERVAL_MS) {
+          writer.write(": keepalive\n\n");
+          writer.flush();
+          lastWriteMs = now;
+        }
+        Thread.sleep(this.pollIntervalMs);
+      }
+    } finally {
+      this.numStreams.decrementAndGet();
+    }
+  }
+
+  /**
+   * Write a server-sent event with the JSON of the data.
+   */
+  static void writeEvent(final Writer writer, final String event,
+      final Map<String, ?> data) throws IOException {
+    // The JSON is on a single line, as line breaks in the log are escaped
+    writer.write("event: " + event + "\ndata: " + JSONUtils.toJSON(data) + "\n\n");
+    writer.flush();
+  }
+
+  /**
+   * @return the number of open streams.
+   */
+  public int getNumStreams() {
+    return this.numStreams.get();
+  }
+
+  /**
+   * The log followed by a stream.
+   */
+  public interface LogSource {
+
+    /**
+     * Read a range of the log. A range beyond the end of the log is empty.
+     */
+    LogData read(int offset, int length) throws ExecutorManagerException;
+
+    /**
+     * @return whether nothing will be written to the log anymore.
+     */
+    boolean isComplete();
+  }
+}
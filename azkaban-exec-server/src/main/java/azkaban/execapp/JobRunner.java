@@ -36,6 +36,8 @@ import azkaban.jobtype.JobTypeManager;
 import azkaban.jobtype.JobTypeManagerException;
 import azkaban.spi.EventType;
 import azkaban.utils.ExternalLinkUtils;
+import azkaban.utils.LogSegmentOutputStream;
+import azkaban.utils.LogSegmentUtils;
 import azkaban.utils.PatternLayoutEscaped;
 import azkaban.utils.Props;
 import azkaban.utils.StringUtils;
@@ -52,10 +54,11 @@ import java.util.Set;
 import org.apache.kafka.log4jappender.KafkaLog4jAppender;
 import org.apache.log4j.Appender;
 import org.apache.log4j.EnhancedPatternLayout;
-import org.apache.log4j.FileAppender;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Logger;
 import org.apache.log4j.RollingFileAppender;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.helpers.OptionConverter;
 
 public class JobRunner extends EventHandler implements Runnable {
 
@@ -82,6 +85,9 @@ public class JobRunner extends EventHandler implements Runnable {
   private Appender jobAppender = null;
   private Optional<Appender> kafkaAppender = Optional.empty();
   private File logFile;
+  private JobLogShipper logShipper = null;
+  private JobLogShipper.LogStream logStream = null;
+  private AsyncLogWriter asyncLogWriter = null;
   private String attachmentFileName;
   private Job job;
   private int executionId = -1;
@@ -174,6 +180,14 @@ public class JobRunner extends EventHandler implements Runnable {
     this.jobLogBackupIndex = numLogBackup;
   }
 
+  public void setLogShipper(final JobLogShipper logShipper) {
+    this.logShipper = logShipper;
+  }
+
+  public void setAsyncLogWriter(final AsyncLogWriter asyncLogWriter) {
+    this.asyncLogWriter = asyncLogWriter;
+  }
+
   public Props getProps() {
     return this.props;
   }
@@ -277,6 +291,7 @@ public class JobRunner extends EventHandler implements Runnable {
 
       try {
         attachFileAppender(createFileAppender());
+        startLogStream();
       } catch (final IOException e) {
         removeAppender(this.jobAppender);
         this.flowLogger.error("Could not open log file in " + this.workingDir
@@ -312,7 +327,7 @@ public class JobRunner extends EventHandler implements Runnable {
     }
   }
 
-  private void attachFileAppender(final FileAppender appender) {
+  private void attachFileAppender(final Appender appender) {
     // If present, remove the existing file appender
     assert (this.jobAppender == null);
 
@@ -322,21 +337,55 @@ public class JobRunner extends EventHandler implements Runnable {
     this.flowLogger.info("Attached file appender for job " + this.jobId);
   }
 
-  private FileAppender createFileAppender() throws IOException {
+  private Appender createFileAppender() throws IOException {
     // Set up log files
     final String logName = createLogFileName(this.node);
-    this.logFile = new File(this.workingDir, logName);
+    final boolean compressed = this.azkabanProps
+        .getBoolean(Constants.ConfigurationKeys.AZKABAN_JOB_LOG_COMPRESSED_ENABLED, false);
+    this.logFile = compressed ? LogSegmentUtils.getSegmentFile(new File(this.workingDir, logName))
+        : new File(this.workingDir, logName);
     final String absolutePath = this.logFile.getAbsolutePath();
     this.flowLogger.info("Log file path for job: " + this.jobId + " is: " + absolutePath);
 
-    // Attempt to create FileAppender
-    final RollingFileAppender fileAppender =
-        new RollingFileAppender(this.loggerLayout, absolutePath, true);
-    fileAppender.setMaxBackupIndex(this.jobLogBackupIndex);
-    fileAppender.setMaxFileSize(this.jobLogChunkSize);
+    final WriterAppender fileAppender;
+    if (compressed) {
+      // Compressed while it is written, and uploaded as it is when the job finishes. It keeps
+      // as much of the log as the rolling files would: the current file and its backups.
+      final long maxLogSize = OptionConverter.toFileSize(this.jobLogChunkSize, 10 * 1024 * 1024)
+          * (this.jobLogBackupIndex + 1);
+      fileAppender = new WriterAppender(this.loggerLayout,
+          new LogSegmentOutputStream(this.logFile, maxLogSize));
+      // Every flush costs compression: the log is flushed once per batch by the async log
+      // writer, or a block at a time without it.
+      fileAppender.setImmediateFlush(false);
+    } else {
+      // Attempt to create FileAppender
+      final RollingFileAppender rollingFileAppender =
+          new RollingFileAppender(this.loggerLayout, absolutePath, true);
+      rollingFileAppender.setMaxBackupIndex(this.jobLogBackupIndex);
+      rollingFileAppender.setMaxFileSize(this.jobLogChunkSize);
+      fileAppender = rollingFileAppender;
+    }
 
     this.flowLogger.info("Created file appender for job " + this.jobId);
-    return fileAppender;
+    return this.asyncLogWriter == null ? fileAppender : this.asyncLogWriter.wrap(fileAppender);
+  }
+
+  private void startLogStream() {
+    if (this.logShipper == null || !this.logShipper.isEnabled()) {
+      return;
+    }
+    if (LogSegmentUtils.isLogSegment(this.logFile)) {
+      // The shipper follows plain log files
+      return;
+    }
+    try {
+      this.logStream = this.logShipper.startStream(this.executionId, this.node.getNestedId(),
+          this.node.getAttempt(), this.logFile);
+    } catch (final ExecutorManagerException e) {
+      // The whole log is uploaded when the job finishes instead
+      this.flowLogger.error("Could not start uploading logs of job " + this.jobId, e);
+    }
   }
 
   private void createAttachmentFile() {
@@ -522,7 +571,22 @@ public class JobRunner extends EventHandler implements Runnable {
       return;
     }
 
+    if (this.logStream != null) {
+      try {
+        this.logShipper.finishStream(this.logStream);
+      } catch (final ExecutorManagerException e) {
+        this.flowLogger.error(
+            "Error writing out logs for job " + this.node.getNestedId(), e);
+      }
+      return;
+    }
+
     try {
+      if (LogSegmentUtils.isLogSegment(this.logFile)) {
+        this.loader.uploadLogSegment(this.executionId, this.node.getNestedId(), attemptNo,
+            this.logFile);
+        return;
+      }
       final File[] files = this.logFile.getParentFile().listFiles(new FilenameFilter() {
         @Override
         public boolean accept(final File dir, final String name) {
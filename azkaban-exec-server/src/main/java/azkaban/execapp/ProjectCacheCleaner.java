@@ -20,18 +20,14 @@ import azkaban.utils.ExecutorServiceUtils;
 import azkaban.utils.FileIOUtils;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
 import java.io.File;
-import java.io.FilenameFilter;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
@@ -39,6 +35,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,12 +59,15 @@ class ProjectCacheCleaner {
 
   private static final double DEFAULT_THROTTLE_PERCENTAGE = 0.92; // 92%
 
+  // Prefix of the project dirs renamed for deletion
+  static final String DELETED_DIR_PREFIX = "_deleted.";
+
   // If space in Cache partition goes above this Percentage, incoming request must wait
   // till the current cache cleanup cycle is done
   private double throttlePercentage;
 
-  // Currently cached projects
-  private final Map<Path, ProjectDirectoryMetadata> cachedProjects = new HashMap<>();
+  // Currently cached projects, from least to most recently used
+  private final ProjectCacheIndex index;
 
   // A record of projects under deletion
   private final ConcurrentMap<Path, File> projectsUnderDeletion = new ConcurrentHashMap<>();
@@ -75,6 +75,14 @@ class ProjectCacheCleaner {
   // Executor service responsible for cache cleanup
   private final ExecutorService deletionService;
 
+  // Number of stripes of the project dir locks
+  private static final int PROJECT_DIR_LOCK_STRIPES = 64;
+
+  // Guards the project dirs: read-locked while a project dir is hard-linked into an execution
+  // dir, write-locked while it's installed or evicted.
+  private final Striped<ReadWriteLock> projectDirLocks =
+      Striped.readWriteLock(PROJECT_DIR_LOCK_STRIPES);
+
   // This is leveraged as a barrier mechanism to stall an incoming
   // request until ongoing cache cleanup cycle is done. This is only necessary if new projects
   // get added very rapidly driving cache space above throttlePercentage
@@ -102,81 +110,23 @@ class ProjectCacheCleaner {
 
     emptyQCond = barrier.newCondition();
     deletionService = Executors.newFixedThreadPool(CLEANING_SERVICE_THREAD_NUM);
+    this.index = new ProjectCacheIndex(projectCacheDir);
+    deleteLeftoverDirs();
   }
 
   /**
-   * Get metadata from the OS for the underlying path, lastAccessTime is fetched from the OS
-   * regardless of whether the given project already exists, but the space calculation for a
-   * project directory is only performed one-time.
-   *
-   * @param project path for the project cache. Project filepath encodes projectID & version
-   *                within the filename
-   *
-   * @return OS Metadata for the given path
+   * Delete the project dirs renamed for deletion by a previous run of the executor which stopped
+   * before deleting them.
    */
-  private ProjectDirectoryMetadata fetchProjectMetadata(final Path project) {
-    ProjectDirectoryMetadata projectDirectoryMetadata = this.cachedProjects.get(project);
-
-    try {
-      if (projectDirectoryMetadata == null) {
-        final String fileName = project.getFileName().toString();
-        final int projectId = Integer.parseInt(fileName.split("\\.")[0]);
-        final int versionNum = Integer.parseInt(fileName.split("\\.")[1]);
-        projectDirectoryMetadata = new ProjectDirectoryMetadata(projectId, versionNum, project.toFile());
-
-        /*
-         * Calculate used-space (Equivalent of du command) only if the metadata for
-         * this project was never fetched before. This optimization is important as
-         * recursive space calculation is a very expensive operation.
-         */
-        projectDirectoryMetadata.setDirSizeInByte(
-            FlowPreparer.calculateDirSizeAndSave(projectDirectoryMetadata.getInstalledDir()));
-      }
-
-      projectDirectoryMetadata.setLastAccessTime(
-          Files.getLastModifiedTime(Paths.get(projectDirectoryMetadata.getInstalledDir().toString(),
-              FlowPreparer.PROJECT_DIR_SIZE_FILE_NAME)));
-
-    } catch (final Exception e) {
-      log.warn("Error while loading project dir metadata for project {}",
-          project.getFileName(), e);
+  private void deleteLeftoverDirs() {
+    final File[] leftovers = this.projectCacheDir.listFiles(
+        (dir, name) -> name.startsWith(DELETED_DIR_PREFIX));
+    if (leftovers == null) {
+      return;
     }
-    return projectDirectoryMetadata;
-  }
-
-  /**
-   * Browse Cache root directory to fetch all valid projects and unclean files. If a project
-   * already exists in the cache, don't bother to re-fetch the OS metadata again.
-   */
-  private void loadAllProjects() {
-    final List<Path> projects = new ArrayList<>();
-    for (final File project : Objects
-        .requireNonNull(this.projectCacheDir.listFiles(new FilenameFilter() {
-          String pattern = "[0-9]+\\.[0-9]+";
-          @Override
-          public boolean accept(final File dir, final String name) {
-            return name.matches(this.pattern);
-          }
-        }))) {
-      if (project.exists() && project.isDirectory() &&
-          !projectsUnderDeletion.containsKey(project.toPath())) {
-        ProjectDirectoryMetadata projectDirectoryMetadata = fetchProjectMetadata(project.toPath());
-        if (projectDirectoryMetadata != null) {
-            cachedProjects.put(project.toPath(), projectDirectoryMetadata);
-        }
-      }
-    } // end of for loop
-  }
-
-  /**
-   * @return sum of the size of all project dirs
-   */
-  private long getProjectDirsTotalSizeInBytes() {
-    long totalSizeInBytes = 0;
-    for (ProjectDirectoryMetadata metadata : cachedProjects.values()) {
-      totalSizeInBytes += metadata.getDirSizeInByte();
+    for (final File leftover : leftovers) {
+      submitProjectForDeletion(leftover);
     }
-    return totalSizeInBytes;
   }
 
   private void addToDeletionQueue(final File toDelete) {
@@ -222,23 +172,69 @@ class ProjectCacheCleaner {
    *
    * @param sizeToFreeInBytes space to free up
    */
-  private void deleteLeastRecentlyUsedProjects(long sizeToFreeInBytes) {
-
-    final List<ProjectDirectoryMetadata> lruList = new ArrayList<>(cachedProjects.values());
-    lruList.sort(Comparator.comparing(ProjectDirectoryMetadata::getLastAccessTime));
-    for (ProjectDirectoryMetadata lruEntry : lruList) {
-      if (sizeToFreeInBytes > 0) {
-        if (lruEntry.getInstalledDir() != null) {
-          cachedProjects.remove(lruEntry.getInstalledDir().toPath());
-          submitProjectForDeletion(lruEntry.getInstalledDir());
-          sizeToFreeInBytes -= lruEntry.getDirSizeInByte();
-        }
-      } else {
-        break;
+  private void deleteLeastRecentlyUsedProjects(final long sizeToFreeInBytes) {
+    for (final Map.Entry<Path, Long> lruEntry :
+        this.index.getLeastRecentlyUsed(sizeToFreeInBytes).entrySet()) {
+      final Path projectDir = lruEntry.getKey();
+      final File toDelete = moveAwayForDeletion(projectDir);
+      if (toDelete != null) {
+        submitProjectForDeletion(toDelete);
+      }
+      if (toDelete != null || !Files.exists(projectDir)) {
+        this.index.remove(projectDir);
       }
     }
   }
 
+  /**
+   * Rename a project dir out of the way, so that it's no longer used for new executions while
+   * it's being deleted. Executions currently hard-linking the project dir are waited for.
+   *
+   * @return the renamed dir, null if the project dir could not be renamed
+   */
+  private File moveAwayForDeletion(final Path projectDir) {
+    final File toDelete = new File(this.projectCacheDir,
+        DELETED_DIR_PREFIX + projectDir.getFileName() + "." + System.currentTimeMillis());
+    final Lock lock = getProjectDirLock(projectDir).writeLock();
+    lock.lock();
+    try {
+      Files.move(projectDir, toDelete.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      return toDelete;
+    } catch (final IOException e) {
+      log.warn("Error when moving project dir {} away for deletion", projectDir, e);
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Record a project dir installed in the cache, as the most recently used one.
+   *
+   * @param projectDir path of the project dir in the cache
+   * @param sizeInBytes size of the project dir
+   */
+  void recordInstall(final Path projectDir, final long sizeInBytes) {
+    this.index.install(projectDir, sizeInBytes);
+  }
+
+  /**
+   * Record a project dir used by an execution, as the most recently used one.
+   *
+   * @param projectDir path of the project dir in the cache
+   */
+  void recordAccess(final Path projectDir) {
+    this.index.access(projectDir);
+  }
+
+  /**
+   * @param projectDir path of a project dir in the cache
+   * @return the lock guarding the project dir against eviction while it's in use.
+   */
+  ReadWriteLock getProjectDirLock(final Path projectDir) {
+    return this.projectDirLocks.get(projectDir);
+  }
+
   private long bytesToMB(final long bytes) {
     return bytes / (1024 * 1024);
   }
@@ -270,7 +266,8 @@ class ProjectCacheCleaner {
    * Deleting least recently accessed project dirs when there's no room to accommodate new project.
    *
    * The logic:
-   * 1. Calculates the total dynamic size available for the project cache.
+   * 1. Calculates the total dynamic size available for the project cache, taking the size of the
+   *    project dirs from the index rather than from the cache dir.
    *    This = (Usable space left in the disk partition + Space currently occupied by the project cache).
    * 2. Calculates high water mark & throttle water marks based on the above number.
    * 3. If the occupied bytes > high water mark, lazy (Non-blocking) LRU eviction kicks in
@@ -279,16 +276,11 @@ class ProjectCacheCleaner {
    *
    * @param newProjectSizeInBytes space in bytes the new project will add to the existing cache
    */
-  public void deleteProjectDirsIfNecessary(final long newProjectSizeInBytes) {
+  public synchronized void deleteProjectDirsIfNecessary(final long newProjectSizeInBytes) {
     final long cachePartitionSize = this.projectCacheDir.getTotalSpace();
     final long availablePartitionSize = this.projectCacheDir.getUsableSpace();
 
-    final long start = System.currentTimeMillis();
-    loadAllProjects();
-    log.info("Loading {} project dirs metadata completed in {} msecs",
-        cachedProjects.size(), System.currentTimeMillis() - start);
-
-    final long currentCacheSize = getProjectDirsTotalSizeInBytes();
+    final long currentCacheSize = this.index.getTotalSizeInBytes();
     final long projectCacheDirCapacity = currentCacheSize + availablePartitionSize;
     boolean throttleAfterDeletion = false;
 
@@ -324,6 +316,19 @@ class ProjectCacheCleaner {
     }
   }
 
+  /**
+   * Check if a new project fits in the cache without evicting other projects, i.e. if the cache
+   * stays below its high water mark.
+   *
+   * @param newProjectSizeInBytes space in bytes the new project will add to the existing cache
+   */
+  public boolean hasRoomFor(final long newProjectSizeInBytes) {
+    final long currentCacheSize = this.index.getTotalSizeInBytes();
+    final long projectCacheDirCapacity = currentCacheSize + this.projectCacheDir.getUsableSpace();
+    final long highWatermark = (long) (projectCacheDirCapacity * this.percentageOfDisk);
+    return currentCacheSize + newProjectSizeInBytes < highWatermark;
+  }
+
   /**
    *
    * @return Return the current state of the cleaner service
@@ -345,5 +350,6 @@ class ProjectCacheCleaner {
     } catch (final InterruptedException e) {
       log.warn("Error when deleting files", e);
     }
+    this.index.close();
   }
 }
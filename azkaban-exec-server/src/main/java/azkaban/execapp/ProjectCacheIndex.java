@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the project dirs of the project cache, from least to most recently used,
+ * with their size.
+ *
+ * <p>The index is updated as the project dirs are used, installed and evicted, so eviction
+ * decisions don't need to walk the cache dir. It's persisted in an append-only journal next to
+ * the cache dir, which is replayed and compacted when the executor restarts. The project dirs
+ * missing from the journal, e.g. on the first start, are ordered by the last modified time of
+ * their size file.</p>
+ */
+class ProjectCacheIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProjectCacheIndex.class);
+
+  private static final Pattern PROJECT_DIR_NAME = Pattern.compile("[0-9]+\\.[0-9]+");
+
+  // Journal records: a project dir installed with its size, used, or deleted
+  private static final String INSTALL = "I";
+  private static final String ACCESS = "A";
+  private static final String DELETE = "D";
+
+  // The journal is compacted when it has this many more records than the index has entries
+  private static final int MAX_STALE_RECORDS = 10000;
+
+  private final File projectCacheDir;
+  private final Path journalPath;
+
+  // Size of the project dirs by name, from least to most recently used
+  private final LinkedHashMap<String, Long> projectDirs = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalSizeInBytes = 0;
+
+  // Null if the journal can't be written
+  private Writer journal;
+  private int journalRecords = 0;
+
+  ProjectCacheIndex(final File projectCacheDir) {
+    this.projectCacheDir = projectCacheDir;
+    final File absoluteDir = projectCacheDir.getAbsoluteFile();
+    this.journalPath = Paths.get(absoluteDir.getParent(), absoluteDir.getName() + ".journal");
+    load();
+  }
+
+  /**
+   * Replay the journal, add the project dirs it doesn't know and drop the ones which no longer
+   * exist, then rewrite it.
+   */
+  private synchronized void load() {
+    final long start = System.currentTimeMillis();
+    final LinkedHashMap<String, Long> journaled = readJournal();
+
+    final List<File> unjournaled = new ArrayList<>();
+    final File[] files = this.projectCacheDir.listFiles(
+        (dir, name) -> PROJECT_DIR_NAME.matcher(name).matches());
+    final Map<String, File> existing = new LinkedHashMap<>();
+    if (files != null) {
+      for (final File file : files) {
+        if (file.isDirectory()) {
+          existing.put(file.getName(), file);
+          if (!journaled.containsKey(file.getName())) {
+            unjournaled.add(file);
+          }
+        }
+      }
+    }
+
+    // The project dirs unknown to the journal are considered less recently used than the others.
+    unjournaled.sort(Comparator.comparingLong(ProjectCacheIndex::getLastAccessTime));
+    for (final File dir : unjournaled) {
+      try {
+        put(dir.getName(), FlowPreparer.calculateDirSizeAndSave(dir));
+      } catch (final IOException e) {
+        LOGGER.warn("Error while loading the size of project dir {}", dir, e);
+      }
+    }
+    for (final Map.Entry<String, Long> entry : journaled.entrySet()) {
+      if (existing.containsKey(entry.getKey())) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    compactJournal();
+    LOGGER.info("Loaded {} project dirs ({} bytes) in {} msec(s), {} of them from journal {}",
+        this.projectDirs.size(), this.totalSizeInBytes, System.currentTimeMillis() - start,
+        this.projectDirs.size() - unjournaled.size(), this.journalPath);
+  }
+
+  private LinkedHashMap<String, Long> readJournal() {
+    final LinkedHashMap<String, Long> journaled = new LinkedHashMap<>(16, 0.75f, true);
+    if (!Files.exists(this.journalPath)) {
+      return journaled;
+    }
+    try (final BufferedReader reader = Files
+        .newBufferedReader(this.journalPath, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] record = line.split(" ");
+        try {
+          if (record[0].equals(INSTALL) && record.length == 3) {
+            journaled.put(record[1], Long.parseLong(record[2]));
+          } else if (record[0].equals(ACCESS) && record.length == 2) {
+            journaled.get(record[1]);
+          } else if (record[0].equals(DELETE) && record.length == 2) {
+            journaled.remove(record[1]);
+          } else {
+            LOGGER.warn("Ignoring invalid record '{}' of journal {}", line, this.journalPath);
+          }
+        } catch (final NumberFormatException e) {
+          // The last record may be incomplete if the executor stopped while writing it.
+          LOGGER.warn("Ignoring invalid record '{}' of journal {}", line, this.journalPath);
+        }
+      }
+    } catch (final IOException e) {
+      LOGGER.warn("Error while reading journal {}, project dirs will be ordered by their last "
+          + "modified time", this.journalPath, e);
+      journaled.clear();
+    }
+    return journaled;
+  }
+
+  private static long getLastAccessTime(final File projectDir) {
+    return new File(projectDir, FlowPreparer.PROJECT_DIR_SIZE_FILE_NAME).lastModified();
+  }
+
+  /**
+   * Rewrite the journal with one record per project dir, and open it for appending.
+   */
+  private void compactJournal() {
+    closeJournal();
+    final Path tempPath = Paths.get(this.journalPath + ".tmp");
+    try {
+      try (final BufferedWriter writer = Files.newBufferedWriter(tempPath,
+          StandardCharsets.UTF_8)) {
+        for (final Map.Entry<String, Long> entry : this.projectDirs.entrySet()) {
+          writer.write(INSTALL + " " + entry.getKey() + " " + entry.getValue() + "\n");
+        }
+      }
+      Files.move(tempPath, this.journalPath, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      this.journal = Files.newBufferedWriter(this.journalPath, StandardCharsets.UTF_8,
+          StandardOpenOption.APPEND);
+      this.journalRecords = this.projectDirs.size();
+    } catch (final IOException e) {
+      LOGGER.warn("Error while writing journal {}, the project cache index won't be persisted",
+          this.journalPath, e);
+      this.journal = null;
+    }
+  }
+
+  private void appendToJournal(final String record) {
+    if (this.journal == null) {
+      return;
+    }
+    try {
+      this.journal.write(record + "\n");
+      this.journal.flush();
+      this.journalRecords++;
+    } catch (final IOException e) {
+      LOGGER.warn("Error while writing journal {}, the project cache index won't be persisted",
+          this.journalPath, e);
+      closeJournal();
+      return;
+    }
+    if (this.journalRecords > this.projectDirs.size() + MAX_STALE_RECORDS) {
+      compactJournal();
+    }
+  }
+
+  private void closeJournal() {
+    if (this.journal != null) {
+      try {
+        this.journal.close();
+      } catch (final IOException e) {
+        LOGGER.warn("Error while closing journal {}", this.journalPath, e);
+      }
+      this.journal = null;
+    }
+  }
+
+  private void put(final String name, final long sizeInBytes) {
+    final Long previousSize = this.projectDirs.put(name, sizeInBytes);
+    if (previousSize != null) {
+      this.totalSizeInBytes -= previousSize;
+    }
+    this.totalSizeInBytes += sizeInBytes;
+  }
+
+  /**
+   * Record a project dir installed in the cache, as the most recently used one.
+   */
+  synchronized void install(final Path projectDir, final long sizeInBytes) {
+    final String name = projectDir.getFileName().toString();
+    put(name, sizeInBytes);
+    appendToJournal(INSTALL + " " + name + " " + sizeInBytes);
+  }
+
+  /**
+   * Record a project dir used by an execution, making it the most recently used one. Does
+   * nothing if the project dir is not in the index, e.g. if it's being evicted.
+   */
+  synchronized void access(final Path projectDir) {
+    final String name = projectDir.getFileName().toString();
+    if (this.projectDirs.get(name) != null) {
+      appendToJournal(ACCESS + " " + name);
+    }
+  }
+
+  /**
+   * Record a project dir deleted from the cache.
+   */
+  synchronized void remove(final Path projectDir) {
+    final String name = projectDir.getFileName().toString();
+    final Long sizeInBytes = this.projectDirs.remove(name);
+    if (sizeInBytes != null) {
+      this.totalSizeInBytes -= sizeInBytes;
+      appendToJournal(DELETE + " " + name);
+    }
+  }
+
+  /**
+   * @return the size of the least recently used project dirs whose total size is at least the
+   * given size, or of all the project dirs if the cache is smaller, from least to most recently
+   * used.
+   */
+  synchronized LinkedHashMap<Path, Long> getLeastRecentlyUsed(final long sizeInBytes) {
+    final LinkedHashMap<Path, Long> result = new LinkedHashMap<>();
+    long size = 0;
+    final Iterator<Map.Entry<String, Long>> it = this.projectDirs.entrySet().iterator();
+    while (size < sizeInBytes && it.hasNext()) {
+      final Map.Entry<String, Long> entry = it.next();
+      result.put(new File(this.projectCacheDir, entry.getKey()).toPath(), entry.getValue());
+      size += entry.getValue();
+    }
+    return result;
+  }
+
+  synchronized long getTotalSizeInBytes() {
+    return this.totalSizeInBytes;
+  }
+
+  @VisibleForTesting
+  synchronized int size() {
+    return this.projectDirs.size();
+  }
+
+  synchronized void close() {
+    closeJournal();
+  }
+}
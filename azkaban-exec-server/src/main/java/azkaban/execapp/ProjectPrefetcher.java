@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads projects into the project cache ahead of their executions, one at a time and in the
+ * order they were requested, so that the prefetching doesn't compete with the flow preparations
+ * for the bandwidth. A project already queued or being downloaded is not queued again.
+ */
+class ProjectPrefetcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProjectPrefetcher.class);
+
+  private final FlowPreparer flowPreparer;
+  private final long diskBudgetInBytes;
+  private final RateLimiter rateLimiter;
+  private final ExecutorService prefetchService;
+  // Project dir names of the projects queued or being downloaded
+  private final Set<String> pendingProjects = ConcurrentHashMap.newKeySet();
+
+  ProjectPrefetcher(final FlowPreparer flowPreparer, final long diskBudgetInBytes,
+      final long maxBytesPerSec) {
+    Preconditions.checkNotNull(flowPreparer);
+    Preconditions.checkArgument(maxBytesPerSec > 0);
+
+    this.flowPreparer = flowPreparer;
+    this.diskBudgetInBytes = diskBudgetInBytes;
+    this.rateLimiter = RateLimiter.create(maxBytesPerSec);
+    this.prefetchService = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("azk-project-prefetcher").setDaemon(true)
+            .build());
+  }
+
+  /**
+   * Queue the download of a project version.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  void prefetch(final int projectId, final int version) {
+    final String project = projectId + "." + version;
+    if (!this.pendingProjects.add(project)) {
+      return;
+    }
+    this.prefetchService.submit(() -> {
+      try {
+        this.flowPreparer
+            .prefetchProject(projectId, version, this.diskBudgetInBytes, this.rateLimiter);
+      } catch (final Exception e) {
+        LOGGER.warn("Error while prefetching project {}", project, e);
+      } finally {
+        this.pendingProjects.remove(project);
+      }
+    });
+  }
+
+  void shutdown() {
+    this.prefetchService.shutdownNow();
+  }
+}
@@ -212,6 +212,36 @@ public class DagServiceTest {
 
   }
 
+  /**
+   * Tests a node with two failed parents is canceled once.
+   *
+   * <pre>
+   *  a   b
+   *   \ /
+   *    c
+   * </pre>
+   */
+  @Test
+  public void twoParentsFail() throws Exception {
+    createNodeInTestDag("a");
+    createNodeInTestDag("b");
+    createNodeInTestDag("c");
+    this.dagBuilder.addParentNode("c", "a");
+    this.dagBuilder.addParentNode("c", "b");
+    this.nodesToFail.add("a");
+    this.nodesToFail.add("b");
+
+    addToExpectedSequence("fa", Status.RUNNING);
+    addToExpectedSequence("a", Status.RUNNING);
+    addToExpectedSequence("b", Status.RUNNING);
+    addToExpectedSequence("a", Status.FAILURE);
+    addToExpectedSequence("c", Status.CANCELED);
+    addToExpectedSequence("b", Status.FAILURE);
+    addToExpectedSequence("fa", Status.FAILURE);
+
+    buildDagRunAndVerify();
+  }
+
   /**
    * Tests a DAG with one subDag, all successful.
    *
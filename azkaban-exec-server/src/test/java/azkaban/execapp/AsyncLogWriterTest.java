@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.metrics.MetricsManager;
+import azkaban.metrics.MetricsTestUtility;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Appender;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AsyncLogWriterTest {
+
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private MetricsTestUtility testUtil;
+  private AsyncLogWriter writer;
+
+  private AsyncLogWriter createWriter(final boolean enabled, final String overflowPolicy,
+      final int bufferSize) {
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    this.testUtil = new MetricsTestUtility(metricRegistry);
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_ENABLED, String.valueOf(enabled));
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_OVERFLOW_POLICY, overflowPolicy);
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_ASYNC_BUFFER_SIZE, bufferSize);
+    this.writer = new AsyncLogWriter(props, new ExecMetrics(new MetricsManager(metricRegistry)));
+    this.writer.start();
+    return this.writer;
+  }
+
+  @After
+  public void tearDown() {
+    if (this.writer != null) {
+      this.writer.shutdown();
+    }
+  }
+
+  private static Logger createLogger(final Appender appender) {
+    final Logger logger = Logger.getLogger("AsyncLogWriterTest-" + System.nanoTime());
+    logger.setAdditivity(false);
+    logger.addAppender(appender);
+    return logger;
+  }
+
+  @Test
+  public void testLinesAreWrittenBeforeClose() throws Exception {
+    createWriter(true, "drop_newest", 16384);
+    final File logFile = this.temp.newFile("job.log");
+    final Appender appender = this.writer
+        .wrap(new FileAppender(new PatternLayout("%p %m%n"), logFile.getPath(), false));
+    final Logger logger = createLogger(appender);
+
+    for (int i = 0; i < 10000; i++) {
+      logger.info("line " + i);
+    }
+    appender.close();
+
+    final List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+    assertThat(lines).hasSize(10000);
+    assertThat(lines.get(0)).isEqualTo("INFO line 0");
+    assertThat(lines.get(9999)).isEqualTo("INFO line 9999");
+    assertThat(this.writer.getNumQueued()).isEqualTo(0);
+    assertThat(this.writer.getNumDropped()).isEqualTo(0);
+    assertThat(this.testUtil.getTimerCount(ExecMetrics.JOB_LOG_WRITE_TIMER_NAME))
+        .isGreaterThan(0);
+  }
+
+  @Test
+  public void testAppenderIsNotWrappedWhenDisabled() throws Exception {
+    createWriter(false, "drop_newest", 16384);
+    final FileAppender fileAppender = new FileAppender(new PatternLayout("%m%n"),
+        this.temp.newFile("job.log").getPath(), false);
+    assertThat(this.writer.wrap(fileAppender)).isSameAs(fileAppender);
+  }
+
+  @Test
+  public void testNewestLinesAreDroppedWhenFull() throws Exception {
+    final List<String> lines = logWhileWriterIsBlocked("drop_newest");
+    assertThat(lines).containsExactly("INFO line 0",
+        "WARN Dropped 6 log lines because the log buffer of the executor was full.",
+        "INFO line 1", "INFO line 2", "INFO line 3", "INFO line 4");
+  }
+
+  @Test
+  public void testOldestLinesAreDroppedWhenFull() throws Exception {
+    final List<String> lines = logWhileWriterIsBlocked("drop_oldest");
+    assertThat(lines).containsExactly("INFO line 0",
+        "WARN Dropped 6 log lines because the log buffer of the executor was full.",
+        "INFO line 7", "INFO line 8", "INFO line 9", "INFO line 10");
+  }
+
+  @Test
+  public void testDroppedLinesAreReportedWhenClosed() throws Exception {
+    createWriter(true, "drop_newest", 4);
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final Appender blockedAppender = this.writer
+        .wrap(createBlockingAppender(this.temp.newFile("blocked.log"), writing, unblock));
+    final Logger blockedLogger = createLogger(blockedAppender);
+    final File logFile = this.temp.newFile("job.log");
+    final Appender appender = this.writer
+        .wrap(new FileAppender(new PatternLayout("%p %m%n"), logFile.getPath(), false));
+    final Logger logger = createLogger(appender);
+
+    // The buffer is full of the lines of the other log, so none of this log is queued.
+    blockedLogger.info("line 0");
+    assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+    for (int i = 1; i <= 4; i++) {
+      blockedLogger.info("line " + i);
+    }
+    logger.info("dropped 0");
+    logger.info("dropped 1");
+    unblock.countDown();
+    blockedAppender.close();
+    appender.close();
+
+    assertThat(Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8)).containsExactly(
+        "WARN Dropped 2 log lines because the log buffer of the executor was full.");
+  }
+
+  /**
+   * @return a file appender whose writes block until unblocked.
+   */
+  private static FileAppender createBlockingAppender(final File logFile,
+      final CountDownLatch writing, final CountDownLatch unblock) throws Exception {
+    return new FileAppender(new PatternLayout("%p %m%n"), logFile.getPath(), false) {
+      @Override
+      protected void subAppend(final LoggingEvent event) {
+        writing.countDown();
+        try {
+          unblock.await();
+        } catch (final InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        super.subAppend(event);
+      }
+    };
+  }
+
+  /**
+   * Log 11 lines with a buffer of 4 lines while the writer is blocked writing the first one.
+   */
+  private List<String> logWhileWriterIsBlocked(final String overflowPolicy) throws Exception {
+    createWriter(true, overflowPolicy, 4);
+    final File logFile = this.temp.newFile("job.log");
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final Appender appender = this.writer
+        .wrap(createBlockingAppender(logFile, writing, unblock));
+    final Logger logger = createLogger(appender);
+
+    logger.info("line 0");
+    assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+    for (int i = 1; i <= 10; i++) {
+      logger.info("line " + i);
+    }
+    assertThat(this.writer.getNumQueued()).isEqualTo(4);
+    assertThat(this.writer.getNumDropped()).isEqualTo(6);
+
+    unblock.countDown();
+    appender.close();
+    return Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+  }
+}
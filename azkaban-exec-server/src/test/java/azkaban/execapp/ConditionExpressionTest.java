@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConditionExpressionTest {
+
+  private final Map<String, String> variables = new HashMap<>();
+
+  @Before
+  public void setUp() {
+    this.variables.put("jobA:param", "foo");
+    this.variables.put("jobA:count", "10");
+    this.variables.put("jobB:count", "9");
+    this.variables.put("jobB:empty", "");
+  }
+
+  private boolean evaluate(final String condition) {
+    return ConditionExpression.compile(condition)
+        .evaluate((job, param) -> this.variables.get(job + ":" + param));
+  }
+
+  @Test
+  public void testEquality() {
+    assertThat(evaluate("${jobA:param} == 'foo'")).isTrue();
+    assertThat(evaluate("${jobA:param} == \"foo\"")).isTrue();
+    assertThat(evaluate("${jobA:param} == 'bar'")).isFalse();
+    assertThat(evaluate("${jobA:param} != 'bar'")).isTrue();
+    assertThat(evaluate("${jobA:count} == 10")).isTrue();
+    assertThat(evaluate("${jobA:count} == '10.0'")).isFalse();
+    assertThat(evaluate("${jobB:empty} == 0")).isTrue();
+  }
+
+  @Test
+  public void testComparison() {
+    // A string is converted to a number when compared to a number
+    assertThat(evaluate("${jobA:count} > 9")).isTrue();
+    assertThat(evaluate("${jobA:count} >= 10")).isTrue();
+    assertThat(evaluate("${jobA:count} < 10")).isFalse();
+    assertThat(evaluate("${jobA:count} <= 10")).isTrue();
+    // Two strings are compared lexicographically
+    assertThat(evaluate("${jobA:count} > ${jobB:count}")).isFalse();
+    assertThat(evaluate("${jobA:param} > 'bar'")).isTrue();
+    // A string which isn't a number can't be ordered with a number
+    assertThat(evaluate("${jobA:param} > 1")).isFalse();
+    assertThat(evaluate("${jobA:param} <= 1")).isFalse();
+  }
+
+  @Test
+  public void testBooleanOperators() {
+    assertThat(evaluate("${jobA:param} == 'foo' && ${jobA:count} == 10")).isTrue();
+    assertThat(evaluate("${jobA:param} == 'bar' || ${jobA:count} == 10")).isTrue();
+    assertThat(evaluate("!(${jobA:param} == 'bar')")).isTrue();
+    // && binds tighter than ||
+    assertThat(evaluate("1 == 1 || 1 == 2 && 1 == 2")).isTrue();
+    assertThat(evaluate("(1 == 1 || 1 == 2) && 1 == 2")).isFalse();
+  }
+
+  @Test
+  public void testConditionOnJobStatusMacro() {
+    // The macros are checked separately, so they are true here
+    assertThat(evaluate("one_success")).isTrue();
+    assertThat(evaluate("ALL_DONE && ${jobA:param} == 'foo'")).isTrue();
+    assertThat(evaluate("!one_success")).isFalse();
+  }
+
+  @Test
+  public void testOnlyBooleanResultsMeetTheCondition() {
+    assertThat(evaluate("${jobA:param}")).isFalse();
+    assertThat(evaluate("1 == 1 && ${jobA:param}")).isFalse();
+    assertThat(evaluate("${jobA:param} && 1 == 1")).isTrue();
+    assertThat(evaluate("${jobB:empty} || 1 == 1")).isTrue();
+  }
+
+  @Test
+  public void testUnresolvedVariable() {
+    final ConditionExpression expression = ConditionExpression
+        .compile("${jobA:missing} == 'foo'");
+    assertThatThrownBy(() -> expression.evaluate((job, param) -> null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testInvalidConditions() {
+    assertThatThrownBy(() -> ConditionExpression.compile("${jobA:param} == "))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ConditionExpression.compile("(1 == 1"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ConditionExpression.compile("print('hello!')"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ConditionExpression.compile("'foo == 1"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> ConditionExpression.compile("1 == 1 1"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static azkaban.test.executions.ThinArchiveTestUtils.depEq;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.execapp.metric.DependencyCacheHitRatio;
+import azkaban.spi.DependencyFile;
+import azkaban.test.executions.ThinArchiveTestUtils;
+import azkaban.utils.DependencyTransferException;
+import azkaban.utils.DependencyTransferManager;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheDir;
+  private File projectsDir;
+  private DependencyTransferManager dependencyTransferManager;
+  private DependencyCacheHitRatio hitRatio;
+  private DependencyCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cacheDir = this.temporaryFolder.newFolder("dependencies");
+    this.projectsDir = this.temporaryFolder.newFolder("projects");
+    this.hitRatio = new DependencyCacheHitRatio();
+    this.dependencyTransferManager = mock(DependencyTransferManager.class);
+    when(this.dependencyTransferManager.isEnabled()).thenReturn(true);
+    // Write the content of the dependency as if it was downloaded
+    doAnswer(invocation -> {
+      final DependencyFile f = invocation.getArgument(0);
+      FileUtils.writeStringToFile(f.getFile(), contentOf(f));
+      return null;
+    }).when(this.dependencyTransferManager).downloadDependency(any());
+    this.cache = createCache(100);
+  }
+
+  @After
+  public void tearDown() {
+    this.cache.shutdown();
+  }
+
+  private DependencyCache createCache(final long maxSizeInBytes) {
+    return new DependencyCache(this.cacheDir, maxSizeInBytes, this.dependencyTransferManager,
+        this.hitRatio, 2);
+  }
+
+  private static String contentOf(final DependencyFile f) {
+    return f.getSHA1().equals(ThinArchiveTestUtils.getDepA().getSHA1())
+        ? ThinArchiveTestUtils.getDepAContent() : ThinArchiveTestUtils.getDepBContent();
+  }
+
+  private DependencyFile depAIn(final String project) {
+    return ThinArchiveTestUtils.getDepA()
+        .makeDependencyFile(new File(this.projectsDir, project + "/lib/a.jar"));
+  }
+
+  private DependencyFile depBIn(final String project) {
+    return ThinArchiveTestUtils.getDepB()
+        .makeDependencyFile(new File(this.projectsDir, project + "/lib/b.jar"));
+  }
+
+  @Test
+  public void testDownloadsOnceAndLinks() throws Exception {
+    final DependencyFile first = depAIn("1.1");
+    final DependencyFile second = depAIn("2.1");
+
+    this.cache.installDependencies(new HashSet<>(Arrays.asList(first, depBIn("1.1"))));
+    this.cache.installDependencies(new HashSet<>(Arrays.asList(second)));
+
+    verify(this.dependencyTransferManager, times(1))
+        .downloadDependency(depEq(ThinArchiveTestUtils.getDepA()));
+    assertThat(FileUtils.readFileToString(first.getFile()))
+        .isEqualTo(ThinArchiveTestUtils.getDepAContent());
+    assertThat(FileUtils.readFileToString(second.getFile()))
+        .isEqualTo(ThinArchiveTestUtils.getDepAContent());
+    assertThat(Files.isSameFile(first.getFile().toPath(), second.getFile().toPath())).isTrue();
+    assertThat(this.cache.getCacheSizeInBytes()).isEqualTo(
+        ThinArchiveTestUtils.getDepAContent().length()
+            + ThinArchiveTestUtils.getDepBContent().length());
+    // 2 misses then 1 hit
+    assertThat(this.hitRatio.getValue()).isEqualTo(1.0 / 3);
+  }
+
+  @Test
+  public void testConcurrentInstallsDownloadOnce() throws Exception {
+    final CountDownLatch downloadStarted = new CountDownLatch(1);
+    final CountDownLatch finishDownload = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      downloadStarted.countDown();
+      finishDownload.await();
+      final DependencyFile f = invocation.getArgument(0);
+      FileUtils.writeStringToFile(f.getFile(), contentOf(f));
+      return null;
+    }).when(this.dependencyTransferManager).downloadDependency(any());
+
+    final Thread first = new Thread(() -> this.cache.installDependency(depAIn("1.1")));
+    first.start();
+    downloadStarted.await();
+    final Thread second = new Thread(() -> this.cache.installDependency(depAIn("2.1")));
+    second.start();
+    finishDownload.countDown();
+    first.join();
+    second.join();
+
+    verify(this.dependencyTransferManager, times(1)).downloadDependency(any());
+    assertThat(new File(this.projectsDir, "2.1/lib/a.jar")).exists();
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws Exception {
+    this.cache.shutdown();
+    this.cache = createCache(ThinArchiveTestUtils.getDepAContent().length() + 1);
+
+    this.cache.installDependency(depAIn("1.1"));
+    this.cache.installDependency(depBIn("1.1"));
+
+    assertThat(this.cache.isCached(ThinArchiveTestUtils.getDepA().getSHA1())).isFalse();
+    assertThat(this.cache.isCached(ThinArchiveTestUtils.getDepB().getSHA1())).isTrue();
+    // The project keeps its link to the evicted dependency.
+    assertThat(new File(this.projectsDir, "1.1/lib/a.jar")).exists();
+  }
+
+  @Test
+  public void testReloadsCachedDependencies() throws Exception {
+    this.cache.installDependency(depAIn("1.1"));
+    new File(this.cacheDir, DependencyCache.TEMP_FILE_PREFIX + "partial").createNewFile();
+    this.cache.shutdown();
+
+    this.cache = createCache(100);
+
+    assertThat(this.cache.isCached(ThinArchiveTestUtils.getDepA().getSHA1())).isTrue();
+    assertThat(new File(this.cacheDir, DependencyCache.TEMP_FILE_PREFIX + "partial"))
+        .doesNotExist();
+    this.cache.installDependency(depAIn("2.1"));
+    verify(this.dependencyTransferManager, times(1)).downloadDependency(any());
+  }
+
+  @Test
+  public void testFailedDownloadIsNotCached() {
+    doThrow(new DependencyTransferException("failed")).when(this.dependencyTransferManager)
+        .downloadDependency(any());
+
+    assertThatThrownBy(
+        () -> this.cache.installDependencies(new HashSet<>(Arrays.asList(depAIn("1.1")))))
+        .isInstanceOf(DependencyTransferException.class);
+    assertThat(this.cache.isCached(ThinArchiveTestUtils.getDepA().getSHA1())).isFalse();
+    assertThat(this.cacheDir.list()).isEmpty();
+  }
+}
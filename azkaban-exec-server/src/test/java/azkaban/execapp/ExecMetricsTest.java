@@ -55,4 +55,16 @@ public class ExecMetricsTest {
     assertThat(snapshot.getMax()).isGreaterThanOrEqualTo(10);
   }
 
+  @Test
+  public void testDispatchMetrics() {
+    this.metrics.addDispatchLatency(20);
+    this.metrics.addDispatchLatency(1000);
+    this.metrics.markDispatchWakeUp();
+    final Snapshot snapshot =
+        this.testUtil.getHistogramSnapshot(ExecMetrics.DISPATCH_LATENCY_HISTOGRAM_NAME);
+    assertThat(snapshot.size()).isEqualTo(2);
+    assertThat(snapshot.getMin()).isEqualTo(20);
+    assertThat(snapshot.getMax()).isEqualTo(1000);
+    assertThat(this.testUtil.getMeterValue(ExecMetrics.DISPATCH_WAKEUP_METER_NAME)).isEqualTo(1);
+  }
 }
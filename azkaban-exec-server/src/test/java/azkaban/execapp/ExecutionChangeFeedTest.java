@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.execapp.ExecutionChangeFeed.Changes;
+import azkaban.utils.Props;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutionChangeFeedTest {
+
+  private ExecutionChangeFeed feed;
+
+  @Before
+  public void setUp() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_EXECUTOR_CHANGE_FEED_MAX_EXECUTIONS, 3);
+    this.feed = new ExecutionChangeFeed(props);
+  }
+
+  @Test
+  public void changesAfterSequence() throws Exception {
+    this.feed.recordChange(1);
+    this.feed.recordChange(2);
+    final long sequence = this.feed.getSequence();
+    this.feed.recordChange(3);
+    this.feed.recordChange(1);
+    this.feed.recordChange(3);
+
+    final Changes changes = this.feed.getChanges(this.feed.getFeedId(), sequence, 0);
+    assertThat(changes.isReset()).isFalse();
+    assertThat(changes.getSequence()).isEqualTo(5);
+    assertThat(changes.getChangedExecIds()).containsExactly(1, 3);
+  }
+
+  @Test
+  public void noChangesAfterTimeout() throws Exception {
+    this.feed.recordChange(1);
+    final long start = System.currentTimeMillis();
+    final Changes changes = this.feed.getChanges(this.feed.getFeedId(), 1, 100);
+    assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(100);
+    assertThat(changes.isReset()).isFalse();
+    assertThat(changes.getSequence()).isEqualTo(1);
+    assertThat(changes.getChangedExecIds()).isEmpty();
+  }
+
+  @Test(timeout = 10000)
+  public void waitForChange() throws Exception {
+    final CompletableFuture<Changes> changes = CompletableFuture.supplyAsync(() -> {
+      try {
+        return this.feed.getChanges(this.feed.getFeedId(), 0, ExecutionChangeFeed.MAX_TIMEOUT_MS);
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    Thread.sleep(100);
+    assertThat(changes.isDone()).isFalse();
+    this.feed.recordChange(7);
+    assertThat(changes.get(5, TimeUnit.SECONDS).getChangedExecIds()).containsExactly(7);
+  }
+
+  @Test
+  public void resetIfUnknownFeed() throws Exception {
+    this.feed.recordChange(1);
+    assertThat(this.feed.getChanges(null, 0, 0).isReset()).isTrue();
+    assertThat(this.feed.getChanges("other", 0, 0).isReset()).isTrue();
+    final Changes changes = this.feed.getChanges(this.feed.getFeedId(), 0, 0);
+    assertThat(changes.isReset()).isFalse();
+    assertThat(changes.getChangedExecIds()).containsExactly(1);
+  }
+
+  @Test
+  public void resetIfSequenceIsAhead() throws Exception {
+    this.feed.recordChange(1);
+    final Changes changes = this.feed.getChanges(this.feed.getFeedId(), 2, 0);
+    assertThat(changes.isReset()).isTrue();
+    assertThat(changes.getSequence()).isEqualTo(1);
+  }
+
+  @Test
+  public void resetIfChangesAreForgotten() throws Exception {
+    this.feed.recordChange(1);
+    this.feed.recordChange(2);
+    this.feed.recordChange(3);
+    this.feed.recordChange(4);
+    // The change of execution 1 is forgotten
+    assertThat(this.feed.getChanges(this.feed.getFeedId(), 0, 0).isReset()).isTrue();
+    assertThat(this.feed.getChanges(this.feed.getFeedId(), 1, 0).getChangedExecIds())
+        .containsExactly(2, 3, 4);
+  }
+}
@@ -27,7 +27,9 @@ import azkaban.test.executions.ThinArchiveTestUtils;
 import azkaban.utils.DependencyTransferManager;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.Utils;
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -76,17 +78,19 @@ public class FlowPreparerTest {
 
     final ProjectFileHandler projectFileHandlerFAT = mock(ProjectFileHandler.class);
     when(projectFileHandlerFAT.getFileType()).thenReturn("zip");
-    when(projectFileHandlerFAT.getLocalFile()).thenReturn(zipFAT);
     when(projectFileHandlerFAT.getStartupDependencies()).thenReturn(Collections.emptySet());
 
     final ProjectFileHandler projectFileHandlerTHIN = mock(ProjectFileHandler.class);
     when(projectFileHandlerTHIN.getFileType()).thenReturn("zip");
-    when(projectFileHandlerTHIN.getLocalFile()).thenReturn(zipTHIN);
     when(projectFileHandlerTHIN.getStartupDependencies()).thenReturn(ThinArchiveTestUtils.getDepSetAB());
 
     final ProjectStorageManager projectStorageManager = mock(ProjectStorageManager.class);
-    when(projectStorageManager.getProjectFile(eq(FAT_PROJECT_ID), anyInt())).thenReturn(projectFileHandlerFAT);
-    when(projectStorageManager.getProjectFile(eq(THIN_PROJECT_ID), anyInt())).thenReturn(projectFileHandlerTHIN);
+    when(projectStorageManager.getProjectFileMetadata(eq(FAT_PROJECT_ID), anyInt())).thenReturn(projectFileHandlerFAT);
+    when(projectStorageManager.getProjectFileMetadata(eq(THIN_PROJECT_ID), anyInt())).thenReturn(projectFileHandlerTHIN);
+    when(projectStorageManager.getProjectFileInputStream(projectFileHandlerFAT))
+        .thenAnswer(invocation -> new FileInputStream(zipFAT));
+    when(projectStorageManager.getProjectFileInputStream(projectFileHandlerTHIN))
+        .thenAnswer(invocation -> new FileInputStream(zipTHIN));
     return projectStorageManager;
   }
 
@@ -225,4 +229,27 @@ public class FlowPreparerTest {
     Set<Dependency> expectedDownloadedDeps = ThinArchiveTestUtils.getDepSetAB();
     verify(this.dependencyTransferManager).downloadAllDependencies(depSetEq(expectedDownloadedDeps));
   }
+
+  @Test
+  public void testPrefetchProject() throws Exception {
+    assertThat(this.instance.prefetchProject(FAT_PROJECT_ID, 34, Long.MAX_VALUE,
+        RateLimiter.create(Double.MAX_VALUE))).isTrue();
+    assertThat(new File(this.projectsDir, FAT_PROJECT_ID + ".34/" + SAMPLE_FLOW_01)).exists();
+
+    // Already cached
+    assertThat(this.instance.prefetchProject(FAT_PROJECT_ID, 34, Long.MAX_VALUE,
+        RateLimiter.create(Double.MAX_VALUE))).isFalse();
+
+    final ProjectDirectoryMetadata proj = new ProjectDirectoryMetadata(FAT_PROJECT_ID, 34);
+    assertThat(this.instance.downloadProjectIfNotExists(proj, 127)).isNull();
+  }
+
+  @Test
+  public void testPrefetchProjectOverDiskBudget() throws Exception {
+    assertThat(this.instance.prefetchProject(FAT_PROJECT_ID, 34, 1024,
+        RateLimiter.create(Double.MAX_VALUE))).isFalse();
+
+    // The downloaded project exceeds the budget, so it was discarded.
+    assertThat(this.projectsDir.list()).isEmpty();
+  }
 }
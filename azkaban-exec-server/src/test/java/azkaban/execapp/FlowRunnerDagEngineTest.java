@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.dag.DagService;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutionOptions.FailureAction;
+import azkaban.executor.InteractiveTestJob;
+import azkaban.executor.Status;
+import azkaban.spi.EventType;
+import azkaban.utils.ExecutorServiceUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the flows of {@link FlowRunnerTest} on the dag engine. They must end the same way.
+ */
+public class FlowRunnerDagEngineTest extends FlowRunnerTestBase {
+
+  private final DagService dagService = new DagService(new ExecutorServiceUtils());
+  private FlowRunnerTestUtil testUtil;
+
+  @Before
+  public void setUp() throws Exception {
+    this.testUtil = new FlowRunnerTestUtil("exectest1", this.temporaryFolder);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.dagService.shutdownAndAwaitTermination();
+  }
+
+  private FlowRunner createFromFlowFile(final String flowName,
+      final EventCollectorListener eventCollector, final ExecutionOptions options)
+      throws Exception {
+    return this.testUtil.createFromFlowFile(flowName, eventCollector, options)
+        .setDagService(this.dagService);
+  }
+
+  private static EventCollectorListener createEventCollector() {
+    final EventCollectorListener eventCollector = new EventCollectorListener();
+    eventCollector.setEventFilterOut(EventType.JOB_FINISHED,
+        EventType.JOB_STARTED, EventType.JOB_STATUS_CHANGED);
+    return eventCollector;
+  }
+
+  @Test
+  public void exec1Normal() throws Exception {
+    final EventCollectorListener eventCollector = createEventCollector();
+    this.runner = createFromFlowFile("exec1", eventCollector, new ExecutionOptions());
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    succeedJobs("job3", "job4", "job6");
+
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+    assertThreadShutDown();
+
+    assertStatus("job1", Status.SUCCEEDED);
+    assertStatus("job2", Status.SUCCEEDED);
+    assertStatus("job3", Status.SUCCEEDED);
+    assertStatus("job4", Status.SUCCEEDED);
+    assertStatus("job5", Status.SUCCEEDED);
+    assertStatus("job6", Status.SUCCEEDED);
+    assertStatus("job7", Status.SUCCEEDED);
+    assertStatus("job8", Status.SUCCEEDED);
+    assertStatus("job10", Status.SUCCEEDED);
+    assertStartedAfterDependencies(this.runner.getExecutableFlow());
+
+    eventCollector.assertEvents(EventType.FLOW_STARTED, EventType.FLOW_FINISHED);
+  }
+
+  @Test
+  public void exec1Disabled() throws Exception {
+    this.runner = createFromFlowFile("exec1", createEventCollector(), new ExecutionOptions());
+    final ExecutableFlow exFlow = this.runner.getExecutableFlow();
+    exFlow.getExecutableNode("job1").setStatus(Status.DISABLED);
+    exFlow.getExecutableNode("job6").setStatus(Status.DISABLED);
+    exFlow.getExecutableNode("job5").setStatus(Status.DISABLED);
+    exFlow.getExecutableNode("job10").setStatus(Status.DISABLED);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    succeedJobs("job3", "job4");
+
+    assertThreadShutDown();
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+
+    assertStatus("job1", Status.SKIPPED);
+    assertStatus("job2", Status.SUCCEEDED);
+    assertStatus("job3", Status.SUCCEEDED);
+    assertStatus("job4", Status.SUCCEEDED);
+    assertStatus("job5", Status.SKIPPED);
+    assertStatus("job6", Status.SKIPPED);
+    assertStatus("job7", Status.SUCCEEDED);
+    assertStatus("job8", Status.SUCCEEDED);
+    assertStatus("job10", Status.SKIPPED);
+  }
+
+  @Test
+  public void exec1Failed() throws Exception {
+    final EventCollectorListener eventCollector = createEventCollector();
+    this.runner = createFromFlowFile("exec2", eventCollector, new ExecutionOptions());
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    succeedJobs("job6");
+
+    Assert.assertTrue(!this.runner.isKilled());
+    waitForAndAssertFlowStatus(Status.FAILED);
+
+    assertStatus("job1", Status.SUCCEEDED);
+    assertStatus("job2d", Status.FAILED);
+    assertStatus("job3", Status.CANCELLED);
+    assertStatus("job4", Status.CANCELLED);
+    assertStatus("job5", Status.CANCELLED);
+    assertStatus("job6", Status.SUCCEEDED);
+    assertStatus("job7", Status.CANCELLED);
+    assertStatus("job8", Status.CANCELLED);
+    assertStatus("job9", Status.CANCELLED);
+    assertStatus("job10", Status.CANCELLED);
+    assertThreadShutDown();
+
+    eventCollector.assertEvents(EventType.FLOW_STARTED, EventType.FLOW_FINISHED);
+  }
+
+  @Test
+  public void exec1FailedKillAll() throws Exception {
+    final ExecutionOptions options = new ExecutionOptions();
+    options.setFailureAction(FailureAction.CANCEL_ALL);
+    this.runner = createFromFlowFile("exec2", createEventCollector(), options);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    assertThreadShutDown();
+
+    Assert.assertTrue(this.runner.isKilled());
+    waitForAndAssertFlowStatus(Status.KILLED);
+
+    assertStatus("job1", Status.SUCCEEDED);
+    assertStatus("job2d", Status.FAILED);
+    assertStatus("job3", Status.CANCELLED);
+    assertStatus("job4", Status.CANCELLED);
+    assertStatus("job5", Status.CANCELLED);
+    assertStatus("job6", Status.KILLED);
+    assertStatus("job7", Status.CANCELLED);
+    assertStatus("job8", Status.CANCELLED);
+    assertStatus("job9", Status.CANCELLED);
+    assertStatus("job10", Status.CANCELLED);
+  }
+
+  @Test
+  public void exec1FailedFinishRest() throws Exception {
+    final ExecutionOptions options = new ExecutionOptions();
+    options.setFailureAction(FailureAction.FINISH_ALL_POSSIBLE);
+    this.runner = createFromFlowFile("exec3", createEventCollector(), options);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    succeedJobs("job3");
+
+    waitForAndAssertFlowStatus(Status.FAILED);
+
+    assertStatus("job1", Status.SUCCEEDED);
+    assertStatus("job2d", Status.FAILED);
+    assertStatus("job3", Status.SUCCEEDED);
+    assertStatus("job4", Status.CANCELLED);
+    assertStatus("job5", Status.CANCELLED);
+    assertStatus("job6", Status.CANCELLED);
+    assertStatus("job7", Status.SUCCEEDED);
+    assertStatus("job8", Status.SUCCEEDED);
+    assertStatus("job9", Status.SUCCEEDED);
+    assertStatus("job10", Status.CANCELLED);
+    assertThreadShutDown();
+  }
+
+  @Test
+  public void execAndCancel() throws Exception {
+    this.runner = createFromFlowFile("exec1", createEventCollector(), new ExecutionOptions());
+
+    FlowRunnerTestUtil.startThread(this.runner);
+
+    assertStatus("job1", Status.SUCCEEDED);
+    assertStatus("job2", Status.SUCCEEDED);
+    waitJobsStarted(this.runner, "job3", "job4", "job6");
+
+    InteractiveTestJob.getTestJob("job3").ignoreCancel();
+    this.runner.kill("me");
+    assertStatus("job3", Status.KILLING);
+    assertFlowStatus(this.runner.getExecutableFlow(), Status.KILLING);
+    InteractiveTestJob.getTestJob("job3").failJob();
+
+    Assert.assertTrue(this.runner.isKilled());
+
+    assertStatus("job5", Status.CANCELLED);
+    assertStatus("job7", Status.CANCELLED);
+    assertStatus("job8", Status.CANCELLED);
+    assertStatus("job10", Status.CANCELLED);
+    assertStatus("job3", Status.KILLED);
+    assertStatus("job4", Status.KILLED);
+    assertStatus("job6", Status.KILLED);
+    assertThreadShutDown();
+
+    waitForAndAssertFlowStatus(Status.KILLED);
+  }
+
+  @Test
+  public void execPauseAndResume() throws Exception {
+    this.runner = createFromFlowFile("exec1", createEventCollector(), new ExecutionOptions());
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    waitJobsStarted(this.runner, "job3", "job4", "job6");
+
+    this.runner.pause("me");
+    waitForAndAssertFlowStatus(Status.PAUSED);
+    succeedJobs("job3", "job4");
+    assertStatus("job3", Status.SUCCEEDED);
+    assertStatus("job4", Status.SUCCEEDED);
+    // job5 isn't started while the flow is paused
+    assertStatus("job5", Status.READY);
+
+    this.runner.resume("me");
+    succeedJobs("job6");
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+    assertStatus("job5", Status.SUCCEEDED);
+    assertStartedAfterDependencies(this.runner.getExecutableFlow());
+    assertThreadShutDown();
+  }
+
+  @Test
+  public void retryFailuresIsRejected() throws Exception {
+    this.runner = createFromFlowFile("exec2", createEventCollector(), new ExecutionOptions());
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    assertStatus("job2d", Status.FAILED);
+    try {
+      this.runner.retryFailures("me");
+      Assert.fail("Retrying failures should be rejected on the dag engine");
+    } catch (final IllegalStateException e) {
+      // expected
+    }
+
+    succeedJobs("job6");
+    waitForAndAssertFlowStatus(Status.FAILED);
+    assertThreadShutDown();
+  }
+
+  @Test
+  public void execRetries() throws Exception {
+    this.runner = createFromFlowFile("exec4-retry", createEventCollector(),
+        new ExecutionOptions());
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    assertThreadShutDown();
+
+    assertStatus("job-retry", Status.SUCCEEDED);
+    assertStatus("job-pass", Status.SUCCEEDED);
+    assertStatus("job-retry-fail", Status.FAILED);
+    Assert.assertEquals(3,
+        this.runner.getExecutableFlow().getExecutableNode("job-retry").getAttempt());
+    Assert.assertEquals(2,
+        this.runner.getExecutableFlow().getExecutableNode("job-retry-fail").getAttempt());
+
+    waitForAndAssertFlowStatus(Status.FAILED);
+  }
+
+  private static void assertStartedAfterDependencies(final ExecutableFlow flow) {
+    for (final ExecutableNode node : flow.getExecutableNodes()) {
+      for (final String inNode : node.getInNodes()) {
+        final ExecutableNode parent = flow.getExecutableNode(inNode);
+        Assert.assertTrue(node.getId() + " started before " + inNode + " finished",
+            node.getStartTime() >= parent.getEndTime());
+      }
+    }
+  }
+}
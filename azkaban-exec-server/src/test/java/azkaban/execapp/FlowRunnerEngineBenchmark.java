@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.dag.DagService;
+import azkaban.execapp.jmx.JmxJobMBeanManager;
+import azkaban.executor.AlerterHolder;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutableNode;
+import azkaban.executor.ExecutorLoader;
+import azkaban.flow.Flow;
+import azkaban.jobtype.JobTypeManager;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.project.Project;
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectLoader;
+import azkaban.test.Utils;
+import azkaban.utils.ExecutorServiceUtils;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Compares the job to job handoff latency of the polling loop of FlowRunner and of the dag
+ * engine, on a chain of noop jobs. The handoff is the time between the end of a job and the start
+ * of the job depending on it. Not a unit test, run its main method.
+ */
+public class FlowRunnerEngineBenchmark {
+
+  private static final int NUM_JOBS = 200;
+  private static final int WARMUP_RUNS = 2;
+  private static final int RUNS = 5;
+
+  private static int execId = 1;
+
+  public static void main(final String[] args) throws Exception {
+    Utils.initServiceProvider();
+    JmxJobMBeanManager.getInstance().initialize(new Props());
+    final File dir = Files.createTempDirectory("flow-engine-benchmark").toFile();
+    final DagService dagService = new DagService(new ExecutorServiceUtils());
+    try {
+      final File projectDir = new File(dir, "project");
+      writeChainFlow(projectDir);
+      final Project project = new Project(1, "benchmark");
+      final Map<String, Flow> flowMap = FlowRunnerTestUtil
+          .prepareProject(project, projectDir, new File(dir, "work"));
+      final Flow flow = flowMap.get("job" + (NUM_JOBS - 1));
+
+      run("polling", project, flow, new File(dir, "work"), null);
+      run("dag", project, flow, new File(dir, "work"), dagService);
+    } finally {
+      dagService.shutdownAndAwaitTermination();
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
+  private static void writeChainFlow(final File projectDir) throws Exception {
+    projectDir.mkdirs();
+    for (int i = 0; i < NUM_JOBS; i++) {
+      final String job = "type=noop\n" + (i > 0 ? "dependencies=job" + (i - 1) + "\n" : "");
+      Files.write(new File(projectDir, "job" + i + ".job").toPath(),
+          job.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static void run(final String name, final Project project, final Flow flow,
+      final File workingDir, final DagService dagService) throws Exception {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      runFlow(project, flow, workingDir, dagService);
+    }
+    final long[] handoffs = new long[RUNS * (NUM_JOBS - 1)];
+    long totalMs = 0;
+    for (int i = 0; i < RUNS; i++) {
+      final ExecutableFlow exFlow = runFlow(project, flow, workingDir, dagService);
+      totalMs += exFlow.getEndTime() - exFlow.getStartTime();
+      for (int j = 1; j < NUM_JOBS; j++) {
+        final ExecutableNode parent = exFlow.getExecutableNode("job" + (j - 1));
+        final ExecutableNode node = exFlow.getExecutableNode("job" + j);
+        handoffs[i * (NUM_JOBS - 1) + j - 1] = node.getStartTime() - parent.getEndTime();
+      }
+    }
+    Arrays.sort(handoffs);
+    System.out.println(String.format(
+        "%-8s %d jobs in %.0f ms, handoff mean=%.2f ms, p50=%d ms, p99=%d ms, max=%d ms",
+        name, NUM_JOBS, (double) totalMs / RUNS, Arrays.stream(handoffs).average().orElse(0),
+        handoffs[handoffs.length / 2], handoffs[handoffs.length * 99 / 100],
+        handoffs[handoffs.length - 1]));
+  }
+
+  private static ExecutableFlow runFlow(final Project project, final Flow flow,
+      final File workingDir, final DagService dagService) throws Exception {
+    final ExecutableFlow exFlow = new ExecutableFlow(project, flow);
+    exFlow.setExecutionPath(workingDir.getPath());
+    exFlow.setExecutionId(execId++);
+
+    final ExecutorLoader executorLoader = mock(ExecutorLoader.class);
+    final ProjectLoader projectLoader = mock(ProjectLoader.class);
+    when(projectLoader.fetchProjectMetaData(anyInt(), anyInt())).thenReturn(
+        new ProjectFileHandler(1, 1, 1, "testUser", "zip", "test.zip", 1, null, null, null,
+            "111.111.111.111"));
+    final MetricsManager metricsManager = new MetricsManager(new MetricRegistry());
+    final FlowRunner runner = new FlowRunner(exFlow, executorLoader, projectLoader,
+        new JobTypeManager(null, null, FlowRunnerEngineBenchmark.class.getClassLoader()),
+        new Props(), null, mock(AlerterHolder.class), new CommonMetrics(metricsManager),
+        new ExecMetrics(metricsManager));
+    runner.setDagService(dagService);
+    runner.run();
+    return exFlow;
+  }
+}
@@ -16,11 +16,21 @@
 
 package azkaban.execapp;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
 import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableNode;
 import azkaban.executor.ExecutionOptions;
 import azkaban.executor.ExecutionOptions.FailureAction;
+import azkaban.executor.ExecutorLoader;
 import azkaban.executor.InteractiveTestJob;
 import azkaban.executor.Status;
 import azkaban.spi.EventType;
@@ -68,6 +78,28 @@ public class FlowRunnerTest extends FlowRunnerTestBase {
     eventCollector.assertEvents(EventType.FLOW_STARTED, EventType.FLOW_FINISHED);
   }
 
+  @Test
+  public void exec1NormalWithFlowDeltaUpdates() throws Exception {
+    final Props azkabanProps = new Props();
+    azkabanProps.put(ConfigurationKeys.AZKABAN_FLOW_DELTA_UPDATES_ENABLED, "true");
+    azkabanProps.put(ConfigurationKeys.AZKABAN_FLOW_DELTA_COMPACTION_INTERVAL, "3");
+    this.runner = this.testUtil
+        .createFromFlowFile("exec1", new EventCollectorListener(), azkabanProps);
+    final ExecutorLoader loader = this.testUtil.getExecutorLoader();
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    succeedJobs("job3", "job4", "job6");
+
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+    assertThreadShutDown();
+
+    final ExecutableFlow flow = this.runner.getExecutableFlow();
+    verify(loader, never()).updateExecutableFlow(flow);
+    verify(loader, atLeastOnce()).updateExecutableFlowDelta(eq(flow), anyInt(), anyLong());
+    // The first update and the final one rewrite the full flow data
+    verify(loader, atLeast(2)).compactExecutableFlowDeltas(flow);
+  }
+
   @Test
   public void exec1Disabled() throws Exception {
     final EventCollectorListener eventCollector = new EventCollectorListener();
@@ -185,6 +185,14 @@ public class FlowRunnerTestUtil {
         watcher, pipeline);
   }
 
+  public FlowRunner createFromFlowFile(final String flowName,
+      final EventCollectorListener eventCollector, final Props azkabanProps) throws Exception {
+    final ExecutableFlow exFlow = FlowRunnerTestUtil
+        .prepareExecDir(this.workingDir, this.projectDir, flowName, 1);
+    return createFromExecutableFlow(eventCollector, exFlow, new ExecutionOptions(),
+        new HashMap<>(), azkabanProps);
+  }
+
   public FlowRunner createFromFlowFile(final String flowName,
       final EventCollectorListener eventCollector,
       final ExecutionOptions options, final FlowWatcher watcher, final Integer pipeline)
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutionOptions;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.executor.Status;
+import azkaban.metrics.MetricsManager;
+import azkaban.metrics.MetricsTestUtility;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class FlowUpdateWriterTest {
+
+  private ExecutorLoader executorLoader;
+  private MetricsTestUtility testUtil;
+  private FlowUpdateWriter writer;
+
+  @Before
+  public void setUp() {
+    this.executorLoader = mock(ExecutorLoader.class);
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    this.testUtil = new MetricsTestUtility(metricRegistry);
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_FLOW_WRITE_BEHIND_ENABLED, "true");
+    this.writer = new FlowUpdateWriter(props, this.executorLoader,
+        new ExecMetrics(new MetricsManager(metricRegistry)));
+  }
+
+  private static ExecutableFlow createFlow(final int execId, final Status status) {
+    final ExecutableFlow flow = new ExecutableFlow();
+    flow.setExecutionId(execId);
+    flow.setStatus(status);
+    flow.setExecutionOptions(new ExecutionOptions());
+    return flow;
+  }
+
+  @Test
+  public void testUpdatesAreCoalescedPerExecution() throws Exception {
+    final ExecutableFlow flow1 = createFlow(1, Status.RUNNING);
+    final ExecutableFlow flow2 = createFlow(2, Status.RUNNING);
+    this.writer.updateExecutableFlow(flow1);
+    this.writer.updateExecutableFlow(flow2);
+    this.writer.updateExecutableFlow(flow1);
+    this.writer.updateExecutableFlow(flow1);
+    assertThat(this.writer.getNumPendingFlows()).isEqualTo(2);
+    verify(this.executorLoader, never()).updateExecutableFlow(any());
+
+    this.writer.flush();
+    final ArgumentCaptor<Collection<ExecutableFlow>> captor =
+        ArgumentCaptor.forClass(Collection.class);
+    verify(this.executorLoader).updateExecutableFlows(captor.capture());
+    assertThat(captor.getValue()).extracting(ExecutableFlow::getExecutionId)
+        .containsExactly(1, 2);
+    assertThat(this.writer.getNumPendingFlows()).isEqualTo(0);
+    assertThat(this.writer.getCoalesceRatio()).isEqualTo(2.0);
+    assertThat(this.testUtil.getTimerCount(ExecMetrics.FLOW_UPDATE_FLUSH_TIMER_NAME))
+        .isEqualTo(1);
+
+    // Nothing to write
+    this.writer.flush();
+    verify(this.executorLoader, times(1)).updateExecutableFlows(any());
+  }
+
+  @Test
+  public void testSnapshotIsWrittenWhileFlowIsModified() throws Exception {
+    final ExecutableFlow flow = createFlow(1, Status.RUNNING);
+    flow.setUpdateTime(1000);
+    this.writer.updateExecutableFlow(flow);
+    final List<ExecutableFlow> written = new ArrayList<>();
+    doAnswer(invocation -> {
+      // The runner keeps changing the flow while the batch is being written.
+      flow.setStatus(Status.PAUSED);
+      flow.setUpdateTime(2000);
+      final Collection<ExecutableFlow> flows = invocation.getArgument(0);
+      written.addAll(flows);
+      return null;
+    }).when(this.executorLoader).updateExecutableFlows(any());
+
+    this.writer.flush();
+    assertThat(written).hasSize(1);
+    assertThat(written.get(0)).isNotSameAs(flow);
+    assertThat(written.get(0).getStatus()).isEqualTo(Status.RUNNING);
+    assertThat(written.get(0).getUpdateTime()).isEqualTo(1000);
+  }
+
+  @Test
+  public void testFinishedFlowIsWrittenImmediately() throws Exception {
+    final ExecutableFlow flow = createFlow(1, Status.RUNNING);
+    this.writer.updateExecutableFlow(flow);
+    flow.setStatus(Status.SUCCEEDED);
+    this.writer.updateExecutableFlow(flow);
+
+    verify(this.executorLoader).updateExecutableFlow(flow);
+    assertThat(this.writer.getNumPendingFlows()).isEqualTo(0);
+    this.writer.flush();
+    verify(this.executorLoader, never()).updateExecutableFlows(any());
+  }
+
+  @Test
+  public void testFlushDoesNotBlockOtherExecutions() throws Exception {
+    this.writer.updateExecutableFlow(createFlow(1, Status.RUNNING));
+    final ExecutableFlow finished = createFlow(2, Status.SUCCEEDED);
+    final AtomicBoolean written = new AtomicBoolean();
+    doAnswer(invocation -> {
+      // Another execution finishes while the batch is being written.
+      final Thread thread = new Thread(() -> {
+        try {
+          this.writer.updateExecutableFlow(finished);
+          written.set(true);
+        } catch (final ExecutorManagerException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      thread.start();
+      thread.join(5000);
+      return null;
+    }).when(this.executorLoader).updateExecutableFlows(any());
+
+    this.writer.flush();
+    assertThat(written.get()).isTrue();
+    verify(this.executorLoader).updateExecutableFlow(finished);
+  }
+
+  @Test
+  public void testFailedFlushIsRetried() throws Exception {
+    final ExecutableFlow flow = createFlow(1, Status.RUNNING);
+    this.writer.updateExecutableFlow(flow);
+    doThrow(new ExecutorManagerException("DB down")).when(this.executorLoader)
+        .updateExecutableFlows(any());
+
+    assertThatThrownBy(() -> this.writer.flush()).isInstanceOf(ExecutorManagerException.class);
+    assertThat(this.writer.getNumPendingFlows()).isEqualTo(1);
+  }
+
+  @Test
+  public void testDisabledWriterWritesSynchronously() throws Exception {
+    final FlowUpdateWriter disabled = new FlowUpdateWriter(new Props(), this.executorLoader,
+        new ExecMetrics(new MetricsManager(new MetricRegistry())));
+    final ExecutableFlow flow = createFlow(1, Status.RUNNING);
+    disabled.updateExecutableFlow(flow);
+
+    verify(this.executorLoader).updateExecutableFlow(flow);
+    assertThat(disabled.getNumPendingFlows()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.LogSegmentOutputStream;
+import azkaban.utils.LogSegmentUtils;
+import azkaban.utils.Props;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JobLogReaderTest {
+
+  @Rule
+  public final TemporaryFolder temp = new TemporaryFolder();
+
+  private JobLogReader reader;
+
+  @Before
+  public void setUp() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_READER_MAX_OPEN_FILES, 2);
+    this.reader = new JobLogReader(props);
+  }
+
+  private static void append(final File file, final String data) throws Exception {
+    Files.write(file.toPath(), data.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+  }
+
+  @Test
+  public void testReadsGrowingFile() throws Exception {
+    final File log = this.temp.newFile("job.log");
+    append(log, "first line\n");
+
+    LogData data = this.reader.read(log, 0, 50000);
+    assertThat(data.getOffset()).isEqualTo(0);
+    assertThat(data.getData()).isEqualTo("first line\n");
+
+    append(log, "second line\n");
+    data = this.reader.read(log, data.getOffset() + data.getLength(), 50000);
+    assertThat(data.getOffset()).isEqualTo(11);
+    assertThat(data.getData()).isEqualTo("second line\n");
+    assertThat(this.reader.getNumOpenFiles()).isEqualTo(1);
+
+    data = this.reader.read(log, 23, 50000);
+    assertThat(data.getLength()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReadsTail() throws Exception {
+    final File log = this.temp.newFile("job.log");
+    append(log, "first line\nsecond line\n");
+
+    final LogData data = this.reader.read(log, -1, 12);
+    assertThat(data.getOffset()).isEqualTo(11);
+    assertThat(data.getData()).isEqualTo("second line\n");
+  }
+
+  @Test
+  public void testReadsWholeUtf8Characters() throws Exception {
+    final File log = this.temp.newFile("job.log");
+    append(log, "aéb");
+
+    // The range ends in the middle of the two bytes of the accented character
+    final LogData data = this.reader.read(log, 0, 2);
+    assertThat(data.getData()).isEqualTo("a");
+  }
+
+  @Test
+  public void testReadsLogSegment() throws Exception {
+    final File segmentFile =
+        LogSegmentUtils.getSegmentFile(new File(this.temp.getRoot(), "job.log"));
+    final LogSegmentOutputStream segment = new LogSegmentOutputStream(segmentFile);
+    segment.write("first line\n".getBytes(StandardCharsets.UTF_8));
+    segment.flush();
+
+    assertThat(this.reader.read(segmentFile, 0, 50000).getData()).isEqualTo("first line\n");
+    segment.write("second line\n".getBytes(StandardCharsets.UTF_8));
+    segment.close();
+    assertThat(this.reader.read(segmentFile, 11, 50000).getData()).isEqualTo("second line\n");
+    assertThat(this.reader.getNumOpenFiles()).isEqualTo(1);
+  }
+
+  @Test
+  public void testReplacedFileIsOpenedAgain() throws Exception {
+    final File log = this.temp.newFile("job.log");
+    append(log, "old log\n");
+    assertThat(this.reader.read(log, 0, 50000).getData()).isEqualTo("old log\n");
+
+    final File rolled = this.temp.newFile("job.log.new");
+    append(rolled, "new log\n");
+    Files.move(rolled.toPath(), log.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    assertThat(this.reader.read(log, 0, 50000).getData()).isEqualTo("new log\n");
+    assertThat(this.reader.getNumOpenFiles()).isEqualTo(1);
+  }
+
+  @Test
+  public void testOpenFilesAreBounded() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      final File log = this.temp.newFile("job" + i + ".log");
+      append(log, "log " + i + "\n");
+      assertThat(this.reader.read(log, 0, 50000).getData()).isEqualTo("log " + i + "\n");
+    }
+    assertThat(this.reader.getNumOpenFiles()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFilesOfDirectoryAreClosed() throws Exception {
+    final File flowDir = this.temp.newFolder("1");
+    final File otherFlowDir = this.temp.newFolder("11");
+    final File log = new File(flowDir, "job.log");
+    final File otherLog = new File(otherFlowDir, "job.log");
+    append(log, "log\n");
+    append(otherLog, "other log\n");
+    this.reader.read(log, 0, 50000);
+    this.reader.read(otherLog, 0, 50000);
+
+    this.reader.closeFiles(flowDir);
+    assertThat(this.reader.getNumOpenFiles()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ExecutionLogChunk;
+import azkaban.executor.ExecutorLoader;
+import azkaban.executor.ExecutorManagerException;
+import azkaban.utils.Props;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JobLogShipperTest {
+
+  private static final int EXEC_ID = 1;
+  private static final String JOB = "job1";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final List<ExecutionLogChunk> uploaded = Collections.synchronizedList(new ArrayList<>());
+  private ExecutorLoader executorLoader;
+  private JobLogShipper shipper;
+  private File logFile;
+
+  @Before
+  public void setUp() throws Exception {
+    this.executorLoader = mock(ExecutorLoader.class);
+    doAnswer(invocation -> {
+      this.uploaded.addAll(invocation.getArgument(0));
+      return null;
+    }).when(this.executorLoader).uploadLogChunks(any(Collection.class));
+
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAMING_ENABLED, "true");
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAMING_INTERVAL_MS, "10");
+    this.shipper = new JobLogShipper(props, this.executorLoader);
+    this.logFile = new File(this.temp.getRoot(), "_job.1.job1.log");
+  }
+
+  @After
+  public void tearDown() {
+    this.shipper.shutdown();
+  }
+
+  private static byte[] content(final int length, final char c) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i % 100 == 99 ? '\n' : c);
+    }
+    return data;
+  }
+
+  private static void append(final File file, final byte[] data) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write(data);
+    }
+  }
+
+  /**
+   * Reassemble the uploaded log, checking the chunks are contiguous.
+   */
+  private byte[] uploadedLog() {
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    synchronized (this.uploaded) {
+      final List<ExecutionLogChunk> chunks = new ArrayList<>(this.uploaded);
+      chunks.sort((a, b) -> Integer.compare(a.getStartByte(), b.getStartByte()));
+      for (final ExecutionLogChunk chunk : chunks) {
+        assertThat(chunk.getStartByte()).isEqualTo(log.size());
+        assertThat(chunk.getData().length).isLessThanOrEqualTo(JobLogShipper.CHUNK_SIZE);
+        log.write(chunk.getData(), 0, chunk.getData().length);
+      }
+    }
+    return log.toByteArray();
+  }
+
+  private void waitForUploadedBytes(final int length) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (uploadedLog().length < length && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testChunksAreUploadedWhileTheJobRuns() throws Exception {
+    this.shipper.start();
+    final JobLogShipper.LogStream stream =
+        this.shipper.startStream(EXEC_ID, JOB, 0, this.logFile);
+    final byte[] data = content(JobLogShipper.CHUNK_SIZE * 3 + 1000, 'a');
+    append(this.logFile, data);
+
+    // Only the completed chunks are uploaded before the job finishes
+    waitForUploadedBytes(JobLogShipper.CHUNK_SIZE * 3);
+    assertThat(uploadedLog().length).isEqualTo(JobLogShipper.CHUNK_SIZE * 3);
+
+    this.shipper.finishStream(stream);
+    assertThat(uploadedLog()).isEqualTo(data);
+  }
+
+  @Test
+  public void testFinishUploadsTheTail() throws Exception {
+    final JobLogShipper.LogStream stream =
+        this.shipper.startStream(EXEC_ID, JOB, 0, this.logFile);
+    final byte[] data = content(5000, 'a');
+    append(this.logFile, data);
+
+    this.shipper.finishStream(stream);
+    assertThat(this.uploaded).hasSize(1);
+    assertThat(uploadedLog()).isEqualTo(data);
+  }
+
+  @Test
+  public void testRolledOverLogFiles() throws Exception {
+    final JobLogShipper.LogStream stream =
+        this.shipper.startStream(EXEC_ID, JOB, 0, this.logFile);
+    final byte[] first = content(JobLogShipper.CHUNK_SIZE + 300, 'a');
+    append(this.logFile, first);
+    this.shipper.poll();
+
+    // Written to the old file after the last poll, before the roll over
+    final byte[] beforeRoll = content(200, 'b');
+    append(this.logFile, beforeRoll);
+    assertThat(this.logFile.renameTo(new File(this.logFile.getPath() + ".1"))).isTrue();
+    final byte[] second = content(JobLogShipper.CHUNK_SIZE, 'c');
+    append(this.logFile, second);
+
+    this.shipper.start();
+    this.shipper.finishStream(stream);
+
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.write(first);
+    expected.write(beforeRoll);
+    expected.write(second);
+    assertThat(uploadedLog()).isEqualTo(expected.toByteArray());
+  }
+
+  /**
+   * Roll the log file over like RollingFileAppender does.
+   */
+  private void rollOver(final int maxBackupIndex) {
+    new File(this.logFile.getPath() + "." + maxBackupIndex).delete();
+    for (int i = maxBackupIndex - 1; i >= 1; i--) {
+      new File(this.logFile.getPath() + "." + i)
+          .renameTo(new File(this.logFile.getPath() + "." + (i + 1)));
+    }
+    assertThat(this.logFile.renameTo(new File(this.logFile.getPath() + ".1"))).isTrue();
+  }
+
+  @Test
+  public void testSeveralRollOversBetweenPolls() throws Exception {
+    final JobLogShipper.LogStream stream =
+        this.shipper.startStream(EXEC_ID, JOB, 0, this.logFile);
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    final byte[] first = content(JobLogShipper.CHUNK_SIZE + 300, 'a');
+    append(this.logFile, first);
+    expected.write(first);
+    this.shipper.poll();
+
+    // The poller is held back while the log rolls over three times
+    for (final char c : new char[]{'b', 'c', 'd'}) {
+      final byte[] data = content(JobLogShipper.CHUNK_SIZE / 2 + 100, c);
+      append(this.logFile, data);
+      expected.write(data);
+      rollOver(4);
+    }
+    final byte[] last = content(700, 'e');
+    append(this.logFile, last);
+    expected.write(last);
+
+    this.shipper.start();
+    this.shipper.finishStream(stream);
+    assertThat(uploadedLog()).isEqualTo(expected.toByteArray());
+  }
+
+  @Test
+  public void testWholeLogIsUploadedIfAChunkFails() throws Exception {
+    final JobLogShipper.LogStream stream =
+        this.shipper.startStream(EXEC_ID, JOB, 0, this.logFile);
+    append(this.logFile, content(JobLogShipper.CHUNK_SIZE, 'a'));
+    rollOver(4);
+    append(this.logFile, content(JobLogShipper.CHUNK_SIZE + 100, 'b'));
+    this.shipper.poll();
+    doThrow(new ExecutorManagerException("DB down")).when(this.executorLoader)
+        .uploadLogChunks(any(Collection.class));
+
+    this.shipper.start();
+    this.shipper.finishStream(stream);
+    verify(this.executorLoader).uploadLogFile(EXEC_ID, JOB, 0, this.logFile,
+        new File(this.logFile.getPath() + ".1"));
+  }
+
+  @Test
+  public void testResumeAfterTheLastUploadedChunk() throws Exception {
+    final byte[] data = content(JobLogShipper.CHUNK_SIZE * 2 + 500, 'a');
+    append(this.logFile, data);
+    when(this.executorLoader.fetchLogEndByte(anyInt(), anyString(), anyInt()))
+        .thenReturn(JobLogShipper.CHUNK_SIZE);
+
+    this.shipper.start();
+    final JobLogShipper.LogStream stream =
+        this.shipper.startStream(EXEC_ID, JOB, 0, this.logFile);
+    this.shipper.finishStream(stream);
+
+    synchronized (this.uploaded) {
+      assertThat(this.uploaded).isNotEmpty();
+      for (final ExecutionLogChunk chunk : this.uploaded) {
+        assertThat(chunk.getStartByte()).isGreaterThanOrEqualTo(JobLogShipper.CHUNK_SIZE);
+      }
+    }
+    this.uploaded.add(new ExecutionLogChunk(EXEC_ID, JOB, 0, 0,
+        Arrays.copyOf(data, JobLogShipper.CHUNK_SIZE)));
+    assertThat(uploadedLog()).isEqualTo(data);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.execapp.JobLogStreamer.LogSource;
+import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class JobLogStreamerTest {
+
+  private static JobLogStreamer createStreamer(final int maxStreams, final long maxDurationMs) {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_STREAMS, maxStreams);
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_DURATION_MS, maxDurationMs);
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_POLL_INTERVAL_MS, 10);
+    return new JobLogStreamer(props);
+  }
+
+  @Test
+  public void testLogIsStreamedUntilComplete() throws Exception {
+    final GrowingLog log = new GrowingLog();
+    log.append("first\n");
+    final StringWriter writer = new StringWriter();
+
+    final Thread appender = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+        log.append("second\n");
+        Thread.sleep(50);
+        log.complete = true;
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    appender.start();
+    assertThat(createStreamer(1, 60000).stream(log, 0, writer)).isTrue();
+    appender.join();
+
+    final List<Pair<String, Map<String, Object>>> events = parseEvents(writer.toString());
+    final StringBuilder streamedLog = new StringBuilder();
+    for (final Pair<String, Map<String, Object>> event : events.subList(0, events.size() - 1)) {
+      assertThat(event.getFirst()).isEqualTo("log");
+      assertThat(event.getSecond().get("offset")).isEqualTo(streamedLog.length());
+      streamedLog.append(event.getSecond().get("data"));
+    }
+    assertThat(streamedLog.toString()).isEqualTo("first\nsecond\n");
+    assertEndEvent(events.get(events.size() - 1), 13, true);
+  }
+
+  @Test
+  public void testStreamEndsAfterMaxDuration() throws Exception {
+    final GrowingLog log = new GrowingLog();
+    log.append("first\n");
+    final StringWriter writer = new StringWriter();
+
+    assertThat(createStreamer(1, 50).stream(log, 6, writer)).isTrue();
+
+    final List<Pair<String, Map<String, Object>>> events = parseEvents(writer.toString());
+    assertThat(events).hasSize(1);
+    assertEndEvent(events.get(0), 6, false);
+  }
+
+  @Test
+  public void testMaxStreamsIsDerivedFromServerThreads() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTOR_MAX_THREADS, 10);
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_DURATION_MS, 60000);
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_POLL_INTERVAL_MS, 10);
+    final JobLogStreamer streamer = new JobLogStreamer(props);
+    final CountDownLatch reading = new CountDownLatch(2);
+    final GrowingLog blockedLog = new GrowingLog() {
+      @Override
+      public synchronized LogData read(final int offset, final int length) {
+        reading.countDown();
+        return super.read(offset, length);
+      }
+    };
+    final List<Thread> streams = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      final Thread stream = new Thread(() -> {
+        try {
+          streamer.stream(blockedLog, 0, new StringWriter());
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      stream.start();
+      streams.add(stream);
+    }
+    assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // A fifth of the server threads
+    assertThat(streamer.stream(new GrowingLog(), 0, new StringWriter())).isFalse();
+    blockedLog.complete = true;
+    for (final Thread stream : streams) {
+      stream.join();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxStreamsAboveHalfOfServerThreadsIsRejected() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTOR_MAX_THREADS, 50);
+    props.put(ConfigurationKeys.AZKABAN_JOB_LOG_STREAM_MAX_STREAMS, 26);
+    new JobLogStreamer(props);
+  }
+
+  @Test
+  public void testStreamIsRejectedWhenMaxStreamsReached() throws Exception {
+    final JobLogStreamer streamer = createStreamer(1, 60000);
+    final GrowingLog log = new GrowingLog();
+    final CountDownLatch reading = new CountDownLatch(1);
+    final GrowingLog blockedLog = new GrowingLog() {
+      @Override
+      public synchronized LogData read(final int offset, final int length) {
+        reading.countDown();
+        return super.read(offset, length);
+      }
+    };
+    final Thread stream = new Thread(() -> {
+      try {
+        streamer.stream(blockedLog, 0, new StringWriter());
+      } catch (final Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    stream.start();
+    assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+    final StringWriter writer = new StringWriter();
+    assertThat(streamer.getNumStreams()).isEqualTo(1);
+    assertThat(streamer.stream(log, 0, writer)).isFalse();
+    assertThat(writer.toString()).isEmpty();
+
+    blockedLog.complete = true;
+    stream.join();
+    assertThat(streamer.getNumStreams()).isEqualTo(0);
+  }
+
+  private static void assertEndEvent(final Pair<String, Map<String, Object>> event,
+      final int offset, final boolean complete) {
+    assertThat(event.getFirst()).isEqualTo("end");
+    assertThat(event.getSecond().get("offset")).isEqualTo(offset);
+    assertThat(event.getSecond().get("complete")).isEqualTo(complete);
+  }
+
+  /**
+   * @return the name and the data of the events.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<Pair<String, Map<String, Object>>> parseEvents(final String stream)
+      throws Exception {
+    final List<Pair<String, Map<String, Object>>> events = new ArrayList<>();
+    for (final String event : stream.split("\n\n")) {
+      final String[] lines = event.split("\n");
+      assertThat(lines).hasSize(2);
+      assertThat(lines[0]).startsWith("event: ");
+      assertThat(lines[1]).startsWith("data: ");
+      events.add(new Pair<>(lines[0].substring(7),
+          (Map<String, Object>) JSONUtils.parseJSONFromString(lines[1].substring(6))));
+    }
+    return events;
+  }
+
+  private static class GrowingLog implements LogSource {
+
+    private final StringBuilder log = new StringBuilder();
+    private volatile boolean complete;
+
+    synchronized void append(final String data) {
+      this.log.append(data);
+    }
+
+    @Override
+    public synchronized LogData read(final int offset, final int length) {
+      final byte[] bytes = this.log.toString().getBytes(StandardCharsets.UTF_8);
+      final int start = Math.min(offset, bytes.length);
+      final int end = Math.min(bytes.length, start + length);
+      return new LogData(start, end - start,
+          new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean isComplete() {
+      return this.complete;
+    }
+  }
+}
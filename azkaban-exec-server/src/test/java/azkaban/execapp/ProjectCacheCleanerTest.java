@@ -28,6 +28,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.util.concurrent.locks.Lock;
 import java.util.zip.ZipFile;
 import org.junit.Before;
 import org.junit.Rule;
@@ -132,4 +133,71 @@ public class ProjectCacheCleanerTest {
     assertThat(this.cacheDir.list()).hasSize(1);
     assertThat(this.cacheDir.list()).contains("3.1");
   }
+
+  @Test
+  /**
+   * A project dir being hard-linked into an execution dir is only evicted once it's unlocked.
+   */
+  public void testEvictionWaitsForProjectInUse() throws Exception {
+    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    final Path lruProject = Paths.get(this.cacheDir.toString(), "1.1");
+    final Lock lock = cleaner.getProjectDirLock(lruProject).readLock();
+    lock.lock();
+    final Thread eviction = new Thread(() -> cleaner.deleteProjectDirsIfNecessary(2000000));
+    try {
+      eviction.start();
+      eviction.join(500);
+      assertThat(eviction.isAlive()).isTrue();
+      assertThat(lruProject.toFile()).exists();
+    } finally {
+      lock.unlock();
+    }
+    eviction.join();
+    cleaner.finishPendingCleanup();
+    assertThat(this.cacheDir.list()).containsOnly("2.1", "3.1");
+  }
+
+  @Test
+  /**
+   * A project dir used by an execution becomes the most recently used one.
+   */
+  public void testRecordedAccessChangesLRUItem() {
+    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    cleaner.recordAccess(Paths.get(this.cacheDir.toString(), "1.1"));
+    cleaner.deleteProjectDirsIfNecessary(2000000);
+    cleaner.finishPendingCleanup();
+    assertThat(this.cacheDir.list()).containsOnly("1.1", "3.1");
+  }
+
+  @Test
+  /**
+   * The order of the project dirs is reloaded from the journal after a restart.
+   */
+  public void testLRUOrderIsReloadedFromJournal() {
+    ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    cleaner.recordAccess(Paths.get(this.cacheDir.toString(), "1.1"));
+    cleaner.shutdown();
+
+    cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    cleaner.deleteProjectDirsIfNecessary(2000000);
+    cleaner.finishPendingCleanup();
+    assertThat(this.cacheDir.list()).containsOnly("1.1", "3.1");
+  }
+
+  @Test
+  /**
+   * Project dirs renamed for deletion before a restart are deleted when the cleaner starts.
+   */
+  public void testLeftoverDeletedDirsAreDeletedAtStartup() throws Exception {
+    final File leftover = new File(this.cacheDir,
+        ProjectCacheCleaner.DELETED_DIR_PREFIX + "1.1." + System.currentTimeMillis());
+    Files.move(new File(this.cacheDir, "1.1").toPath(), leftover.toPath());
+
+    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.9);
+    cleaner.finishPendingCleanup();
+
+    assertThat(leftover).doesNotExist();
+    assertThat(new File(this.cacheDir, "2.1")).exists();
+    assertThat(new File(this.cacheDir, "3.1")).exists();
+  }
 }
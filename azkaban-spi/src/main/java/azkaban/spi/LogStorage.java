@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.spi;
+
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * The Azkaban LogStorage interface stores the logs of executions outside of the database. By
+ * default, the logs are stored in the execution_logs table of the MySQL database.
+ *
+ * A log is put once, when the flow or job attempt is finished, as a compressed log segment. Only
+ * an index of the ranges of the log in the stored file is kept in the database, so the log is read
+ * with ranges of bytes of the file. The storage is also responsible for the retention of the logs.
+ *
+ * Note: This is a synchronous interface.
+ */
+public interface LogStorage {
+
+  /**
+   * Put the log of a flow, or of a job attempt, and return a key.
+   *
+   * @param execId Execution id of the flow
+   * @param name Nested id of the job, empty for the log of the flow
+   * @param attempt Attempt of the job
+   * @param localFile Read data from a local file
+   * @return Key associated with the log on successful put
+   */
+  String putLog(int execId, String name, int attempt, File localFile);
+
+  /**
+   * Read a range of the bytes of a log.
+   *
+   * @param key The key is a string pointing to the log in LogStorage.
+   * @param offset Offset of the range in the stored file
+   * @param length Length of the range, which must be within the stored file
+   */
+  byte[] getLogRange(String key, long offset, int length) throws IOException;
+
+  /**
+   * Delete the logs put before a time.
+   *
+   * @param millis Epoch time in milliseconds
+   * @return number of logs deleted
+   */
+  int deleteLogsBefore(long millis);
+}
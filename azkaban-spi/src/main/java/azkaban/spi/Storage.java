@@ -20,6 +20,7 @@ package azkaban.spi;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Objects;
 
 
 /**
@@ -41,6 +42,20 @@ public interface Storage {
    */
   InputStream getProject(String key) throws IOException;
 
+  /**
+   * Get an InputStream object for a version of a project.
+   *
+   * @param projectId id of the project
+   * @param version version of the project
+   * @param key The key returned by putProject for this version, null if it returned null.
+   * @return InputStream for fetching the blob.
+   */
+  default InputStream getProject(final int projectId, final int version, final String key)
+      throws IOException {
+    return getProject(Objects.requireNonNull(key,
+        String.format("Key is null. project ID: %d version: %d", projectId, version)));
+  }
+
   /**
    * Put a project and return a key.
    *
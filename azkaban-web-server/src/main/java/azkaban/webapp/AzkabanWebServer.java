@@ -23,6 +23,7 @@ import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.database.AzkabanDatabaseSetup;
 import azkaban.executor.ExecutionController;
+import azkaban.executor.ExecutionLogChunkCache;
 import azkaban.executor.ExecutorManager;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.flowtrigger.FlowTriggerService;
@@ -147,6 +148,7 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
   private final FlowTriggerService flowTriggerService;
   private Map<String, TriggerPlugin> triggerPlugins;
   private final ExecutionLogsCleaner executionLogsCleaner;
+  private final ProjectPrefetchNotifier projectPrefetchNotifier;
 
   @Inject
   public AzkabanWebServer(final Props props,
@@ -162,7 +164,8 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
       final FlowTriggerScheduler scheduler,
       final FlowTriggerService flowTriggerService,
       final StatusService statusService,
-      final ExecutionLogsCleaner executionLogsCleaner) {
+      final ExecutionLogsCleaner executionLogsCleaner,
+      final ProjectPrefetchNotifier projectPrefetchNotifier) {
     this.props = requireNonNull(props, "props is null.");
     this.server = requireNonNull(server, "server is null.");
     this.executorManagerAdapter = requireNonNull(executorManagerAdapter,
@@ -178,6 +181,8 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
     this.scheduler = requireNonNull(scheduler, "scheduler is null.");
     this.flowTriggerService = requireNonNull(flowTriggerService, "flow trigger service is null");
     this.executionLogsCleaner = requireNonNull(executionLogsCleaner, "executionlogcleaner is null");
+    this.projectPrefetchNotifier = requireNonNull(projectPrefetchNotifier,
+        "projectPrefetchNotifier is null");
     loadBuiltinCheckersAndActions();
 
     // load all trigger agents here
@@ -235,6 +240,8 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
 
     webServer.executionLogsCleaner.start();
 
+    webServer.projectPrefetchNotifier.start();
+
     // TODO refactor code into ServerProvider
     webServer.prepareAndStartServer();
 
@@ -522,6 +529,13 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
 
     this.metricsManager.addGauge("session-count", this.sessionCache::getSessionCount);
 
+    final ExecutionLogChunkCache logChunkCache =
+        SERVICE_PROVIDER.getInstance(ExecutionLogChunkCache.class);
+    this.metricsManager.addGauge("log-chunk-cache-hit-rate", logChunkCache::getHitRate);
+    this.metricsManager.addGauge("log-chunk-cache-hit-count", logChunkCache::getHitCount);
+    this.metricsManager.addGauge("log-chunk-cache-miss-count", logChunkCache::getMissCount);
+    this.metricsManager.addGauge("log-chunk-cache-num-chunks", logChunkCache::getNumChunks);
+
     logger.info("starting reporting Web Server Metrics");
     this.metricsManager.startReporting("AZ-WEB", this.props);
   }
@@ -637,6 +651,7 @@ public class AzkabanWebServer extends AzkabanServer implements IMBeanRegistrable
 
   public void close() {
     this.mbeanRegistrationManager.closeMBeans();
+    this.projectPrefetchNotifier.shutdown();
     this.scheduleManager.shutdown();
     this.executorManagerAdapter.shutdown();
     try {
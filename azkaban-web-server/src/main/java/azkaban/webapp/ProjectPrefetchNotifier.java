@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp;
+
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.Executor;
+import azkaban.executor.ExecutorApiGateway;
+import azkaban.executor.ExecutorLoader;
+import azkaban.project.Project;
+import azkaban.project.ProjectManager;
+import azkaban.scheduler.Schedule;
+import azkaban.scheduler.ScheduleManager;
+import azkaban.scheduler.ScheduleManagerException;
+import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically asks the active executors to download the projects of the upcoming scheduled
+ * executions into their project cache, so that the flow preparation of these executions finds
+ * the projects already unzipped.
+ *
+ * <p>The latest version of each project is sent, so a version uploaded for a scheduled flow is
+ * prefetched at the next scan. The executors skip the projects they already have, and limit the
+ * prefetching to their own disk and bandwidth budget.</p>
+ */
+@Singleton
+@SuppressWarnings("FutureReturnValueIgnored")
+public class ProjectPrefetchNotifier {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProjectPrefetchNotifier.class);
+
+  private final ScheduleManager scheduleManager;
+  private final ProjectManager projectManager;
+  private final ExecutorLoader executorLoader;
+  private final ExecutorApiGateway apiGateway;
+  private final boolean enabled;
+  private final long intervalMs;
+  private final long lookaheadMs;
+  private final ScheduledExecutorService scheduler;
+
+  @Inject
+  public ProjectPrefetchNotifier(final Props azkProps, final ScheduleManager scheduleManager,
+      final ProjectManager projectManager, final ExecutorLoader executorLoader,
+      final ExecutorApiGateway apiGateway) {
+    this.scheduleManager = scheduleManager;
+    this.projectManager = projectManager;
+    this.executorLoader = executorLoader;
+    this.apiGateway = apiGateway;
+    this.enabled = azkProps.getBoolean(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_ENABLED, false);
+    this.intervalMs = azkProps.getLong(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_INTERVAL_MS,
+        Constants.DEFAULT_AZKABAN_PROJECT_PREFETCH_INTERVAL_MS);
+    this.lookaheadMs = azkProps.getLong(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_LOOKAHEAD_MS,
+        Constants.DEFAULT_AZKABAN_PROJECT_PREFETCH_LOOKAHEAD_MS);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("azk-project-prefetch-notifier").setDaemon(true)
+            .build());
+  }
+
+  public void start() {
+    if (!this.enabled) {
+      return;
+    }
+    logger.info("Starting project prefetch notifier thread");
+    this.scheduler.scheduleAtFixedRate(this::notifyExecutors, 0L, this.intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  public void shutdown() {
+    this.scheduler.shutdownNow();
+  }
+
+  private void notifyExecutors() {
+    try {
+      final List<Map<String, Object>> projects = getUpcomingProjects(System.currentTimeMillis());
+      if (projects.isEmpty()) {
+        return;
+      }
+      for (final Executor executor : this.executorLoader.fetchActiveExecutors()) {
+        this.apiGateway.prefetchProjectsAsync(executor, projects).whenComplete((r, e) -> {
+          if (e != null) {
+            logger.warn("Failed to ask executor " + executor + " to prefetch projects", e);
+          }
+        });
+      }
+    } catch (final Exception e) {
+      logger.error("Failed to notify the executors of the projects to prefetch", e);
+    }
+  }
+
+  /**
+   * Get the latest version of the projects having a flow scheduled before the end of the
+   * lookahead window, in the order of their next execution.
+   */
+  @VisibleForTesting
+  List<Map<String, Object>> getUpcomingProjects(final long now)
+      throws ScheduleManagerException {
+    final List<Schedule> schedules = new ArrayList<>();
+    for (final Schedule schedule : this.scheduleManager.getSchedules()) {
+      final long nextExecTime = schedule.getNextExecTime();
+      if (nextExecTime >= now && nextExecTime <= now + this.lookaheadMs) {
+        schedules.add(schedule);
+      }
+    }
+    schedules.sort(Comparator.comparingLong(Schedule::getNextExecTime));
+
+    final List<Map<String, Object>> projects = new ArrayList<>();
+    final Set<Integer> projectIds = new HashSet<>();
+    for (final Schedule schedule : schedules) {
+      if (!projectIds.add(schedule.getProjectId())) {
+        continue;
+      }
+      final Project project = this.projectManager.getProject(schedule.getProjectId());
+      if (project == null || !project.isActive()) {
+        continue;
+      }
+      final Map<String, Object> entry = new HashMap<>();
+      entry.put(ConnectorParams.PREFETCH_PROJECT_ID, project.getId());
+      entry.put(ConnectorParams.PREFETCH_VERSION, project.getVersion());
+      entry.put(ConnectorParams.PREFETCH_TIME, schedule.getNextExecTime());
+      projects.add(entry);
+    }
+    return projects;
+  }
+}
@@ -45,13 +45,21 @@ import azkaban.user.User;
 import azkaban.user.UserManager;
 import azkaban.utils.ExternalLinkUtils;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import azkaban.webapp.AzkabanWebServer;
 import azkaban.webapp.WebMetrics;
 import azkaban.webapp.plugin.PluginRegistry;
 import azkaban.webapp.plugin.ViewerPlugin;
+import com.google.common.collect.ImmutableMap;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -94,7 +102,11 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
   protected void handleGet(final HttpServletRequest req, final HttpServletResponse resp,
       final Session session) throws ServletException, IOException {
     if (hasParam(req, "ajax")) {
-      handleAJAXAction(req, resp, session);
+      if (getParam(req, "ajax").equals("streamExecJobLogs")) {
+        handleStreamJobLogs(req, resp, session);
+      } else {
+        handleAJAXAction(req, resp, session);
+      }
     } else if (hasParam(req, "execid")) {
       if (hasParam(req, "job")) {
         handleExecutionJobDetailsPage(req, resp, session);
@@ -545,7 +557,7 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
 
     try {
       final LogData data = this.executorManagerAdapter.getExecutableFlowLog(exFlow, offset, length);
-      ret.putAll(appendLogData(data, offset));
+      ret.putAll(appendLogData(data, Math.max(offset, 0)));
 
     } catch (final ExecutorManagerException e) {
       throw new ServletException(e);
@@ -587,13 +599,94 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
       final int attempt = this.getIntParam(req, "attempt", node.getAttempt());
       final LogData data = this.executorManagerAdapter
           .getExecutionJobLog(exFlow, jobId, offset, length, attempt);
-      ret.putAll(appendLogData(data, offset));
+      ret.putAll(appendLogData(data, Math.max(offset, 0)));
 
     } catch (final ExecutorManagerException e) {
       throw new ServletException(e);
     }
   }
 
+  /**
+   * Relays the log stream of a running job from its executor as server-sent events, with the log
+   * escaped like for a log fetch. A failure is sent as an error event, after which the client
+   * fetches the log by ranges instead.
+   */
+  private void handleStreamJobLogs(final HttpServletRequest req,
+      final HttpServletResponse resp, final Session session) throws ServletException, IOException {
+    resp.setContentType(ConnectorParams.LOG_STREAM_CONTENT_TYPE);
+    resp.setCharacterEncoding("utf-8");
+    resp.setHeader("Cache-Control", "no-cache");
+    // Not the writer of the response, which doesn't tell when the client went away
+    final Writer writer = new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8);
+
+    final int execId = getIntParam(req, "execid");
+    final String jobId = getParam(req, "jobId");
+    final int offset = getIntParam(req, "offset");
+    try {
+      final ExecutableFlow exFlow = this.executorManagerAdapter.getExecutableFlow(execId);
+      if (exFlow == null) {
+        writeLogStreamError(writer, "Cannot find execution '" + execId + "'");
+        return;
+      }
+      final HashMap<String, Object> ret = new HashMap<>();
+      if (getProjectAjaxByPermission(ret, exFlow.getProjectId(), session.getUser(), Type.READ)
+          == null) {
+        writeLogStreamError(writer, (String) ret.get("error"));
+        return;
+      }
+      final ExecutableNode node = exFlow.getExecutableNodePath(jobId);
+      if (node == null) {
+        writeLogStreamError(writer,
+            "Job " + jobId + " doesn't exist in " + exFlow.getExecutionId());
+        return;
+      }
+
+      final int attempt = getIntParam(req, "attempt", node.getAttempt());
+      this.executorManagerAdapter.streamExecutionJobLog(exFlow, jobId, offset, attempt,
+          in -> relayLogStream(in, writer));
+    } catch (final ExecutorManagerException e) {
+      logger.info("Stopped streaming the log of job " + jobId + " of execution " + execId
+          + ": " + e.getMessage());
+      try {
+        writeLogStreamError(writer, e.getMessage());
+      } catch (final IOException ignored) {
+        // The client went away
+      }
+    }
+  }
+
+  /**
+   * Copies the server-sent events of the executor, escaping the log in the data of the events.
+   */
+  private static void relayLogStream(final InputStream in, final Writer writer)
+      throws IOException {
+    final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith("data: ")) {
+        @SuppressWarnings("unchecked") final Map<String, Object> data =
+            (Map<String, Object>) JSONUtils.parseJSONFromString(line.substring(6));
+        if (data.get("data") instanceof String) {
+          data.put("data", StringEscapeUtils.escapeHtml((String) data.get("data")));
+        }
+        line = "data: " + JSONUtils.toJSON(data);
+      }
+      writer.write(line + "\n");
+      if (line.isEmpty()) {
+        writer.flush();
+      }
+    }
+    writer.flush();
+  }
+
+  private static void writeLogStreamError(final Writer writer, final String error)
+      throws IOException {
+    writer.write("event: " + ConnectorParams.LOG_STREAM_EVENT_ERROR + "\ndata: "
+        + JSONUtils.toJSON(ImmutableMap.of("error", String.valueOf(error))) + "\n\n");
+    writer.flush();
+  }
+
   private Map<String, Object> appendLogData(final LogData data, final int defaultOffset) {
     final Map<String, Object> parameters = new HashMap<>();
 
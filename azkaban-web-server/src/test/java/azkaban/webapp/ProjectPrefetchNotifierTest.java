@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.webapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.executor.ConnectorParams;
+import azkaban.executor.ExecutorApiGateway;
+import azkaban.executor.ExecutorLoader;
+import azkaban.project.Project;
+import azkaban.project.ProjectManager;
+import azkaban.scheduler.Schedule;
+import azkaban.scheduler.ScheduleManager;
+import azkaban.utils.Props;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProjectPrefetchNotifierTest {
+
+  private static final long NOW = 1_000_000L;
+
+  private ScheduleManager scheduleManager;
+  private ProjectManager projectManager;
+  private ProjectPrefetchNotifier notifier;
+
+  @Before
+  public void setUp() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_PROJECT_PREFETCH_LOOKAHEAD_MS, 1000);
+    this.scheduleManager = mock(ScheduleManager.class);
+    this.projectManager = mock(ProjectManager.class);
+    this.notifier = new ProjectPrefetchNotifier(props, this.scheduleManager, this.projectManager,
+        mock(ExecutorLoader.class), mock(ExecutorApiGateway.class));
+  }
+
+  private Schedule mockSchedule(final int projectId, final long nextExecTime) {
+    final Schedule schedule = mock(Schedule.class);
+    when(schedule.getProjectId()).thenReturn(projectId);
+    when(schedule.getNextExecTime()).thenReturn(nextExecTime);
+    return schedule;
+  }
+
+  private void mockProject(final int projectId, final int version, final boolean active) {
+    final Project project = new Project(projectId, "project" + projectId);
+    project.setVersion(version);
+    project.setActive(active);
+    when(this.projectManager.getProject(projectId)).thenReturn(project);
+  }
+
+  @Test
+  public void testUpcomingProjectsInOrderOfNextExecution() throws Exception {
+    mockProject(1, 3, true);
+    mockProject(2, 5, true);
+    mockProject(3, 1, false);
+    mockProject(4, 1, true);
+    when(this.scheduleManager.getSchedules()).thenReturn(Arrays.asList(
+        mockSchedule(1, NOW + 800),
+        mockSchedule(2, NOW + 200),
+        mockSchedule(1, NOW + 100),
+        // Inactive project
+        mockSchedule(3, NOW + 300),
+        // Out of the lookahead window
+        mockSchedule(4, NOW + 2000)));
+
+    final List<Map<String, Object>> projects = this.notifier.getUpcomingProjects(NOW);
+
+    assertThat(projects).hasSize(2);
+    assertThat(projects.get(0).get(ConnectorParams.PREFETCH_PROJECT_ID)).isEqualTo(1);
+    assertThat(projects.get(0).get(ConnectorParams.PREFETCH_VERSION)).isEqualTo(3);
+    assertThat(projects.get(0).get(ConnectorParams.PREFETCH_TIME)).isEqualTo(NOW + 100);
+    assertThat(projects.get(1).get(ConnectorParams.PREFETCH_PROJECT_ID)).isEqualTo(2);
+    assertThat(projects.get(1).get(ConnectorParams.PREFETCH_VERSION)).isEqualTo(5);
+  }
+}
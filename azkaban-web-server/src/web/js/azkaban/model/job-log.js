@@ -48,6 +48,10 @@ azkaban.JobLogModel = Backbone.Model.extend({
           // There may be more data available so request the next chunk
           self.refresh();
         }
+        else {
+          // Caught up, follow the log while the job is running
+          self.follow();
+        }
       }
     };
 
@@ -62,4 +66,51 @@ azkaban.JobLogModel = Backbone.Model.extend({
       success: successHandler
     });
   },
+
+  follow: function () {
+    if (!window.EventSource || this.eventSource || this.get("followed")) {
+      return;
+    }
+
+    var requestURL = contextURL + "/executor?" + $.param({
+      "execid": execId,
+      "jobId": jobId,
+      "ajax": "streamExecJobLogs",
+      "offset": this.get("offset"),
+      "attempt": attempt
+    });
+
+    var self = this;
+    var eventSource = new EventSource(requestURL);
+    this.eventSource = eventSource;
+
+    var close = function () {
+      eventSource.close();
+      self.eventSource = null;
+    };
+
+    eventSource.addEventListener("log", function (event) {
+      var data = JSON.parse(event.data);
+      self.set("offset", data.offset + data.length);
+      self.set("logData", self.get("logData") + data.data);
+    });
+    eventSource.addEventListener("end", function (event) {
+      var data = JSON.parse(event.data);
+      close();
+      if (data.complete) {
+        self.set("followed", true);
+      }
+      // Fetch what was written after the end of the stream, then follow again if the job is
+      // still running
+      self.refresh();
+    });
+    eventSource.addEventListener("error", function (event) {
+      // Sent by the server, e.g. when the flow isn't running, or fired when the connection is lost
+      if (event.data) {
+        console.log(JSON.parse(event.data).error);
+      }
+      close();
+      self.set("followed", true);
+    });
+  },
 });